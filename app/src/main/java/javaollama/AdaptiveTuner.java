@@ -0,0 +1,464 @@
+/**
+======================================================================
+CLASS NAME : AdaptiveTuner
+DESCRIPTION : Sizes the context window of each request to its prompt and learns from server timings
+              when a smaller window is worth reloading the model for
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  window learned per ollama server, a pool no longer mixes their timings
+======================================================================
+*/
+package javaollama;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class AdaptiveTuner {
+    private static final int MIN_CONTEXT = 2048;
+    private static final int DEFAULT_MAX_CONTEXT = 32768;
+    private static final double SMOOTHING = 0.2; // weight of the newest sample in the moving averages
+    private static final int EXPLORE_AFTER = 8; // requests that fit a smaller window before trying it
+    private static final double OUTPUT_MARGIN = 1.5;
+    private static final String DEFAULT_SERVER = "default";
+
+    private final int maxContext;
+    private final int threads;
+    private final int batch;
+    private final MetricsRegistry metrics;
+    // every server loads the model on its own, what one has loaded says nothing about another
+    private final Map<String, Window> windows;
+    private int reloads;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : AdaptiveTuner
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : cores is the processor count of the machines running ollama, 0 if unknown
+     * POST-CONDITION : Tuner with windows up to 32768 tokens
+     * ======================================================================
+     */
+    public AdaptiveTuner(int cores, MetricsRegistry metrics) {
+        this(cores, DEFAULT_MAX_CONTEXT, metrics);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : AdaptiveTuner
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : maxContext is a power of two >= 2048 the model supports, cores >= 0
+     * POST-CONDITION : Tuner created, num_thread and num_batch chosen from cores when known
+     * ======================================================================
+     */
+    public AdaptiveTuner(int cores, int maxContext, MetricsRegistry metrics) {
+        if (maxContext < MIN_CONTEXT || Integer.bitCount(maxContext) != 1) {
+            throw new IllegalArgumentException("Maximum context must be a power of two >= " + MIN_CONTEXT + ": "
+                    + maxContext);
+        }
+        this.maxContext = maxContext;
+        this.threads = cores;
+        // a smaller batch keeps the compute buffer of a cpu-only server small, large batches pay off with more cores
+        this.batch = cores <= 0 ? 0 : cores <= 4 ? 512 : cores <= 8 ? 1024 : 2048;
+        this.metrics = metrics;
+        this.windows = new HashMap<>();
+        metrics.registerGauge("javallama_tuner_context", this::getContextTokens);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : tune
+     * DESCRIPTION : Chooses the options of the next request to a tuner's only server
+     * PRE-CONDITION : base holds the profile options with num_predict, promptTokens is the prompt estimate
+     * POST-CONDITION : Returns the options, see tune for a named server
+     * ======================================================================
+     */
+    public Map<String, Object> tune(Map<String, Object> base, int promptTokens) {
+        return tune(DEFAULT_SERVER, base, promptTokens);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : tune
+     * DESCRIPTION : Chooses the options of the next request to the named server
+     * PRE-CONDITION : The request was given that server, base holds the profile options with num_predict,
+     *                 promptTokens is the prompt estimate
+     * POST-CONDITION : Returns read-only options with num_ctx sized to the prompt and the expected answer;
+     *                  the window grows at once and shrinks only once the learned savings outweigh a reload
+     * ======================================================================
+     */
+    public synchronized Map<String, Object> tune(String server, Map<String, Object> base, int promptTokens) {
+        return window(server).tune(base, promptTokens);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : record
+     * DESCRIPTION : Learns from the timings a tuner's only server reported
+     * PRE-CONDITION : contextTokens is the num_ctx the request was sent with
+     * POST-CONDITION : See record for a named server
+     * ======================================================================
+     */
+    public void record(int contextTokens, InferenceTimings timings) {
+        record(DEFAULT_SERVER, contextTokens, timings);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : record
+     * DESCRIPTION : Learns from the timings the named server reported for a tuned request
+     * PRE-CONDITION : contextTokens is the num_ctx the request was sent with
+     * POST-CONDITION : Generation speed of the window, reload cost and typical answer length of the server updated
+     * ======================================================================
+     */
+    public synchronized void record(String server, int contextTokens, InferenceTimings timings) {
+        if (!timings.isReported() || contextTokens < MIN_CONTEXT || contextTokens > maxContext) {
+            return;
+        }
+        window(server).record(contextTokens, timings);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : recordLoad
+     * DESCRIPTION : Learns the cost of loading the model on a tuner's only server
+     * PRE-CONDITION : contextTokens is the num_ctx the request was sent with
+     * POST-CONDITION : See recordLoad for a named server
+     * ======================================================================
+     */
+    public void recordLoad(int contextTokens, long loadNanos) {
+        recordLoad(DEFAULT_SERVER, contextTokens, loadNanos);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : recordLoad
+     * DESCRIPTION : Learns the cost of loading the model from a request that only loads it
+     * PRE-CONDITION : contextTokens is the num_ctx the request to the named server was sent with
+     * POST-CONDITION : Reload cost of the server updated if its window changed since its last request
+     * ======================================================================
+     */
+    public synchronized void recordLoad(String server, int contextTokens, long loadNanos) {
+        window(server).recordLoad(contextTokens, loadNanos);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getContextTokens
+     * DESCRIPTION : Gets the largest window a server was last sent
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns num_ctx, 0 before the first request
+     * ======================================================================
+     */
+    public synchronized int getContextTokens() {
+        int largest = 0;
+        for (Window window : windows.values()) {
+            largest = Math.max(largest, window.getContextTokens());
+        }
+        return largest;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getContextTokens
+     * DESCRIPTION : Gets the window the named server was last sent
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns num_ctx, 0 before the first request to it
+     * ======================================================================
+     */
+    public synchronized int getContextTokens(String server) {
+        Window window = windows.get(server);
+        return window != null ? window.getContextTokens() : 0;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getReloads
+     * DESCRIPTION : Gets how often a window changed, each change reloads the model on that server
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the count over all servers, their first requests included
+     * ======================================================================
+     */
+    public synchronized int getReloads() {
+        return reloads;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : window
+     * DESCRIPTION : Gets the learned state of a server
+     * PRE-CONDITION : Caller holds the lock
+     * POST-CONDITION : Returns the state, created empty on first use
+     * ======================================================================
+     */
+    private Window window(String server) {
+        Window window = windows.get(server);
+        if (window == null) {
+            window = new Window();
+            windows.put(server, window);
+        }
+        return window;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : bucketFor
+     * DESCRIPTION : Finds the smallest window holding the given tokens
+     * PRE-CONDITION : tokens >= 0
+     * POST-CONDITION : Returns the bucket index, the largest one if nothing fits
+     * ======================================================================
+     */
+    private int bucketFor(int tokens) {
+        int bucket = 0;
+        while (contextOf(bucket) < tokens && contextOf(bucket) < maxContext) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : bucketOf
+     * DESCRIPTION : Converts a power of two window into its bucket index
+     * PRE-CONDITION : contextTokens is a power of two >= 2048
+     * POST-CONDITION : Returns the index
+     * ======================================================================
+     */
+    private static int bucketOf(int contextTokens) {
+        return Integer.numberOfTrailingZeros(contextTokens) - Integer.numberOfTrailingZeros(MIN_CONTEXT);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : contextOf
+     * DESCRIPTION : Converts a bucket index into its window
+     * PRE-CONDITION : bucket >= 0
+     * POST-CONDITION : Returns num_ctx
+     * ======================================================================
+     */
+    private static int contextOf(int bucket) {
+        return MIN_CONTEXT << bucket;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : average
+     * DESCRIPTION : Exponential moving average step
+     * PRE-CONDITION : previous < 0 means no sample yet
+     * POST-CONDITION : Returns the updated average
+     * ======================================================================
+     */
+    private static double average(double previous, double sample) {
+        return previous < 0 ? sample : previous + SMOOTHING * (sample - previous);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : writeOutput
+     * DESCRIPTION : Prints the learned state
+     * PRE-CONDITION : None
+     * POST-CONDITION : State printed to standard output
+     * ======================================================================
+     */
+    public synchronized void writeOutput() {
+        System.out.println("Reloads: " + reloads);
+        for (Map.Entry<String, Window> entry : windows.entrySet()) {
+            System.out.println("Server " + entry.getKey() + ":");
+            entry.getValue().writeOutput();
+        }
+    }
+
+    /**
+     * ======================================================================
+     * CLASS NAME : Window
+     * DESCRIPTION : What the tuner learned about one server and the window it has loaded
+     * AUTHOR : Mickel Angelo Castoverde
+     * COPYRIGHT : macastroverde 2025
+     * REVISION HISTORY
+     * Date: By: Description:
+     * 2026-10-16 Mickel Angelo Castoverde Creation of the program
+     * ======================================================================
+     */
+    private class Window {
+        // generation speed per bucket, index i is MIN_CONTEXT << i; a window that no longer fits in
+        // gpu memory or squeezes the cpu caches shows up here
+        private final double[] nanosPerToken;
+        private int current; // bucket the server has loaded, -1 before the first request
+        private double reloadNanos;
+        private double outputTokens;
+        private int smallerStreak;
+        private double pendingSavingsNanos;
+        private int recordedContext; // window of the last reported request, a change means the model was loaded
+
+        private Map<String, Object> lastBase;
+        private int lastContext;
+        private Map<String, Object> lastTuned;
+
+        /*
+         * ======================================================================
+         * METHOD NAME : Window
+         * DESCRIPTION : Default constructor
+         * PRE-CONDITION : None
+         * POST-CONDITION : Nothing learned, no window loaded
+         * ======================================================================
+         */
+        Window() {
+            this.nanosPerToken = new double[bucketOf(maxContext) + 1];
+            this.current = -1;
+            this.outputTokens = -1;
+            this.reloadNanos = -1;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : tune
+         * DESCRIPTION : Chooses the options of the next request to this server
+         * PRE-CONDITION : Caller holds the tuner's lock
+         * POST-CONDITION : Returns read-only options, current moved if a reload pays off
+         * ======================================================================
+         */
+        Map<String, Object> tune(Map<String, Object> base, int promptTokens) {
+            Object predict = base.get("num_predict");
+            int maxTokens = predict instanceof Number ? ((Number) predict).intValue() : 512;
+            int expectedOutput = outputTokens < 0 ? maxTokens
+                    : (int) Math.min(maxTokens, Math.max(64, Math.ceil(outputTokens * OUTPUT_MARGIN)));
+            int needed = bucketFor(promptTokens + expectedOutput);
+
+            if (current < 0 || needed > current) {
+                // a window too small for the prompt cuts it, so growing cannot wait
+                switchTo(needed);
+            } else if (needed < current) {
+                smallerStreak++;
+                if (nanosPerToken[current] > 0 && nanosPerToken[needed] > 0) {
+                    pendingSavingsNanos += Math.max(0, nanosPerToken[current] - nanosPerToken[needed])
+                            * expectedOutput;
+                }
+                // shrinking costs a reload now and likely another to grow back, the smaller window is
+                // tried once before anything is known about it
+                boolean unexplored = nanosPerToken[needed] == 0 && smallerStreak >= EXPLORE_AFTER;
+                boolean worthIt = reloadNanos > 0 && pendingSavingsNanos > 2 * reloadNanos;
+                if (unexplored || worthIt) {
+                    switchTo(needed);
+                }
+            } else {
+                smallerStreak = 0;
+                pendingSavingsNanos = 0;
+            }
+            return options(base, contextOf(current));
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : record
+         * DESCRIPTION : Learns from the timings this server reported
+         * PRE-CONDITION : Caller holds the tuner's lock, contextTokens is within the tuner's range
+         * POST-CONDITION : Generation speed of the window, reload cost and typical answer length updated
+         * ======================================================================
+         */
+        void record(int contextTokens, InferenceTimings timings) {
+            int bucket = bucketOf(contextTokens);
+            recordLoad(contextTokens, timings.getLoadDurationNs());
+            if (timings.getEvalCount() > 0 && timings.getEvalDurationNs() > 0) {
+                double rate = (double) timings.getEvalDurationNs() / timings.getEvalCount();
+                nanosPerToken[bucket] = nanosPerToken[bucket] == 0 ? rate : average(nanosPerToken[bucket], rate);
+                outputTokens = average(outputTokens, timings.getEvalCount());
+            }
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : recordLoad
+         * DESCRIPTION : Learns the cost of loading the model on this server
+         * PRE-CONDITION : Caller holds the tuner's lock
+         * POST-CONDITION : Reload cost updated if the window changed since the last request
+         * ======================================================================
+         */
+        void recordLoad(int contextTokens, long loadNanos) {
+            // only the first request in a new window pays for loading the model
+            if (contextTokens != recordedContext && loadNanos > 0) {
+                reloadNanos = average(reloadNanos, loadNanos);
+            }
+            recordedContext = contextTokens;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : getContextTokens
+         * DESCRIPTION : Gets the window this server was last sent
+         * PRE-CONDITION : Caller holds the tuner's lock
+         * POST-CONDITION : Returns num_ctx, 0 before the first request
+         * ======================================================================
+         */
+        int getContextTokens() {
+            return current < 0 ? 0 : contextOf(current);
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : switchTo
+         * DESCRIPTION : Moves this server to another window
+         * PRE-CONDITION : Caller holds the tuner's lock
+         * POST-CONDITION : current is bucket, shrink bookkeeping reset
+         * ======================================================================
+         */
+        private void switchTo(int bucket) {
+            if (bucket != current) {
+                current = bucket;
+                reloads++;
+                metrics.increment("javallama_tuner_reloads_total", 1);
+            }
+            smallerStreak = 0;
+            pendingSavingsNanos = 0;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : options
+         * DESCRIPTION : Applies the window and hardware options to the profile options
+         * PRE-CONDITION : Caller holds the tuner's lock
+         * POST-CONDITION : Returns read-only options, the same map while base and window are unchanged
+         * ======================================================================
+         */
+        private Map<String, Object> options(Map<String, Object> base, int contextTokens) {
+            if (base == lastBase && contextTokens == lastContext) {
+                return lastTuned;
+            }
+            Map<String, Object> tuned = new HashMap<>(base);
+            tuned.put("num_ctx", contextTokens);
+            if (batch > 0) {
+                tuned.put("num_batch", Math.min(batch, contextTokens));
+                tuned.put("num_thread", threads);
+            }
+            Object keep = base.get("num_keep");
+            if (keep instanceof Number && ((Number) keep).intValue() > contextTokens / 2) {
+                // keeping more than half the window would leave too little room when the context shifts
+                tuned.put("num_keep", contextTokens / 2);
+            }
+            lastBase = base;
+            lastContext = contextTokens;
+            lastTuned = Map.copyOf(tuned);
+            return lastTuned;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : writeOutput
+         * DESCRIPTION : Prints what was learned about this server
+         * PRE-CONDITION : Caller holds the tuner's lock
+         * POST-CONDITION : State printed to standard output
+         * ======================================================================
+         */
+        void writeOutput() {
+            System.out.println("  Context window: " + getContextTokens() + " tokens");
+            System.out.println("  Reload cost: " + (long) (reloadNanos / 1_000_000) + " ms, answers of "
+                    + (long) outputTokens + " tokens");
+            for (int bucket = 0; bucket < nanosPerToken.length; bucket++) {
+                if (nanosPerToken[bucket] > 0) {
+                    System.out.println("    " + contextOf(bucket) + ": " + (long) nanosPerToken[bucket] / 1000
+                            + " us/token");
+                }
+            }
+        }
+    }
+}
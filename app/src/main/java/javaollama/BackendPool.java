@@ -0,0 +1,400 @@
+/**
+======================================================================
+CLASS NAME : BackendPool
+DESCRIPTION : Pool of ollama servers, least outstanding requests first with a circuit breaker per server
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import io.github.ollama4j.Ollama;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+public class BackendPool {
+
+    private static final String DEFAULT_HOST = "http://localhost:11434";
+    // consecutive failed requests before a server is taken out of the pool
+    private static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    private static final long DEFAULT_OPEN_MILLIS = 30_000;
+    // a session stays on its server unless that server has this many more requests than the least busy one
+    private static final int AFFINITY_SLACK = 4;
+    private static final BackendPool DEFAULT = fromHosts(hostsFromEnvironment(), MetricsRegistry.getDefault());
+
+    private final List<Backend> backends;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final MetricsRegistry metrics;
+    private final LongSupplier clock;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : BackendPool
+     * DESCRIPTION : Parameterized constructor with the default circuit breaker settings
+     * PRE-CONDITION : None
+     * POST-CONDITION : Empty pool, servers are added with addBackend
+     * ======================================================================
+     */
+    public BackendPool(MetricsRegistry metrics) {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS, metrics, System::nanoTime);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : BackendPool
+     * DESCRIPTION : Parameterized constructor with an injected clock (testing)
+     * PRE-CONDITION : failureThreshold > 0, openMillis > 0, clock returns nanoseconds
+     * POST-CONDITION : Empty pool, health gauge registered
+     * ======================================================================
+     */
+    public BackendPool(int failureThreshold, long openMillis, MetricsRegistry metrics, LongSupplier clock) {
+        this.backends = new ArrayList<>();
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.metrics = metrics;
+        this.clock = clock;
+        metrics.registerGauge("javallama_backends_healthy", this::getHealthyCount);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getDefault
+     * DESCRIPTION : Returns the pool built from OLLAMA_HOSTS, or the local server if unset
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the same instance on every call
+     * ======================================================================
+     */
+    public static BackendPool getDefault() {
+        return DEFAULT;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : single
+     * DESCRIPTION : Wraps one api instance in a pool of its own
+     * PRE-CONDITION : api is not null
+     * POST-CONDITION : Returns a pool with one backend named "default"
+     * ======================================================================
+     */
+    public static BackendPool single(Ollama api) {
+        // a pool per injected client would keep replacing the shared health gauge, so it gets its own registry
+        BackendPool pool = new BackendPool(new MetricsRegistry());
+        pool.addBackend("default", api);
+        return pool;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : fromHosts
+     * DESCRIPTION : Creates a pool with one backend per server url
+     * PRE-CONDITION : hosts is not empty
+     * POST-CONDITION : Returns the pool, blank entries are skipped
+     * ======================================================================
+     */
+    public static BackendPool fromHosts(Collection<String> hosts, MetricsRegistry metrics) {
+        BackendPool pool = new BackendPool(metrics);
+        for (String host : hosts) {
+            if (host != null && !host.isBlank()) {
+                pool.addBackend(host.trim(), new Ollama(host.trim()));
+            }
+        }
+        if (pool.size() == 0) {
+            pool.addBackend(DEFAULT_HOST, new Ollama(DEFAULT_HOST));
+        }
+        return pool;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : hostsFromEnvironment
+     * DESCRIPTION : Reads the comma separated server urls from OLLAMA_HOSTS
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the urls, the local server if the variable is not set
+     * ======================================================================
+     */
+    public static List<String> hostsFromEnvironment() {
+        String value = System.getenv("OLLAMA_HOSTS");
+        if (value == null || value.isBlank()) {
+            return List.of(DEFAULT_HOST);
+        }
+        return List.of(value.split(","));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : addBackend
+     * DESCRIPTION : Adds a server to the pool
+     * PRE-CONDITION : name is unique within the pool, api is not null
+     * POST-CONDITION : Returns the backend, it takes requests right away
+     * ======================================================================
+     */
+    public synchronized Backend addBackend(String name, Ollama api) {
+        Backend backend = new Backend(name, api);
+        backends.add(backend);
+        return backend;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : acquire
+     * DESCRIPTION : Picks the server for the next request
+     * PRE-CONDITION : preferred is the server the session used last, or null
+     * POST-CONDITION : Returns the preferred server if healthy and not overloaded, else the healthy server
+     *                  with the fewest outstanding requests; null if every server was excluded.
+     *                  The caller must pass the backend to release once the request ends
+     * ======================================================================
+     */
+    public synchronized Backend acquire(Backend preferred, Collection<Backend> excluded) {
+        long now = clock.getAsLong();
+        Backend best = null;
+        Backend fallback = null;
+        for (Backend backend : backends) {
+            if (excluded.contains(backend)) {
+                continue;
+            }
+            if (backend.isAvailable(now)) {
+                if (best == null || backend.outstanding < best.outstanding) {
+                    best = backend;
+                }
+            } else if (fallback == null || backend.openUntilNanos < fallback.openUntilNanos) {
+                fallback = backend;
+            }
+        }
+        if (best != null && preferred != null && preferred != best && !excluded.contains(preferred)
+                && preferred.isAvailable(now) && preferred.outstanding <= best.outstanding + AFFINITY_SLACK) {
+            // the session's kv-cache is warm on the server it used before
+            best = preferred;
+        }
+        if (best == null) {
+            // every server is open, trying the one that failed longest ago beats failing without a request
+            best = fallback;
+        }
+        if (best == null) {
+            return null;
+        }
+        if (best.openUntilNanos != 0) {
+            // open period is over, this request is the trial that decides whether the server is back
+            best.trialInFlight = true;
+        }
+        best.outstanding++;
+        return best;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : release
+     * DESCRIPTION : Reports how a request on a server ended
+     * PRE-CONDITION : backend was returned by acquire
+     * POST-CONDITION : A success closes the circuit, enough consecutive failures or a failed trial open it
+     * ======================================================================
+     */
+    public synchronized void release(Backend backend, boolean failed) {
+        backend.outstanding--;
+        boolean trial = backend.trialInFlight;
+        backend.trialInFlight = false;
+        if (!failed) {
+            backend.consecutiveFailures = 0;
+            if (backend.openUntilNanos != 0) {
+                System.out.println("Ollama backend " + backend.name + " is back");
+            }
+            backend.openUntilNanos = 0;
+            return;
+        }
+        backend.consecutiveFailures++;
+        metrics.increment("javallama_backend_failures_total", 1);
+        if (trial || backend.consecutiveFailures >= failureThreshold) {
+            backend.openUntilNanos = clock.getAsLong() + openNanos;
+            metrics.increment("javallama_backend_circuit_opened_total", 1);
+            System.out.println("Ollama backend " + backend.name + " taken out of the pool for "
+                    + TimeUnit.NANOSECONDS.toSeconds(openNanos) + " seconds");
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getPrimary
+     * DESCRIPTION : Returns a server for calls that do not go through acquire
+     * PRE-CONDITION : Pool is not empty
+     * POST-CONDITION : Returns the first healthy server, the first server if none is healthy
+     * ======================================================================
+     */
+    public synchronized Backend getPrimary() {
+        long now = clock.getAsLong();
+        for (Backend backend : backends) {
+            if (backend.isAvailable(now)) {
+                return backend;
+            }
+        }
+        return backends.get(0);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getBackends
+     * DESCRIPTION : Returns the servers in the pool
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a copy of the backend list
+     * ======================================================================
+     */
+    public synchronized List<Backend> getBackends() {
+        return new ArrayList<>(backends);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getHealthyCount
+     * DESCRIPTION : Returns the number of servers taking requests
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the count of servers whose circuit is closed
+     * ======================================================================
+     */
+    public synchronized int getHealthyCount() {
+        int healthy = 0;
+        for (Backend backend : backends) {
+            if (backend.openUntilNanos == 0) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getOutstanding
+     * DESCRIPTION : Returns the requests a server is working on or has queued
+     * PRE-CONDITION : backend belongs to this pool
+     * POST-CONDITION : Returns the outstanding count
+     * ======================================================================
+     */
+    public synchronized int getOutstanding(Backend backend) {
+        return backend.outstanding;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : isOpen
+     * DESCRIPTION : Checks whether a server has been taken out of the pool
+     * PRE-CONDITION : backend belongs to this pool
+     * POST-CONDITION : Returns true while the circuit is open or a trial request is deciding
+     * ======================================================================
+     */
+    public synchronized boolean isOpen(Backend backend) {
+        return backend.openUntilNanos != 0;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : size
+     * DESCRIPTION : Returns the number of servers in the pool
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the backend count
+     * ======================================================================
+     */
+    public synchronized int size() {
+        return backends.size();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : writeOutput
+     * DESCRIPTION : Writes the object state to the console
+     * PRE-CONDITION : None
+     * POST-CONDITION : Object state is printed to stdout
+     * ======================================================================
+     */
+    public synchronized void writeOutput() {
+        System.out.println("BackendPool Status:");
+        for (Backend backend : backends) {
+            System.out.println(backend);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * CLASS NAME : Backend
+     * DESCRIPTION : One ollama server with its outstanding requests and circuit state,
+     *               the mutable state is guarded by the pool
+     * ======================================================================
+     */
+    public static class Backend {
+
+        private final String name;
+        private final Ollama api;
+        private int outstanding;
+        private int consecutiveFailures;
+        // 0 while the circuit is closed, otherwise when the server may be tried again
+        private long openUntilNanos;
+        private boolean trialInFlight;
+
+        /*
+         * ======================================================================
+         * METHOD NAME : Backend
+         * DESCRIPTION : Parameterized constructor
+         * PRE-CONDITION : api is not null
+         * POST-CONDITION : Healthy backend with nothing outstanding
+         * ======================================================================
+         */
+        Backend(String name, Ollama api) {
+            this.name = name;
+            this.api = api;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : isAvailable
+         * DESCRIPTION : Checks whether the server may take a request
+         * PRE-CONDITION : Called with the pool locked
+         * POST-CONDITION : Returns true if closed, or open past its period with no trial running
+         * ======================================================================
+         */
+        private boolean isAvailable(long now) {
+            return openUntilNanos == 0 || (now - openUntilNanos >= 0 && !trialInFlight);
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : getName
+         * DESCRIPTION : Gets the server url or name
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns the name
+         * ======================================================================
+         */
+        public String getName() {
+            return name;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : getApi
+         * DESCRIPTION : Gets the client for this server
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns the api instance
+         * ======================================================================
+         */
+        public Ollama getApi() {
+            return api;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : toString
+         * DESCRIPTION : Returns a string representation of the backend
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns name, outstanding requests and circuit state
+         * ======================================================================
+         */
+        @Override
+        public String toString() {
+            return "Backend{name='" + name + "', outstanding=" + outstanding + ", failures=" + consecutiveFailures
+                    + ", open=" + (openUntilNanos != 0) + "}";
+        }
+    }
+}
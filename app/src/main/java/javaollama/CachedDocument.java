@@ -0,0 +1,135 @@
+/**
+======================================================================
+CLASS NAME : CachedDocument
+DESCRIPTION : Extracted pdf text with its chunk boundaries and embedding vectors
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+public class CachedDocument {
+    private final String hash;
+    private final String text;
+    private final String embeddingModel;
+    private final int[] bounds;
+    private final float[] vectors;
+    private final int dimension;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : CachedDocument
+     * DESCRIPTION : Constructor for a document without embeddings
+     * PRE-CONDITION : hash and text are not null
+     * POST-CONDITION : Instance created with no chunks
+     * ======================================================================
+     */
+    public CachedDocument(String hash, String text) {
+        this(hash, text, "", new int[0], new float[0], 0);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : CachedDocument
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : vectors holds bounds.length / 2 rows of dimension floats
+     * POST-CONDITION : Instance created, arrays are not copied
+     * ======================================================================
+     */
+    public CachedDocument(String hash, String text, String embeddingModel, int[] bounds, float[] vectors,
+            int dimension) {
+        this.hash = hash;
+        this.text = text;
+        this.embeddingModel = embeddingModel;
+        this.bounds = bounds;
+        this.vectors = vectors;
+        this.dimension = dimension;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getHash
+     * DESCRIPTION : Accessor for the content hash of the pdf file
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the hex encoded sha-256 hash
+     * ======================================================================
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getText
+     * DESCRIPTION : Accessor for the extracted text
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the text
+     * ======================================================================
+     */
+    public String getText() {
+        return text;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getEmbeddingModel
+     * DESCRIPTION : Accessor for the model that produced the vectors
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the model name, empty if there are no vectors
+     * ======================================================================
+     */
+    public String getEmbeddingModel() {
+        return embeddingModel;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getBounds
+     * DESCRIPTION : Accessor for the chunk boundaries
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns start/end pairs as produced by TextChunker
+     * ======================================================================
+     */
+    public int[] getBounds() {
+        return bounds;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getVectors
+     * DESCRIPTION : Accessor for the embedding vectors
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns one row of dimension floats per chunk
+     * ======================================================================
+     */
+    public float[] getVectors() {
+        return vectors;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getDimension
+     * DESCRIPTION : Accessor for the embedding dimension
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the dimension, 0 if there are no vectors
+     * ======================================================================
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : hasEmbeddings
+     * DESCRIPTION : Checks whether chunk vectors are stored
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns true if every chunk has a vector
+     * ======================================================================
+     */
+    public boolean hasEmbeddings() {
+        return dimension > 0 && bounds.length > 0 && vectors.length == (bounds.length / 2) * dimension;
+    }
+}
@@ -0,0 +1,193 @@
+/**
+======================================================================
+CLASS NAME : ChatEntry
+DESCRIPTION : One message of the chat transcript, shown page by page
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+public class ChatEntry {
+
+    public static final int PAGE_CHARS = 4000;
+
+    private final String sender;
+    private final StringBuilder text;
+    private String stats;
+    private int visiblePages;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : ChatEntry
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : sender and text are not null
+     * POST-CONDITION : Entry shows its first page
+     * ======================================================================
+     */
+    public ChatEntry(String sender, String text) {
+        this.sender = sender;
+        this.text = new StringBuilder(text);
+        this.stats = "";
+        this.visiblePages = 1;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getSender
+     * DESCRIPTION : Accessor for who wrote the message
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns e.g. "You", "Assistant" or "System"
+     * ======================================================================
+     */
+    public String getSender() {
+        return sender;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : append
+     * DESCRIPTION : Appends streamed text to the message
+     * PRE-CONDITION : Called on the fx thread
+     * POST-CONDITION : Text grows, earlier pages are unchanged
+     * ======================================================================
+     */
+    public void append(String more) {
+        text.append(more);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getText
+     * DESCRIPTION : Gets the whole message text
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a copy of the text
+     * ======================================================================
+     */
+    public String getText() {
+        return text.toString();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : length
+     * DESCRIPTION : Returns the length of the message text
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the number of chars
+     * ======================================================================
+     */
+    public int length() {
+        return text.length();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getStats
+     * DESCRIPTION : Accessor for the timing line shown under a response
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the stats, empty if none
+     * ======================================================================
+     */
+    public String getStats() {
+        return stats;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setStats
+     * DESCRIPTION : Sets the timing line shown under a response
+     * PRE-CONDITION : stats is not null
+     * POST-CONDITION : stats is updated
+     * ======================================================================
+     */
+    public void setStats(String stats) {
+        this.stats = stats;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getVisibleText
+     * DESCRIPTION : Gets the pages of the message that have been paged in
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns at most visiblePages pages of text
+     * ======================================================================
+     */
+    public String getVisibleText() {
+        return text.substring(0, pageEnd(visiblePages));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : hasMore
+     * DESCRIPTION : Checks whether part of the message is not paged in yet
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns true if the visible text is cut short
+     * ======================================================================
+     */
+    public boolean hasMore() {
+        return pageEnd(visiblePages) < text.length();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : showMore
+     * DESCRIPTION : Pages in the next part of the message
+     * PRE-CONDITION : None
+     * POST-CONDITION : One more page is visible
+     * ======================================================================
+     */
+    public void showMore() {
+        if (hasMore()) {
+            visiblePages++;
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : pageEnd
+     * DESCRIPTION : Finds where the given number of pages ends
+     * PRE-CONDITION : pages > 0
+     * POST-CONDITION : Returns an offset that prefers a line or word break
+     * ======================================================================
+     */
+    int pageEnd(int pages) {
+        int end = 0;
+        for (int page = 0; page < pages && end < text.length(); page++) {
+            int limit = end + PAGE_CHARS;
+            if (limit >= text.length()) {
+                return text.length();
+            }
+            // break at the last newline or space in the final quarter of the page
+            int floor = limit - PAGE_CHARS / 4;
+            int cut = limit;
+            for (int i = limit; i > floor; i--) {
+                char c = text.charAt(i - 1);
+                if (c == '\n') {
+                    cut = i;
+                    break;
+                }
+                if (c == ' ' && cut == limit) {
+                    cut = i;
+                }
+            }
+            end = cut;
+        }
+        return end;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : toString
+     * DESCRIPTION : Returns string representation of the object
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the message as it was shown in the old transcript
+     * ======================================================================
+     */
+    @Override
+    public String toString() {
+        return sender + ": " + text;
+    }
+}
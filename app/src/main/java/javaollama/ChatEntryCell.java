@@ -0,0 +1,104 @@
+/**
+======================================================================
+CLASS NAME : ChatEntryCell
+DESCRIPTION : List cell rendering one chat message, recycled as the transcript scrolls
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import javafx.scene.Node;
+import javafx.scene.control.Hyperlink;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.VBox;
+
+public class ChatEntryCell extends ListCell<ChatEntry> {
+
+    private final VBox box;
+    private final Label body;
+    private final Hyperlink more;
+    private final Label stats;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : ChatEntryCell
+     * DESCRIPTION : Builds the nodes once, they are reused for every message the cell shows
+     * PRE-CONDITION : Called on the fx thread
+     * POST-CONDITION : Empty cell
+     * ======================================================================
+     */
+    public ChatEntryCell() {
+        body = new Label();
+        body.setWrapText(true);
+        body.setStyle("-fx-font-family: 'Consolas'; -fx-font-size: 12px;");
+
+        more = new Hyperlink("Show more");
+        more.setOnAction(e -> showMore());
+
+        stats = new Label();
+        stats.setStyle("-fx-text-fill: gray; -fx-font-size: 11px;");
+
+        box = new VBox(2, body, more, stats);
+
+        // a zero preferred width lets the label wrap to the list instead of widening it
+        setPrefWidth(0);
+        setText(null);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : updateItem
+     * DESCRIPTION : Shows a message in this cell
+     * PRE-CONDITION : Called by the list view on the fx thread
+     * POST-CONDITION : Only the paged-in text of the message is laid out
+     * ======================================================================
+     */
+    @Override
+    protected void updateItem(ChatEntry entry, boolean empty) {
+        super.updateItem(entry, empty);
+        if (empty || entry == null) {
+            setGraphic(null);
+            return;
+        }
+        body.setText(entry.getSender() + ": " + entry.getVisibleText());
+        show(more, entry.hasMore());
+        stats.setText(entry.getStats());
+        show(stats, !entry.getStats().isEmpty());
+        setGraphic(box);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : showMore
+     * DESCRIPTION : Pages in the next part of the shown message
+     * PRE-CONDITION : Cell shows a message with more text
+     * POST-CONDITION : Cell re-rendered with one more page
+     * ======================================================================
+     */
+    private void showMore() {
+        ChatEntry entry = getItem();
+        if (entry == null) {
+            return;
+        }
+        entry.showMore();
+        updateItem(entry, false);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : show
+     * DESCRIPTION : Shows or hides a node without leaving a gap
+     * PRE-CONDITION : None
+     * POST-CONDITION : Node visibility and layout participation updated
+     * ======================================================================
+     */
+    private static void show(Node node, boolean visible) {
+        node.setVisible(visible);
+        node.setManaged(visible);
+    }
+}
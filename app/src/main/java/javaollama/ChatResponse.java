@@ -7,12 +7,24 @@ COPYRIGHT  : macastroverde 2025
 REVISION HISTORY
 Date:           By:             Description:
 2025-12-06      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  added time-to-first-token and tokens/sec
+2026-10-16      Mickel Angelo Castoverde  added server reported prompt evaluation stats
+2026-10-16      Mickel Angelo Castoverde  added full server timings and client side total latency
+2026-10-16      Mickel Angelo Castoverde  added time spent queued before the request was sent
+2026-10-16      Mickel Angelo Castoverde  added flag for answers replayed from the response cache
 ======================================================================
 */
 package javaollama;
 
 public class ChatResponse {
     private final String response;
+    private final long timeToFirstTokenMs;
+    private final int tokenCount;
+    private final double tokensPerSecond;
+    private final long totalTimeMs;
+    private final InferenceTimings timings;
+    private final long queueWaitMs;
+    private final boolean cached;
 
     /*
      * ======================================================================
@@ -23,7 +35,65 @@ public class ChatResponse {
      * ======================================================================
      */
     public ChatResponse(String response) {
+        this(response, -1, 0, 0.0);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : ChatResponse
+     * DESCRIPTION : Parameterized constructor with streaming statistics
+     * PRE-CONDITION : timeToFirstTokenMs is -1 when no token was streamed
+     * POST-CONDITION : Instance created with response text and statistics
+     * ======================================================================
+     */
+    public ChatResponse(String response, long timeToFirstTokenMs, int tokenCount, double tokensPerSecond) {
+        this(response, timeToFirstTokenMs, tokenCount, tokensPerSecond, -1, InferenceTimings.unknown());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : ChatResponse
+     * DESCRIPTION : Parameterized constructor with server reported timings
+     * PRE-CONDITION : totalTimeMs is -1 when not measured, timings is not null
+     * POST-CONDITION : Instance created with response text and statistics
+     * ======================================================================
+     */
+    public ChatResponse(String response, long timeToFirstTokenMs, int tokenCount, double tokensPerSecond,
+            long totalTimeMs, InferenceTimings timings) {
+        this(response, timeToFirstTokenMs, tokenCount, tokensPerSecond, totalTimeMs, timings, 0);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : ChatResponse
+     * DESCRIPTION : Parameterized constructor with the time spent waiting for a server slot
+     * PRE-CONDITION : queueWaitMs is included in totalTimeMs and timeToFirstTokenMs
+     * POST-CONDITION : Instance created with response text and statistics
+     * ======================================================================
+     */
+    public ChatResponse(String response, long timeToFirstTokenMs, int tokenCount, double tokensPerSecond,
+            long totalTimeMs, InferenceTimings timings, long queueWaitMs) {
+        this(response, timeToFirstTokenMs, tokenCount, tokensPerSecond, totalTimeMs, timings, queueWaitMs, false);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : ChatResponse
+     * DESCRIPTION : Parameterized constructor that marks answers taken from the response cache
+     * PRE-CONDITION : timings is unknown for cached answers
+     * POST-CONDITION : Instance created with response text and statistics
+     * ======================================================================
+     */
+    public ChatResponse(String response, long timeToFirstTokenMs, int tokenCount, double tokensPerSecond,
+            long totalTimeMs, InferenceTimings timings, long queueWaitMs, boolean cached) {
         this.response = response;
+        this.timeToFirstTokenMs = timeToFirstTokenMs;
+        this.tokenCount = tokenCount;
+        this.tokensPerSecond = tokensPerSecond;
+        this.totalTimeMs = totalTimeMs;
+        this.timings = timings;
+        this.queueWaitMs = queueWaitMs;
+        this.cached = cached;
     }
 
     /*
@@ -38,6 +108,114 @@ public class ChatResponse {
         return response;
     }
 
+    /*
+     * ======================================================================
+     * METHOD NAME : getTimeToFirstTokenMs
+     * DESCRIPTION : Accessor for the delay until the first token arrived
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns milliseconds, or -1 if nothing was streamed
+     * ======================================================================
+     */
+    public long getTimeToFirstTokenMs() {
+        return timeToFirstTokenMs;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getTokenCount
+     * DESCRIPTION : Accessor for the number of streamed tokens
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the token count
+     * ======================================================================
+     */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getTokensPerSecond
+     * DESCRIPTION : Accessor for the generation rate after the first token
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns tokens per second, 0 if unknown
+     * ======================================================================
+     */
+    public double getTokensPerSecond() {
+        return tokensPerSecond;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getPromptEvalCount
+     * DESCRIPTION : Accessor for the prompt tokens the server had to evaluate
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the count, -1 if not reported
+     * ======================================================================
+     */
+    public int getPromptEvalCount() {
+        return timings.getPromptEvalCount();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getPromptEvalDurationNs
+     * DESCRIPTION : Accessor for the time the server spent evaluating the prompt
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns nanoseconds, -1 if not reported
+     * ======================================================================
+     */
+    public long getPromptEvalDurationNs() {
+        return timings.getPromptEvalDurationNs();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getTotalTimeMs
+     * DESCRIPTION : Accessor for the time from sending the request to the last token
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns milliseconds, -1 if not measured
+     * ======================================================================
+     */
+    public long getTotalTimeMs() {
+        return totalTimeMs;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getTimings
+     * DESCRIPTION : Accessor for the load, prompt evaluation and generation split
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the server reported timings, never null
+     * ======================================================================
+     */
+    public InferenceTimings getTimings() {
+        return timings;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getQueueWaitMs
+     * DESCRIPTION : Accessor for the time spent waiting for a free server slot
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns milliseconds, 0 if the request was sent right away
+     * ======================================================================
+     */
+    public long getQueueWaitMs() {
+        return queueWaitMs;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : isCached
+     * DESCRIPTION : Checks whether the answer was replayed from the response cache
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns true for cached answers
+     * ======================================================================
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
     /*
      * ======================================================================
      * METHOD NAME : toString
@@ -50,6 +228,13 @@ public class ChatResponse {
     public String toString() {
         return "ChatResponse{" +
                 "response='" + response + '\'' +
+                ", timeToFirstTokenMs=" + timeToFirstTokenMs +
+                ", tokenCount=" + tokenCount +
+                ", tokensPerSecond=" + tokensPerSecond +
+                ", totalTimeMs=" + totalTimeMs +
+                ", timings=" + timings +
+                ", queueWaitMs=" + queueWaitMs +
+                ", cached=" + cached +
                 '}';
     }
 }
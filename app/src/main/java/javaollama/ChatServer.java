@@ -0,0 +1,540 @@
+/**
+======================================================================
+CLASS NAME : ChatServer
+DESCRIPTION : Headless http server giving many users their own chat session against one ollama backend
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  sessions share a request dispatcher sized by OLLAMA_NUM_PARALLEL
+2026-10-16      Mickel Angelo Castoverde  comma separated ollama urls spread over a backend pool
+2026-10-16      Mickel Angelo Castoverde  sessions can share a response cache, done event tells cached answers apart
+2026-10-16      Mickel Angelo Castoverde  sessions can share a semantic cache
+2026-10-16      Mickel Angelo Castoverde  chat takes an optional profile query parameter
+2026-10-16      Mickel Angelo Castoverde  context body capped and indexed in the background, profile parameter url-decoded
+2026-10-16      Mickel Angelo Castoverde  sessions summarize their history on the scheduler's virtual threads
+2026-10-16      Mickel Angelo Castoverde  semantic cache embeds on the backend pool
+======================================================================
+*/
+package javaollama;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class ChatServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 1024;
+    private static final String SESSIONS = "/sessions";
+    private static final int DEFAULT_MAX_CONTEXT_BYTES = 16 * 1024 * 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final SessionStore sessions;
+    private final TaskScheduler scheduler;
+    private final MetricsRegistry metrics;
+    private volatile int maxContextBytes;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : ChatServer
+     * DESCRIPTION : Binds the server, every exchange is handled on its own virtual thread
+     * PRE-CONDITION : address is free, the scheduler caps generations at what the backend runs in parallel
+     * POST-CONDITION : Server bound but not started
+     * ======================================================================
+     */
+    public ChatServer(InetSocketAddress address, SessionStore sessions, TaskScheduler scheduler,
+            MetricsRegistry metrics) throws IOException {
+        this.sessions = sessions;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.maxContextBytes = DEFAULT_MAX_CONTEXT_BYTES;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("javallama-http-", 0).factory());
+        this.server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(executor);
+        server.createContext(SESSIONS, this::handleSessions);
+        server.createContext("/health", exchange -> reply(exchange, 200, "text/plain",
+                "ok, " + sessions.size() + " sessions\n"));
+        server.createContext("/metrics", exchange -> reply(exchange, 200,
+                "text/plain; version=0.0.4; charset=utf-8", metrics.toPrometheus()));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : start
+     * DESCRIPTION : Starts accepting requests
+     * PRE-CONDITION : Server not closed
+     * POST-CONDITION : Returns the bound port
+     * ======================================================================
+     */
+    public int start() {
+        server.start();
+        return getPort();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getPort
+     * DESCRIPTION : Gets the port the server listens on
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the bound port
+     * ======================================================================
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setMaxContextBytes
+     * DESCRIPTION : Sets the largest document a session accepts
+     * PRE-CONDITION : maxContextBytes > 0
+     * POST-CONDITION : Larger context bodies are refused with 413
+     * ======================================================================
+     */
+    public void setMaxContextBytes(int maxContextBytes) {
+        this.maxContextBytes = maxContextBytes;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : handleSessions
+     * DESCRIPTION : Routes POST /sessions, DELETE /sessions/{id}, PUT /sessions/{id}/context
+     *               and POST /sessions/{id}/chat
+     * PRE-CONDITION : Called by the http server
+     * POST-CONDITION : Exchange answered and closed
+     * ======================================================================
+     */
+    private void handleSessions(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String rest = exchange.getRequestURI().getPath().substring(SESSIONS.length());
+            // parts[0] is empty, parts[1] the id and parts[2] the action
+            String[] parts = rest.split("/");
+            if (!rest.isEmpty() && !rest.startsWith("/")) {
+                reply(exchange, 404, "text/plain", "Not found\n");
+            } else if (parts.length <= 1 && "POST".equals(method)) {
+                createSession(exchange);
+            } else if (parts.length == 2 && "DELETE".equals(method)) {
+                int status = sessions.remove(parts[1]) ? 204 : 404;
+                reply(exchange, status, "text/plain", "");
+            } else if (parts.length == 3 && "context".equals(parts[2]) && "PUT".equals(method)) {
+                setContext(exchange, parts[1]);
+            } else if (parts.length == 3 && "chat".equals(parts[2]) && "POST".equals(method)) {
+                chat(exchange, parts[1]);
+            } else {
+                reply(exchange, 404, "text/plain", "Not found\n");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : createSession
+     * DESCRIPTION : Opens a session for a new client
+     * PRE-CONDITION : None
+     * POST-CONDITION : Replies 201 with the session id, 503 when the store is full
+     * ======================================================================
+     */
+    private void createSession(HttpExchange exchange) throws IOException {
+        try {
+            ChatSession session = sessions.create();
+            reply(exchange, 201, "application/json", "{\"session\":\"" + session.getId() + "\"}\n");
+        } catch (IllegalStateException e) {
+            reply(exchange, 503, "text/plain", e.getMessage() + "\n");
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setContext
+     * DESCRIPTION : Sets the document text a session answers from, chunked and embedded in the background
+     * PRE-CONDITION : Body is the plain document text
+     * POST-CONDITION : Replies 202 and holds the session until indexed, 404 for unknown sessions,
+     *                  409 while the session is busy, 413 for a body over the limit
+     * ======================================================================
+     */
+    private void setContext(HttpExchange exchange, String id) throws IOException {
+        ChatSession session = sessions.get(id);
+        if (session == null) {
+            reply(exchange, 404, "text/plain", "Unknown session\n");
+            return;
+        }
+        if (!session.tryAcquire()) {
+            reply(exchange, session.isClosed() ? 404 : 409, "text/plain", "Session is busy\n");
+            return;
+        }
+        boolean indexing = false;
+        try {
+            String context = readBody(exchange, maxContextBytes);
+            if (context == null) {
+                reply(exchange, 413, "text/plain", "Context larger than " + maxContextBytes + " bytes\n");
+                return;
+            }
+            // embedding a large document takes long, the session stays busy until it is done
+            scheduler.submit("context-" + id, () -> {
+                try {
+                    session.getService().setContext(context);
+                } finally {
+                    sessions.release(session);
+                }
+            });
+            indexing = true;
+            reply(exchange, 202, "text/plain", "");
+        } catch (RejectedExecutionException e) {
+            reply(exchange, 503, "text/plain", "Server is shutting down\n");
+        } finally {
+            if (!indexing) {
+                sessions.release(session);
+            }
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : chat
+     * DESCRIPTION : Answers a prompt as a server-sent event stream
+     * PRE-CONDITION : Body is the plain prompt text, ?profile=name selects a request profile
+     * POST-CONDITION : Streams token events then one done or error event, replies 400 for an
+     *                  unknown profile and 503 with Retry-After when too many generations are waiting
+     * ======================================================================
+     */
+    private void chat(HttpExchange exchange, String id) throws IOException {
+        ChatSession session = sessions.get(id);
+        if (session == null) {
+            reply(exchange, 404, "text/plain", "Unknown session\n");
+            return;
+        }
+        // one generation per session, the history of a conversation is sequential
+        if (!session.tryAcquire()) {
+            reply(exchange, session.isClosed() ? 404 : 409, "text/plain", "Session is already generating\n");
+            return;
+        }
+        try {
+            String prompt = readBody(exchange).trim();
+            if (prompt.isEmpty()) {
+                reply(exchange, 400, "text/plain", "Empty prompt\n");
+                return;
+            }
+            RequestProfile profile;
+            try {
+                profile = requestProfile(exchange, session.getService().getProfile());
+            } catch (IllegalArgumentException e) {
+                reply(exchange, 400, "text/plain", e.getMessage() + ", expected one of " + RequestProfile.names() + "\n");
+                return;
+            }
+            EventStream events = new EventStream(exchange);
+            Future<ChatResponse> generation;
+            try {
+                generation = scheduler.submitGeneration("session-" + id, () -> session.getService()
+                        .chatStream(prompt, profile, token -> events.send("token", token)));
+            } catch (RejectedExecutionException e) {
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                reply(exchange, 503, "text/plain", "Too many generations waiting\n");
+                return;
+            }
+            finish(events, generation);
+        } finally {
+            sessions.release(session);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : requestProfile
+     * DESCRIPTION : Reads the profile query parameter of a request
+     * PRE-CONDITION : fallback is not null
+     * POST-CONDITION : Returns the named profile or fallback without the parameter,
+     *                  throws IllegalArgumentException for an unknown name
+     * ======================================================================
+     */
+    private static RequestProfile requestProfile(HttpExchange exchange, RequestProfile fallback) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("profile=")) {
+                    return RequestProfile.of(URLDecoder.decode(parameter.substring("profile=".length()),
+                            StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return fallback;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : finish
+     * DESCRIPTION : Waits for a generation and ends its event stream
+     * PRE-CONDITION : Tokens are being sent by the generation thread
+     * POST-CONDITION : done or error event sent, generation cancelled if this thread is interrupted
+     * ======================================================================
+     */
+    private void finish(EventStream events, Future<ChatResponse> generation) {
+        try {
+            ChatResponse response = generation.get();
+            events.send("done", String.format(Locale.ROOT,
+                    "{\"time_to_first_token_ms\":%d,\"tokens\":%d,\"tokens_per_second\":%.2f,\"total_time_ms\":%d,"
+                            + "\"queue_wait_ms\":%d,\"cached\":%b}",
+                    response.getTimeToFirstTokenMs(), response.getTokenCount(), response.getTokensPerSecond(),
+                    response.getTotalTimeMs(), response.getQueueWaitMs(), response.isCached()));
+        } catch (ExecutionException e) {
+            if (events.isDisconnected()) {
+                // failing the token write already closed the stream to ollama
+                metrics.increment("javallama_server_disconnects_total", 1);
+                return;
+            }
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            trySend(events, "error", cause.getMessage());
+        } catch (InterruptedException e) {
+            generation.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (UncheckedIOException e) {
+            metrics.increment("javallama_server_disconnects_total", 1);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : trySend
+     * DESCRIPTION : Sends an event, ignoring a client that has gone away
+     * PRE-CONDITION : None
+     * POST-CONDITION : Event sent if the client is still connected
+     * ======================================================================
+     */
+    private static void trySend(EventStream events, String event, String data) {
+        try {
+            events.send(event, data != null ? data : "");
+        } catch (UncheckedIOException e) {
+            // nothing left to tell the client
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : readBody
+     * DESCRIPTION : Reads a request body as text
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the body decoded as utf-8
+     * ======================================================================
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : readBody
+     * DESCRIPTION : Reads a request body as text, up to a limit
+     * PRE-CONDITION : maxBytes > 0
+     * POST-CONDITION : Returns the body decoded as utf-8, null if it is longer than maxBytes
+     * ======================================================================
+     */
+    private static String readBody(HttpExchange exchange, int maxBytes) throws IOException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null && Long.parseLong(length.trim()) > maxBytes) {
+            return null; // refused before anything is read
+        }
+        // a chunked body has no length up front, read one byte past the limit to tell
+        InputStream in = exchange.getRequestBody();
+        byte[] body = in.readNBytes(maxBytes + 1);
+        if (body.length > maxBytes) {
+            return null;
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : reply
+     * DESCRIPTION : Sends a complete response
+     * PRE-CONDITION : Headers not sent yet
+     * POST-CONDITION : Response written, 204 is sent without a body
+     * ======================================================================
+     */
+    private static void reply(HttpExchange exchange, int status, String contentType, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : close
+     * DESCRIPTION : Stops the server and ends every session
+     * PRE-CONDITION : None
+     * POST-CONDITION : Port released, running generations cancelled
+     * ======================================================================
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        scheduler.close();
+        sessions.close();
+        executor.shutdownNow();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : writeOutput
+     * DESCRIPTION : Writes the object state to the console
+     * PRE-CONDITION : None
+     * POST-CONDITION : Object state is printed to stdout
+     * ======================================================================
+     */
+    public void writeOutput() {
+        System.out.println("ChatServer Status:");
+        System.out.println("Port: " + getPort());
+        sessions.writeOutput();
+        scheduler.writeOutput();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : main
+     * DESCRIPTION : Runs the chat server without the gui
+     * PRE-CONDITION : Optional args[0] is the port, settings are read from system properties
+     * POST-CONDITION : Server runs until the process is stopped
+     * ======================================================================
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("javallama.server.port", DEFAULT_PORT);
+        String urls = System.getProperty("javallama.ollama.url", String.join(",", BackendPool.hostsFromEnvironment()));
+        // match OLLAMA_NUM_PARALLEL, generations beyond it would only queue inside ollama
+        int parallel = Integer.getInteger("javallama.server.parallel", RequestDispatcher.numParallelFromEnvironment());
+        int maxQueued = Integer.getInteger("javallama.server.queue", 256);
+        int maxSessions = Integer.getInteger("javallama.server.sessions", 1000);
+        long idleMillis = TimeUnit.MINUTES.toMillis(Long.getLong("javallama.server.idle.minutes", 30));
+        String model = System.getProperty("javallama.model", OllamaService.getDefaultModel());
+        // one cache for every session, so a question asked by one user is answered from it for the next
+        ResponseCache responseCache = Boolean.getBoolean("javallama.response.cache") ? ResponseCache.createDefault()
+                : null;
+        double threshold = Double.parseDouble(System.getProperty("javallama.semantic.cache.threshold",
+                String.valueOf(SemanticCache.getDefaultThreshold())));
+
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        BackendPool backends = BackendPool.fromHosts(List.of(urls.split(",")), metrics);
+        // every server runs its own parallel slots
+        RequestDispatcher dispatcher = new RequestDispatcher(parallel * backends.size(), metrics);
+        SemanticCache semanticCache = Boolean.getBoolean("javallama.semantic.cache") ? new SemanticCache(
+                new OllamaEmbedder(backends, OllamaEmbedder.getDefaultModel()), threshold,
+                maxSessions * 4, metrics) : null;
+        TaskScheduler scheduler = new TaskScheduler(parallel * backends.size() + maxQueued, 0, metrics);
+        // summaries of every session on virtual threads, they wait for a dispatcher slot like chats
+        Executor summaries = task -> scheduler.submit("history-summary", task);
+        SessionStore sessions = new SessionStore(() -> {
+            OllamaService service = new OllamaService(backends);
+            service.setSummaryExecutor(summaries);
+            service.setModelName(model);
+            service.setDispatcher(dispatcher);
+            service.setResponseCache(responseCache);
+            service.setSemanticCache(semanticCache);
+            return service;
+        }, idleMillis, maxSessions, metrics);
+        sessions.startEviction(Math.max(1000, idleMillis / 4));
+
+        // the scheduler only bounds how many generations are admitted, the dispatcher decides
+        // which of them goes to ollama next
+        ChatServer server = new ChatServer(new InetSocketAddress(port), sessions, scheduler, metrics);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("JavaLlama chat server listening on port " + server.start() + ", backends " + urls);
+    }
+
+    /**
+     * ======================================================================
+     * CLASS NAME : EventStream
+     * DESCRIPTION : Writes server-sent events to one exchange
+     * AUTHOR : Mickel Angelo Castoverde
+     * COPYRIGHT : macastroverde 2025
+     * REVISION HISTORY
+     * Date: By: Description:
+     * 2026-10-16 Mickel Angelo Castoverde Creation of the program
+     * ======================================================================
+     */
+    private static class EventStream {
+        private final HttpExchange exchange;
+        private OutputStream out;
+        private boolean disconnected;
+
+        /*
+         * ======================================================================
+         * METHOD NAME : EventStream
+         * DESCRIPTION : Parameterized constructor
+         * PRE-CONDITION : Response headers not sent yet
+         * POST-CONDITION : Headers are sent with the first event
+         * ======================================================================
+         */
+        EventStream(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : send
+         * DESCRIPTION : Sends one event and flushes it to the client
+         * PRE-CONDITION : None
+         * POST-CONDITION : Throws UncheckedIOException once the client has disconnected
+         * ======================================================================
+         */
+        synchronized void send(String event, String data) {
+            if (disconnected) {
+                throw new UncheckedIOException(new IOException("Client disconnected"));
+            }
+            StringBuilder text = new StringBuilder("event: ").append(event).append('\n');
+            // a line break inside the data starts a new data line, clients join them with \n
+            for (String line : data.split("\n", -1)) {
+                text.append("data: ").append(line).append('\n');
+            }
+            text.append('\n');
+            try {
+                if (out == null) {
+                    exchange.getResponseHeaders().add("Content-Type", "text/event-stream; charset=utf-8");
+                    exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+                    exchange.sendResponseHeaders(200, 0);
+                    out = exchange.getResponseBody();
+                }
+                out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            } catch (IOException e) {
+                disconnected = true;
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : isDisconnected
+         * DESCRIPTION : Checks whether a write failed because the client left
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns true after a failed write
+         * ======================================================================
+         */
+        synchronized boolean isDisconnected() {
+            return disconnected;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/**
+======================================================================
+CLASS NAME : ChatSession
+DESCRIPTION : One user of the chat server with its own history and document context
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ChatSession {
+
+    private final String id;
+    private final OllamaService service;
+    private final AtomicBoolean busy;
+    private volatile long lastAccessNanos;
+    private volatile boolean closed;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : ChatSession
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : service is not shared with another session
+     * POST-CONDITION : Session idle since nowNanos
+     * ======================================================================
+     */
+    public ChatSession(String id, OllamaService service, long nowNanos) {
+        this.id = id;
+        this.service = service;
+        this.busy = new AtomicBoolean();
+        this.lastAccessNanos = nowNanos;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getId
+     * DESCRIPTION : Accessor for the session id
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the id handed to the client
+     * ======================================================================
+     */
+    public String getId() {
+        return id;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getService
+     * DESCRIPTION : Accessor for the service holding this session's history and context
+     * PRE-CONDITION : Caller holds the session, see tryAcquire
+     * POST-CONDITION : Returns the service
+     * ======================================================================
+     */
+    public OllamaService getService() {
+        return service;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : touch
+     * DESCRIPTION : Marks the session as used
+     * PRE-CONDITION : None
+     * POST-CONDITION : Idle time restarts from nowNanos
+     * ======================================================================
+     */
+    public void touch(long nowNanos) {
+        lastAccessNanos = nowNanos;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getIdleNanos
+     * DESCRIPTION : Returns how long the session has not been used
+     * PRE-CONDITION : nowNanos comes from the same clock as touch
+     * POST-CONDITION : Returns 0 while the session is busy
+     * ======================================================================
+     */
+    public long getIdleNanos(long nowNanos) {
+        return busy.get() ? 0 : nowNanos - lastAccessNanos;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : tryAcquire
+     * DESCRIPTION : Claims the session for one request that reads or changes its history
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns false if another request holds it or the session was closed
+     * ======================================================================
+     */
+    public boolean tryAcquire() {
+        if (!busy.compareAndSet(false, true)) {
+            return false;
+        }
+        if (closed) {
+            busy.set(false);
+            return false;
+        }
+        return true;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : release
+     * DESCRIPTION : Gives the session back after a request
+     * PRE-CONDITION : Caller acquired the session
+     * POST-CONDITION : Session free and idle from nowNanos
+     * ======================================================================
+     */
+    public void release(long nowNanos) {
+        lastAccessNanos = nowNanos;
+        busy.set(false);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : isBusy
+     * DESCRIPTION : Checks whether a request holds the session
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns true while acquired
+     * ======================================================================
+     */
+    public boolean isBusy() {
+        return busy.get();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : isClosed
+     * DESCRIPTION : Checks whether the session was deleted or evicted
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns true once closed
+     * ======================================================================
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : close
+     * DESCRIPTION : Ends the session
+     * PRE-CONDITION : Caller acquired the session so no request is using it
+     * POST-CONDITION : Later acquires fail, the service's background thread is released
+     * ======================================================================
+     */
+    public void close() {
+        closed = true;
+        service.shutdown();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : toString
+     * DESCRIPTION : Returns string representation of the object
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the id and state
+     * ======================================================================
+     */
+    @Override
+    public String toString() {
+        return "ChatSession{id=" + id + ", busy=" + busy.get() + ", closed=" + closed + "}";
+    }
+}
@@ -7,27 +7,183 @@ COPYRIGHT  : macastroverde 2025
 REVISION HISTORY
 Date:           By:             Description:
 2025-12-04      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  token budgeted sliding window with running summary
+2026-10-16      Mickel Angelo Castoverde  optional persistence to a conversation store, restored window on attach
+2026-10-16      Mickel Angelo Castoverde  new messages queued for the search index
+2026-10-16      Mickel Angelo Castoverde  role enum, append-only window with zero-copy snapshots
+2026-10-16      Mickel Angelo Castoverde  question and answer added together once the answer is complete
+2026-10-16      Mickel Angelo Castoverde  summaries of one history run one at a time on a shared executor
 ======================================================================
 */
 package javaollama;
 
+import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 public class ConversationHistory {
-    private List<Message> messages;
+    private static final int DEFAULT_TOKEN_BUDGET = 4096;
+    private static final int MAX_SUMMARY_CHARS = 2000;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // window is window[head..tail), slots are only ever written past tail so snapshots stay valid
+    private Message[] window;
+    private int head;
+    private int tail;
+    private int tokenBudget;
+    private int totalTokens;
+    private String summary;
+    private Summarizer summarizer;
+    private Executor summaryExecutor;
+    private int generation; // bumped on clear so stale summaries are dropped
+    private final List<Message> unsummarized; // evicted, waiting for the summary task
+    private boolean summarizing;
+    private ConversationStore store;
+    private SearchIndex searchIndex;
+    private String searchSource;
 
     /*
      * ======================================================================
      * METHOD NAME : ConversationHistory
      * DESCRIPTION : Default constructor
      * PRE-CONDITION : None
-     * POST-CONDITION : Initializes empty message list
+     * POST-CONDITION : Initializes empty message list with the default token budget
      * ======================================================================
      */
     public ConversationHistory() {
-        this.messages = new ArrayList<>();
+        this(DEFAULT_TOKEN_BUDGET);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : ConversationHistory
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : tokenBudget > 0
+     * POST-CONDITION : Initializes empty message list with the given token budget
+     * ======================================================================
+     */
+    public ConversationHistory(int tokenBudget) {
+        this.window = new Message[INITIAL_CAPACITY];
+        this.tokenBudget = tokenBudget;
+        this.totalTokens = 0;
+        this.summary = "";
+        this.unsummarized = new ArrayList<>();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setSummarizer
+     * DESCRIPTION : Sets how evicted turns are folded into the running summary
+     * PRE-CONDITION : executor may be shared and run tasks concurrently, null summarizer turns summaries off
+     * POST-CONDITION : Evicted messages are summarized on the executor, one summary of this history at a time
+     * ======================================================================
+     */
+    public synchronized void setSummarizer(Summarizer summarizer, Executor executor) {
+        this.summarizer = summarizer;
+        this.summaryExecutor = executor;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : attach
+     * DESCRIPTION : Restores the history from a store and records every later change in it
+     * PRE-CONDITION : store is open
+     * POST-CONDITION : Window holds the stored messages that fit the token budget and the stored summary,
+     *                  older messages stay on disk only
+     * ======================================================================
+     */
+    public synchronized void attach(ConversationStore store) throws IOException {
+        List<Message> recent = store.loadRecent(tokenBudget);
+        window = recent.toArray(new Message[Math.max(INITIAL_CAPACITY, recent.size() * 2)]);
+        head = 0;
+        tail = recent.size();
+        totalTokens = 0;
+        for (Message message : recent) {
+            totalTokens += message.getTokenEstimate();
+        }
+        summary = store.getSummary();
+        generation++;
+        this.store = store;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setSearchIndex
+     * DESCRIPTION : Makes every later message searchable
+     * PRE-CONDITION : source names the conversation in search results
+     * POST-CONDITION : Added messages are indexed in the background, null stops indexing
+     * ======================================================================
+     */
+    public synchronized void setSearchIndex(SearchIndex searchIndex, String source) {
+        this.searchIndex = searchIndex;
+        this.searchSource = source;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getStore
+     * DESCRIPTION : Gets the store the history is persisted to
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the store, null if the history lives only in memory
+     * ======================================================================
+     */
+    public synchronized ConversationStore getStore() {
+        return store;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getTokenBudget
+     * DESCRIPTION : Gets the token budget of the sliding window
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the budget in estimated tokens
+     * ======================================================================
+     */
+    public synchronized int getTokenBudget() {
+        return tokenBudget;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setTokenBudget
+     * DESCRIPTION : Sets the token budget of the sliding window
+     * PRE-CONDITION : tokenBudget > 0
+     * POST-CONDITION : Oldest messages evicted until the window fits
+     * ======================================================================
+     */
+    public synchronized void setTokenBudget(int tokenBudget) {
+        this.tokenBudget = tokenBudget;
+        enforceBudget();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getTotalTokens
+     * DESCRIPTION : Gets the estimated tokens of the messages in the window
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the cached token total
+     * ======================================================================
+     */
+    public synchronized int getTotalTokens() {
+        return totalTokens;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getSummary
+     * DESCRIPTION : Gets the running summary of evicted turns
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the summary, empty if nothing was evicted
+     * ======================================================================
+     */
+    public synchronized String getSummary() {
+        return summary;
     }
 
     /*
@@ -38,8 +194,8 @@ public class ConversationHistory {
      * POST-CONDITION : User message added to list
      * ======================================================================
      */
-    public void addUserMessage(String content) {
-        messages.add(new Message("user", content));
+    public synchronized void addUserMessage(String content) {
+        add(new Message(Role.USER, content));
     }
 
     /*
@@ -50,32 +206,193 @@ public class ConversationHistory {
      * POST-CONDITION : Assistant message added to list
      * ======================================================================
      */
-    public void addAssistantMessage(String content) {
-        messages.add(new Message("assistant", content));
+    public synchronized void addAssistantMessage(String content) {
+        add(new Message(Role.ASSISTANT, content));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : addTurn
+     * DESCRIPTION : Adds a question and its answer to the history
+     * PRE-CONDITION : question and answer are valid strings
+     * POST-CONDITION : Both messages added, no other message can come between them
+     * ======================================================================
+     */
+    public synchronized void addTurn(String question, String answer) {
+        add(new Message(Role.USER, question));
+        add(new Message(Role.ASSISTANT, answer));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : add
+     * DESCRIPTION : Appends a message and keeps the window within budget
+     * PRE-CONDITION : Caller holds the lock
+     * POST-CONDITION : Message added, oldest messages evicted if over budget
+     * ======================================================================
+     */
+    private void add(Message message) {
+        if (tail == window.length) {
+            // a new array rather than shifting in place, snapshots may still read the old one
+            int live = tail - head;
+            window = Arrays.copyOfRange(window, head, head + Math.max(INITIAL_CAPACITY, live * 2));
+            head = 0;
+            tail = live;
+        }
+        window[tail++] = message;
+        totalTokens += message.getTokenEstimate();
+        if (store != null) {
+            try {
+                store.append(message);
+            } catch (IOException e) {
+                // the conversation goes on in memory, only its persistence is lost
+                System.out.println("Failed to persist message: " + e.getMessage());
+            }
+        }
+        if (searchIndex != null) {
+            searchIndex.indexAsync(searchSource + " (" + message.getRole() + ")", message.getContent());
+        }
+        enforceBudget();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : enforceBudget
+     * DESCRIPTION : Evicts the oldest turns until the window fits the budget
+     * PRE-CONDITION : Caller holds the lock
+     * POST-CONDITION : Window starts with a user message, evicted turns queued for summary
+     * ======================================================================
+     */
+    private void enforceBudget() {
+        List<Message> evicted = new ArrayList<>();
+        while (totalTokens > tokenBudget && tail - head > 1) {
+            evicted.add(evictOldest());
+        }
+        // never leave an answer without its question at the start of the window
+        while (tail - head > 1 && window[head].getRoleType() != Role.USER) {
+            evicted.add(evictOldest());
+        }
+        if (!evicted.isEmpty() && summarizer != null) {
+            scheduleSummary(evicted);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : evictOldest
+     * DESCRIPTION : Removes the oldest message from the window
+     * PRE-CONDITION : Window is not empty, caller holds the lock
+     * POST-CONDITION : Returns the removed message, token total updated
+     * ======================================================================
+     */
+    private Message evictOldest() {
+        Message oldest = window[head++];
+        totalTokens -= oldest.getTokenEstimate();
+        return oldest;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : scheduleSummary
+     * DESCRIPTION : Queues evicted messages to be folded into the summary on the background executor
+     * PRE-CONDITION : summarizer and executor are set, caller holds the lock
+     * POST-CONDITION : Messages summarized after those evicted before them, unless cleared meanwhile
+     * ======================================================================
+     */
+    private void scheduleSummary(List<Message> evicted) {
+        unsummarized.addAll(evicted);
+        if (summarizing) {
+            return; // the running task picks them up next
+        }
+        Summarizer current = summarizer;
+        summarizing = true;
+        try {
+            summaryExecutor.execute(() -> summarizePending(current));
+        } catch (RejectedExecutionException e) {
+            summarizing = false;
+            unsummarized.clear();
+            System.out.println("Failed to schedule summary: " + e.getMessage());
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : summarizePending
+     * DESCRIPTION : Folds queued evicted messages into the summary until none are left
+     * PRE-CONDITION : Runs on the summary executor, at most once per history at a time
+     * POST-CONDITION : Summary updated unless cleared meanwhile, the next eviction schedules a new task
+     * ======================================================================
+     */
+    private void summarizePending(Summarizer current) {
+        while (true) {
+            List<Message> evicted;
+            String previous;
+            int scheduledGeneration;
+            synchronized (this) {
+                if (unsummarized.isEmpty()) {
+                    summarizing = false;
+                    return;
+                }
+                // each summary builds on the one before, so evictions queued meanwhile go in one batch
+                evicted = new ArrayList<>(unsummarized);
+                unsummarized.clear();
+                previous = summary;
+                scheduledGeneration = generation;
+            }
+            try {
+                String updated = current.summarize(previous, evicted);
+                if (updated.length() > MAX_SUMMARY_CHARS) {
+                    updated = updated.substring(0, MAX_SUMMARY_CHARS);
+                }
+                synchronized (this) {
+                    if (generation == scheduledGeneration) {
+                        summary = updated.trim();
+                        if (store != null) {
+                            store.setSummary(summary);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                System.out.println("Failed to summarize evicted messages: " + e.getMessage());
+            }
+        }
     }
 
     /*
      * ======================================================================
      * METHOD NAME : getMessages
-     * DESCRIPTION : Retrieves a copy of the messages in the history
+     * DESCRIPTION : Retrieves the messages in the history without copying them
      * PRE-CONDITION : None
-     * POST-CONDITION : Returns list of messages
+     * POST-CONDITION : Returns a read-only snapshot, later changes to the history do not show in it
      * ======================================================================
      */
-    public List<Message> getMessages() {
-        return new ArrayList<>(messages);
+    public synchronized List<Message> getMessages() {
+        return new Snapshot(window, head, tail);
     }
 
     /*
      * ======================================================================
      * METHOD NAME : clear
-     * DESCRIPTION : Clears all messages from the history
+     * DESCRIPTION : Clears all messages and the summary from the history
      * PRE-CONDITION : None
-     * POST-CONDITION : Message list is empty
+     * POST-CONDITION : Message list and summary are empty, a store keeps the old messages until compacted
      * ======================================================================
      */
-    public void clear() {
-        messages.clear();
+    public synchronized void clear() {
+        window = new Message[INITIAL_CAPACITY];
+        head = 0;
+        tail = 0;
+        totalTokens = 0;
+        summary = "";
+        unsummarized.clear();
+        generation++;
+        if (store != null) {
+            try {
+                store.clear();
+            } catch (IOException e) {
+                System.out.println("Failed to persist clear: " + e.getMessage());
+            }
+        }
     }
 
     /*
@@ -86,8 +403,115 @@ public class ConversationHistory {
      * POST-CONDITION : Returns integer count of messages
      * ======================================================================
      */
-    public int size() {
-        return messages.size();
+    public synchronized int size() {
+        return tail - head;
+    }
+
+    /**
+     * ======================================================================
+     * CLASS NAME : Role
+     * DESCRIPTION : Who wrote a message
+     * ======================================================================
+     */
+    public enum Role {
+        USER("user"),
+        ASSISTANT("assistant");
+
+        private final String name;
+
+        /*
+         * ======================================================================
+         * METHOD NAME : Role
+         * DESCRIPTION : Parameterized constructor
+         * PRE-CONDITION : name is the role name of the chat api
+         * POST-CONDITION : Role initialized
+         * ======================================================================
+         */
+        Role(String name) {
+            this.name = name;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : getName
+         * DESCRIPTION : Accessor for the role name
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns the lowercase name, as stored and sent to the server
+         * ======================================================================
+         */
+        public String getName() {
+            return name;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : of
+         * DESCRIPTION : Looks up a role by name, ignoring case
+         * PRE-CONDITION : name is user or assistant
+         * POST-CONDITION : Returns the role, throws IllegalArgumentException for any other name
+         * ======================================================================
+         */
+        public static Role of(String name) {
+            for (Role role : values()) {
+                if (role.name.equalsIgnoreCase(name)) {
+                    return role;
+                }
+            }
+            throw new IllegalArgumentException("Unknown message role: " + name);
+        }
+    }
+
+    /**
+     * ======================================================================
+     * CLASS NAME : Snapshot
+     * DESCRIPTION : Read-only view of the window at the time it was taken
+     * ======================================================================
+     */
+    static class Snapshot extends AbstractList<Message> implements RandomAccess {
+        private final Message[] window;
+        private final int from;
+        private final int to;
+
+        /*
+         * ======================================================================
+         * METHOD NAME : Snapshot
+         * DESCRIPTION : Parameterized constructor
+         * PRE-CONDITION : window[from..to) is never written again
+         * POST-CONDITION : View over the range, nothing copied
+         * ======================================================================
+         */
+        Snapshot(Message[] window, int from, int to) {
+            this.window = window;
+            this.from = from;
+            this.to = to;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : get
+         * DESCRIPTION : Gets a message of the snapshot
+         * PRE-CONDITION : 0 <= index < size()
+         * POST-CONDITION : Returns the message, oldest first
+         * ======================================================================
+         */
+        @Override
+        public Message get(int index) {
+            Objects.checkIndex(index, to - from);
+            return window[from + index];
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : size
+         * DESCRIPTION : Returns the number of messages in the snapshot
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns integer count of messages
+         * ======================================================================
+         */
+        @Override
+        public int size() {
+            return to - from;
+        }
     }
 
     /**
@@ -99,23 +523,67 @@ public class ConversationHistory {
      * REVISION HISTORY
      * Date: By: Description:
      * 2025-12-06 Mickel Angelo Castoverde Creation of the program
+     * 2026-10-16 Mickel Angelo Castoverde cached token estimate
+     * 2026-10-16 Mickel Angelo Castoverde role held as an enum
      * ======================================================================
      */
     public static class Message {
-        private final String role;
+        private static final int CHARS_PER_TOKEN = 4;
+        private static final int TOKENS_PER_MESSAGE = 4; // role and formatting overhead
+
+        private final Role role;
         private final String content;
+        private final int tokenEstimate;
 
         /*
          * ======================================================================
          * METHOD NAME : Message
          * DESCRIPTION : Parameterized constructor
-         * PRE-CONDITION : role and content are valid
+         * PRE-CONDITION : role is user or assistant, content is valid
          * POST-CONDITION : Message object initialized
          * ======================================================================
          */
         public Message(String role, String content) {
+            this(Role.of(role), content);
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : Message
+         * DESCRIPTION : Parameterized constructor
+         * PRE-CONDITION : role and content are valid
+         * POST-CONDITION : Message object initialized
+         * ======================================================================
+         */
+        public Message(Role role, String content) {
             this.role = role;
             this.content = content;
+            this.tokenEstimate = estimateTokens(content);
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : estimateTokens
+         * DESCRIPTION : Estimates the tokens a text costs in the prompt
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns roughly one token per four characters plus overhead
+         * ======================================================================
+         */
+        public static int estimateTokens(String text) {
+            int length = text != null ? text.length() : 0;
+            return (length + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN + TOKENS_PER_MESSAGE;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : getTokenEstimate
+         * DESCRIPTION : Accessor for the cached token estimate
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns the estimated token count
+         * ======================================================================
+         */
+        public int getTokenEstimate() {
+            return tokenEstimate;
         }
 
         /*
@@ -127,6 +595,18 @@ public class ConversationHistory {
          * ======================================================================
          */
         public String getRole() {
+            return role.getName();
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : getRoleType
+         * DESCRIPTION : Accessor for the message role
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns the role, compared by identity
+         * ======================================================================
+         */
+        public Role getRoleType() {
             return role;
         }
 
@@ -153,7 +633,7 @@ public class ConversationHistory {
         @Override
         public String toString() {
             return "Message{" +
-                    "role='" + role + '\'' +
+                    "role='" + role.getName() + '\'' +
                     ", content='" + content + '\'' +
                     '}';
         }
@@ -173,7 +653,7 @@ public class ConversationHistory {
             if (o == null || getClass() != o.getClass())
                 return false;
             Message message = (Message) o;
-            return Objects.equals(role, message.role) &&
+            return role == message.role &&
                     Objects.equals(content, message.content);
         }
 
@@ -0,0 +1,711 @@
+/**
+======================================================================
+CLASS NAME : ConversationStore
+DESCRIPTION : Crash-safe on-disk store of one conversation: an append-only log of checksummed
+              records, an offset index for direct reads of any message and a snapshot of the
+              compacted state so a long conversation reopens without replaying its log
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  window start found by role enum
+======================================================================
+*/
+package javaollama;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+public class ConversationStore implements AutoCloseable {
+
+    private static final int DEFAULT_SYNC_EVERY = 1;
+    private static final int DEFAULT_SNAPSHOT_EVERY = 1024;
+    private static final int SNAPSHOT_MAGIC = 0x4A4C5331; // "JLS1"
+    private static final String LOG_EXTENSION = ".jlc";
+    private static final String INDEX_EXTENSION = ".jli";
+    private static final String SNAPSHOT_EXTENSION = ".jls";
+    private static final Pattern CONVERSATION_ID = Pattern.compile("[A-Za-z0-9._-]{1,128}");
+    private static final int HEADER_BYTES = 9;
+    private static final int INDEX_ENTRY_BYTES = 8;
+    // a longer length can only come from a torn header
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+    private static final byte MESSAGE = 1;
+    private static final byte SUMMARY = 2;
+    private static final byte CLEAR = 3;
+
+    /*
+     * log record layout, big-endian:
+     * int payloadBytes | int crc32c(type, payload) | byte type | payload
+     * message payload: short roleBytes | utf-8 role | utf-8 content
+     * summary payload: utf-8 summary, clear payload: empty
+     *
+     * index layout: long log offset of the n-th message record at n * 8
+     *
+     * snapshot layout:
+     * int magic | long logBytes | int messageCount | int windowStart | int summaryBytes | utf-8 summary
+     * | int crc32c of everything before
+     */
+
+    private final String conversationId;
+    private final Path logPath;
+    private final Path indexPath;
+    private final Path snapshotPath;
+    private final int syncEvery;
+    private final int snapshotEvery;
+    private final MetricsRegistry metrics;
+    private FileChannel log;
+    private FileChannel index;
+    private long logBytes;
+    private int messageCount;
+    private int windowStart;
+    private String summary;
+    private int unsynced;
+    private int sinceSnapshot;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : ConversationStore
+     * DESCRIPTION : Opens or creates the store of a conversation
+     * PRE-CONDITION : conversationId is 1 to 128 letters, digits, '.', '_' or '-';
+     *                 syncEvery is the number of records per fsync, 0 leaves flushing to the os;
+     *                 snapshotEvery is the number of records per snapshot, 0 snapshots only on close
+     * POST-CONDITION : Records after the last snapshot replayed, a torn or corrupt tail left by a
+     *                  crash is cut off, the store is ready for appends
+     * ======================================================================
+     */
+    public ConversationStore(Path directory, String conversationId, int syncEvery, int snapshotEvery,
+            MetricsRegistry metrics) throws IOException {
+        if (!CONVERSATION_ID.matcher(conversationId).matches()) {
+            throw new IllegalArgumentException("Invalid conversation id: " + conversationId);
+        }
+        this.conversationId = conversationId;
+        this.logPath = directory.resolve(conversationId + LOG_EXTENSION);
+        this.indexPath = directory.resolve(conversationId + INDEX_EXTENSION);
+        this.snapshotPath = directory.resolve(conversationId + SNAPSHOT_EXTENSION);
+        this.syncEvery = syncEvery;
+        this.snapshotEvery = snapshotEvery;
+        this.metrics = metrics;
+
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        openChannels();
+        recover();
+        metrics.recordLatency("javallama_history_open", System.nanoTime() - start);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : openDefault
+     * DESCRIPTION : Opens a conversation in the user's home directory
+     * PRE-CONDITION : conversationId is valid, see the constructor
+     * POST-CONDITION : Returns the store under ~/.javallama/conversations, records per fsync
+     *                  from -Djavallama.history.sync.every (default every record)
+     * ======================================================================
+     */
+    public static ConversationStore openDefault(String conversationId) throws IOException {
+        Path dir = Path.of(System.getProperty("user.home"), ".javallama", "conversations");
+        return new ConversationStore(dir, conversationId,
+                Integer.getInteger("javallama.history.sync.every", DEFAULT_SYNC_EVERY), DEFAULT_SNAPSHOT_EVERY,
+                MetricsRegistry.getDefault());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : openChannels
+     * DESCRIPTION : Opens the log and index files
+     * PRE-CONDITION : Directory exists
+     * POST-CONDITION : Both channels open for reading and writing
+     * ======================================================================
+     */
+    private void openChannels() throws IOException {
+        log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : recover
+     * DESCRIPTION : Restores the state from the snapshot and the log records written after it
+     * PRE-CONDITION : Channels are open
+     * POST-CONDITION : Log ends after its last intact record, index holds one entry per message
+     * ======================================================================
+     */
+    private void recover() throws IOException {
+        long logSize = log.size();
+        long indexEntries = index.size() / INDEX_ENTRY_BYTES;
+        messageCount = 0;
+        windowStart = 0;
+        summary = "";
+        long offset = 0;
+
+        // a snapshot is only trusted if the files it describes are at least as long as it claims
+        ByteBuffer snapshot = readSnapshot();
+        if (snapshot != null) {
+            long snapshotLogBytes = snapshot.getLong();
+            int snapshotMessages = snapshot.getInt();
+            int snapshotWindow = snapshot.getInt();
+            if (snapshotLogBytes <= logSize && snapshotMessages <= indexEntries && snapshotWindow <= snapshotMessages) {
+                offset = snapshotLogBytes;
+                messageCount = snapshotMessages;
+                windowStart = snapshotWindow;
+                summary = decode(snapshot, snapshot.getInt());
+            }
+        }
+
+        // replay the tail, the first record that is cut short or fails its checksum ends the log
+        int replayed = 0;
+        List<Long> offsets = new ArrayList<>();
+        int firstReplayedMessage = messageCount;
+        CRC32C crc = new CRC32C();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(log.position(offset)), 64 * 1024));
+        while (offset + HEADER_BYTES <= logSize) {
+            int length;
+            int checksum;
+            byte type;
+            byte[] payload;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+                type = in.readByte();
+                if (length < 0 || length > MAX_RECORD_BYTES || offset + HEADER_BYTES + length > logSize) {
+                    break;
+                }
+                payload = new byte[length];
+                in.readFully(payload);
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(type);
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            if (type == MESSAGE) {
+                offsets.add(offset);
+                messageCount++;
+            } else if (type == SUMMARY) {
+                summary = new String(payload, StandardCharsets.UTF_8);
+            } else if (type == CLEAR) {
+                windowStart = messageCount;
+                summary = "";
+            } else {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+            replayed++;
+        }
+
+        if (offset < logSize) {
+            System.out.println("Discarding " + (logSize - offset) + " torn bytes at the end of conversation "
+                    + conversationId);
+            log.truncate(offset);
+        }
+        logBytes = offset;
+
+        // the index is rewritten for the replayed records, it may lag the log after a crash
+        if (!offsets.isEmpty()) {
+            ByteBuffer entries = ByteBuffer.allocate(offsets.size() * INDEX_ENTRY_BYTES);
+            for (long recordOffset : offsets) {
+                entries.putLong(recordOffset);
+            }
+            entries.flip();
+            writeFully(index, entries, (long) firstReplayedMessage * INDEX_ENTRY_BYTES);
+        }
+        index.truncate((long) messageCount * INDEX_ENTRY_BYTES);
+        sinceSnapshot = replayed;
+        unsynced = replayed > 0 || offset < logSize ? 1 : 0;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : readSnapshot
+     * DESCRIPTION : Reads and verifies the snapshot file
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the contents positioned after the magic, null if missing or corrupt
+     * ======================================================================
+     */
+    private ByteBuffer readSnapshot() {
+        if (!Files.isRegularFile(snapshotPath)) {
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(snapshotPath);
+            if (bytes.length < 28) {
+                return null;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(bytes, 0, bytes.length - 4);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.getInt() != SNAPSHOT_MAGIC || (int) crc.getValue() != buffer.getInt(bytes.length - 4)) {
+                System.out.println("Ignoring corrupt snapshot of conversation " + conversationId);
+                return null;
+            }
+            return buffer;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : append
+     * DESCRIPTION : Appends a message to the log
+     * PRE-CONDITION : Store is open
+     * POST-CONDITION : Message readable by its index, durable once syncEvery records are written
+     * ======================================================================
+     */
+    public synchronized void append(ConversationHistory.Message message) throws IOException {
+        byte[] role = message.getRole().getBytes(StandardCharsets.UTF_8);
+        byte[] content = message.getContent().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(2 + role.length + content.length);
+        payload.putShort((short) role.length).put(role).put(content).flip();
+        long offset = write(MESSAGE, payload);
+
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES).putLong(offset).flip();
+        writeFully(index, entry, (long) messageCount * INDEX_ENTRY_BYTES);
+        messageCount++;
+        afterWrite();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setSummary
+     * DESCRIPTION : Records the running summary of the conversation
+     * PRE-CONDITION : Store is open
+     * POST-CONDITION : Summary restored on reopen, unchanged summaries are not written
+     * ======================================================================
+     */
+    public synchronized void setSummary(String summary) throws IOException {
+        if (summary.equals(this.summary)) {
+            return;
+        }
+        write(SUMMARY, ByteBuffer.wrap(summary.getBytes(StandardCharsets.UTF_8)));
+        this.summary = summary;
+        afterWrite();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : clear
+     * DESCRIPTION : Starts a new window, the earlier messages stay readable until compact
+     * PRE-CONDITION : Store is open
+     * POST-CONDITION : Window starts after the last message, summary empty
+     * ======================================================================
+     */
+    public synchronized void clear() throws IOException {
+        write(CLEAR, ByteBuffer.allocate(0));
+        windowStart = messageCount;
+        summary = "";
+        afterWrite();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : write
+     * DESCRIPTION : Appends one checksummed record to the log
+     * PRE-CONDITION : Caller holds the lock, payload is flipped
+     * POST-CONDITION : Returns the offset of the record
+     * ======================================================================
+     */
+    private long write(byte type, ByteBuffer payload) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(type);
+        crc.update(payload.duplicate());
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.remaining());
+        record.putInt(payload.remaining()).putInt((int) crc.getValue()).put(type).put(payload).flip();
+
+        long offset = logBytes;
+        writeFully(log, record, offset);
+        logBytes += record.limit();
+        return offset;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : afterWrite
+     * DESCRIPTION : Syncs and snapshots once enough records were written
+     * PRE-CONDITION : Caller holds the lock
+     * POST-CONDITION : Counters updated
+     * ======================================================================
+     */
+    private void afterWrite() throws IOException {
+        unsynced++;
+        sinceSnapshot++;
+        metrics.increment("javallama_history_records_total", 1);
+        if (syncEvery > 0 && unsynced >= syncEvery) {
+            sync();
+        }
+        if (snapshotEvery > 0 && sinceSnapshot >= snapshotEvery) {
+            snapshot();
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : sync
+     * DESCRIPTION : Forces the written records to disk
+     * PRE-CONDITION : Store is open
+     * POST-CONDITION : Every record appended so far survives a crash
+     * ======================================================================
+     */
+    public synchronized void sync() throws IOException {
+        if (unsynced == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        // the log goes first, an index entry must never be durable before its record
+        log.force(false);
+        index.force(false);
+        unsynced = 0;
+        metrics.recordLatency("javallama_history_fsync", System.nanoTime() - start);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : snapshot
+     * DESCRIPTION : Writes the compacted state so reopening skips the log before it
+     * PRE-CONDITION : Store is open
+     * POST-CONDITION : Records synced, snapshot replaced atomically
+     * ======================================================================
+     */
+    public synchronized void snapshot() throws IOException {
+        // a snapshot must not describe records that could still be lost
+        sync();
+        byte[] summaryBytes = summary.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(28 + summaryBytes.length);
+        buffer.putInt(SNAPSHOT_MAGIC).putLong(logBytes).putInt(messageCount).putInt(windowStart)
+                .putInt(summaryBytes.length).put(summaryBytes);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue()).flip();
+
+        Path temp = Files.createTempFile(snapshotPath.getParent(), conversationId, ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            writeFully(out, buffer, 0);
+            out.force(true);
+        }
+        Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        sinceSnapshot = 0;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : compact
+     * DESCRIPTION : Rewrites the log with only the current window and summary
+     * PRE-CONDITION : Store is open
+     * POST-CONDITION : Messages before the window are gone and the window starts at index 0;
+     *                  a crash part way leaves a log the next open replays correctly
+     * ======================================================================
+     */
+    public synchronized void compact() throws IOException {
+        sync();
+        Path logTemp = Files.createTempFile(logPath.getParent(), conversationId, LOG_EXTENSION + ".tmp");
+        Path indexTemp = Files.createTempFile(indexPath.getParent(), conversationId, INDEX_EXTENSION + ".tmp");
+        int live = messageCount - windowStart;
+        long position = 0;
+        try (FileChannel newLog = FileChannel.open(logTemp, StandardOpenOption.WRITE);
+                FileChannel newIndex = FileChannel.open(indexTemp, StandardOpenOption.WRITE)) {
+            ByteBuffer entries = ByteBuffer.allocate(live * INDEX_ENTRY_BYTES);
+            for (int i = windowStart; i < messageCount; i++) {
+                ByteBuffer record = readRecord(offsetOf(i));
+                entries.putLong(position);
+                position += writeFully(newLog, record.rewind(), position);
+            }
+            if (!summary.isEmpty()) {
+                byte[] text = summary.getBytes(StandardCharsets.UTF_8);
+                CRC32C crc = new CRC32C();
+                crc.update(SUMMARY);
+                crc.update(text);
+                ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + text.length);
+                record.putInt(text.length).putInt((int) crc.getValue()).put(SUMMARY).put(text).flip();
+                position += writeFully(newLog, record, position);
+            }
+            writeFully(newIndex, entries.flip(), 0);
+            newLog.force(true);
+            newIndex.force(true);
+        }
+
+        // without a snapshot the next open rebuilds the index from whichever log is in place
+        log.close();
+        index.close();
+        Files.deleteIfExists(snapshotPath);
+        Files.move(logTemp, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(indexTemp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        openChannels();
+        logBytes = position;
+        messageCount = live;
+        windowStart = 0;
+        unsynced = 0;
+        snapshot();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : read
+     * DESCRIPTION : Reads one message by its position in the conversation
+     * PRE-CONDITION : 0 <= i < size()
+     * POST-CONDITION : Returns the message, two reads regardless of the conversation length
+     * ======================================================================
+     */
+    public synchronized ConversationHistory.Message read(int i) throws IOException {
+        if (i < 0 || i >= messageCount) {
+            throw new IndexOutOfBoundsException("Message " + i + " of " + messageCount);
+        }
+        return decodeMessage(readRecord(offsetOf(i)));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : readRange
+     * DESCRIPTION : Reads consecutive messages
+     * PRE-CONDITION : 0 <= from <= to <= size()
+     * POST-CONDITION : Returns the messages from (inclusive) to (exclusive)
+     * ======================================================================
+     */
+    public synchronized List<ConversationHistory.Message> readRange(int from, int to) throws IOException {
+        if (from < 0 || to > messageCount || from > to) {
+            throw new IndexOutOfBoundsException("Messages " + from + " to " + to + " of " + messageCount);
+        }
+        ByteBuffer entries = ByteBuffer.allocate((to - from) * INDEX_ENTRY_BYTES);
+        readFully(index, entries, (long) from * INDEX_ENTRY_BYTES);
+        entries.flip();
+        List<ConversationHistory.Message> range = new ArrayList<>(to - from);
+        while (entries.hasRemaining()) {
+            range.add(decodeMessage(readRecord(entries.getLong())));
+        }
+        return range;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : loadRecent
+     * DESCRIPTION : Reads the newest messages of the window that fit a token budget
+     * PRE-CONDITION : tokenBudget > 0
+     * POST-CONDITION : Returns the messages oldest first, starting with a user message like the
+     *                  history window, only they are read from disk
+     * ======================================================================
+     */
+    public synchronized List<ConversationHistory.Message> loadRecent(int tokenBudget) throws IOException {
+        List<ConversationHistory.Message> recent = new ArrayList<>();
+        int tokens = 0;
+        for (int i = messageCount - 1; i >= windowStart; i--) {
+            ConversationHistory.Message message = read(i);
+            if (!recent.isEmpty() && tokens + message.getTokenEstimate() > tokenBudget) {
+                break;
+            }
+            recent.add(message);
+            tokens += message.getTokenEstimate();
+        }
+        Collections.reverse(recent);
+        while (recent.size() > 1 && recent.get(0).getRoleType() != ConversationHistory.Role.USER) {
+            recent.remove(0);
+        }
+        return recent;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : offsetOf
+     * DESCRIPTION : Looks up the log offset of a message in the index
+     * PRE-CONDITION : 0 <= i < messageCount, caller holds the lock
+     * POST-CONDITION : Returns the record offset
+     * ======================================================================
+     */
+    private long offsetOf(int i) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+        readFully(index, entry, (long) i * INDEX_ENTRY_BYTES);
+        return entry.flip().getLong();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : readRecord
+     * DESCRIPTION : Reads and verifies the record at an offset
+     * PRE-CONDITION : offset is the start of a record, caller holds the lock
+     * POST-CONDITION : Returns the whole record positioned at its payload, throws if it is corrupt
+     * ======================================================================
+     */
+    private ByteBuffer readRecord(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(log, header, offset);
+        int length = header.getInt(0);
+        if (length < 0 || offset + HEADER_BYTES + length > logBytes) {
+            throw new IOException("Corrupt record at offset " + offset + " of conversation " + conversationId);
+        }
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + length);
+        record.put(header.flip());
+        readFully(log, record, offset + HEADER_BYTES);
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), 8, 1 + length);
+        if ((int) crc.getValue() != record.getInt(4)) {
+            throw new IOException("Checksum mismatch at offset " + offset + " of conversation " + conversationId);
+        }
+        return record.position(HEADER_BYTES);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : decodeMessage
+     * DESCRIPTION : Decodes a message record
+     * PRE-CONDITION : record is positioned at its payload
+     * POST-CONDITION : Returns the message
+     * ======================================================================
+     */
+    private static ConversationHistory.Message decodeMessage(ByteBuffer record) {
+        String role = decode(record, record.getShort());
+        String content = decode(record, record.remaining());
+        return new ConversationHistory.Message(role, content);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : decode
+     * DESCRIPTION : Reads a utf-8 string from a heap buffer
+     * PRE-CONDITION : length bytes remain
+     * POST-CONDITION : Returns the string, buffer advanced past it
+     * ======================================================================
+     */
+    private static String decode(ByteBuffer buffer, int length) {
+        String text = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return text;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : readFully
+     * DESCRIPTION : Fills a buffer from a file position
+     * PRE-CONDITION : None
+     * POST-CONDITION : Buffer full, throws EOFException if the file ends first
+     * ======================================================================
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of file at " + position);
+            }
+            position += read;
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : writeFully
+     * DESCRIPTION : Writes a whole buffer at a file position
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the number of bytes written
+     * ======================================================================
+     */
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : size
+     * DESCRIPTION : Returns the number of stored messages
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the count including messages before the window
+     * ======================================================================
+     */
+    public synchronized int size() {
+        return messageCount;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getWindowStart
+     * DESCRIPTION : Returns the index of the first message after the last clear
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a value between 0 and size()
+     * ======================================================================
+     */
+    public synchronized int getWindowStart() {
+        return windowStart;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getSummary
+     * DESCRIPTION : Returns the last recorded summary of the window
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the summary, empty if none
+     * ======================================================================
+     */
+    public synchronized String getSummary() {
+        return summary;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getLogBytes
+     * DESCRIPTION : Returns the size of the log
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the bytes of intact records
+     * ======================================================================
+     */
+    public synchronized long getLogBytes() {
+        return logBytes;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : close
+     * DESCRIPTION : Snapshots and closes the files
+     * PRE-CONDITION : None
+     * POST-CONDITION : Next open replays nothing, later calls do nothing
+     * ======================================================================
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!log.isOpen()) {
+            return;
+        }
+        try {
+            snapshot();
+        } finally {
+            log.close();
+            index.close();
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : writeOutput
+     * DESCRIPTION : Writes the object state to the console
+     * PRE-CONDITION : None
+     * POST-CONDITION : Object state is printed to stdout
+     * ======================================================================
+     */
+    public synchronized void writeOutput() {
+        System.out.println("ConversationStore Status:");
+        System.out.println("Conversation: " + conversationId);
+        System.out.println("Messages: " + messageCount + " (window from " + windowStart + ")");
+        System.out.println("Log Bytes: " + logBytes);
+        System.out.println("Records per Sync: " + (syncEvery > 0 ? syncEvery : "os"));
+    }
+}
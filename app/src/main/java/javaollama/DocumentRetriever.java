@@ -0,0 +1,214 @@
+/**
+======================================================================
+CLASS NAME : DocumentRetriever
+DESCRIPTION : Chunks and embeds a document, then returns the chunks relevant to a question
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  chunk vectors reused from the pdf cache
+2026-10-16      Mickel Angelo Castoverde  empty copy so a new document is indexed beside the current one
+======================================================================
+*/
+package javaollama;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class DocumentRetriever {
+
+    private static final int CLUSTER_THRESHOLD = 256;
+    private static final String CHUNK_SEPARATOR = "\n...\n";
+
+    private final Embedder embedder;
+    private final TextChunker chunker;
+    private PdfCache cache;
+    private String text;
+    private int[] bounds;
+    private VectorIndex index;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : DocumentRetriever
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : embedder and chunker are not null
+     * POST-CONDITION : Retriever initialized with no document
+     * ======================================================================
+     */
+    public DocumentRetriever(Embedder embedder, TextChunker chunker) {
+        this.embedder = embedder;
+        this.chunker = chunker;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : emptyCopy
+     * DESCRIPTION : Creates a retriever with the same embedder, chunker and cache
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a retriever with no document, this one is unchanged
+     * ======================================================================
+     */
+    public DocumentRetriever emptyCopy() {
+        DocumentRetriever copy = new DocumentRetriever(embedder, chunker);
+        copy.setCache(cache);
+        return copy;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setCache
+     * DESCRIPTION : Sets the cache used to persist chunk vectors
+     * PRE-CONDITION : cache may be null to disable persistence
+     * POST-CONDITION : cache is updated
+     * ======================================================================
+     */
+    public void setCache(PdfCache cache) {
+        this.cache = cache;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : index
+     * DESCRIPTION : Splits the text into chunks and embeds every chunk
+     * PRE-CONDITION : text is not empty
+     * POST-CONDITION : Document is searchable, or exception thrown and state unchanged
+     * ======================================================================
+     */
+    public void index(String text) throws OllamaServiceException {
+        index(text, null);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : index
+     * DESCRIPTION : Indexes the text, reusing cached vectors stored under the key
+     * PRE-CONDITION : text is not empty, cacheKey may be null
+     * POST-CONDITION : Document is searchable and its vectors are cached
+     * ======================================================================
+     */
+    public void index(String text, String cacheKey) throws OllamaServiceException {
+        int[] chunkBounds = chunker.split(text);
+        if (chunkBounds.length == 0) {
+            throw new OllamaServiceException("Document has no text to index");
+        }
+
+        VectorIndex built = loadCachedIndex(cacheKey, chunkBounds);
+        if (built == null) {
+            List<String> chunks = new ArrayList<>(chunkBounds.length / 2);
+            for (int i = 0; i < chunkBounds.length; i += 2) {
+                chunks.add(text.substring(chunkBounds[i], chunkBounds[i + 1]));
+            }
+
+            float[][] embeddings = embedder.embed(chunks);
+            built = new VectorIndex(embeddings[0].length);
+            for (float[] embedding : embeddings) {
+                built.add(embedding);
+            }
+            if (cache != null && cacheKey != null) {
+                cache.store(new CachedDocument(cacheKey, text, embedder.getModelName(), chunkBounds,
+                        built.toArray(), built.getDimension()));
+            }
+        }
+        if (built.size() >= CLUSTER_THRESHOLD) {
+            built.buildClusters((int) Math.sqrt(built.size()));
+        }
+
+        synchronized (this) {
+            this.text = text;
+            this.bounds = chunkBounds;
+            this.index = built;
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : loadCachedIndex
+     * DESCRIPTION : Rebuilds the index from cached vectors when they still match
+     * PRE-CONDITION : chunkBounds computed with the current chunker
+     * POST-CONDITION : Returns the index, or null if nothing usable is cached
+     * ======================================================================
+     */
+    private VectorIndex loadCachedIndex(String cacheKey, int[] chunkBounds) {
+        if (cache == null || cacheKey == null) {
+            return null;
+        }
+        CachedDocument cached = cache.load(cacheKey);
+        // vectors from another model or chunk layout cannot be reused
+        if (cached == null || !cached.hasEmbeddings()
+                || !embedder.getModelName().equals(cached.getEmbeddingModel())
+                || !Arrays.equals(chunkBounds, cached.getBounds())) {
+            return null;
+        }
+        return new VectorIndex(cached.getDimension(), cached.getVectors());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : isIndexed
+     * DESCRIPTION : Checks whether a document is ready for retrieval
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns true if index has been built
+     * ======================================================================
+     */
+    public synchronized boolean isIndexed() {
+        return index != null;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getChunkCount
+     * DESCRIPTION : Returns the number of chunks in the indexed document
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the chunk count, 0 if nothing is indexed
+     * ======================================================================
+     */
+    public synchronized int getChunkCount() {
+        return bounds != null ? bounds.length / 2 : 0;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : retrieve
+     * DESCRIPTION : Returns the top-k chunks for a question, in document order
+     * PRE-CONDITION : Document is indexed
+     * POST-CONDITION : Returns the joined chunk text, empty if nothing is indexed
+     * ======================================================================
+     */
+    public String retrieve(String question, int topK) throws OllamaServiceException {
+        float[] query = embedder.embed(List.of(question))[0];
+
+        synchronized (this) {
+            if (index == null) {
+                return "";
+            }
+            int[] ids = index.search(query, topK);
+
+            // document order reads more naturally than score order
+            Arrays.sort(ids);
+            StringBuilder context = new StringBuilder();
+            for (int id : ids) {
+                if (context.length() > 0) {
+                    context.append(CHUNK_SEPARATOR);
+                }
+                context.append(text, bounds[2 * id], bounds[2 * id + 1]);
+            }
+            return context.toString();
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : clear
+     * DESCRIPTION : Drops the indexed document
+     * PRE-CONDITION : None
+     * POST-CONDITION : isIndexed returns false
+     * ======================================================================
+     */
+    public synchronized void clear() {
+        this.text = null;
+        this.bounds = null;
+        this.index = null;
+    }
+}
@@ -0,0 +1,37 @@
+/**
+======================================================================
+CLASS NAME : Embedder
+DESCRIPTION : Computes embedding vectors for pieces of text
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import java.util.List;
+
+public interface Embedder {
+
+    /*
+     * ======================================================================
+     * METHOD NAME : embed
+     * DESCRIPTION : Embeds each text into a vector of the same dimension
+     * PRE-CONDITION : texts is not empty
+     * POST-CONDITION : Returns one vector per text, in the same order
+     * ======================================================================
+     */
+    float[][] embed(List<String> texts) throws OllamaServiceException;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getModelName
+     * DESCRIPTION : Identifies the model, so cached vectors are only reused with it
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the model name
+     * ======================================================================
+     */
+    String getModelName();
+}
@@ -0,0 +1,193 @@
+/**
+======================================================================
+CLASS NAME : InferenceTimings
+DESCRIPTION : Server reported token counts and durations of one chat request
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import io.github.ollama4j.models.chat.OllamaChatResponseModel;
+
+public class InferenceTimings {
+
+    private static final InferenceTimings UNKNOWN = new InferenceTimings(-1, -1, -1, -1, -1, -1);
+
+    private final long totalDurationNs;
+    private final long loadDurationNs;
+    private final int promptEvalCount;
+    private final long promptEvalDurationNs;
+    private final int evalCount;
+    private final long evalDurationNs;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : InferenceTimings
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : Values not reported by the server are -1
+     * POST-CONDITION : Instance created
+     * ======================================================================
+     */
+    public InferenceTimings(long totalDurationNs, long loadDurationNs, int promptEvalCount,
+            long promptEvalDurationNs, int evalCount, long evalDurationNs) {
+        this.totalDurationNs = totalDurationNs;
+        this.loadDurationNs = loadDurationNs;
+        this.promptEvalCount = promptEvalCount;
+        this.promptEvalDurationNs = promptEvalDurationNs;
+        this.evalCount = evalCount;
+        this.evalDurationNs = evalDurationNs;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : unknown
+     * DESCRIPTION : Returns timings for a response the server did not describe
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns an instance with every value -1
+     * ======================================================================
+     */
+    public static InferenceTimings unknown() {
+        return UNKNOWN;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : from
+     * DESCRIPTION : Reads the timings from the final response of a chat request
+     * PRE-CONDITION : model may be null
+     * POST-CONDITION : Returns the timings, missing values are -1
+     * ======================================================================
+     */
+    public static InferenceTimings from(OllamaChatResponseModel model) {
+        if (model == null) {
+            return UNKNOWN;
+        }
+        return new InferenceTimings(
+                orUnknown(model.getTotalDuration()),
+                orUnknown(model.getLoadDuration()),
+                (int) orUnknown(model.getPromptEvalCount()),
+                orUnknown(model.getPromptEvalDuration()),
+                (int) orUnknown(model.getEvalCount()),
+                orUnknown(model.getEvalDuration()));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : orUnknown
+     * DESCRIPTION : Unboxes a reported value
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the value, -1 if null
+     * ======================================================================
+     */
+    private static long orUnknown(Number value) {
+        return value != null ? value.longValue() : -1;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getTotalDurationNs
+     * DESCRIPTION : Accessor for the total time the server spent on the request
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns nanoseconds, -1 if not reported
+     * ======================================================================
+     */
+    public long getTotalDurationNs() {
+        return totalDurationNs;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getLoadDurationNs
+     * DESCRIPTION : Accessor for the time spent loading the model
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns nanoseconds, -1 if not reported
+     * ======================================================================
+     */
+    public long getLoadDurationNs() {
+        return loadDurationNs;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getPromptEvalCount
+     * DESCRIPTION : Accessor for the prompt tokens the server had to evaluate
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the count, -1 if not reported
+     * ======================================================================
+     */
+    public int getPromptEvalCount() {
+        return promptEvalCount;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getPromptEvalDurationNs
+     * DESCRIPTION : Accessor for the time spent evaluating the prompt
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns nanoseconds, -1 if not reported
+     * ======================================================================
+     */
+    public long getPromptEvalDurationNs() {
+        return promptEvalDurationNs;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getEvalCount
+     * DESCRIPTION : Accessor for the number of generated tokens
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the count, -1 if not reported
+     * ======================================================================
+     */
+    public int getEvalCount() {
+        return evalCount;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getEvalDurationNs
+     * DESCRIPTION : Accessor for the time spent generating tokens
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns nanoseconds, -1 if not reported
+     * ======================================================================
+     */
+    public long getEvalDurationNs() {
+        return evalDurationNs;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : isReported
+     * DESCRIPTION : Checks whether the server sent timings
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns true if the total duration is known
+     * ======================================================================
+     */
+    public boolean isReported() {
+        return totalDurationNs > 0;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : toString
+     * DESCRIPTION : Returns string representation of the object
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns formatted string
+     * ======================================================================
+     */
+    @Override
+    public String toString() {
+        return "InferenceTimings{" +
+                "totalDurationNs=" + totalDurationNs +
+                ", loadDurationNs=" + loadDurationNs +
+                ", promptEvalCount=" + promptEvalCount +
+                ", promptEvalDurationNs=" + promptEvalDurationNs +
+                ", evalCount=" + evalCount +
+                ", evalDurationNs=" + evalDurationNs +
+                '}';
+    }
+}
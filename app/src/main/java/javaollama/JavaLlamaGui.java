@@ -8,12 +8,37 @@ REVISION HISTORY
 Date:           By:             Description:
 2025-12-06      Mickel Angelo Castoverde  Creation of the program
 2025-12-08      Mickel Angelo Castoverde  Updated to use centralized model name from OllamaService
+2026-10-16      Mickel Angelo Castoverde  responses are streamed into the chat in coalesced batches
+2026-10-16      Mickel Angelo Castoverde  pdf loading and indexing moved off the fx thread
+2026-10-16      Mickel Angelo Castoverde  known pdfs are reopened from the on-disk cache
+2026-10-16      Mickel Angelo Castoverde  response stats split into load, prompt and generation time, metrics export
+2026-10-16      Mickel Angelo Castoverde  thinking timer moved to its own label, transcript is append-only
+2026-10-16      Mickel Angelo Castoverde  transcript is a virtualized list of messages instead of one TextArea
+2026-10-16      Mickel Angelo Castoverde  background work runs on the task scheduler, clear chat cancels generation
+2026-10-16      Mickel Angelo Castoverde  stop button aborts the running generation
+2026-10-16      Mickel Angelo Castoverde  stop cancels the token stream itself, interrupts alone do not reach it
+2026-10-16      Mickel Angelo Castoverde  response stats show time queued for a server slot
+2026-10-16      Mickel Angelo Castoverde  opt-in response cache, cached answers marked in the stats
+2026-10-16      Mickel Angelo Castoverde  opt-in semantic cache for paraphrased questions
+2026-10-16      Mickel Angelo Castoverde  server start runs while the window is built, opt-in model warm-up
+2026-10-16      Mickel Angelo Castoverde  opt-in persistent conversation, restored on the next start
+2026-10-16      Mickel Angelo Castoverde  search over past messages and loaded pdfs
+2026-10-16      Mickel Angelo Castoverde  restored messages labelled by role enum
+2026-10-16      Mickel Angelo Castoverde  request profile chosen with -Djavallama.profile
+2026-10-16      Mickel Angelo Castoverde  opt-in adaptive tuning of the context window with -Djavallama.adaptive
+2026-10-16      Mickel Angelo Castoverde  stop shows the tokens that arrived but were not yet on screen
+2026-10-16      Mickel Angelo Castoverde  semantic cache embeds on the service's backend pool
+2026-10-16      Mickel Angelo Castoverde  send disabled while a pdf is loaded and indexed
+2026-10-16      Mickel Angelo Castoverde  pdf service given the on-disk cache explicitly
 ======================================================================
 */
 package javaollama;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -22,17 +47,52 @@ import javafx.scene.layout.*;
 import javafx.stage.Stage;
 import javafx.stage.FileChooser;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 public class JavaLlamaGui extends Application {
 
+    // -Djavallama.metrics.port serves /metrics, -Djavallama.metrics.file is written on exit
+    private static final String METRICS_PORT_PROPERTY = "javallama.metrics.port";
+    private static final String METRICS_FILE_PROPERTY = "javallama.metrics.file";
+    // -Djavallama.response.cache=true answers repeated questions from ~/.javallama/responses
+    private static final String RESPONSE_CACHE_PROPERTY = "javallama.response.cache";
+    // -Djavallama.semantic.cache=true also reuses answers of paraphrased questions,
+    // -Djavallama.semantic.cache.threshold sets how similar they must be
+    private static final String SEMANTIC_CACHE_PROPERTY = "javallama.semantic.cache";
+    // -Djavallama.warmup=true loads the model before the first question,
+    // -Djavallama.warmup.prompt=true also evaluates the system prompt into the kv-cache
+    private static final String WARMUP_PROPERTY = "javallama.warmup";
+    private static final String HISTORY_PROPERTY = "javallama.history.persist";
+    // -Djavallama.profile=fast|precise|long-context picks the system prompt and model options
+    private static final String PROFILE_PROPERTY = "javallama.profile";
+    // -Djavallama.adaptive=true sizes num_ctx to each prompt and num_thread/num_batch to this machine
+    private static final String ADAPTIVE_PROPERTY = "javallama.adaptive";
+    private static final int MAX_GENERATIONS = 1; // one local model answers one question at a time
+
     private OllamaService ollama;
     private PdfService pdfService;
+    private SearchIndex searchIndex;
     private OllamaServerManager serverManager;
-    private TextArea chatArea;
+    private TaskScheduler scheduler;
+    private ConversationStore conversationStore;
+    private Future<?> generation;
+    private TokenCoalescer generationStream;
+    private ListView<ChatEntry> chatArea;
+    private ObservableList<ChatEntry> chatEntries;
+    private ChatEntry streamingEntry;
     private TextField inputField;
     private Button sendButton;
+    private Button stopButton;
     private Label statusLabel;
-    private volatile Thread thinkingThread;
+    private Label thinkingLabel;
+    private AnimationTimer thinkingAnimation;
+    private boolean responseStarted;
+    private boolean connected;
+    private int loadingDocuments;
 
     /*
      * ======================================================================
@@ -45,6 +105,10 @@ public class JavaLlamaGui extends Application {
     @Override
     public void start(Stage primaryStage) {
         primaryStage.setTitle("JavaLlama");
+        scheduler = new TaskScheduler(MAX_GENERATIONS, MetricsRegistry.getDefault());
+        // server start and model warm-up run while the window is built, their status updates
+        // are queued on the fx thread and only run once start returns
+        initializeOllama();
 
         BorderPane root = new BorderPane();
         root.setPadding(new Insets(10));
@@ -56,8 +120,6 @@ public class JavaLlamaGui extends Application {
         Scene scene = new Scene(root, 800, 600);
         primaryStage.setScene(scene);
         primaryStage.show();
-
-        initializeOllama();
     }
 
     /*
@@ -82,6 +144,9 @@ public class JavaLlamaGui extends Application {
         Button uploadButton = new Button("Upload PDF");
         uploadButton.setOnAction(e -> uploadPdf());
 
+        Button searchButton = new Button("Search");
+        searchButton.setOnAction(e -> search());
+
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
 
@@ -89,7 +154,7 @@ public class JavaLlamaGui extends Application {
         statusLabel.setStyle("-fx-text-fill: orange;");
 
         topBar.getChildren().addAll(
-                modelLabel, clearButton, uploadButton, spacer, statusLabel);
+                modelLabel, clearButton, uploadButton, searchButton, spacer, statusLabel);
 
         return topBar;
     }
@@ -109,13 +174,20 @@ public class JavaLlamaGui extends Application {
         Label chatLabel = new Label("Conversation");
         chatLabel.setStyle("-fx-font-weight: bold;");
 
-        chatArea = new TextArea();
-        chatArea.setEditable(false);
-        chatArea.setWrapText(true);
-        chatArea.setStyle("-fx-font-family: 'Consolas'; -fx-font-size: 12px;");
+        // only the visible messages get cells, so long transcripts stay cheap to append and scroll
+        chatEntries = FXCollections.observableArrayList();
+        chatArea = new ListView<>(chatEntries);
+        chatArea.setCellFactory(list -> new ChatEntryCell());
+        chatArea.setFocusTraversable(false);
         VBox.setVgrow(chatArea, Priority.ALWAYS);
 
-        chatBox.getChildren().addAll(chatLabel, chatArea);
+        // the elapsed time lives outside the transcript so a tick never touches the chat text
+        thinkingLabel = new Label();
+        thinkingLabel.setStyle("-fx-text-fill: gray; -fx-font-style: italic;");
+        thinkingLabel.setVisible(false);
+        thinkingLabel.setManaged(false);
+
+        chatBox.getChildren().addAll(chatLabel, chatArea, thinkingLabel);
         return chatBox;
     }
 
@@ -142,7 +214,12 @@ public class JavaLlamaGui extends Application {
         sendButton.setOnAction(e -> sendMessage());
         sendButton.setDisable(true);
 
-        inputBox.getChildren().addAll(inputField, sendButton);
+        stopButton = new Button("Stop");
+        stopButton.setPrefWidth(80);
+        stopButton.setOnAction(e -> stopGeneration());
+        stopButton.setDisable(true);
+
+        inputBox.getChildren().addAll(inputField, sendButton, stopButton);
         return inputBox;
     }
 
@@ -151,11 +228,11 @@ public class JavaLlamaGui extends Application {
      * METHOD NAME : initializeOllama
      * DESCRIPTION : Initializes the ollama service and checks server status
      * PRE-CONDITION : None
-     * POST-CONDITION : Background thread started to check server connectivity
+     * POST-CONDITION : Background task started to check server connectivity
      * ======================================================================
      */
     private void initializeOllama() {
-        new Thread(() -> {
+        scheduler.submit("initialize-ollama", () -> {
             try {
                 Platform.runLater(() -> {
                     statusLabel.setText("Checking Ollama...");
@@ -163,7 +240,35 @@ public class JavaLlamaGui extends Application {
                 });
 
                 ollama = new OllamaService();
-                pdfService = new PdfService();
+                ollama.setProfile(RequestProfile.of(System.getProperty(PROFILE_PROPERTY,
+                        RequestProfile.DEFAULT.getName())));
+                if (Boolean.getBoolean(ADAPTIVE_PROPERTY)) {
+                    // the gui runs ollama on this machine, so its cores are the server's
+                    ollama.setTuner(new AdaptiveTuner(Runtime.getRuntime().availableProcessors(),
+                            ollama.getMetrics()));
+                }
+                startMetricsEndpoint();
+                if (Boolean.getBoolean(HISTORY_PROPERTY)) {
+                    restoreConversation();
+                }
+                pdfService = new PdfService(PdfCache.createDefault());
+                ollama.setDocumentCache(pdfService.getCache());
+                searchIndex = new SearchIndex(ollama.getMetrics());
+                if (conversationStore != null) {
+                    searchIndex.indexConversationAsync("conversation", conversationStore);
+                }
+                ollama.getHistory().setSearchIndex(searchIndex, "conversation");
+                pdfService.setSearchIndex(searchIndex);
+                if (Boolean.getBoolean(RESPONSE_CACHE_PROPERTY)) {
+                    ollama.setResponseCache(ResponseCache.createDefault());
+                }
+                if (Boolean.getBoolean(SEMANTIC_CACHE_PROPERTY)) {
+                    double threshold = Double.parseDouble(System.getProperty(SEMANTIC_CACHE_PROPERTY + ".threshold",
+                            String.valueOf(SemanticCache.getDefaultThreshold())));
+                    ollama.setSemanticCache(new SemanticCache(
+                            new OllamaEmbedder(ollama.getBackends(), OllamaEmbedder.getDefaultModel()), threshold,
+                            2048, ollama.getMetrics()));
+                }
                 serverManager = new OllamaServerManager();
                 // Ensure server is stopped even if the program is killed via terminal (Ctrl+C)
                 Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -182,12 +287,14 @@ public class JavaLlamaGui extends Application {
                 });
 
                 ollama.setModel(OllamaService.getDefaultModel());
+                String warmUpNote = Boolean.getBoolean(WARMUP_PROPERTY) ? warmUp() : "";
 
                 Platform.runLater(() -> {
                     statusLabel.setText("Connected");
                     statusLabel.setStyle("-fx-text-fill: green;");
-                    sendButton.setDisable(false);
-                    appendToChat("System", "Ready with " + OllamaService.getDefaultModel());
+                    connected = true;
+                    updateSendButton();
+                    appendToChat("System", "Ready with " + OllamaService.getDefaultModel() + warmUpNote);
                     writeOutput(); // demonstrates object output on startup
                 });
 
@@ -198,7 +305,56 @@ public class JavaLlamaGui extends Application {
                     showAlert("Error", "Failed to connect: " + e.getMessage());
                 });
             }
-        }).start();
+        });
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : restoreConversation
+     * DESCRIPTION : Persists the conversation and shows what was kept from the last run
+     * PRE-CONDITION : ollama is created, called off the fx thread
+     * POST-CONDITION : History attached to the store, restored messages shown in the chat;
+     *                  a store that cannot be opened leaves the history in memory
+     * ======================================================================
+     */
+    private void restoreConversation() {
+        try {
+            conversationStore = ConversationStore.openDefault("gui");
+            ollama.getHistory().attach(conversationStore);
+        } catch (IOException e) {
+            System.out.println("Conversation not persisted: " + e.getMessage());
+            return;
+        }
+        List<ConversationHistory.Message> restored = ollama.getHistory().getMessages();
+        Platform.runLater(() -> {
+            for (ConversationHistory.Message message : restored) {
+                appendToChat(message.getRoleType() == ConversationHistory.Role.USER ? "You" : "Assistant", message.getContent());
+            }
+        });
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : warmUp
+     * DESCRIPTION : Loads the model so the first question does not pay for it
+     * PRE-CONDITION : Server is running, called off the fx thread
+     * POST-CONDITION : Returns the warm-up time for the ready message, empty if it failed;
+     *                  a failed warm-up only means the first question loads the model
+     * ======================================================================
+     */
+    private String warmUp() {
+        Platform.runLater(() -> statusLabel.setText("Loading model..."));
+        try {
+            ChatResponse warmUp = ollama.warmUp(Boolean.getBoolean(WARMUP_PROPERTY + ".prompt"));
+            InferenceTimings timings = warmUp.getTimings();
+            String note = String.format(" (warm-up %.1fs, model load %.1fs)", warmUp.getTotalTimeMs() / 1e3,
+                    Math.max(0, timings.getLoadDurationNs()) / 1e9);
+            System.out.println("Model warm-up:" + note);
+            return note;
+        } catch (OllamaServiceException e) {
+            System.out.println("Model warm-up skipped: " + e.getMessage());
+            return "";
+        }
     }
 
     /*
@@ -211,38 +367,108 @@ public class JavaLlamaGui extends Application {
      */
     private void sendMessage() {
         String message = inputField.getText().trim();
-        if (message.isEmpty())
+        // enter in the input field sends too, even while the send button is disabled
+        if (message.isEmpty() || sendButton.isDisabled())
             return;
 
         inputField.clear();
-        inputField.setDisable(true);
-        sendButton.setDisable(true);
+        setInputEnabled(false);
 
         appendToChat("You", message);
 
-        long startTime = System.currentTimeMillis();
-        appendThinkingStatus(startTime);
+        appendThinkingStatus();
+        responseStarted = false;
+        streamingEntry = null;
 
-        new Thread(() -> {
-            try {
-                ChatResponse response = ollama.chat(message);
-                long thinkingTime = System.currentTimeMillis() - startTime;
-                Platform.runLater(() -> {
-                    removeThinkingStatus();
-                    appendResponse(response.getResponse(), thinkingTime);
-                    inputField.setDisable(false);
-                    sendButton.setDisable(false);
-                    inputField.requestFocus();
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    removeThinkingStatus();
-                    appendToChat("Error", e.getMessage());
-                    inputField.setDisable(false);
-                    sendButton.setDisable(false);
-                });
-            }
-        }).start();
+        // tokens are batched so the fx thread gets at most one pending update
+        TokenCoalescer coalescer = new TokenCoalescer(Platform::runLater, this::appendStreamedText);
+        generationStream = coalescer;
+
+        try {
+            generation = scheduler.submitGeneration("chat-generation", () -> {
+                try {
+                    ChatResponse response = ollama.chatStream(message, coalescer);
+                    Platform.runLater(() -> {
+                        coalescer.flush();
+                        if (!responseStarted) {
+                            appendStreamedText(response.getResponse());
+                        }
+                        appendResponseStats(response);
+                        setInputEnabled(true);
+                        inputField.requestFocus();
+                    });
+                    return response;
+                } catch (Exception e) {
+                    // a cancelled generation was already cleaned up by stopGeneration or clearChat
+                    if (!Thread.currentThread().isInterrupted()) {
+                        Platform.runLater(() -> {
+                            coalescer.flush();
+                            removeThinkingStatus();
+                            appendToChat("Error", e.getMessage());
+                            setInputEnabled(true);
+                        });
+                    }
+                    throw e;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            removeThinkingStatus();
+            appendToChat("Error", "Too many requests are waiting, try again shortly");
+            setInputEnabled(true);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setInputEnabled
+     * DESCRIPTION : Enables or disables the message input
+     * PRE-CONDITION : Called on the fx thread
+     * POST-CONDITION : Input field and send button updated, stop button enabled while input is not
+     * ======================================================================
+     */
+    private void setInputEnabled(boolean enabled) {
+        inputField.setDisable(!enabled);
+        stopButton.setDisable(enabled);
+        updateSendButton();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : updateSendButton
+     * DESCRIPTION : Enables the send button when a question can be answered
+     * PRE-CONDITION : Called on the fx thread
+     * POST-CONDITION : Send disabled before the server is ready, during a generation and while a pdf loads
+     * ======================================================================
+     */
+    private void updateSendButton() {
+        // a question asked while a pdf is indexed would be answered without it
+        sendButton.setDisable(!connected || loadingDocuments > 0 || !stopButton.isDisabled());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : stopGeneration
+     * DESCRIPTION : Stops the answer that is being generated
+     * PRE-CONDITION : Called on the fx thread
+     * POST-CONDITION : Http stream closed so ollama stops generating, partial answer kept on screen
+     * ======================================================================
+     */
+    private void stopGeneration() {
+        if (generation == null || !generation.cancel(true)) {
+            return;
+        }
+        // tokens still waiting for the fx thread are part of the partial answer
+        generationStream.stop();
+        generation = null;
+        removeThinkingStatus();
+        if (streamingEntry != null) {
+            streamingEntry.setStats("Stopped");
+            refreshEntry(streamingEntry);
+        } else {
+            appendToChat("System", "Generation stopped");
+        }
+        setInputEnabled(true);
+        inputField.requestFocus();
     }
 
     /*
@@ -250,11 +476,19 @@ public class JavaLlamaGui extends Application {
      * METHOD NAME : clearChat
      * DESCRIPTION : Clears the chat history
      * PRE-CONDITION : None
-     * POST-CONDITION : Chat area cleared and service history reset
+     * POST-CONDITION : Running generation cancelled, chat area cleared and service history reset
      * ======================================================================
      */
     private void clearChat() {
-        chatArea.clear();
+        // stop the answer to a question that is about to be forgotten
+        if (generation != null && !generation.isDone()) {
+            generationStream.cancel();
+            scheduler.cancelGenerations();
+            removeThinkingStatus();
+            setInputEnabled(true);
+        }
+        generation = null;
+        chatEntries.clear();
         ollama.clearHistory();
         statusLabel.setText("Connected");
         statusLabel.setStyle("-fx-text-fill: green;");
@@ -266,7 +500,7 @@ public class JavaLlamaGui extends Application {
      * METHOD NAME : uploadPdf
      * DESCRIPTION : Handles pdf upload and text extraction
      * PRE-CONDITION : User selects a valid PDF file
-     * POST-CONDITION : PDF text extracted and set as context
+     * POST-CONDITION : PDF text extracted and set as context in the background, send disabled until then
      * ======================================================================
      */
     private void uploadPdf() {
@@ -277,17 +511,30 @@ public class JavaLlamaGui extends Application {
         File selectedFile = fileChooser.showOpenDialog(null);
 
         if (selectedFile != null) {
-            try {
-                String text = pdfService.extractText(selectedFile);
-                ollama.setContext(text);
-                Platform.runLater(() -> {
-                    statusLabel.setText("PDF Loaded: " + selectedFile.getName());
-                    statusLabel.setStyle("-fx-text-fill: blue;");
-                    appendToChat("System", "Context loaded from " + selectedFile.getName());
-                });
-            } catch (PdfProcessingException e) {
-                Platform.runLater(() -> showAlert("Error", "Failed to read PDF: " + e.getMessage()));
-            }
+            statusLabel.setText("Loading " + selectedFile.getName() + "...");
+            statusLabel.setStyle("-fx-text-fill: orange;");
+            loadingDocuments++;
+            updateSendButton();
+
+            // extraction and indexing can take a while on large documents
+            scheduler.submit("load-pdf", () -> {
+                try {
+                    CachedDocument document = pdfService.loadDocument(selectedFile);
+                    ollama.setContext(document.getText(), document.getHash());
+                    Platform.runLater(() -> {
+                        statusLabel.setText("PDF Loaded: " + selectedFile.getName());
+                        statusLabel.setStyle("-fx-text-fill: blue;");
+                        appendToChat("System", "Context loaded from " + selectedFile.getName());
+                    });
+                } catch (PdfProcessingException e) {
+                    Platform.runLater(() -> showAlert("Error", "Failed to read PDF: " + e.getMessage()));
+                } finally {
+                    Platform.runLater(() -> {
+                        loadingDocuments--;
+                        updateSendButton();
+                    });
+                }
+            });
         }
     }
 
@@ -300,82 +547,169 @@ public class JavaLlamaGui extends Application {
      * ======================================================================
      */
     private void appendToChat(String sender, String message) {
-        chatArea.appendText(sender + ": " + message + "\n");
+        chatEntries.add(new ChatEntry(sender, message));
+        chatArea.scrollTo(chatEntries.size() - 1);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : refreshEntry
+     * DESCRIPTION : Re-renders a message that changed after it was added
+     * PRE-CONDITION : Called on the fx thread
+     * POST-CONDITION : Only the cell showing the entry is updated
+     * ======================================================================
+     */
+    private void refreshEntry(ChatEntry entry) {
+        // the entry being updated is at or near the end, so this scan is short
+        int index = chatEntries.lastIndexOf(entry);
+        if (index >= 0) {
+            chatEntries.set(index, entry);
+            chatArea.scrollTo(chatEntries.size() - 1);
+        }
     }
 
     /*
      * ======================================================================
      * METHOD NAME : appendThinkingStatus
      * DESCRIPTION : Shows the thinking timer
-     * PRE-CONDITION : startTime is valid timestamp
-     * POST-CONDITION : Thinking status appended and timer thread started
+     * PRE-CONDITION : Called on the fx thread
+     * POST-CONDITION : Thinking label shown and updated once per tenth of a second
      * ======================================================================
      */
-    private void appendThinkingStatus(long startTime) {
-        chatArea.appendText("\n[Thinking... 0.0s]\n");
-
-        thinkingThread = new Thread(() -> {
-            while (!Thread.currentThread().isInterrupted()) {
-                try {
-                    Thread.sleep(100);
-                    double elapsed = (System.currentTimeMillis() - startTime) / 1000.0;
-                    Platform.runLater(() -> {
-                        String text = chatArea.getText();
-                        int thinkingIndex = text.lastIndexOf("[Thinking...");
-                        if (thinkingIndex != -1) {
-                            int endIndex = text.indexOf("]\n", thinkingIndex);
-                            if (endIndex != -1) {
-                                String newText = text.substring(0, thinkingIndex) +
-                                        String.format("[Thinking... %.1fs]", elapsed) +
-                                        text.substring(endIndex);
-                                chatArea.setText(newText);
-                                chatArea.setScrollTop(Double.MAX_VALUE);
-                            }
-                        }
-                    });
-                } catch (InterruptedException e) {
-                    break;
+    private void appendThinkingStatus() {
+        removeThinkingStatus();
+        ThinkingTimer timer = new ThinkingTimer(System.nanoTime());
+        thinkingLabel.setText(timer.getText());
+        thinkingLabel.setManaged(true);
+        thinkingLabel.setVisible(true);
+
+        // runs on the fx thread once per frame, the label only changes when the tenth changes
+        thinkingAnimation = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (timer.update(now)) {
+                    thinkingLabel.setText(timer.getText());
                 }
             }
-        });
-        thinkingThread.setDaemon(true);
-        thinkingThread.start();
+        };
+        thinkingAnimation.start();
     }
 
     /*
      * ======================================================================
      * METHOD NAME : removeThinkingStatus
      * DESCRIPTION : Removes the thinking timer
-     * PRE-CONDITION : None
-     * POST-CONDITION : Thinking thread stopped and text removed from chat
+     * PRE-CONDITION : Called on the fx thread
+     * POST-CONDITION : Timer stopped and label hidden, the transcript is not touched
      * ======================================================================
      */
     private void removeThinkingStatus() {
-        if (thinkingThread != null) {
-            thinkingThread.interrupt();
-            thinkingThread = null;
+        if (thinkingAnimation != null) {
+            thinkingAnimation.stop();
+            thinkingAnimation = null;
         }
-        String text = chatArea.getText();
-        int thinkingIndex = text.lastIndexOf("[Thinking...");
-        if (thinkingIndex != -1) {
-            int endIndex = text.indexOf("]\n", thinkingIndex);
-            if (endIndex != -1) {
-                chatArea.setText(text.substring(0, thinkingIndex) + text.substring(endIndex + 2));
-            }
+        thinkingLabel.setVisible(false);
+        thinkingLabel.setManaged(false);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : appendStreamedText
+     * DESCRIPTION : Appends a batch of streamed response text
+     * PRE-CONDITION : Called on the fx thread
+     * POST-CONDITION : Thinking status replaced by the response on first batch
+     * ======================================================================
+     */
+    private void appendStreamedText(String text) {
+        if (!responseStarted) {
+            responseStarted = true;
+            removeThinkingStatus();
+            streamingEntry = new ChatEntry("Assistant", "");
+            chatEntries.add(streamingEntry);
         }
+        streamingEntry.append(text);
+        refreshEntry(streamingEntry);
     }
 
     /*
      * ======================================================================
-     * METHOD NAME : appendResponse
-     * DESCRIPTION : Appends the response with timing info
-     * PRE-CONDITION : Response is valid string
-     * POST-CONDITION : Response formatted and added to chat
+     * METHOD NAME : appendResponseStats
+     * DESCRIPTION : Appends the timing info after a streamed response
+     * PRE-CONDITION : Response text has been appended
+     * POST-CONDITION : Total time, first token, rate and the server side split added to chat
      * ======================================================================
      */
-    private void appendResponse(String response, long thinkingTimeMs) {
-        double thinkingTimeSec = thinkingTimeMs / 1000.0;
-        chatArea.appendText(String.format("\nAssistant (%.1fs): %s\n\n", thinkingTimeSec, response));
+    private void appendResponseStats(ChatResponse response) {
+        StringBuilder stats = new StringBuilder();
+        stats.append(String.format("%.1fs", response.getTotalTimeMs() / 1000.0));
+        if (response.isCached()) {
+            stats.append(", cached");
+        }
+        if (response.getQueueWaitMs() > 0) {
+            stats.append(String.format(", queued %.1fs", response.getQueueWaitMs() / 1000.0));
+        }
+        if (response.getTimeToFirstTokenMs() >= 0) {
+            stats.append(String.format(", first token %.1fs, %.1f tokens/s",
+                    response.getTimeToFirstTokenMs() / 1000.0, response.getTokensPerSecond()));
+        }
+        InferenceTimings timings = response.getTimings();
+        if (timings.isReported()) {
+            stats.append(String.format(" | load %.1fs, prompt %.1fs (%d tokens), generation %.1fs (%d tokens)",
+                    Math.max(0, timings.getLoadDurationNs()) / 1e9,
+                    Math.max(0, timings.getPromptEvalDurationNs()) / 1e9, Math.max(0, timings.getPromptEvalCount()),
+                    Math.max(0, timings.getEvalDurationNs()) / 1e9, Math.max(0, timings.getEvalCount())));
+        }
+        if (streamingEntry != null) {
+            streamingEntry.setStats("(" + stats + ")");
+            refreshEntry(streamingEntry);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : startMetricsEndpoint
+     * DESCRIPTION : Serves the request metrics when a port is configured
+     * PRE-CONDITION : ollama is initialized
+     * POST-CONDITION : /metrics is served on the loopback interface, or nothing if unset
+     * ======================================================================
+     */
+    private void startMetricsEndpoint() {
+        String port = System.getProperty(METRICS_PORT_PROPERTY);
+        if (port == null || port.isBlank()) {
+            return;
+        }
+        try {
+            ollama.getMetrics().startEndpoint(Integer.parseInt(port.trim()));
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Metrics endpoint not started: " + e.getMessage());
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : search
+     * DESCRIPTION : Asks for a query and lists the best matching messages and pdf passages
+     * PRE-CONDITION : Called on the fx thread
+     * POST-CONDITION : Results shown in the chat, not added to the conversation
+     * ======================================================================
+     */
+    private void search() {
+        if (searchIndex == null) {
+            return;
+        }
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle("Search");
+        dialog.setHeaderText("Search past messages and documents");
+        dialog.setContentText("Words, \"a phrase\" or a prefix*:");
+        dialog.showAndWait().filter(query -> !query.isBlank()).ifPresent(query -> {
+            List<SearchIndex.Hit> hits = searchIndex.search(query, 10);
+            StringBuilder results = new StringBuilder();
+            results.append(hits.isEmpty() ? "No results for: " : "Results for: ").append(query);
+            for (SearchIndex.Hit hit : hits) {
+                results.append("\n\n").append(hit);
+            }
+            appendToChat("Search", results.toString());
+        });
     }
 
     /*
@@ -399,10 +733,10 @@ public class JavaLlamaGui extends Application {
      * METHOD NAME : getChatArea
      * DESCRIPTION : Gets the chat area
      * PRE-CONDITION : None
-     * POST-CONDITION : Returns the chat area instance
+     * POST-CONDITION : Returns the list view showing the transcript
      * ======================================================================
      */
-    public TextArea getChatArea() {
+    public ListView<ChatEntry> getChatArea() {
         return chatArea;
     }
 
@@ -430,6 +764,18 @@ public class JavaLlamaGui extends Application {
         return sendButton;
     }
 
+    /*
+     * ======================================================================
+     * METHOD NAME : getStopButton
+     * DESCRIPTION : Gets the stop button
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the stop button instance
+     * ======================================================================
+     */
+    public Button getStopButton() {
+        return stopButton;
+    }
+
     /*
      * ======================================================================
      * METHOD NAME : getStatusLabel
@@ -469,14 +815,35 @@ public class JavaLlamaGui extends Application {
      * METHOD NAME : stop
      * DESCRIPTION : Cleanup method called when application stops
      * PRE-CONDITION : None
-     * POST-CONDITION : Server stopped and application exits
+     * POST-CONDITION : Background work cancelled, server stopped and application exits
      * ======================================================================
      */
     @Override
     public void stop() throws Exception {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+        if (searchIndex != null) {
+            searchIndex.close();
+        }
+        if (conversationStore != null) {
+            try {
+                conversationStore.close();
+            } catch (IOException e) {
+                System.out.println("Failed to close conversation: " + e.getMessage());
+            }
+        }
         if (serverManager != null) {
             serverManager.stopServer();
         }
+        String metricsFile = System.getProperty(METRICS_FILE_PROPERTY);
+        if (ollama != null && metricsFile != null && !metricsFile.isBlank()) {
+            try {
+                ollama.getMetrics().writeTo(Path.of(metricsFile));
+            } catch (IOException e) {
+                System.out.println("Failed to write metrics: " + e.getMessage());
+            }
+        }
         super.stop();
         System.exit(0);
     }
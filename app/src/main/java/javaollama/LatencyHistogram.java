@@ -0,0 +1,156 @@
+/**
+======================================================================
+CLASS NAME : LatencyHistogram
+DESCRIPTION : Lock-free log-linear histogram of latencies with percentile queries
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+
+    // like HdrHistogram: values below 128 get exact buckets, above that every power of
+    // two is split into 64 buckets, which keeps the relative error under 1.6%
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKETS = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * HALF_COUNT;
+
+    private final AtomicLongArray counts;
+    private final LongAdder count;
+    private final LongAdder sum;
+    private final LongAccumulator max;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : LatencyHistogram
+     * DESCRIPTION : Default constructor
+     * PRE-CONDITION : None
+     * POST-CONDITION : Empty histogram
+     * ======================================================================
+     */
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new LongAdder();
+        this.sum = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : record
+     * DESCRIPTION : Records one value, usually microseconds
+     * PRE-CONDITION : value >= 0, negative values are clamped to 0
+     * POST-CONDITION : Value counted
+     * ======================================================================
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(indexOf(v));
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getCount
+     * DESCRIPTION : Returns the number of recorded values
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the count
+     * ======================================================================
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getSum
+     * DESCRIPTION : Returns the sum of recorded values
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the sum
+     * ======================================================================
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getMax
+     * DESCRIPTION : Returns the largest recorded value
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the maximum, 0 if empty
+     * ======================================================================
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getValueAtPercentile
+     * DESCRIPTION : Returns the value at or below which the given share of values fall
+     * PRE-CONDITION : 0 <= percentile <= 100
+     * POST-CONDITION : Returns the upper bound of the matching bucket, 0 if empty
+     * ======================================================================
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueAt(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : indexOf
+     * DESCRIPTION : Maps a value to its bucket
+     * PRE-CONDITION : value >= 0
+     * POST-CONDITION : Returns the bucket index
+     * ======================================================================
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_COUNT + (subBucket - HALF_COUNT);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : highestValueAt
+     * DESCRIPTION : Returns the largest value that maps to a bucket
+     * PRE-CONDITION : index is a valid bucket
+     * POST-CONDITION : Returns the inclusive upper bound
+     * ======================================================================
+     */
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % HALF_COUNT + HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,272 @@
+/**
+======================================================================
+CLASS NAME : MetricsRegistry
+DESCRIPTION : Holds latency histograms and counters, exported in prometheus text format
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  added gauges read at export time
+======================================================================
+*/
+package javaollama;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public class MetricsRegistry {
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // sorted so the exported text is stable between scrapes
+    private final Map<String, LatencyHistogram> latencies;
+    private final Map<String, LongAdder> counters;
+    private final Map<String, LongSupplier> gauges;
+    private HttpServer endpoint;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : MetricsRegistry
+     * DESCRIPTION : Default constructor
+     * PRE-CONDITION : None
+     * POST-CONDITION : Empty registry
+     * ======================================================================
+     */
+    public MetricsRegistry() {
+        this.latencies = new ConcurrentSkipListMap<>();
+        this.counters = new ConcurrentSkipListMap<>();
+        this.gauges = new ConcurrentSkipListMap<>();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getDefault
+     * DESCRIPTION : Returns the registry shared by the application
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the same instance on every call
+     * ======================================================================
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : recordLatency
+     * DESCRIPTION : Records a duration into the named histogram
+     * PRE-CONDITION : name is a valid prometheus metric name without unit suffix
+     * POST-CONDITION : Duration stored with microsecond resolution
+     * ======================================================================
+     */
+    public void recordLatency(String name, long nanos) {
+        latency(name).record(nanos / 1_000);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : increment
+     * DESCRIPTION : Adds to the named counter
+     * PRE-CONDITION : name is a valid prometheus metric name, delta >= 0
+     * POST-CONDITION : Counter increased
+     * ======================================================================
+     */
+    public void increment(String name, long delta) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).add(delta);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : registerGauge
+     * DESCRIPTION : Registers a value that is read whenever the metrics are exported
+     * PRE-CONDITION : name is a valid prometheus metric name, supplier is thread-safe
+     * POST-CONDITION : Replaces an earlier gauge of the same name
+     * ======================================================================
+     */
+    public void registerGauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getGauge
+     * DESCRIPTION : Reads the named gauge
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the current value, 0 if not registered
+     * ======================================================================
+     */
+    public long getGauge(String name) {
+        LongSupplier gauge = gauges.get(name);
+        return gauge != null ? gauge.getAsLong() : 0;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : latency
+     * DESCRIPTION : Gets the named histogram, creating it when missing
+     * PRE-CONDITION : name is not null
+     * POST-CONDITION : Returns the histogram, values are in microseconds
+     * ======================================================================
+     */
+    public LatencyHistogram latency(String name) {
+        return latencies.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getCounter
+     * DESCRIPTION : Reads the named counter
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the value, 0 if never incremented
+     * ======================================================================
+     */
+    public long getCounter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter.sum() : 0;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : toPrometheus
+     * DESCRIPTION : Renders every metric in the prometheus text exposition format
+     * PRE-CONDITION : None
+     * POST-CONDITION : Histograms are exported as summaries in seconds, gauges are read now
+     * ======================================================================
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            out.append("# TYPE ").append(entry.getKey()).append(" counter\n");
+            out.append(entry.getKey()).append(' ').append(entry.getValue().sum()).append('\n');
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            out.append("# TYPE ").append(entry.getKey()).append(" gauge\n");
+            out.append(entry.getKey()).append(' ').append(entry.getValue().getAsLong()).append('\n');
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            String name = entry.getKey() + "_seconds";
+            LatencyHistogram histogram = entry.getValue();
+            out.append("# TYPE ").append(name).append(" summary\n");
+            for (double quantile : QUANTILES) {
+                out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(histogram.getValueAtPercentile(quantile * 100))).append('\n');
+            }
+            out.append(name).append("_sum ").append(seconds(histogram.getSum())).append('\n');
+            out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+        }
+        return out.toString();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : seconds
+     * DESCRIPTION : Formats microseconds as seconds
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a locale independent decimal
+     * ======================================================================
+     */
+    private static String seconds(long micros) {
+        return String.format(Locale.ROOT, "%.6f", micros / 1_000_000.0);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : writeTo
+     * DESCRIPTION : Writes the metrics to a file, e.g. for the node exporter textfile collector
+     * PRE-CONDITION : Parent directory is writable
+     * POST-CONDITION : File replaced atomically so readers never see a partial export
+     * ======================================================================
+     */
+    public void writeTo(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "metrics", ".tmp");
+        try {
+            Files.writeString(temp, toPrometheus(), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : startEndpoint
+     * DESCRIPTION : Serves the metrics over http at /metrics on the loopback interface
+     * PRE-CONDITION : port >= 0, 0 picks a free port
+     * POST-CONDITION : Returns the bound port
+     * ======================================================================
+     */
+    public synchronized int startEndpoint(int port) throws IOException {
+        if (endpoint != null) {
+            return endpoint.getAddress().getPort();
+        }
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        endpoint = server;
+        System.out.println("Metrics available at http://127.0.0.1:" + server.getAddress().getPort() + "/metrics");
+        return server.getAddress().getPort();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : stopEndpoint
+     * DESCRIPTION : Stops the http endpoint if it is running
+     * PRE-CONDITION : None
+     * POST-CONDITION : Port released
+     * ======================================================================
+     */
+    public synchronized void stopEndpoint() {
+        if (endpoint != null) {
+            endpoint.stop(0);
+            endpoint = null;
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : writeOutput
+     * DESCRIPTION : Writes the object state to the console
+     * PRE-CONDITION : None
+     * POST-CONDITION : Object state is printed to stdout
+     * ======================================================================
+     */
+    public void writeOutput() {
+        System.out.println("MetricsRegistry Status:");
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue().sum());
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue().getAsLong());
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            System.out.printf("%s: count=%d p50=%.1fms p99=%.1fms max=%.1fms%n", entry.getKey(),
+                    histogram.getCount(), histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0, histogram.getMax() / 1000.0);
+        }
+    }
+}
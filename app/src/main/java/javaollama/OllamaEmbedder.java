@@ -0,0 +1,159 @@
+/**
+======================================================================
+CLASS NAME : OllamaEmbedder
+DESCRIPTION : Embedder backed by the ollama embed endpoint
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  batches sent through the backend pool like chat requests
+======================================================================
+*/
+package javaollama;
+
+import io.github.ollama4j.Ollama;
+import io.github.ollama4j.models.embed.OllamaEmbedRequest;
+import io.github.ollama4j.models.embed.OllamaEmbedResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class OllamaEmbedder implements Embedder {
+
+    private static final String DEFAULT_MODEL = "nomic-embed-text:latest";
+    private static final int BATCH_SIZE = 32;
+
+    private final BackendPool backends;
+    private final String modelName;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getDefaultModel
+     * DESCRIPTION : Returns the default embedding model name
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the default model name string
+     * ======================================================================
+     */
+    public static String getDefaultModel() {
+        return DEFAULT_MODEL;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : OllamaEmbedder
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : api is not null, modelName is an embedding model
+     * POST-CONDITION : Embedder initialized
+     * ======================================================================
+     */
+    public OllamaEmbedder(Ollama api, String modelName) {
+        this(BackendPool.single(api), modelName);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : OllamaEmbedder
+     * DESCRIPTION : Constructor for a pool of ollama servers
+     * PRE-CONDITION : Pool holds at least one server, modelName is an embedding model
+     * POST-CONDITION : Embedder initialized, batches go to the least busy healthy server
+     * ======================================================================
+     */
+    public OllamaEmbedder(BackendPool backends, String modelName) {
+        this.backends = backends;
+        this.modelName = modelName;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getModelName
+     * DESCRIPTION : Gets the embedding model name
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the model name
+     * ======================================================================
+     */
+    @Override
+    public String getModelName() {
+        return modelName;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : embed
+     * DESCRIPTION : Embeds the texts in batches through the ollama api
+     * PRE-CONDITION : Server is running and the model is available
+     * POST-CONDITION : Returns one vector per text
+     * ======================================================================
+     */
+    @Override
+    public float[][] embed(List<String> texts) throws OllamaServiceException {
+        float[][] vectors = new float[texts.size()][];
+        try {
+            for (int from = 0; from < texts.size(); from += BATCH_SIZE) {
+                List<String> batch = texts.subList(from, Math.min(from + BATCH_SIZE, texts.size()));
+                OllamaEmbedResult result = embedOnBackend(new OllamaEmbedRequest(modelName, batch));
+                if (result == null || result.getEmbeddings() == null
+                        || result.getEmbeddings().size() != batch.size()) {
+                    throw new OllamaServiceException("Embedding model returned no vectors: " + modelName);
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    vectors[from + i] = toFloats(result.getEmbeddings().get(i));
+                }
+            }
+        } catch (OllamaServiceException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OllamaServiceException("Failed to embed text with model: " + modelName, e);
+        }
+        return vectors;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : embedOnBackend
+     * DESCRIPTION : Sends one batch to a server of the pool
+     * PRE-CONDITION : request holds the batch
+     * POST-CONDITION : Returns the result; a failing server is reported to the pool and the batch
+     *                  retried on one not tried yet, the last failure is thrown
+     * ======================================================================
+     */
+    private OllamaEmbedResult embedOnBackend(OllamaEmbedRequest request) throws Exception {
+        List<BackendPool.Backend> failed = new ArrayList<>();
+        while (true) {
+            BackendPool.Backend backend = backends.acquire(null, failed);
+            if (backend == null) {
+                throw new OllamaServiceException("No Ollama server available for model: " + modelName);
+            }
+            boolean failure = false;
+            try {
+                return backend.getApi().embed(request);
+            } catch (Exception e) {
+                // an interrupted batch says nothing about the health of the server
+                failure = !Thread.currentThread().isInterrupted();
+                if (!failure || failed.size() + 1 >= backends.size()) {
+                    throw e;
+                }
+                System.out.println("Ollama backend " + backend.getName() + " failed to embed, trying another: " + e);
+                failed.add(backend);
+            } finally {
+                backends.release(backend, failure);
+            }
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : toFloats
+     * DESCRIPTION : Unboxes an embedding returned by the api
+     * PRE-CONDITION : values is not null
+     * POST-CONDITION : Returns a primitive float array
+     * ======================================================================
+     */
+    private static float[] toFloats(List<Double> values) {
+        float[] vector = new float[values.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = values.get(i).floatValue();
+        }
+        return vector;
+    }
+}
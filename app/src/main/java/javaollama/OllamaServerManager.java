@@ -7,45 +7,120 @@ COPYRIGHT  : macastroverde 2025
 REVISION HISTORY
 Date:           By:             Description:
 2025-12-06      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  readiness from the "Listening on" log line and a backed-off probe
+                                          instead of fixed sleeps, startup deadline and phase timings
 ======================================================================
 */
 package javaollama;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 public class OllamaServerManager {
 
+    private static final String DEFAULT_URL = "http://127.0.0.1:11434";
+    private static final long DEFAULT_DEADLINE_MILLIS = 30_000;
+    // ollama logs this once its http listener is bound
+    private static final String LISTENING_LINE = "Listening on";
+    private static final long FIRST_BACKOFF_MILLIS = 5;
+    private static final long MAX_BACKOFF_MILLIS = 250;
+
+    private final List<String> command;
+    private final String baseUrl;
+    private final long deadlineMillis;
+    private final HttpClient probeClient;
+
+    private Process process;
+    private CountDownLatch listening;
+    private long startNanos;
+    private volatile long spawnedNanos;
+    private volatile long listeningNanos;
+    private volatile long readyNanos;
+
     /*
      * ======================================================================
      * METHOD NAME : OllamaServerManager
      * DESCRIPTION : Default constructor
      * PRE-CONDITION : None
-     * POST-CONDITION : Instance created
+     * POST-CONDITION : Instance runs "ollama serve" and probes OLLAMA_HOST or the default port,
+     *                  startup deadline from -Djavallama.ollama.start.timeout.ms
      * ======================================================================
      */
     public OllamaServerManager() {
+        this(List.of("ollama", "serve"), urlFromEnvironment(),
+                Long.getLong("javallama.ollama.start.timeout.ms", DEFAULT_DEADLINE_MILLIS));
     }
 
-    private Process process;
+    /*
+     * ======================================================================
+     * METHOD NAME : OllamaServerManager
+     * DESCRIPTION : Parameterized constructor (testing with a fake server)
+     * PRE-CONDITION : command starts a server answering GET / on baseUrl, deadlineMillis > 0
+     * POST-CONDITION : Instance created, no process started
+     * ======================================================================
+     */
+    public OllamaServerManager(List<String> command, String baseUrl, long deadlineMillis) {
+        this.command = List.copyOf(command);
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.deadlineMillis = deadlineMillis;
+        this.probeClient = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(500)).build();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : urlFromEnvironment
+     * DESCRIPTION : Works out where a local server started by this manager listens
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the url from OLLAMA_HOST, the default port if unset
+     * ======================================================================
+     */
+    private static String urlFromEnvironment() {
+        String host = System.getenv("OLLAMA_HOST");
+        if (host == null || host.isBlank()) {
+            return DEFAULT_URL;
+        }
+        String url = host.trim().startsWith("http") ? host.trim() : "http://" + host.trim();
+        // a server bound to every interface is still reached through loopback
+        return url.replace("0.0.0.0", "127.0.0.1");
+    }
 
     /*
      * ======================================================================
      * METHOD NAME : startServer
      * DESCRIPTION : Starts the ollama server process
      * PRE-CONDITION : System has ollama installed
-     * POST-CONDITION : Returns true if server started, false otherwise
+     * POST-CONDITION : Returns true if the process was started, false otherwise; it is not
+     *                  necessarily ready yet, see awaitReady
      * ======================================================================
      */
     public boolean startServer() {
         try {
-            ProcessBuilder pb = new ProcessBuilder("ollama", "serve");
+            ProcessBuilder pb = new ProcessBuilder(command);
             pb.redirectErrorStream(true);
-            pb.inheritIO(); // to prevent buffer blocking by inheriting IO (fixing the process pause when
-                            // running the code)
-            // commenting pb.inheritIO() can also prevent displaying output in running
-            // gradle, only use for debugging
+            listening = new CountDownLatch(1);
+            listeningNanos = 0;
+            readyNanos = 0;
+            startNanos = System.nanoTime();
             this.process = pb.start();
+            spawnedNanos = System.nanoTime();
 
-            // give it a moment to start
-            Thread.sleep(2000);
+            // the output is drained by a thread instead of inherited, so it can be watched for the
+            // listening line; it is still echoed to the console
+            Process started = process;
+            CountDownLatch latch = listening;
+            Thread reader = new Thread(() -> watchOutput(started, latch), "ollama-serve-output");
+            reader.setDaemon(true);
+            reader.start();
             return process.isAlive();
         } catch (Exception e) {
             e.printStackTrace();
@@ -53,6 +128,124 @@ public class OllamaServerManager {
         }
     }
 
+    /*
+     * ======================================================================
+     * METHOD NAME : watchOutput
+     * DESCRIPTION : Echoes the server output and signals when it is listening
+     * PRE-CONDITION : Process output is merged with its error stream
+     * POST-CONDITION : Latch released on the listening line, returns when the process closes its output
+     * ======================================================================
+     */
+    private void watchOutput(Process started, CountDownLatch latch) {
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(started.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                System.out.println(line);
+                if (latch.getCount() > 0 && line.contains(LISTENING_LINE)) {
+                    listeningNanos = System.nanoTime();
+                    latch.countDown();
+                }
+            }
+        } catch (IOException e) {
+            // process was stopped
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : awaitReady
+     * DESCRIPTION : Waits until the started server answers, woken by its listening line
+     *               or found by probing with exponential backoff
+     * PRE-CONDITION : startServer returned true
+     * POST-CONDITION : Returns once GET / succeeds, throws if the process exits or the deadline passes
+     * ======================================================================
+     */
+    public void awaitReady() throws Exception {
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        long backoffMillis = FIRST_BACKOFF_MILLIS;
+        while (true) {
+            if (probe()) {
+                readyNanos = System.nanoTime();
+                return;
+            }
+            if (!process.isAlive()) {
+                throw new Exception("Ollama server exited with code " + process.exitValue() + " before it was ready");
+            }
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis <= 0) {
+                throw new Exception("Ollama server not ready after " + deadlineMillis + " ms");
+            }
+            long waitMillis = Math.min(backoffMillis, remainingMillis);
+            if (listening.getCount() == 0) {
+                Thread.sleep(waitMillis);
+            } else if (listening.await(waitMillis, TimeUnit.MILLISECONDS)) {
+                // the listening line ends the wait early, the probe right after confirms it
+                backoffMillis = FIRST_BACKOFF_MILLIS;
+                continue;
+            }
+            backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : probe
+     * DESCRIPTION : Checks the server with its cheapest endpoint
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns true if GET / answered 200
+     * ======================================================================
+     */
+    public boolean probe() {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/"))
+                    .timeout(Duration.ofSeconds(1)).GET().build();
+            return probeClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getStartupReport
+     * DESCRIPTION : Describes how long each phase of the last start took
+     * PRE-CONDITION : startServer was called
+     * POST-CONDITION : Returns spawn, listening and ready times since the start, "?" for phases not reached
+     * ======================================================================
+     */
+    public String getStartupReport() {
+        return "spawn " + phaseMillis(spawnedNanos) + " ms, listening " + phaseMillis(listeningNanos)
+                + " ms, ready " + phaseMillis(readyNanos) + " ms";
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getReadyMillis
+     * DESCRIPTION : Returns how long the last start took until the server answered
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the milliseconds, -1 if it was not ready
+     * ======================================================================
+     */
+    public long getReadyMillis() {
+        return readyNanos != 0 ? TimeUnit.NANOSECONDS.toMillis(readyNanos - startNanos) : -1;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : phaseMillis
+     * DESCRIPTION : Formats the time from the start to a phase
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the milliseconds, "?" if the phase was not reached
+     * ======================================================================
+     */
+    private String phaseMillis(long phaseNanos) {
+        return phaseNanos != 0 ? String.valueOf(TimeUnit.NANOSECONDS.toMillis(phaseNanos - startNanos)) : "?";
+    }
+
     /*
      * ======================================================================
      * METHOD NAME : stopServer
@@ -66,7 +259,7 @@ public class OllamaServerManager {
             System.out.println("Stopping Ollama server...");
             process.destroy();
             try {
-                if (!process.waitFor(3, java.util.concurrent.TimeUnit.SECONDS)) {
+                if (!process.waitFor(3, TimeUnit.SECONDS)) {
                     process.destroyForcibly();
                 }
             } catch (InterruptedException e) {
@@ -111,16 +304,13 @@ public class OllamaServerManager {
 
         // Wait for server to become responsive
         statusCallback.accept("Waiting for server...");
-        int attempts = 0;
-        while (attempts < 5) {
-            Thread.sleep(1000); // Wait 1 second between checks
-            if (ollama.isServerRunning()) {
-                statusCallback.accept("Server connected");
-                return;
-            }
-            attempts++;
+        try {
+            awaitReady();
+        } finally {
+            System.out.println("Ollama server startup: " + getStartupReport());
         }
-
-        throw new Exception("Server started but failed to respond after 5 seconds");
+        MetricsRegistry.getDefault().recordLatency("javallama_server_startup",
+                TimeUnit.MILLISECONDS.toNanos(getReadyMillis()));
+        statusCallback.accept("Server connected in " + getReadyMillis() + " ms");
     }
 }
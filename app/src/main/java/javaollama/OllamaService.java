@@ -10,6 +10,31 @@ Date:           By:                       Description:
 2025-12-04      Mickel Angelo Castoverde  made default model name and added optimization options
 2025-12-04      Mickel Angelo Castoverde  added System Prompt
 2025-12-04      Mickel Angelo Castoverde  optimized context window for generation speed (8192 -> 4096)
+2026-10-16      Mickel Angelo Castoverde  added token streaming with time-to-first-token and tokens/sec
+2026-10-16      Mickel Angelo Castoverde  pdf context pinned once per request instead of stored in history
+2026-10-16      Mickel Angelo Castoverde  large pdf contexts are retrieved by top-k chunks instead of sent whole
+2026-10-16      Mickel Angelo Castoverde  chunk vectors persisted in the pdf cache
+2026-10-16      Mickel Angelo Castoverde  history kept within a token budget, evicted turns summarized
+2026-10-16      Mickel Angelo Castoverde  stable message prefix, keep_alive and prompt evaluation stats
+2026-10-16      Mickel Angelo Castoverde  server timings in the response and latency metrics per request
+2026-10-16      Mickel Angelo Castoverde  interrupted generations are not added to the history
+2026-10-16      Mickel Angelo Castoverde  cancellable chat that drops the http stream so the server stops generating
+2026-10-16      Mickel Angelo Castoverde  shutdown for services owned by server sessions
+2026-10-16      Mickel Angelo Castoverde  requests wait their turn in the dispatcher, queue wait reported apart from service time
+2026-10-16      Mickel Angelo Castoverde  requests spread over a pool of servers, a conversation stays on its server
+2026-10-16      Mickel Angelo Castoverde  opt-in response cache, repeated requests are replayed as a stream
+2026-10-16      Mickel Angelo Castoverde  opt-in semantic cache, paraphrased questions on the same document reuse answers
+2026-10-16      Mickel Angelo Castoverde  opt-in warm-up that loads the model and primes the system prompt before the first question
+2026-10-16      Mickel Angelo Castoverde  history messages converted by role enum from a zero-copy snapshot
+2026-10-16      Mickel Angelo Castoverde  prebuilt request profiles for the system message and options, selectable per request
+2026-10-16      Mickel Angelo Castoverde  optional adaptive tuner sizes num_ctx per request and learns from server timings
+2026-10-16      Mickel Angelo Castoverde  question kept out of the history until answered, stop aborts a request before its first token
+2026-10-16      Mickel Angelo Castoverde  summaries run on a shared executor instead of a thread per service
+2026-10-16      Mickel Angelo Castoverde  a listener that fails, such as a client gone away, cancels the chat instead of failing the server
+2026-10-16      Mickel Angelo Castoverde  embeddings and summaries go through the backend pool like chats
+2026-10-16      Mickel Angelo Castoverde  window tuned for the server a request was given, summaries tuned like chats
+2026-10-16      Mickel Angelo Castoverde  retrieved chunks sent with the question so the pinned prefix stays append-only
+2026-10-16      Mickel Angelo Castoverde  new documents indexed beside the current one and swapped in whole, fallback kept within budget
 ======================================================================
 */
 package javaollama;
@@ -19,23 +44,63 @@ import io.github.ollama4j.models.chat.OllamaChatMessage;
 import io.github.ollama4j.models.chat.OllamaChatMessageRole;
 import io.github.ollama4j.models.chat.OllamaChatRequest;
 import io.github.ollama4j.models.chat.OllamaChatResult;
+import io.github.ollama4j.models.chat.OllamaChatTokenHandler;
 
 import io.github.ollama4j.models.request.ThinkMode;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class OllamaService {
 
     private static final String DEFAULT_MODEL = "phi3.5:latest";
     private static final int TIMEOUT_SECONDS = 120;
-    private static final String SYSTEM_PROMPT = "You are a helpful AI assistant. Answer the user's questions directly and concisely.";
+    private static final String CONTEXT_HEADER = "Answer using the following document when relevant.\nContext:\n";
+    private static final String EXCERPT_HEADER = "Answer using these parts of the document when relevant.\nContext:\n";
+    private static final String QUESTION_HEADER = "\n\nQuestion: ";
+    private static final int RETRIEVAL_THRESHOLD_CHARS = 24000;
+    private static final int RETRIEVAL_TOP_K = 6;
+    private static final String SUMMARY_HEADER = "Summary of the earlier conversation:\n";
+    private static final String DEFAULT_KEEP_ALIVE = "30m";
+    private static final long CANCEL_POLL_MILLIS = 50; // how soon a cancelled listener aborts a request
+    // services not given an executor share one summarizer thread, summaries are rare and short
+    private static final ExecutorService SHARED_SUMMARY_EXECUTOR = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "history-summarizer");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    private Ollama api;
+    private BackendPool backends;
+    private volatile BackendPool.Backend affinity;
     private String modelName;
     private ConversationHistory history;
-    private String pdfContext;
+    // the document and its index are swapped together, a chat reads them once
+    private volatile LoadedDocument document;
+    private volatile DocumentRetriever retriever;
+    private long documentLoads;
+    private PdfCache documentCache;
+    private ResponseCache responseCache;
+    private SemanticCache semanticCache;
+    private Executor summaryExecutor;
+    private String keepAlive;
+    private volatile RequestProfile profile;
+    private volatile AdaptiveTuner tuner;
+    private String pinnedContext;
+    private String pinnedContextMessage;
+    private MetricsRegistry metrics;
+    private RequestDispatcher dispatcher;
 
     /*
      * ======================================================================
@@ -58,7 +123,7 @@ public class OllamaService {
      * ======================================================================
      */
     public OllamaService() {
-        this(new Ollama());
+        this(BackendPool.getDefault());
     }
 
     /*
@@ -70,11 +135,31 @@ public class OllamaService {
      * ======================================================================
      */
     public OllamaService(Ollama api) {
-        this.api = api;
-        this.api.setRequestTimeoutSeconds(TIMEOUT_SECONDS);
+        this(BackendPool.single(api));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : OllamaService
+     * DESCRIPTION : Constructor for a pool of ollama servers
+     * PRE-CONDITION : Pool holds at least one server
+     * POST-CONDITION : Service initialized, requests go to the least busy healthy server
+     * ======================================================================
+     */
+    public OllamaService(BackendPool backends) {
+        this.backends = backends;
+        for (BackendPool.Backend backend : backends.getBackends()) {
+            backend.getApi().setRequestTimeoutSeconds(TIMEOUT_SECONDS);
+        }
         this.modelName = DEFAULT_MODEL;
-        this.history = new ConversationHistory();
-        this.pdfContext = "";
+        this.document = new LoadedDocument("", null, "", null);
+        this.keepAlive = DEFAULT_KEEP_ALIVE;
+        this.profile = RequestProfile.DEFAULT;
+        this.metrics = MetricsRegistry.getDefault();
+        this.dispatcher = RequestDispatcher.getDefault();
+        this.retriever = createRetriever(backends);
+        this.summaryExecutor = SHARED_SUMMARY_EXECUTOR;
+        setHistory(new ConversationHistory());
     }
 
     /*
@@ -82,16 +167,19 @@ public class OllamaService {
      * METHOD NAME : isServerRunning
      * DESCRIPTION : Checks if the ollama server is running
      * PRE-CONDITION : None
-     * POST-CONDITION : Returns true if server operates, false otherwise
+     * POST-CONDITION : Returns true if any server in the pool operates, false otherwise
      * ======================================================================
      */
     public boolean isServerRunning() {
-        try {
-            api.listModels();
-            return true;
-        } catch (Exception e) {
-            return false;
+        for (BackendPool.Backend backend : backends.getBackends()) {
+            try {
+                backend.getApi().listModels();
+                return true;
+            } catch (Exception e) {
+                // try the next server
+            }
         }
+        return false;
     }
 
     /*
@@ -99,11 +187,12 @@ public class OllamaService {
      * METHOD NAME : getApi
      * DESCRIPTION : Gets the api instance
      * PRE-CONDITION : None
-     * POST-CONDITION : Returns the api instance
+     * POST-CONDITION : Returns the api of the server this conversation last used, else of the first healthy one
      * ======================================================================
      */
     public Ollama getApi() {
-        return api;
+        BackendPool.Backend backend = affinity;
+        return backend != null ? backend.getApi() : backends.getPrimary().getApi();
     }
 
     /*
@@ -111,11 +200,17 @@ public class OllamaService {
      * METHOD NAME : setApi
      * DESCRIPTION : Sets the api instance
      * PRE-CONDITION : api is not null
-     * POST-CONDITION : api instance is updated
+     * POST-CONDITION : Pool replaced by the one api instance and the context re-indexed with it
      * ======================================================================
      */
     public void setApi(Ollama api) {
-        this.api = api;
+        api.setRequestTimeoutSeconds(TIMEOUT_SECONDS);
+        this.backends = BackendPool.single(api);
+        this.affinity = null;
+        DocumentRetriever created = createRetriever(backends);
+        created.setCache(documentCache);
+        this.retriever = created;
+        loadContext(document.text, document.key);
     }
 
     /*
@@ -140,6 +235,8 @@ public class OllamaService {
      */
     public void setModelName(String modelName) {
         this.modelName = modelName;
+        // no cached prompt of the new model to go back to
+        this.affinity = null;
     }
 
     /*
@@ -154,6 +251,151 @@ public class OllamaService {
         setModelName(modelName);
     }
 
+    /*
+     * ======================================================================
+     * METHOD NAME : getKeepAlive
+     * DESCRIPTION : Gets how long the server keeps the model loaded after a request
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the keep_alive duration string
+     * ======================================================================
+     */
+    public String getKeepAlive() {
+        return keepAlive;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setKeepAlive
+     * DESCRIPTION : Sets how long the server keeps the model loaded after a request
+     * PRE-CONDITION : keepAlive is an ollama duration such as "30m" or "-1" for forever
+     * POST-CONDITION : keepAlive is updated
+     * ======================================================================
+     */
+    public void setKeepAlive(String keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getProfile
+     * DESCRIPTION : Gets the profile requests are sent with unless one is given
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the profile, DEFAULT unless changed
+     * ======================================================================
+     */
+    public RequestProfile getProfile() {
+        return profile;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setProfile
+     * DESCRIPTION : Sets the profile requests are sent with unless one is given
+     * PRE-CONDITION : profile is not null
+     * POST-CONDITION : Later requests use the profile's system message and options
+     * ======================================================================
+     */
+    public void setProfile(RequestProfile profile) {
+        this.profile = profile;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getTuner
+     * DESCRIPTION : Gets the tuner that sizes the options of each request
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the tuner, null if the profile options are sent unchanged
+     * ======================================================================
+     */
+    public AdaptiveTuner getTuner() {
+        return tuner;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setTuner
+     * DESCRIPTION : Sets the tuner that sizes the options of each request
+     * PRE-CONDITION : Services sharing a tuner use the same servers, each server is learned apart
+     * POST-CONDITION : Later requests get num_ctx from the tuner, null turns tuning off
+     * ======================================================================
+     */
+    public void setTuner(AdaptiveTuner tuner) {
+        this.tuner = tuner;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setSummaryExecutor
+     * DESCRIPTION : Sets where evicted turns are summarized
+     * PRE-CONDITION : executor is shared by the services of one process and outlives them
+     * POST-CONDITION : Later summaries of the history run on the executor
+     * ======================================================================
+     */
+    public void setSummaryExecutor(Executor executor) {
+        this.summaryExecutor = executor;
+        history.setSummarizer(new OllamaSummarizer(this), executor);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getMetrics
+     * DESCRIPTION : Gets the registry request latencies are recorded into
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the metrics registry
+     * ======================================================================
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setMetrics
+     * DESCRIPTION : Sets the registry request latencies are recorded into
+     * PRE-CONDITION : metrics is not null
+     * POST-CONDITION : Later requests are recorded into the given registry
+     * ======================================================================
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getBackends
+     * DESCRIPTION : Gets the pool of servers requests are spread over
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the backend pool
+     * ======================================================================
+     */
+    public BackendPool getBackends() {
+        return backends;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getDispatcher
+     * DESCRIPTION : Gets the dispatcher requests to the server queue in
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the dispatcher
+     * ======================================================================
+     */
+    public RequestDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setDispatcher
+     * DESCRIPTION : Sets the dispatcher requests to the server queue in
+     * PRE-CONDITION : dispatcher is not null, services sharing a server should share one
+     * POST-CONDITION : Later requests queue in the given dispatcher
+     * ======================================================================
+     */
+    public void setDispatcher(RequestDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
     /*
      * ======================================================================
      * METHOD NAME : getHistory
@@ -171,11 +413,12 @@ public class OllamaService {
      * METHOD NAME : setHistory
      * DESCRIPTION : Sets the conversation history
      * PRE-CONDITION : history is valid
-     * POST-CONDITION : history is updated
+     * POST-CONDITION : history is updated and summarizes evicted turns through the model
      * ======================================================================
      */
     public void setHistory(ConversationHistory history) {
         this.history = history;
+        history.setSummarizer(new OllamaSummarizer(this), summaryExecutor);
     }
 
     /*
@@ -187,7 +430,7 @@ public class OllamaService {
      * ======================================================================
      */
     public String getPdfContext() {
-        return pdfContext;
+        return document.text;
     }
 
     /*
@@ -195,11 +438,12 @@ public class OllamaService {
      * METHOD NAME : setPdfContext
      * DESCRIPTION : Sets the context extracted from a pdf file
      * PRE-CONDITION : pdfContext is a valid string
-     * POST-CONDITION : pdfContext is updated
+     * POST-CONDITION : pdfContext is updated once large documents are indexed for retrieval,
+     *                  chats meanwhile use the previous context
      * ======================================================================
      */
     public void setPdfContext(String pdfContext) {
-        this.pdfContext = pdfContext;
+        loadContext(pdfContext, null);
     }
 
     /*
@@ -214,6 +458,79 @@ public class OllamaService {
         setPdfContext(context);
     }
 
+    /*
+     * ======================================================================
+     * METHOD NAME : setContext
+     * DESCRIPTION : Sets the pdf context along with its content hash
+     * PRE-CONDITION : documentKey is the hash the document is cached under
+     * POST-CONDITION : pdfContext is updated, cached chunk vectors are reused
+     * ======================================================================
+     */
+    public void setContext(String context, String documentKey) {
+        loadContext(context, documentKey);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setDocumentCache
+     * DESCRIPTION : Sets the cache where chunk vectors are persisted
+     * PRE-CONDITION : cache may be null to disable persistence
+     * POST-CONDITION : Retriever reads and writes vectors through the cache
+     * ======================================================================
+     */
+    public void setDocumentCache(PdfCache cache) {
+        this.documentCache = cache;
+        retriever.setCache(cache);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getResponseCache
+     * DESCRIPTION : Gets the cache repeated requests are answered from
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the cache, null when caching is off
+     * ======================================================================
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setResponseCache
+     * DESCRIPTION : Turns on answering repeated requests from a cache
+     * PRE-CONDITION : cache is null to turn caching off
+     * POST-CONDITION : Identical later requests are replayed instead of generated
+     * ======================================================================
+     */
+    public void setResponseCache(ResponseCache cache) {
+        this.responseCache = cache;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getSemanticCache
+     * DESCRIPTION : Gets the cache paraphrased questions are answered from
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the cache, null when semantic caching is off
+     * ======================================================================
+     */
+    public SemanticCache getSemanticCache() {
+        return semanticCache;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setSemanticCache
+     * DESCRIPTION : Turns on answering paraphrased questions from a cache
+     * PRE-CONDITION : cache is null to turn semantic caching off
+     * POST-CONDITION : Every question is embedded, similar enough ones are replayed instead of generated
+     * ======================================================================
+     */
+    public void setSemanticCache(SemanticCache cache) {
+        this.semanticCache = cache;
+    }
+
     /*
      * ======================================================================
      * METHOD NAME : clearHistory
@@ -224,7 +541,128 @@ public class OllamaService {
      */
     public void clearHistory() {
         history.clear();
-        this.pdfContext = null;
+        this.document = new LoadedDocument(null, null, null, null);
+        this.affinity = null;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getRetriever
+     * DESCRIPTION : Gets the retriever used for large documents
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the retriever of the last indexed document, else the one new documents use
+     * ======================================================================
+     */
+    public DocumentRetriever getRetriever() {
+        return retriever;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setRetriever
+     * DESCRIPTION : Sets the retriever used for large documents
+     * PRE-CONDITION : retriever is not null
+     * POST-CONDITION : retriever is updated and the current context re-indexed
+     * ======================================================================
+     */
+    public void setRetriever(DocumentRetriever retriever) {
+        this.retriever = retriever;
+        LoadedDocument current = document;
+        loadContext(current.text, current.key);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : createRetriever
+     * DESCRIPTION : Creates a retriever that embeds on the servers of the pool
+     * PRE-CONDITION : backends is not empty
+     * POST-CONDITION : Returns an empty retriever
+     * ======================================================================
+     */
+    private static DocumentRetriever createRetriever(BackendPool backends) {
+        return new DocumentRetriever(new OllamaEmbedder(backends, OllamaEmbedder.getDefaultModel()),
+                new TextChunker());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : loadContext
+     * DESCRIPTION : Makes a document the context, indexing it first when it is too large to send whole
+     * PRE-CONDITION : text may be null or empty for no document
+     * POST-CONDITION : Document and its index swapped in together, unless a later document was loaded first
+     * ======================================================================
+     */
+    private void loadContext(String text, String key) {
+        long load;
+        synchronized (this) {
+            load = ++documentLoads;
+        }
+        LoadedDocument loaded = indexContext(text, key, retriever);
+        synchronized (this) {
+            if (load == documentLoads) {
+                if (loaded.retriever != null) {
+                    this.retriever = loaded.retriever;
+                }
+                this.document = loaded;
+            }
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : indexContext
+     * DESCRIPTION : Indexes the pdf context when it is too large to send whole
+     * PRE-CONDITION : configured is the retriever new documents are indexed like
+     * POST-CONDITION : Returns the document with a new index, pinned whole when small,
+     *                  or cut to the pinning budget when it cannot be indexed
+     * ======================================================================
+     */
+    private static LoadedDocument indexContext(String text, String key, DocumentRetriever configured) {
+        if (text == null || text.length() <= RETRIEVAL_THRESHOLD_CHARS) {
+            return new LoadedDocument(text, key, text, null);
+        }
+        // the current document keeps answering while this one is embedded
+        DocumentRetriever indexed = configured.emptyCopy();
+        try {
+            indexed.index(text, key);
+            return new LoadedDocument(text, key, null, indexed);
+        } catch (OllamaServiceException e) {
+            System.out.println("Retrieval unavailable, sending the start of the document: " + e.getMessage());
+            return new LoadedDocument(text, key, head(text), null);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : head
+     * DESCRIPTION : Cuts a document to what may be sent whole
+     * PRE-CONDITION : text is not null
+     * POST-CONDITION : Returns at most RETRIEVAL_THRESHOLD_CHARS characters from the start
+     * ======================================================================
+     */
+    private static String head(String text) {
+        return text.length() <= RETRIEVAL_THRESHOLD_CHARS ? text : text.substring(0, RETRIEVAL_THRESHOLD_CHARS);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : selectExcerpts
+     * DESCRIPTION : Retrieves the chunks of an indexed document relevant to a question
+     * PRE-CONDITION : loaded is the document read once for this chat
+     * POST-CONDITION : Returns the top-k chunks, or the start of the document if retrieval fails;
+     *                  null when the document is pinned instead
+     * ======================================================================
+     */
+    private static String selectExcerpts(LoadedDocument loaded, String prompt) {
+        if (loaded.retriever == null) {
+            return null;
+        }
+        try {
+            return loaded.retriever.retrieve(prompt, RETRIEVAL_TOP_K);
+        } catch (OllamaServiceException e) {
+            System.out.println("Retrieval failed, sending the start of the document: " + e.getMessage());
+            return head(loaded.text);
+        }
     }
 
     /*
@@ -236,66 +674,553 @@ public class OllamaService {
      * ======================================================================
      */
     public ChatResponse chat(String prompt) throws OllamaServiceException {
-        try {
-            String finalPrompt = prompt;
-            if (pdfContext != null && !pdfContext.isEmpty()) {
-                // context stuffing: prepend pdf content to the prompt
-                finalPrompt = "Context:\n" + pdfContext + "\n\nUser Question:\n" + prompt;
+        return chatStream(prompt, token -> {
+        });
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : chatAsync
+     * DESCRIPTION : Starts a streamed chat on the given executor
+     * PRE-CONDITION : Server is running, prompt is valid, listener is not null
+     * POST-CONDITION : Returns a future, cancel(true) aborts the http stream so the server stops generating
+     * ======================================================================
+     */
+    public Future<ChatResponse> chatAsync(String prompt, TokenListener listener, Executor executor) {
+        AtomicReference<Future<ChatResponse>> self = new AtomicReference<>();
+        // the http client's body stream swallows interrupts, so the stream checks the future itself
+        TokenListener cancellable = new TokenListener() {
+            @Override
+            public void onToken(String token) {
+                listener.onToken(token);
+            }
+
+            @Override
+            public void onComplete(ChatResponse response) {
+                listener.onComplete(response);
             }
 
-            // add the user's message to history
-            history.addUserMessage(finalPrompt);
+            @Override
+            public boolean isCancelled() {
+                Future<ChatResponse> future = self.get();
+                return listener.isCancelled() || (future != null && future.isCancelled());
+            }
+        };
+        FutureTask<ChatResponse> task = new FutureTask<>(() -> chatStream(prompt, cancellable));
+        self.set(task);
+        executor.execute(task);
+        return task;
+    }
 
-            List<OllamaChatMessage> messages = new ArrayList<>();
+    /*
+     * ======================================================================
+     * METHOD NAME : chatStream
+     * DESCRIPTION : Sends a prompt to the ollama model and delivers tokens as they arrive
+     * PRE-CONDITION : Server is running, prompt is valid, listener is not null
+     * POST-CONDITION : Listener received every token, returns the full chat response
+     * ======================================================================
+     */
+    public ChatResponse chatStream(String prompt, TokenListener listener) throws OllamaServiceException {
+        return chatStream(prompt, profile, listener);
+    }
 
-            // add System Prompt
-            messages.add(new OllamaChatMessage(OllamaChatMessageRole.SYSTEM, SYSTEM_PROMPT));
+    /*
+     * ======================================================================
+     * METHOD NAME : chatStream
+     * DESCRIPTION : Sends a prompt with the given profile and delivers tokens as they arrive
+     * PRE-CONDITION : Server is running, prompt is valid, profile and listener are not null
+     * POST-CONDITION : Listener received every token, returns the full chat response
+     * ======================================================================
+     */
+    public ChatResponse chatStream(String prompt, RequestProfile profile, TokenListener listener)
+            throws OllamaServiceException {
+        long startNanos = System.nanoTime();
+        try {
+            // only the raw question goes into history, the pdf context is pinned in buildRequest;
+            // it is added with its answer, so a cancelled or failed turn leaves the history as it was
+            LoadedDocument loaded = document;
+            String excerpts = selectExcerpts(loaded, prompt);
+            OllamaChatRequest request = buildRequest(prompt, loaded.pinned, excerpts, profile);
 
-            for (ConversationHistory.Message msg : history.getMessages()) {
-                OllamaChatMessageRole role = msg.getRole().equalsIgnoreCase("user") ? OllamaChatMessageRole.USER
-                        : OllamaChatMessageRole.ASSISTANT;
-                messages.add(new OllamaChatMessage(role, msg.getContent()));
+            // the same question on the same document and history gets the answer it got before
+            String cacheKey = responseCache != null ? ResponseCache.key(request) : null;
+            boolean caching = responseCache != null || semanticCache != null;
+            List<String> cachedTokens = cacheKey != null ? responseCache.get(cacheKey) : null;
+            if (cachedTokens != null) {
+                return replay(prompt, cachedTokens, listener, startNanos);
             }
 
-            OllamaChatRequest request = new OllamaChatRequest(modelName, ThinkMode.DISABLED, messages);
+            // a paraphrase of an earlier question on the same document and history gets its answer too
+            String semanticScope = null;
+            float[] questionVector = null;
+            if (semanticCache != null) {
+                try {
+                    semanticScope = SemanticCache.scope(modelName + "/" + profile.getName(), loaded.key != null ? loaded.key : loaded.text,
+                            history.getSummary(), history.getMessages());
+                    questionVector = semanticCache.embed(prompt);
+                    cachedTokens = semanticCache.lookup(semanticScope, questionVector);
+                } catch (OllamaServiceException e) {
+                    System.out.println("Semantic cache skipped: " + e.getMessage());
+                }
+                if (cachedTokens != null) {
+                    return replay(prompt, cachedTokens, listener, startNanos);
+                }
+            }
 
-            // performance options
-            Map<String, Object> options = new HashMap<>();
-            options.put("num_ctx", 16384);
-            options.put("num_batch", 2048);
-            options.put("temperature", 0.3);
-            options.put("top_k", 40);
-            options.put("top_p", 0.9);
-            options.put("repeat_penalty", 1.1);
-            options.put("num_predict", 512);
-            options.put("num_keep", 16384);
-
-            List<String> stopTokens = new ArrayList<>();
-            stopTokens.add("User:");
-            stopTokens.add("System:");
-            stopTokens.add("Assistant:");
-            stopTokens.add("-----");
-            options.put("stop", stopTokens);
+            StringBuilder streamed = new StringBuilder();
+            List<String> tokens = new ArrayList<>();
+            long[] firstTokenNanos = { -1 };
+            int[] tokenCount = { 0 };
 
-            request.setOptions(options);
+            // wait for a free server slot, short prompts go first so a long pdf prompt cannot
+            // hold up a quick question, then forward each chunk as it is streamed; the window is
+            // sized once the server is known, after the cache lookups so it cannot change their keys
+            OllamaChatResult result;
+            long queueWaitNanos;
+            try (RequestDispatcher.Slot slot = dispatcher.acquire(modelName, estimatePromptTokens(request))) {
+                queueWaitNanos = slot.getQueueWaitNanos();
+                result = chatOnBackend(request, tokenCount, listener, chunk -> {
+                    if (listener.isCancelled() || Thread.currentThread().isInterrupted()) {
+                        // throwing out of the handler closes the response stream, which drops the
+                        // connection, and ollama stops a generation once its client is gone
+                        throw new CancellationException("Generation cancelled");
+                    }
+                    if (chunk == null || chunk.getMessage() == null) {
+                        return;
+                    }
+                    String token = chunk.getMessage().getResponse();
+                    if (token == null || token.isEmpty()) {
+                        return;
+                    }
+                    if (firstTokenNanos[0] < 0) {
+                        firstTokenNanos[0] = System.nanoTime();
+                    }
+                    tokenCount[0]++;
+                    streamed.append(token);
+                    if (caching) {
+                        tokens.add(token);
+                    }
+                    try {
+                        listener.onToken(token);
+                    } catch (RuntimeException e) {
+                        // the caller stopped taking tokens, the server did nothing wrong
+                        throw new ListenerFailure(e);
+                    }
+                }, true);
+            }
+            long endNanos = System.nanoTime();
 
-            // execute the chat request
-            OllamaChatResult result = api.chat(request, response -> {
-            });
+            // a cancelled generation must not leave its answer in a history that moved on
+            if (listener.isCancelled() || Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("Generation cancelled");
+            }
 
-            String responseText = result.getResponseModel().getMessage().getResponse();
+            String responseText = streamed.length() > 0 ? streamed.toString()
+                    : result.getResponseModel().getMessage().getResponse();
             String finalResponse = responseText != null ? responseText : "";
 
-            // add the assistant's response to history
-            history.addAssistantMessage(finalResponse);
+            // add the question and the assistant's response to history
+            history.addTurn(prompt, finalResponse);
+            List<String> answer = tokens.isEmpty() ? List.of(finalResponse) : tokens;
+            if (cacheKey != null && !finalResponse.isEmpty()) {
+                responseCache.put(cacheKey, answer);
+            }
+            if (questionVector != null && !finalResponse.isEmpty()) {
+                semanticCache.put(semanticScope, questionVector, answer);
+            }
+
+            long timeToFirstTokenMs = -1;
+            double tokensPerSecond = 0.0;
+            if (firstTokenNanos[0] >= 0) {
+                timeToFirstTokenMs = (firstTokenNanos[0] - startNanos) / 1_000_000;
+                long generationNanos = endNanos - firstTokenNanos[0];
+                if (generationNanos > 0 && tokenCount[0] > 1) {
+                    // the first token marks the start of generation, so it is not counted
+                    tokensPerSecond = (tokenCount[0] - 1) * 1_000_000_000.0 / generationNanos;
+                }
+            }
+
+            // the server splits its time into model load, prompt evaluation and generation;
+            // prompt_eval_count also shows how much of the prompt missed the kv-cache
+            InferenceTimings timings = InferenceTimings.from(result.getResponseModel());
+            recordMetrics(endNanos - startNanos, firstTokenNanos[0] >= 0 ? firstTokenNanos[0] - startNanos : -1,
+                    timings);
 
-            return new ChatResponse(finalResponse);
+            ChatResponse response = new ChatResponse(finalResponse, timeToFirstTokenMs, tokenCount[0],
+                    tokensPerSecond, (endNanos - startNanos) / 1_000_000, timings, queueWaitNanos / 1_000_000);
+            listener.onComplete(response);
+            return response;
 
         } catch (Exception e) {
+            if (listener.isCancelled() || isCancellation(e)) {
+                // keep the flag for the caller, the http client may have consumed it
+                Thread.currentThread().interrupt();
+                metrics.increment("javallama_chat_cancelled_total", 1);
+                throw new OllamaServiceException("Generation cancelled for model: " + modelName, e);
+            }
+            metrics.increment("javallama_chat_errors_total", 1);
             throw new OllamaServiceException("Failed to communicate with Ollama model: " + modelName, e);
         }
     }
 
+    /*
+     * ======================================================================
+     * METHOD NAME : replay
+     * DESCRIPTION : Streams a cached answer to the listener as if it was generated
+     * PRE-CONDITION : prompt is the question the answer was cached for
+     * POST-CONDITION : Listener received every token, question and answer added to the history,
+     *                  throws InterruptedException if cancelled part way
+     * ======================================================================
+     */
+    private ChatResponse replay(String prompt, List<String> tokens, TokenListener listener, long startNanos)
+            throws InterruptedException {
+        StringBuilder text = new StringBuilder();
+        long firstTokenNanos = -1;
+        for (String token : tokens) {
+            if (listener.isCancelled() || Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("Generation cancelled");
+            }
+            if (firstTokenNanos < 0) {
+                firstTokenNanos = System.nanoTime();
+            }
+            text.append(token);
+            listener.onToken(token);
+        }
+        long endNanos = System.nanoTime();
+        history.addTurn(prompt, text.toString());
+        metrics.recordLatency("javallama_chat_cached", endNanos - startNanos);
+
+        long generationNanos = firstTokenNanos >= 0 ? endNanos - firstTokenNanos : 0;
+        double tokensPerSecond = generationNanos > 0 && tokens.size() > 1
+                ? (tokens.size() - 1) * 1_000_000_000.0 / generationNanos : 0.0;
+        ChatResponse response = new ChatResponse(text.toString(),
+                firstTokenNanos >= 0 ? (firstTokenNanos - startNanos) / 1_000_000 : -1, tokens.size(),
+                tokensPerSecond, (endNanos - startNanos) / 1_000_000, InferenceTimings.unknown(), 0, true);
+        listener.onComplete(response);
+        return response;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : warmUp
+     * DESCRIPTION : Loads the model on every server of the pool before the first question
+     * PRE-CONDITION : Server is running
+     * POST-CONDITION : Model stays loaded for keep_alive, with primePrompt the system prompt is in
+     *                  the kv-cache; returns the wall time and the timings of the slowest server,
+     *                  throws once every server was tried if one of them failed
+     * ======================================================================
+     */
+    public ChatResponse warmUp(boolean primePrompt) throws OllamaServiceException {
+        long startNanos = System.nanoTime();
+
+        // an empty message list only loads the model, the system prompt alone is evaluated into
+        // the kv-cache as the prefix every conversation starts with
+        RequestProfile current = profile;
+        List<OllamaChatMessage> messages = new ArrayList<>();
+        if (primePrompt) {
+            messages.add(current.getSystemMessage());
+        }
+        AdaptiveTuner currentTuner = tuner;
+        InferenceTimings slowest = InferenceTimings.unknown();
+        Exception error = null;
+        for (BackendPool.Backend backend : backends.getBackends()) {
+            // the options must match the chat requests, a different num_ctx makes ollama load the model again
+            Map<String, Object> options = new HashMap<>(currentTuner != null ? currentTuner.tune(backend.getName(),
+                    current.getOptions(), primePrompt ? current.getSystemPromptTokens() : 0) : current.getOptions());
+            options.put("num_predict", 1);
+            OllamaChatRequest request = new OllamaChatRequest(modelName, ThinkMode.DISABLED, messages);
+            request.setOptions(options);
+            request.setKeepAlive(keepAlive);
+            try {
+                OllamaChatResult result = backend.getApi().chat(request, chunk -> {
+                });
+                InferenceTimings timings = InferenceTimings.from(result.getResponseModel());
+                if (currentTuner != null) {
+                    currentTuner.recordLoad(backend.getName(), ((Number) options.get("num_ctx")).intValue(),
+                            timings.getLoadDurationNs());
+                }
+                System.out.println(String.format("Warm-up of %s on %s: load %d ms, %d prompt tokens", modelName,
+                        backend.getName(), Math.max(0, timings.getLoadDurationNs()) / 1_000_000,
+                        Math.max(0, timings.getPromptEvalCount())));
+                if (timings.getTotalDurationNs() > slowest.getTotalDurationNs()) {
+                    slowest = timings;
+                }
+            } catch (Exception e) {
+                System.out.println("Warm-up of " + modelName + " on " + backend.getName() + " failed: " + e);
+                error = error != null ? error : e;
+            }
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        if (error != null) {
+            throw new OllamaServiceException("Failed to warm up Ollama model: " + modelName, error);
+        }
+        // kept apart from the chat latencies, so they show the steady state
+        metrics.recordLatency("javallama_warmup", elapsedNanos);
+        return new ChatResponse("", -1, 0, 0.0, elapsedNanos / 1_000_000, slowest, 0);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : send
+     * DESCRIPTION : Sends a request that is not part of the conversation, such as a summary
+     * PRE-CONDITION : request carries this service's model
+     * POST-CONDITION : Returns the result once a dispatcher slot and a server of the pool were free
+     * ======================================================================
+     */
+    OllamaChatResult send(OllamaChatRequest request) throws Exception {
+        try (RequestDispatcher.Slot slot = dispatcher.acquire(modelName, estimatePromptTokens(request))) {
+            return chatOnBackend(request, new int[1], token -> {
+            }, chunk -> {
+            }, false);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : chatOnBackend
+     * DESCRIPTION : Sends a chat request to a server of the pool
+     * PRE-CONDITION : tokenCount is updated by the handler as tokens arrive, conversation is true when the
+     *                  request carries this conversation's prompt
+     * POST-CONDITION : Returns the result; with a tuner num_ctx fits the server the request was given and
+     *                  its timings are learned. A server that fails before streaming a token is reported
+     *                  to the pool and the request retried on one not tried yet, other failures are thrown
+     * ======================================================================
+     */
+    private OllamaChatResult chatOnBackend(OllamaChatRequest request, int[] tokenCount, TokenListener listener,
+            OllamaChatTokenHandler handler, boolean conversation) throws Exception {
+        AdaptiveTuner currentTuner = tuner;
+        Map<String, Object> baseOptions = request.getOptions();
+        int promptTokens = currentTuner != null ? estimatePromptTokens(request) : 0;
+        List<BackendPool.Backend> failed = new ArrayList<>();
+        while (true) {
+            BackendPool.Backend backend = backends.acquire(affinity, failed);
+            if (backend == null) {
+                throw new OllamaServiceException("No Ollama server available for model: " + modelName);
+            }
+            boolean failure = false;
+            try {
+                int contextTokens = 0;
+                if (currentTuner != null) {
+                    // the window is what this server has loaded, a retry elsewhere is sized for that server
+                    request.setOptions(currentTuner.tune(backend.getName(), baseOptions, promptTokens));
+                    contextTokens = ((Number) request.getOptions().get("num_ctx")).intValue();
+                }
+                OllamaChatResult result = call(backend, request, listener, handler);
+                if (currentTuner != null) {
+                    currentTuner.record(backend.getName(), contextTokens,
+                            InferenceTimings.from(result.getResponseModel()));
+                }
+                if (conversation) {
+                    // the server now holds this conversation's prompt in its kv-cache
+                    affinity = backend;
+                }
+                return result;
+            } catch (Exception e) {
+                // a cancelled request says nothing about the health of the server
+                failure = !isCancellation(e);
+                if (!failure || tokenCount[0] > 0 || failed.size() + 1 >= backends.size()) {
+                    throw e;
+                }
+                System.out.println("Ollama backend " + backend.getName() + " failed, trying another: " + e);
+                metrics.increment("javallama_backend_retries_total", 1);
+                failed.add(backend);
+            } finally {
+                backends.release(backend, failure);
+            }
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : call
+     * DESCRIPTION : Runs one chat request on a thread of its own, so it can be aborted at any point
+     * PRE-CONDITION : backend was acquired from the pool
+     * POST-CONDITION : Returns the result; cancelling the listener or interrupting the caller aborts the
+     *                  request, also while the server still evaluates the prompt, and throws
+     * ======================================================================
+     */
+    private static OllamaChatResult call(BackendPool.Backend backend, OllamaChatRequest request,
+            TokenListener listener, OllamaChatTokenHandler handler) throws Exception {
+        // ollama4j keeps its http exchange to itself, the thread blocked in it is the handle; before the
+        // first chunk no handler runs to notice a cancel, but the http client aborts an exchange whose
+        // thread is interrupted while it waits for the response
+        FutureTask<OllamaChatResult> call = new FutureTask<>(() -> backend.getApi().chat(request, handler));
+        Thread.ofVirtual().name("ollama-chat").start(call);
+        try {
+            while (true) {
+                try {
+                    return call.get(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (listener.isCancelled()) {
+                        throw new CancellationException("Generation cancelled");
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            // does nothing once the request is done, otherwise drops its connection
+            call.cancel(true);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : isCancellation
+     * DESCRIPTION : Checks whether a chat failed because it was cancelled
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns true if the thread was interrupted or the cause chain shows a cancellation
+     *                  or a failed listener
+     * ======================================================================
+     */
+    private static boolean isCancellation(Throwable error) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException || cause instanceof CancellationException
+                    || cause instanceof InterruptedIOException || cause instanceof ListenerFailure) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : recordMetrics
+     * DESCRIPTION : Records the client and server side latencies of one request
+     * PRE-CONDITION : Durations are in nanoseconds, -1 when unknown
+     * POST-CONDITION : Histograms and counters of the registry are updated
+     * ======================================================================
+     */
+    private void recordMetrics(long totalNanos, long firstTokenNanos, InferenceTimings timings) {
+        metrics.increment("javallama_chat_requests_total", 1);
+        metrics.recordLatency("javallama_chat_request", totalNanos);
+        if (firstTokenNanos >= 0) {
+            metrics.recordLatency("javallama_chat_time_to_first_token", firstTokenNanos);
+        }
+        if (!timings.isReported()) {
+            return;
+        }
+        metrics.recordLatency("javallama_server_total", timings.getTotalDurationNs());
+        if (timings.getLoadDurationNs() >= 0) {
+            metrics.recordLatency("javallama_server_load", timings.getLoadDurationNs());
+        }
+        if (timings.getPromptEvalDurationNs() >= 0) {
+            metrics.recordLatency("javallama_server_prompt_eval", timings.getPromptEvalDurationNs());
+        }
+        if (timings.getEvalDurationNs() >= 0) {
+            metrics.recordLatency("javallama_server_eval", timings.getEvalDurationNs());
+        }
+        if (timings.getPromptEvalCount() > 0) {
+            metrics.increment("javallama_prompt_tokens_total", timings.getPromptEvalCount());
+        }
+        if (timings.getEvalCount() > 0) {
+            metrics.increment("javallama_generated_tokens_total", timings.getEvalCount());
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : estimatePromptTokens
+     * DESCRIPTION : Estimates how many tokens the server evaluates for a request
+     * PRE-CONDITION : request is not null
+     * POST-CONDITION : Returns the estimate over all messages
+     * ======================================================================
+     */
+    static int estimatePromptTokens(OllamaChatRequest request) {
+        int tokens = 0;
+        for (OllamaChatMessage message : request.getMessages()) {
+            tokens += ConversationHistory.Message.estimateTokens(message.getResponse());
+        }
+        return tokens;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : buildRequest
+     * DESCRIPTION : Builds the chat request from the system prompt, pinned context, history and question
+     * PRE-CONDITION : prompt is not yet in the history, context or excerpts may be null
+     * POST-CONDITION : Returns a request that starts with every message of the previous turn's but its last,
+     *                  the system message and options are the profile's shared instances
+     * ======================================================================
+     */
+    private OllamaChatRequest buildRequest(String prompt, String context, String excerpts, RequestProfile profile) {
+        // system prompt, pinned context and summary come before the turns
+        List<ConversationHistory.Message> turns = history.getMessages();
+        List<OllamaChatMessage> messages = new ArrayList<>(turns.size() + 4);
+
+        // the order system prompt, pinned context, summary, history is append-only from turn
+        // to turn, so the server can reuse the kv-cache of everything but the newest messages;
+        // only material that stays the same for the whole conversation is pinned here
+
+        // add System Prompt
+        messages.add(profile.getSystemMessage());
+        int prefixTokens = profile.getSystemPromptTokens();
+
+        // context stuffing: a document small enough to send whole is pinned once per request
+        if (context != null && !context.isEmpty()) {
+            String contextMessage = pinContext(context);
+            messages.add(new OllamaChatMessage(OllamaChatMessageRole.SYSTEM, contextMessage));
+            prefixTokens += ConversationHistory.Message.estimateTokens(contextMessage);
+        }
+
+        // turns that slid out of the token budget survive as a summary
+        String summary = history.getSummary();
+        if (!summary.isEmpty()) {
+            messages.add(new OllamaChatMessage(OllamaChatMessageRole.SYSTEM, SUMMARY_HEADER + summary));
+        }
+
+        for (ConversationHistory.Message msg : turns) {
+            OllamaChatMessageRole role = msg.getRoleType() == ConversationHistory.Role.USER
+                    ? OllamaChatMessageRole.USER : OllamaChatMessageRole.ASSISTANT;
+            messages.add(new OllamaChatMessage(role, msg.getContent()));
+        }
+
+        // retrieved chunks differ per question, so they ride with it after the cached prefix;
+        // the history keeps the bare question, the next turn re-evaluates only this message
+        if (excerpts != null && !excerpts.isEmpty()) {
+            messages.add(new OllamaChatMessage(OllamaChatMessageRole.USER,
+                    EXCERPT_HEADER + excerpts + QUESTION_HEADER + prompt));
+        } else {
+            messages.add(new OllamaChatMessage(OllamaChatMessageRole.USER, prompt));
+        }
+
+        OllamaChatRequest request = new OllamaChatRequest(modelName, ThinkMode.DISABLED, messages);
+        request.setOptions(profile.getOptions(prefixTokens));
+        request.setKeepAlive(keepAlive);
+        return request;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : pinContext
+     * DESCRIPTION : Returns the pinned context message, reusing it while the context is unchanged
+     * PRE-CONDITION : context is not empty
+     * POST-CONDITION : Same context yields the same message string
+     * ======================================================================
+     */
+    private String pinContext(String context) {
+        if (!context.equals(pinnedContext)) {
+            pinnedContext = context;
+            pinnedContextMessage = CONTEXT_HEADER + context;
+        }
+        return pinnedContextMessage;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : shutdown
+     * DESCRIPTION : Stops summarizing the history of a service that is no longer used
+     * PRE-CONDITION : No chat is running
+     * POST-CONDITION : No summaries queued, the shared executor keeps running for other services
+     * ======================================================================
+     */
+    public void shutdown() {
+        history.setSummarizer(null, null);
+    }
+
     /*
      * ======================================================================
      * METHOD NAME : writeOutput
@@ -308,7 +1233,70 @@ public class OllamaService {
         System.out.println("OllamaService Status:");
         System.out.println("Model Name: " + modelName);
         System.out.println("Timeout: " + TIMEOUT_SECONDS + " seconds");
-        System.out.println("Context Loaded: " + (pdfContext != null && !pdfContext.isEmpty()));
+        System.out.println("Keep Alive: " + keepAlive);
+        LoadedDocument loaded = document;
+        System.out.println("Context Loaded: " + (loaded.text != null && !loaded.text.isEmpty()));
+        System.out.println("Retrieval Chunks: " + (loaded.retriever != null ? loaded.retriever.getChunkCount() : 0));
         System.out.println("History Size: " + (history != null ? history.size() : 0));
+        System.out.println("History Tokens: " + (history != null ? history.getTotalTokens() : 0));
+    }
+
+    /**
+     * ======================================================================
+     * CLASS NAME : ListenerFailure
+     * DESCRIPTION : Carries an exception thrown by a token listener out of the response stream
+     * AUTHOR : Mickel Angelo Castoverde
+     * COPYRIGHT : macastroverde 2025
+     * REVISION HISTORY
+     * Date: By: Description:
+     * 2026-10-16 Mickel Angelo Castoverde Creation of the program
+     * ======================================================================
+     */
+    private static class ListenerFailure extends RuntimeException {
+
+        /*
+         * ======================================================================
+         * METHOD NAME : ListenerFailure
+         * DESCRIPTION : Parameterized constructor
+         * PRE-CONDITION : cause is what the listener threw
+         * POST-CONDITION : Exception created
+         * ======================================================================
+         */
+        ListenerFailure(RuntimeException cause) {
+            super("Token listener failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * ======================================================================
+     * CLASS NAME : LoadedDocument
+     * DESCRIPTION : A document together with what is sent of it, swapped in as one
+     * AUTHOR : Mickel Angelo Castoverde
+     * COPYRIGHT : macastroverde 2025
+     * REVISION HISTORY
+     * Date: By: Description:
+     * 2026-10-16 Mickel Angelo Castoverde Creation of the program
+     * ======================================================================
+     */
+    private static final class LoadedDocument {
+        final String text;
+        final String key;
+        final String pinned;
+        final DocumentRetriever retriever;
+
+        /*
+         * ======================================================================
+         * METHOD NAME : LoadedDocument
+         * DESCRIPTION : Parameterized constructor
+         * PRE-CONDITION : pinned is null when retriever holds the indexed text
+         * POST-CONDITION : Document created
+         * ======================================================================
+         */
+        LoadedDocument(String text, String key, String pinned, DocumentRetriever retriever) {
+            this.text = text;
+            this.key = key;
+            this.pinned = pinned;
+            this.retriever = retriever;
+        }
     }
 }
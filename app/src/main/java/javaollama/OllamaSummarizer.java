@@ -0,0 +1,89 @@
+/**
+======================================================================
+CLASS NAME : OllamaSummarizer
+DESCRIPTION : Summarizer that asks the chat model to condense evicted turns
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  summary requests queue in the request dispatcher
+2026-10-16      Mickel Angelo Castoverde  transcript labelled by role enum
+2026-10-16      Mickel Angelo Castoverde  sent through the service, so it takes a server from the pool
+2026-10-16      Mickel Angelo Castoverde  options taken from the service's profile instead of a fixed num_ctx
+======================================================================
+*/
+package javaollama;
+
+import io.github.ollama4j.models.chat.OllamaChatMessage;
+import io.github.ollama4j.models.chat.OllamaChatMessageRole;
+import io.github.ollama4j.models.chat.OllamaChatRequest;
+import io.github.ollama4j.models.chat.OllamaChatResult;
+import io.github.ollama4j.models.request.ThinkMode;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class OllamaSummarizer implements Summarizer {
+
+    private static final String SUMMARY_PROMPT = "Summarize the conversation below in at most 150 words. "
+            + "Keep names, facts, numbers and decisions. Reply with the summary only.";
+
+    private final OllamaService service;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : OllamaSummarizer
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : service is not null
+     * POST-CONDITION : Summarizer uses the service's servers and current model
+     * ======================================================================
+     */
+    public OllamaSummarizer(OllamaService service) {
+        this.service = service;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : summarize
+     * DESCRIPTION : Sends the previous summary and evicted turns to the model
+     * PRE-CONDITION : Server is running
+     * POST-CONDITION : Returns the model's summary
+     * ======================================================================
+     */
+    @Override
+    public String summarize(String previousSummary, List<ConversationHistory.Message> evicted)
+            throws OllamaServiceException {
+        StringBuilder transcript = new StringBuilder();
+        if (!previousSummary.isEmpty()) {
+            transcript.append("Summary so far:\n").append(previousSummary).append("\n\n");
+        }
+        transcript.append("New messages:\n");
+        for (ConversationHistory.Message msg : evicted) {
+            transcript.append(msg.getRoleType() == ConversationHistory.Role.USER ? "User: " : "Assistant: ")
+                    .append(msg.getContent()).append('\n');
+        }
+
+        OllamaChatRequest request = new OllamaChatRequest(service.getModelName(), ThinkMode.DISABLED, List.of(
+                new OllamaChatMessage(OllamaChatMessageRole.SYSTEM, SUMMARY_PROMPT),
+                new OllamaChatMessage(OllamaChatMessageRole.USER, transcript.toString())));
+
+        // num_ctx matches the chat requests of the active profile, otherwise ollama reloads the model
+        Map<String, Object> options = new HashMap<>(service.getProfile().getOptions());
+        options.put("temperature", 0.2);
+        options.put("num_predict", 256);
+        options.remove("num_keep"); // sized for the chat's system prompt, not this one
+        options.remove("stop"); // the transcript is labelled with the chat's stop words
+        request.setOptions(options);
+
+        try {
+            // summaries queue with the chats and are spread over the same servers
+            OllamaChatResult result = service.send(request);
+            String text = result.getResponseModel().getMessage().getResponse();
+            return text != null ? text : previousSummary;
+        } catch (Exception e) {
+            throw new OllamaServiceException("Failed to summarize with model: " + service.getModelName(), e);
+        }
+    }
+}
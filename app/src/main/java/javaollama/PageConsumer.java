@@ -0,0 +1,26 @@
+/**
+======================================================================
+CLASS NAME : PageConsumer
+DESCRIPTION : Callback interface receiving pdf text one page at a time
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+@FunctionalInterface
+public interface PageConsumer {
+
+    /*
+     * ======================================================================
+     * METHOD NAME : onPage
+     * DESCRIPTION : Called once per page, in page order, as soon as it is parsed
+     * PRE-CONDITION : pageNumber is 1-based
+     * POST-CONDITION : Page text has been handed to the consumer
+     * ======================================================================
+     */
+    void onPage(int pageNumber, int pageCount, String text);
+}
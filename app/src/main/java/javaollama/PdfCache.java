@@ -0,0 +1,328 @@
+/**
+======================================================================
+CLASS NAME : PdfCache
+DESCRIPTION : On-disk cache of extracted pdf text, chunks and embeddings keyed by content hash
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  entries read into a heap buffer instead of mapped, so they can be evicted at once
+======================================================================
+*/
+package javaollama;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class PdfCache {
+
+    private static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+    private static final int MAGIC = 0x4A4C4331; // "JLC1"
+    private static final String EXTENSION = ".jlc";
+
+    /*
+     * entry layout, big-endian:
+     * int magic | int textBytes | utf-8 text | int modelBytes | utf-8 model
+     * | int chunkCount | int[2 * chunkCount] bounds | int dimension
+     * | float[chunkCount * dimension] vectors
+     */
+
+    private final Path directory;
+    private final long maxBytes;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : PdfCache
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : maxBytes > 0
+     * POST-CONDITION : Cache uses the directory, which is created on first store
+     * ======================================================================
+     */
+    public PdfCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : createDefault
+     * DESCRIPTION : Creates a cache in the user's home directory
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a cache under ~/.javallama/cache
+     * ======================================================================
+     */
+    public static PdfCache createDefault() {
+        Path dir = Path.of(System.getProperty("user.home"), ".javallama", "cache");
+        return new PdfCache(dir, DEFAULT_MAX_BYTES);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getDirectory
+     * DESCRIPTION : Accessor for the cache directory
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the directory path
+     * ======================================================================
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : hashFile
+     * DESCRIPTION : Computes the sha-256 hash of a file's contents
+     * PRE-CONDITION : file exists and is readable
+     * POST-CONDITION : Returns the hex encoded hash
+     * ======================================================================
+     */
+    public static String hashFile(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : load
+     * DESCRIPTION : Reads and decodes the entry for a hash
+     * PRE-CONDITION : hash is a value returned by hashFile
+     * POST-CONDITION : Returns the document and marks it recently used, null on miss
+     * ======================================================================
+     */
+    public synchronized CachedDocument load(String hash) {
+        Path file = entryPath(hash);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // a mapped file stays open until the buffer is collected, on windows it could then
+            // be neither replaced nor evicted; the entry is decoded into arrays anyway
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Cache entry too large");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Truncated cache entry");
+                }
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Bad cache entry header");
+            }
+            String text = readString(buffer);
+            String model = readString(buffer);
+            int[] bounds = new int[buffer.getInt() * 2];
+            buffer.asIntBuffer().get(bounds);
+            buffer.position(buffer.position() + bounds.length * Integer.BYTES);
+            int dimension = buffer.getInt();
+            float[] vectors = new float[(bounds.length / 2) * dimension];
+            buffer.asFloatBuffer().get(vectors);
+
+            // the file time doubles as the lru clock
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return new CachedDocument(hash, text, model, bounds, vectors, dimension);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Discarding unreadable cache entry " + file.getFileName() + ": " + e.getMessage());
+            deleteQuietly(file);
+            return null;
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : store
+     * DESCRIPTION : Writes a document entry and evicts old entries over the size limit
+     * PRE-CONDITION : document is not null
+     * POST-CONDITION : Entry replaced atomically, failures are logged and ignored
+     * ======================================================================
+     */
+    public synchronized void store(CachedDocument document) {
+        byte[] text = document.getText().getBytes(StandardCharsets.UTF_8);
+        byte[] model = document.getEmbeddingModel().getBytes(StandardCharsets.UTF_8);
+        int[] bounds = document.getBounds();
+        float[] vectors = document.getVectors();
+
+        long size = 4L + 4 + text.length + 4 + model.length + 4 + 4L * bounds.length + 4 + 4L * vectors.length;
+        if (size > Integer.MAX_VALUE) {
+            System.out.println("Document too large to cache: " + document.getHash());
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(text.length).put(text);
+        buffer.putInt(model.length).put(model);
+        buffer.putInt(bounds.length / 2);
+        buffer.asIntBuffer().put(bounds);
+        buffer.position(buffer.position() + bounds.length * Integer.BYTES);
+        buffer.putInt(document.getDimension());
+        buffer.asFloatBuffer().put(vectors);
+        buffer.position(buffer.capacity());
+        buffer.flip();
+
+        Path file = entryPath(document.getHash());
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, document.getHash(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evict();
+        } catch (IOException e) {
+            System.out.println("Failed to write cache entry " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : contains
+     * DESCRIPTION : Checks whether an entry exists for a hash
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns true if an entry file exists
+     * ======================================================================
+     */
+    public synchronized boolean contains(String hash) {
+        return Files.isRegularFile(entryPath(hash));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : evict
+     * DESCRIPTION : Deletes least recently used entries until under the size limit
+     * PRE-CONDITION : Directory exists
+     * POST-CONDITION : Total entry size is at most maxBytes
+     * ======================================================================
+     */
+    private void evict() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(p -> p.getFileName().toString().endsWith(EXTENSION)).forEach(entries::add);
+        }
+
+        long total = 0;
+        for (Path entry : entries) {
+            total += Files.size(entry);
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparingLong(PdfCache::lastUsed));
+        for (Path entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long size = Files.size(entry);
+            if (deleteQuietly(entry)) {
+                total -= size;
+            }
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : readString
+     * DESCRIPTION : Reads a length-prefixed utf-8 string from the buffer
+     * PRE-CONDITION : Buffer positioned at the length prefix
+     * POST-CONDITION : Buffer positioned after the string
+     * ======================================================================
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        ByteBuffer bytes = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : entryPath
+     * DESCRIPTION : Resolves the entry file for a hash
+     * PRE-CONDITION : hash is hex encoded
+     * POST-CONDITION : Returns the path inside the cache directory
+     * ======================================================================
+     */
+    private Path entryPath(String hash) {
+        return directory.resolve(hash + EXTENSION);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : lastUsed
+     * DESCRIPTION : Reads the lru timestamp of an entry
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the modification time, 0 if unreadable
+     * ======================================================================
+     */
+    private static long lastUsed(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : deleteQuietly
+     * DESCRIPTION : Deletes a file, ignoring failures
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns true if the file was deleted
+     * ======================================================================
+     */
+    private static boolean deleteQuietly(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : writeOutput
+     * DESCRIPTION : Writes the object state to the console
+     * PRE-CONDITION : None
+     * POST-CONDITION : Object state is printed to stdout
+     * ======================================================================
+     */
+    public void writeOutput() {
+        System.out.println("PdfCache Status:");
+        System.out.println("Directory: " + directory);
+        System.out.println("Max Size: " + maxBytes + " bytes");
+    }
+}
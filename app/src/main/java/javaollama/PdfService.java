@@ -7,6 +7,12 @@ COPYRIGHT  : macastroverde 2025
 REVISION HISTORY
 Date:           By:             Description:
 2025-12-06      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  extracted text cached on disk by content hash
+2026-10-16      Mickel Angelo Castoverde  parallel page-range extraction for large documents
+2026-10-16      Mickel Angelo Castoverde  streaming page-by-page extraction with temp-file backed loading
+2026-10-16      Mickel Angelo Castoverde  loaded documents queued for the search index
+2026-10-16      Mickel Angelo Castoverde  every extraction path loads pdfs temp-file backed, parallel workers included
+2026-10-16      Mickel Angelo Castoverde  default constructor does not cache, the caller opts in to the on-disk cache
 ======================================================================
 */
 package javaollama;
@@ -14,20 +20,101 @@ package javaollama;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDPage;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PdfService {
 
+    private static final int MIN_PAGES_PER_WORKER = 8;
+
+    private final PdfCache cache;
+    private int parallelism;
+    private SearchIndex searchIndex;
+
     /*
      * ======================================================================
      * METHOD NAME : PdfService
      * DESCRIPTION : Default constructor
      * PRE-CONDITION : None
-     * POST-CONDITION : Service initialized
+     * POST-CONDITION : Service initialized without a cache
      * ======================================================================
      */
     public PdfService() {
+        this(null);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : PdfService
+     * DESCRIPTION : Constructor for dependency injection (testing)
+     * PRE-CONDITION : cache may be null to disable caching
+     * POST-CONDITION : Service initialized with the given cache
+     * ======================================================================
+     */
+    public PdfService(PdfCache cache) {
+        this.cache = cache;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getParallelism
+     * DESCRIPTION : Gets the maximum number of extraction workers
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the parallelism level
+     * ======================================================================
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setParallelism
+     * DESCRIPTION : Sets the maximum number of extraction workers
+     * PRE-CONDITION : parallelism > 0
+     * POST-CONDITION : parallelism is updated, 1 extracts on the calling thread
+     * ======================================================================
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getCache
+     * DESCRIPTION : Gets the document cache
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the cache, or null if caching is disabled
+     * ======================================================================
+     */
+    public PdfCache getCache() {
+        return cache;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setSearchIndex
+     * DESCRIPTION : Makes loaded documents searchable
+     * PRE-CONDITION : None
+     * POST-CONDITION : Documents are indexed in the background once per content hash, null stops indexing
+     * ======================================================================
+     */
+    public void setSearchIndex(SearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
     }
 
     /*
@@ -39,18 +126,163 @@ public class PdfService {
      * ======================================================================
      */
     public String extractText(File pdfFile) throws PdfProcessingException {
+        return loadDocument(pdfFile).getText();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : loadDocument
+     * DESCRIPTION : Loads a pdf from the cache, or extracts and caches its text
+     * PRE-CONDITION : pdfFile exists and is readable
+     * POST-CONDITION : Returns the document with its content hash
+     * ======================================================================
+     */
+    public CachedDocument loadDocument(File pdfFile) throws PdfProcessingException {
         if (pdfFile == null || !pdfFile.exists()) {
             throw new PdfProcessingException("File not found or is null");
         }
 
-        try (PDDocument document = Loader.loadPDF(pdfFile)) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            return stripper.getText(document);
+        try {
+            String hash = PdfCache.hashFile(pdfFile);
+            CachedDocument document = cache != null ? cache.load(hash) : null;
+            if (document == null) {
+                document = new CachedDocument(hash, extractTextParallel(pdfFile, parallelism));
+                if (cache != null) {
+                    cache.store(document);
+                }
+            }
+            if (searchIndex != null) {
+                searchIndex.indexDocumentAsync(pdfFile.getName(), hash, document.getText());
+            }
+            return document;
         } catch (IOException e) {
             throw new PdfProcessingException("Failed to extract text from PDF: " + pdfFile.getName(), e);
         }
     }
 
+    /*
+     * ======================================================================
+     * METHOD NAME : extractTextParallel
+     * DESCRIPTION : Extracts text by splitting the pages into ranges across workers
+     * PRE-CONDITION : pdfFile exists and is readable, parallelism > 0
+     * POST-CONDITION : Returns the text of all pages in page order
+     * ======================================================================
+     */
+    public String extractTextParallel(File pdfFile, int parallelism) throws PdfProcessingException {
+        try (PDDocument document = openDocument(pdfFile)) {
+            int pages = document.getNumberOfPages();
+            int workers = Math.min(parallelism, pages / MIN_PAGES_PER_WORKER);
+            if (workers <= 1) {
+                return new PDFTextStripper().getText(document);
+            }
+
+            // pdfbox documents are not thread-safe, so every other worker loads its own copy
+            int[] starts = new int[workers + 1];
+            for (int w = 0; w <= workers; w++) {
+                starts[w] = 1 + (int) ((long) w * pages / workers);
+            }
+
+            AtomicInteger threadNumber = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(workers - 1, task -> {
+                Thread thread = new Thread(task, "pdf-extract-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<String>> ranges = new ArrayList<>();
+                for (int w = 1; w < workers; w++) {
+                    int start = starts[w];
+                    int end = starts[w + 1] - 1;
+                    ranges.add(pool.submit(() -> {
+                        try (PDDocument copy = openDocument(pdfFile)) {
+                            return extractRange(copy, start, end);
+                        }
+                    }));
+                }
+
+                // the calling thread takes the first range with the document it already has
+                StringBuilder text = new StringBuilder(extractRange(document, starts[0], starts[1] - 1));
+                for (Future<String> range : ranges) {
+                    text.append(range.get());
+                }
+                return text.toString();
+            } finally {
+                pool.shutdownNow();
+            }
+        } catch (ExecutionException e) {
+            throw new PdfProcessingException("Failed to extract text from PDF: " + pdfFile.getName(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PdfProcessingException("Interrupted while extracting PDF: " + pdfFile.getName(), e);
+        } catch (IOException e) {
+            throw new PdfProcessingException("Failed to extract text from PDF: " + pdfFile.getName(), e);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : extractPages
+     * DESCRIPTION : Streams the text of a pdf to a consumer one page at a time
+     * PRE-CONDITION : pdfFile exists and is readable, consumer is not null
+     * POST-CONDITION : Consumer received every page in order, returns the page count
+     * ======================================================================
+     */
+    public int extractPages(File pdfFile, PageConsumer consumer) throws PdfProcessingException {
+        if (pdfFile == null || !pdfFile.exists()) {
+            throw new PdfProcessingException("File not found or is null");
+        }
+
+        try (PDDocument document = openDocument(pdfFile)) {
+            int pageCount = document.getNumberOfPages();
+            StringWriter pageText = new StringWriter();
+
+            PDFTextStripper stripper = new PDFTextStripper() {
+                @Override
+                protected void endPage(PDPage page) throws IOException {
+                    super.endPage(page);
+                    output.flush();
+                    consumer.onPage(getCurrentPageNo(), pageCount, pageText.toString());
+                    pageText.getBuffer().setLength(0);
+                }
+            };
+            stripper.writeText(document, pageText);
+            return pageCount;
+        } catch (IOException e) {
+            throw new PdfProcessingException("Failed to extract text from PDF: " + pdfFile.getName(), e);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : openDocument
+     * DESCRIPTION : Loads a pdf for extraction without holding its streams on the heap
+     * PRE-CONDITION : pdfFile exists and is readable
+     * POST-CONDITION : Returns the document, the caller closes it
+     * ======================================================================
+     */
+    PDDocument openDocument(File pdfFile) throws IOException {
+        // the file is read through a buffered random access view and scratch streams go to
+        // temp files, so heap use does not grow with the size of the document or the workers
+        PDDocument document = Loader.loadPDF(pdfFile, IOUtils.createTempFileOnlyStreamCache());
+        document.setResourceCache(null);
+        return document;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : extractRange
+     * DESCRIPTION : Extracts the text of an inclusive page range
+     * PRE-CONDITION : 1 <= start <= end <= page count
+     * POST-CONDITION : Returns the text of the range
+     * ======================================================================
+     */
+    private static String extractRange(PDDocument document, int start, int end) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setStartPage(start);
+        stripper.setEndPage(end);
+        return stripper.getText(document);
+    }
+
     /*
      * ======================================================================
      * METHOD NAME : writeOutput
@@ -62,5 +294,7 @@ public class PdfService {
     public void writeOutput() {
         System.out.println("PdfService Status:");
         System.out.println("Ready to extract text from PDF documents.");
+        System.out.println("Cache: " + (cache != null ? cache.getDirectory() : "disabled"));
+        System.out.println("Parallelism: " + parallelism);
     }
 }
@@ -0,0 +1,407 @@
+/**
+======================================================================
+CLASS NAME : RequestDispatcher
+DESCRIPTION : Queues requests per model in front of the ollama client, shortest prompt first with aging
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  default cap scaled by the servers in the default backend pool
+======================================================================
+*/
+package javaollama;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+public class RequestDispatcher {
+
+    // ollama's own default when OLLAMA_NUM_PARALLEL is not set and memory is tight
+    private static final int DEFAULT_NUM_PARALLEL = 1;
+    // a waiting prompt counts as this many tokens shorter for every second it has waited
+    private static final double DEFAULT_AGING_TOKENS_PER_SECOND = 500.0;
+    // each server of the default pool runs its own parallel slots
+    private static final RequestDispatcher DEFAULT = new RequestDispatcher(
+            numParallelFromEnvironment() * BackendPool.getDefault().size(), MetricsRegistry.getDefault());
+
+    private final int maxInFlight;
+    private final double agingTokensPerSecond;
+    private final MetricsRegistry metrics;
+    private final LongSupplier clock;
+    private final ReentrantLock lock;
+    private final Map<String, ModelQueue> models;
+    private final AtomicInteger queued;
+    private final AtomicInteger inFlight;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : RequestDispatcher
+     * DESCRIPTION : Parameterized constructor with the default aging
+     * PRE-CONDITION : maxInFlight > 0
+     * POST-CONDITION : Empty dispatcher, queue gauges registered
+     * ======================================================================
+     */
+    public RequestDispatcher(int maxInFlight, MetricsRegistry metrics) {
+        this(maxInFlight, DEFAULT_AGING_TOKENS_PER_SECOND, metrics);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : RequestDispatcher
+     * DESCRIPTION : Parameterized constructor using the system clock
+     * PRE-CONDITION : maxInFlight > 0, agingTokensPerSecond >= 0
+     * POST-CONDITION : Empty dispatcher, queue gauges registered
+     * ======================================================================
+     */
+    public RequestDispatcher(int maxInFlight, double agingTokensPerSecond, MetricsRegistry metrics) {
+        this(maxInFlight, agingTokensPerSecond, metrics, System::nanoTime);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : RequestDispatcher
+     * DESCRIPTION : Parameterized constructor with an injected clock (testing)
+     * PRE-CONDITION : clock returns nanoseconds
+     * POST-CONDITION : Empty dispatcher, queue gauges registered
+     * ======================================================================
+     */
+    public RequestDispatcher(int maxInFlight, double agingTokensPerSecond, MetricsRegistry metrics,
+            LongSupplier clock) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("At least one request must be allowed: " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+        this.agingTokensPerSecond = agingTokensPerSecond;
+        this.metrics = metrics;
+        this.clock = clock;
+        this.lock = new ReentrantLock();
+        this.models = new HashMap<>();
+        this.queued = new AtomicInteger();
+        this.inFlight = new AtomicInteger();
+        metrics.registerGauge("javallama_dispatch_queued", queued::get);
+        metrics.registerGauge("javallama_dispatch_in_flight", inFlight::get);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getDefault
+     * DESCRIPTION : Returns the dispatcher shared by every service talking to the local server
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the same instance on every call
+     * ======================================================================
+     */
+    public static RequestDispatcher getDefault() {
+        return DEFAULT;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : numParallelFromEnvironment
+     * DESCRIPTION : Reads how many requests per model the server runs at once
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns OLLAMA_NUM_PARALLEL if set and valid, the default otherwise
+     * ======================================================================
+     */
+    public static int numParallelFromEnvironment() {
+        String value = System.getenv("OLLAMA_NUM_PARALLEL");
+        try {
+            int parallel = value != null ? Integer.parseInt(value.trim()) : DEFAULT_NUM_PARALLEL;
+            return parallel > 0 ? parallel : DEFAULT_NUM_PARALLEL;
+        } catch (NumberFormatException e) {
+            return DEFAULT_NUM_PARALLEL;
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : acquire
+     * DESCRIPTION : Waits until a request for the model may be sent to the server
+     * PRE-CONDITION : promptTokens estimates the prompt the server has to evaluate
+     * POST-CONDITION : Returns a slot to close once the response is complete,
+     *                  throws InterruptedException and leaves the queue if interrupted while waiting
+     * ======================================================================
+     */
+    public Slot acquire(String model, int promptTokens) throws InterruptedException {
+        long enqueuedNanos = clock.getAsLong();
+        lock.lock();
+        try {
+            ModelQueue queue = models.computeIfAbsent(model, key -> new ModelQueue());
+            if (queue.inFlight < maxInFlight && queue.waiting.isEmpty()) {
+                queue.inFlight++;
+                inFlight.incrementAndGet();
+                return admitted(model, 0);
+            }
+            Ticket ticket = new Ticket(promptTokens, enqueuedNanos, lock.newCondition());
+            queue.waiting.add(ticket);
+            queued.incrementAndGet();
+            try {
+                while (!ticket.admitted) {
+                    ticket.turn.await();
+                }
+            } catch (InterruptedException e) {
+                if (ticket.admitted) {
+                    // the slot was handed over just as the caller gave up, pass it on
+                    release(model);
+                } else {
+                    queue.waiting.remove(ticket);
+                    queued.decrementAndGet();
+                }
+                throw e;
+            }
+            return admitted(model, clock.getAsLong() - enqueuedNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : admitted
+     * DESCRIPTION : Creates the slot of an admitted request
+     * PRE-CONDITION : Caller holds the lock, the in-flight count already includes the request
+     * POST-CONDITION : Queue wait recorded
+     * ======================================================================
+     */
+    private Slot admitted(String model, long queueWaitNanos) {
+        metrics.recordLatency("javallama_dispatch_queue_wait", queueWaitNanos);
+        return new Slot(this, model, queueWaitNanos, clock.getAsLong());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : release
+     * DESCRIPTION : Frees the slot of a finished request and admits the best waiting one
+     * PRE-CONDITION : The model has a request in flight
+     * POST-CONDITION : In-flight count stays at or below the maximum
+     * ======================================================================
+     */
+    private void release(String model) {
+        lock.lock();
+        try {
+            ModelQueue queue = models.get(model);
+            queue.inFlight--;
+            inFlight.decrementAndGet();
+            long now = clock.getAsLong();
+            while (queue.inFlight < maxInFlight && !queue.waiting.isEmpty()) {
+                Ticket next = pickNext(queue.waiting, now);
+                queue.waiting.remove(next);
+                queued.decrementAndGet();
+                queue.inFlight++;
+                inFlight.incrementAndGet();
+                next.admitted = true;
+                next.turn.signal();
+            }
+            if (queue.inFlight == 0 && queue.waiting.isEmpty()) {
+                models.remove(model);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : pickNext
+     * DESCRIPTION : Chooses the waiting request with the lowest aged prompt size
+     * PRE-CONDITION : waiting is not empty, caller holds the lock
+     * POST-CONDITION : Returns the shortest prompt, a long prompt wins once it has waited long enough
+     * ======================================================================
+     */
+    private Ticket pickNext(List<Ticket> waiting, long now) {
+        // scores change as time passes, so a heap would go stale, the queue is short enough to scan
+        Ticket best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (Ticket ticket : waiting) {
+            double waitedSeconds = (now - ticket.enqueuedNanos) / 1e9;
+            double score = ticket.promptTokens - agingTokensPerSecond * waitedSeconds;
+            if (score < bestScore) {
+                best = ticket;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getQueued
+     * DESCRIPTION : Returns how many requests wait for the given model
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the queue length
+     * ======================================================================
+     */
+    public int getQueued(String model) {
+        lock.lock();
+        try {
+            ModelQueue queue = models.get(model);
+            return queue != null ? queue.waiting.size() : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getInFlight
+     * DESCRIPTION : Returns how many requests for the given model are at the server
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a value between 0 and the maximum
+     * ======================================================================
+     */
+    public int getInFlight(String model) {
+        lock.lock();
+        try {
+            ModelQueue queue = models.get(model);
+            return queue != null ? queue.inFlight : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getMaxInFlight
+     * DESCRIPTION : Returns how many requests per model may be at the server at once
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the cap
+     * ======================================================================
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : writeOutput
+     * DESCRIPTION : Writes the object state to the console
+     * PRE-CONDITION : None
+     * POST-CONDITION : Object state is printed to stdout
+     * ======================================================================
+     */
+    public void writeOutput() {
+        System.out.println("RequestDispatcher Status:");
+        System.out.println("Max In Flight Per Model: " + maxInFlight);
+        System.out.println("Aging: " + agingTokensPerSecond + " tokens/s");
+        System.out.println("In Flight: " + inFlight.get());
+        System.out.println("Queued: " + queued.get());
+    }
+
+    /**
+     * ======================================================================
+     * CLASS NAME : Slot
+     * DESCRIPTION : Permission to send one request, closing it lets the next one in
+     * AUTHOR : Mickel Angelo Castoverde
+     * COPYRIGHT : macastroverde 2025
+     * REVISION HISTORY
+     * Date: By: Description:
+     * 2026-10-16 Mickel Angelo Castoverde Creation of the program
+     * ======================================================================
+     */
+    public static class Slot implements AutoCloseable {
+        private final RequestDispatcher owner;
+        private final String model;
+        private final long queueWaitNanos;
+        private final long admittedNanos;
+        private boolean closed;
+
+        /*
+         * ======================================================================
+         * METHOD NAME : Slot
+         * DESCRIPTION : Parameterized constructor
+         * PRE-CONDITION : Request was admitted by the owner
+         * POST-CONDITION : Service time counts from admittedNanos
+         * ======================================================================
+         */
+        Slot(RequestDispatcher owner, String model, long queueWaitNanos, long admittedNanos) {
+            this.owner = owner;
+            this.model = model;
+            this.queueWaitNanos = queueWaitNanos;
+            this.admittedNanos = admittedNanos;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : getQueueWaitNanos
+         * DESCRIPTION : Returns how long the request waited before it was sent
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns nanoseconds, 0 if a slot was free right away
+         * ======================================================================
+         */
+        public long getQueueWaitNanos() {
+            return queueWaitNanos;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : close
+         * DESCRIPTION : Ends the request
+         * PRE-CONDITION : None
+         * POST-CONDITION : Service time recorded once, the slot goes to the next request
+         * ======================================================================
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            owner.metrics.recordLatency("javallama_dispatch_service", owner.clock.getAsLong() - admittedNanos);
+            owner.release(model);
+        }
+    }
+
+    /**
+     * ======================================================================
+     * CLASS NAME : ModelQueue
+     * DESCRIPTION : Waiting and running requests of one model
+     * AUTHOR : Mickel Angelo Castoverde
+     * COPYRIGHT : macastroverde 2025
+     * REVISION HISTORY
+     * Date: By: Description:
+     * 2026-10-16 Mickel Angelo Castoverde Creation of the program
+     * ======================================================================
+     */
+    private static class ModelQueue {
+        final List<Ticket> waiting = new ArrayList<>();
+        int inFlight;
+    }
+
+    /**
+     * ======================================================================
+     * CLASS NAME : Ticket
+     * DESCRIPTION : A request waiting for its turn
+     * AUTHOR : Mickel Angelo Castoverde
+     * COPYRIGHT : macastroverde 2025
+     * REVISION HISTORY
+     * Date: By: Description:
+     * 2026-10-16 Mickel Angelo Castoverde Creation of the program
+     * ======================================================================
+     */
+    private static class Ticket {
+        final int promptTokens;
+        final long enqueuedNanos;
+        final Condition turn;
+        boolean admitted;
+
+        /*
+         * ======================================================================
+         * METHOD NAME : Ticket
+         * DESCRIPTION : Parameterized constructor
+         * PRE-CONDITION : turn belongs to the dispatcher lock
+         * POST-CONDITION : Ticket waiting
+         * ======================================================================
+         */
+        Ticket(int promptTokens, long enqueuedNanos, Condition turn) {
+            this.promptTokens = promptTokens;
+            this.enqueuedNanos = enqueuedNanos;
+            this.turn = turn;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/**
+======================================================================
+CLASS NAME : RequestProfile
+DESCRIPTION : Prebuilt, immutable system message and model options a chat request is sent with
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  options cached per prefix size, sessions with different prefixes no longer evict each other
+======================================================================
+*/
+package javaollama;
+
+import io.github.ollama4j.models.chat.OllamaChatMessage;
+import io.github.ollama4j.models.chat.OllamaChatMessageRole;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class RequestProfile {
+
+    private static final String SYSTEM_PROMPT = "You are a helpful AI assistant. Answer the user's questions directly and concisely.";
+    private static final String FAST_SYSTEM_PROMPT = "You are a helpful AI assistant. Answer the user's questions in a few sentences.";
+    private static final List<String> STOP_TOKENS = List.of("User:", "System:", "Assistant:", "-----");
+    private static final int DEFAULT_CONTEXT = 16384;
+    private static final int PREFIX_SLOT_BITS = 6; // 64 cached prefix sizes per profile
+
+    // every profile but LONG_CONTEXT keeps num_ctx, a different one makes ollama load the model again
+    public static final RequestProfile DEFAULT = new RequestProfile("default", SYSTEM_PROMPT,
+            DEFAULT_CONTEXT, 0.3, 40, 0.9, 512);
+    public static final RequestProfile FAST = new RequestProfile("fast", FAST_SYSTEM_PROMPT,
+            DEFAULT_CONTEXT, 0.3, 20, 0.9, 192);
+    public static final RequestProfile PRECISE = new RequestProfile("precise", SYSTEM_PROMPT,
+            DEFAULT_CONTEXT, 0.0, 1, 1.0, 512);
+    public static final RequestProfile LONG_CONTEXT = new RequestProfile("long-context", SYSTEM_PROMPT,
+            32768, 0.3, 40, 0.9, 1024);
+
+    private static final List<RequestProfile> PROFILES = List.of(DEFAULT, FAST, PRECISE, LONG_CONTEXT);
+
+    private final String name;
+    private final String systemPrompt;
+    private final OllamaChatMessage systemMessage;
+    private final int systemPromptTokens;
+    private final Map<String, Object> options;
+    // direct-mapped by prefix size, an int lookup without boxing; a collision only costs a rebuild
+    private final PrefixOptions[] prefixOptions;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : RequestProfile
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : Values are valid ollama options
+     * POST-CONDITION : System message and options built once, options cannot be modified
+     * ======================================================================
+     */
+    private RequestProfile(String name, String systemPrompt, int contextTokens, double temperature, int topK,
+            double topP, int maxTokens) {
+        this.name = name;
+        this.systemPrompt = systemPrompt;
+        this.systemMessage = new OllamaChatMessage(OllamaChatMessageRole.SYSTEM, systemPrompt);
+        this.systemPromptTokens = ConversationHistory.Message.estimateTokens(systemPrompt);
+
+        Map<String, Object> built = new HashMap<>();
+        built.put("num_ctx", contextTokens);
+        built.put("num_batch", 2048);
+        built.put("temperature", temperature);
+        built.put("top_k", topK);
+        built.put("top_p", topP);
+        built.put("repeat_penalty", 1.1);
+        built.put("num_predict", maxTokens);
+        built.put("num_keep", systemPromptTokens); // keep the pinned prefix if the context shifts
+        built.put("stop", STOP_TOKENS);
+        this.options = Map.copyOf(built);
+        this.prefixOptions = new PrefixOptions[1 << PREFIX_SLOT_BITS];
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : of
+     * DESCRIPTION : Looks up a profile by name, ignoring case
+     * PRE-CONDITION : name is default, fast, precise or long-context
+     * POST-CONDITION : Returns the profile, throws IllegalArgumentException for any other name
+     * ======================================================================
+     */
+    public static RequestProfile of(String name) {
+        for (RequestProfile profile : PROFILES) {
+            if (profile.name.equalsIgnoreCase(name)) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Unknown request profile: " + name);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getName
+     * DESCRIPTION : Accessor for the profile name
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the lowercase name
+     * ======================================================================
+     */
+    public String getName() {
+        return name;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getSystemPrompt
+     * DESCRIPTION : Accessor for the system prompt
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the prompt every request of the profile starts with
+     * ======================================================================
+     */
+    public String getSystemPrompt() {
+        return systemPrompt;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getSystemMessage
+     * DESCRIPTION : Accessor for the system prompt as a chat message
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the same message for every request
+     * ======================================================================
+     */
+    public OllamaChatMessage getSystemMessage() {
+        return systemMessage;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getSystemPromptTokens
+     * DESCRIPTION : Accessor for the estimated tokens of the system prompt
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the estimate
+     * ======================================================================
+     */
+    public int getSystemPromptTokens() {
+        return systemPromptTokens;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getOptions
+     * DESCRIPTION : Options for a request whose only pinned prefix is the system prompt
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the prebuilt read-only map
+     * ======================================================================
+     */
+    public Map<String, Object> getOptions() {
+        return options;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getOptions
+     * DESCRIPTION : Options for a request with the given pinned prefix
+     * PRE-CONDITION : prefixTokens is the estimated size of the system prompt and pinned context
+     * POST-CONDITION : Returns a read-only map whose num_keep is prefixTokens, the same map for a
+     *                  prefix size while its slot is not taken by another size
+     * ======================================================================
+     */
+    public Map<String, Object> getOptions(int prefixTokens) {
+        if (prefixTokens == systemPromptTokens) {
+            return options;
+        }
+        // fibonacci hashing spreads nearby sizes, such as the pinned documents of two sessions
+        int slot = (prefixTokens * 0x9E3779B9) >>> (Integer.SIZE - PREFIX_SLOT_BITS);
+        // a racy read is safe, the entries are immutable and at worst built twice
+        PrefixOptions cached = prefixOptions[slot];
+        if (cached == null || cached.prefixTokens != prefixTokens) {
+            Map<String, Object> built = new HashMap<>(options);
+            built.put("num_keep", prefixTokens);
+            cached = new PrefixOptions(prefixTokens, Map.copyOf(built));
+            prefixOptions[slot] = cached;
+        }
+        return cached.options;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : toString
+     * DESCRIPTION : Returns string representation
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the name and options
+     * ======================================================================
+     */
+    @Override
+    public String toString() {
+        return "RequestProfile{name='" + name + "', options=" + options + '}';
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : names
+     * DESCRIPTION : Lists the profile names
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the names, comma separated
+     * ======================================================================
+     */
+    public static String names() {
+        StringBuilder names = new StringBuilder();
+        for (RequestProfile profile : PROFILES) {
+            if (names.length() > 0) {
+                names.append(", ");
+            }
+            names.append(profile.name);
+        }
+        return names.toString();
+    }
+
+    /**
+     * ======================================================================
+     * CLASS NAME : PrefixOptions
+     * DESCRIPTION : Options built for one pinned prefix size
+     * ======================================================================
+     */
+    private static final class PrefixOptions {
+        private final int prefixTokens;
+        private final Map<String, Object> options;
+
+        /*
+         * ======================================================================
+         * METHOD NAME : PrefixOptions
+         * DESCRIPTION : Parameterized constructor
+         * PRE-CONDITION : options is read-only
+         * POST-CONDITION : Instance created
+         * ======================================================================
+         */
+        PrefixOptions(int prefixTokens, Map<String, Object> options) {
+            this.prefixTokens = prefixTokens;
+            this.options = options;
+        }
+    }
+}
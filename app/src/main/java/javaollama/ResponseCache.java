@@ -0,0 +1,456 @@
+/**
+======================================================================
+CLASS NAME : ResponseCache
+DESCRIPTION : Cache of generated answers keyed by a hash of model, options and messages,
+              in memory with an optional on-disk tier
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import io.github.ollama4j.models.chat.OllamaChatMessage;
+import io.github.ollama4j.models.chat.OllamaChatRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+public class ResponseCache {
+
+    private static final long DEFAULT_MAX_MEMORY_BYTES = 16L * 1024 * 1024;
+    private static final long DEFAULT_MAX_DISK_BYTES = 64L * 1024 * 1024;
+    private static final int MAGIC = 0x4A4C5231; // "JLR1"
+    private static final String EXTENSION = ".jlr";
+    // object headers and references of an entry on top of its characters
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    private static final int TOKEN_OVERHEAD_BYTES = 48;
+
+    /*
+     * entry layout, big-endian:
+     * int magic | int tokenCount | (int tokenBytes | utf-8 token) * tokenCount
+     */
+
+    private final LinkedHashMap<String, List<String>> memory;
+    private final long maxMemoryBytes;
+    private final Path directory;
+    private final long maxDiskBytes;
+    private final MetricsRegistry metrics;
+    private long memoryBytes;
+    private long hits;
+    private long misses;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : ResponseCache
+     * DESCRIPTION : Parameterized constructor for a memory only cache
+     * PRE-CONDITION : maxMemoryBytes > 0
+     * POST-CONDITION : Empty cache
+     * ======================================================================
+     */
+    public ResponseCache(long maxMemoryBytes, MetricsRegistry metrics) {
+        this(maxMemoryBytes, null, 0, metrics);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : ResponseCache
+     * DESCRIPTION : Parameterized constructor with an on-disk tier
+     * PRE-CONDITION : maxMemoryBytes > 0, directory is null for no disk tier
+     * POST-CONDITION : Empty memory tier, the directory is created on first store
+     * ======================================================================
+     */
+    public ResponseCache(long maxMemoryBytes, Path directory, long maxDiskBytes, MetricsRegistry metrics) {
+        // access order makes iteration start at the least recently used entry
+        this.memory = new LinkedHashMap<>(64, 0.75f, true);
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.metrics = metrics;
+        metrics.registerGauge("javallama_response_cache_bytes", this::getMemoryBytes);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : createDefault
+     * DESCRIPTION : Creates a cache with a disk tier in the user's home directory
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a cache under ~/.javallama/responses
+     * ======================================================================
+     */
+    public static ResponseCache createDefault() {
+        Path dir = Path.of(System.getProperty("user.home"), ".javallama", "responses");
+        return new ResponseCache(DEFAULT_MAX_MEMORY_BYTES, dir, DEFAULT_MAX_DISK_BYTES, MetricsRegistry.getDefault());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : key
+     * DESCRIPTION : Computes the cache key of a chat request
+     * PRE-CONDITION : request is not null
+     * POST-CONDITION : Returns the hex sha-256 of model, sorted options and every message with its role,
+     *                  the system prompt and pinned context are messages so they are covered too
+     * ======================================================================
+     */
+    public static String key(OllamaChatRequest request) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        update(digest, request.getModel());
+        Map<String, Object> options = request.getOptions() != null ? new TreeMap<>(request.getOptions())
+                : new TreeMap<>();
+        digest.update(ByteBuffer.allocate(4).putInt(options.size()).array());
+        for (Map.Entry<String, Object> option : options.entrySet()) {
+            update(digest, option.getKey());
+            update(digest, String.valueOf(option.getValue()));
+        }
+        List<OllamaChatMessage> messages = request.getMessages();
+        digest.update(ByteBuffer.allocate(4).putInt(messages.size()).array());
+        for (OllamaChatMessage message : messages) {
+            update(digest, message.getRole().getRoleName());
+            update(digest, message.getResponse());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : update
+     * DESCRIPTION : Adds a length-prefixed string to the digest
+     * PRE-CONDITION : None
+     * POST-CONDITION : Adjacent fields cannot run into each other, null hashes like ""
+     * ======================================================================
+     */
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : get
+     * DESCRIPTION : Looks up the streamed tokens of a cached answer
+     * PRE-CONDITION : key is a value returned by key
+     * POST-CONDITION : Returns the tokens in order, null on miss; disk hits are promoted to memory
+     * ======================================================================
+     */
+    public synchronized List<String> get(String key) {
+        List<String> tokens = memory.get(key);
+        if (tokens == null && directory != null) {
+            tokens = load(key);
+            if (tokens != null) {
+                putInMemory(key, tokens);
+            }
+        }
+        if (tokens == null) {
+            misses++;
+            metrics.increment("javallama_response_cache_misses_total", 1);
+            return null;
+        }
+        hits++;
+        metrics.increment("javallama_response_cache_hits_total", 1);
+        return tokens;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : put
+     * DESCRIPTION : Stores the streamed tokens of a completed answer
+     * PRE-CONDITION : tokens is the complete answer in the order it was streamed
+     * POST-CONDITION : Entry in memory and on disk, least recently used entries evicted over the limits
+     * ======================================================================
+     */
+    public synchronized void put(String key, List<String> tokens) {
+        List<String> copy = List.copyOf(tokens);
+        putInMemory(key, copy);
+        if (directory != null) {
+            store(key, copy);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : putInMemory
+     * DESCRIPTION : Adds an entry to the memory tier
+     * PRE-CONDITION : Called with the cache locked
+     * POST-CONDITION : Memory tier within its byte limit, an entry larger than the limit is not kept
+     * ======================================================================
+     */
+    private void putInMemory(String key, List<String> tokens) {
+        long size = sizeOf(tokens);
+        if (size > maxMemoryBytes) {
+            return;
+        }
+        List<String> previous = memory.put(key, tokens);
+        if (previous != null) {
+            memoryBytes -= sizeOf(previous);
+        }
+        memoryBytes += size;
+        Iterator<List<String>> eldest = memory.values().iterator();
+        while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+            memoryBytes -= sizeOf(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : sizeOf
+     * DESCRIPTION : Estimates the heap used by an entry
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the estimated bytes
+     * ======================================================================
+     */
+    private static long sizeOf(List<String> tokens) {
+        long size = ENTRY_OVERHEAD_BYTES;
+        for (String token : tokens) {
+            size += TOKEN_OVERHEAD_BYTES + token.length();
+        }
+        return size;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : load
+     * DESCRIPTION : Reads the disk entry for a key
+     * PRE-CONDITION : directory is not null
+     * POST-CONDITION : Returns the tokens and marks the entry recently used, null on miss
+     * ======================================================================
+     */
+    private List<String> load(String key) {
+        Path file = entryPath(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Bad cache entry header");
+            }
+            int count = buffer.getInt();
+            List<String> tokens = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                tokens.add(new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8));
+                buffer.position(buffer.position() + length);
+            }
+            // the file time doubles as the lru clock
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return List.copyOf(tokens);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Discarding unreadable response entry " + file.getFileName() + ": " + e.getMessage());
+            deleteQuietly(file);
+            return null;
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : store
+     * DESCRIPTION : Writes the disk entry for a key and evicts old entries over the size limit
+     * PRE-CONDITION : directory is not null
+     * POST-CONDITION : Entry replaced atomically, failures are logged and ignored
+     * ======================================================================
+     */
+    private void store(String key, List<String> tokens) {
+        List<byte[]> encoded = new ArrayList<>(tokens.size());
+        int size = 8;
+        for (String token : tokens) {
+            byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            size += 4 + bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(encoded.size());
+        for (byte[] bytes : encoded) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+
+        Path file = entryPath(key);
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(temp, buffer.array());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evict();
+        } catch (IOException e) {
+            System.out.println("Failed to write response entry " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : evict
+     * DESCRIPTION : Deletes least recently used disk entries until under the size limit
+     * PRE-CONDITION : Directory exists
+     * POST-CONDITION : Total entry size is at most maxDiskBytes
+     * ======================================================================
+     */
+    private void evict() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(p -> p.getFileName().toString().endsWith(EXTENSION)).forEach(entries::add);
+        }
+
+        long total = 0;
+        for (Path entry : entries) {
+            total += Files.size(entry);
+        }
+        if (total <= maxDiskBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparingLong(ResponseCache::lastUsed));
+        for (Path entry : entries) {
+            if (total <= maxDiskBytes) {
+                break;
+            }
+            long size = Files.size(entry);
+            if (deleteQuietly(entry)) {
+                total -= size;
+            }
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : entryPath
+     * DESCRIPTION : Resolves the entry file for a key
+     * PRE-CONDITION : key is hex encoded
+     * POST-CONDITION : Returns the path inside the cache directory
+     * ======================================================================
+     */
+    private Path entryPath(String key) {
+        return directory.resolve(key + EXTENSION);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : lastUsed
+     * DESCRIPTION : Reads the lru timestamp of an entry
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the modification time, 0 if unreadable
+     * ======================================================================
+     */
+    private static long lastUsed(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : deleteQuietly
+     * DESCRIPTION : Deletes a file, ignoring failures
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns true if the file was deleted
+     * ======================================================================
+     */
+    private static boolean deleteQuietly(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getHitCount
+     * DESCRIPTION : Returns the lookups answered from the cache
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the hit count
+     * ======================================================================
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getMissCount
+     * DESCRIPTION : Returns the lookups that had to go to the model
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the miss count
+     * ======================================================================
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getHitRatio
+     * DESCRIPTION : Returns the share of lookups answered from the cache
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a value between 0 and 1, 0 before the first lookup
+     * ======================================================================
+     */
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups > 0 ? (double) hits / lookups : 0.0;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getMemoryBytes
+     * DESCRIPTION : Returns the estimated heap used by the memory tier
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the byte estimate
+     * ======================================================================
+     */
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : size
+     * DESCRIPTION : Returns the number of entries in memory
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the memory tier entry count
+     * ======================================================================
+     */
+    public synchronized int size() {
+        return memory.size();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : writeOutput
+     * DESCRIPTION : Writes the object state to the console
+     * PRE-CONDITION : None
+     * POST-CONDITION : Object state is printed to stdout
+     * ======================================================================
+     */
+    public synchronized void writeOutput() {
+        System.out.println("ResponseCache Status:");
+        System.out.println("Entries In Memory: " + memory.size() + " (" + memoryBytes + " bytes)");
+        System.out.println("Directory: " + (directory != null ? directory : "none"));
+        System.out.println(String.format("Hit Ratio: %.2f (%d hits, %d misses)", getHitRatio(), hits, misses));
+    }
+}
@@ -0,0 +1,954 @@
+/**
+======================================================================
+CLASS NAME : SearchIndex
+DESCRIPTION : In-memory inverted index with positions over past messages and loaded documents,
+              answering term, "phrase" and prefix* queries ranked by bm25
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class SearchIndex implements AutoCloseable {
+
+    // bm25 term frequency saturation and length normalization
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // a prefix matching more terms than this only uses the most frequent ones
+    private static final int MAX_PREFIX_TERMS = 64;
+    private static final int SNIPPET_BEFORE = 60;
+    private static final int SNIPPET_AFTER = 120;
+    private static final int PASSAGE_CHARS = 2000;
+
+    // sorted so a prefix is a contiguous range of terms
+    private final TreeMap<String, Postings> terms;
+    private final List<String> sources;
+    private final List<byte[]> texts;
+    private int[] lengths;
+    private long totalLength;
+    private final Set<String> indexedKeys;
+    private final ReentrantReadWriteLock lock;
+    private final ExecutorService indexer;
+    private final TextChunker passages;
+    private final MetricsRegistry metrics;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : SearchIndex
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : None
+     * POST-CONDITION : Empty index with its background indexing thread
+     * ======================================================================
+     */
+    public SearchIndex(MetricsRegistry metrics) {
+        this.terms = new TreeMap<>();
+        this.sources = new ArrayList<>();
+        this.texts = new ArrayList<>();
+        this.lengths = new int[64];
+        this.indexedKeys = new HashSet<>();
+        this.lock = new ReentrantReadWriteLock();
+        this.passages = new TextChunker(PASSAGE_CHARS, 0);
+        this.metrics = metrics;
+        this.indexer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "search-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        metrics.registerGauge("javallama_search_documents", this::size);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : indexAsync
+     * DESCRIPTION : Queues a text for indexing on the background thread
+     * PRE-CONDITION : source names where the text came from
+     * POST-CONDITION : Text searchable once the indexer reaches it, in submission order
+     * ======================================================================
+     */
+    public void indexAsync(String source, String text) {
+        indexer.execute(() -> add(source, text));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : indexDocumentAsync
+     * DESCRIPTION : Queues a long document for indexing in passages, once per key
+     * PRE-CONDITION : key identifies the content, such as its hash
+     * POST-CONDITION : Each passage searchable on its own, a key already indexed is skipped
+     * ======================================================================
+     */
+    public void indexDocumentAsync(String source, String key, String text) {
+        indexer.execute(() -> {
+            lock.writeLock().lock();
+            try {
+                if (!indexedKeys.add(key)) {
+                    return;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            int[] bounds = passages.split(text);
+            for (int i = 0; i < bounds.length; i += 2) {
+                add(source, text.substring(bounds[i], bounds[i + 1]));
+            }
+        });
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : indexConversationAsync
+     * DESCRIPTION : Queues the messages already in a conversation store for indexing
+     * PRE-CONDITION : store is open, later messages are indexed through the history
+     * POST-CONDITION : Messages stored before the call are read and indexed in batches
+     *                  on the background thread
+     * ======================================================================
+     */
+    public void indexConversationAsync(String source, ConversationStore store) {
+        int end = store.size();
+        indexer.execute(() -> {
+            try {
+                for (int from = 0; from < end; from += 1024) {
+                    for (ConversationHistory.Message message : store.readRange(from, Math.min(end, from + 1024))) {
+                        add(source + " (" + message.getRole() + ")", message.getContent());
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Failed to index stored conversation: " + e.getMessage());
+            }
+        });
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : flush
+     * DESCRIPTION : Waits until every queued text is indexed
+     * PRE-CONDITION : Index is not closed
+     * POST-CONDITION : Texts queued before the call are searchable
+     * ======================================================================
+     */
+    public void flush() throws InterruptedException {
+        try {
+            indexer.submit(() -> {
+            }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : add
+     * DESCRIPTION : Indexes a text on the calling thread
+     * PRE-CONDITION : source names where the text came from
+     * POST-CONDITION : Text searchable, returns its document id
+     * ======================================================================
+     */
+    public int add(String source, String text) {
+        long start = System.nanoTime();
+        // group the positions by term before taking the lock, so searches wait only for the merge
+        Map<String, int[]> positions = new HashMap<>();
+        int length = tokenize(text, (term, position, offset) -> {
+            int[] list = positions.get(term);
+            if (list == null) {
+                list = new int[4];
+                positions.put(term, list);
+            } else if (list[0] + 1 == list.length) {
+                list = Arrays.copyOf(list, list.length * 2);
+                positions.put(term, list);
+            }
+            list[++list[0]] = position;
+        });
+        byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+
+        int doc;
+        lock.writeLock().lock();
+        try {
+            doc = sources.size();
+            sources.add(source);
+            texts.add(encoded);
+            if (doc == lengths.length) {
+                lengths = Arrays.copyOf(lengths, lengths.length * 2);
+            }
+            lengths[doc] = length;
+            totalLength += length;
+            for (Map.Entry<String, int[]> entry : positions.entrySet()) {
+                terms.computeIfAbsent(entry.getKey(), term -> new Postings()).add(doc, entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.recordLatency("javallama_search_index", System.nanoTime() - start);
+        return doc;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : search
+     * DESCRIPTION : Finds the documents matching every part of a query
+     * PRE-CONDITION : Query words are terms, "quoted words" are phrases and word* is a prefix
+     * POST-CONDITION : Returns up to limit hits, best bm25 score first, each with a snippet
+     * ======================================================================
+     */
+    public List<Hit> search(String query, int limit) {
+        long start = System.nanoTime();
+        List<Clause> clauses = parse(query);
+        List<Hit> hits = new ArrayList<>();
+        if (clauses.isEmpty() || limit <= 0) {
+            return hits;
+        }
+
+        lock.readLock().lock();
+        try {
+            int documents = sources.size();
+            List<Cursor> requiredList = new ArrayList<>();
+            List<Cursor> optionalList = new ArrayList<>();
+            List<Clause> phraseList = new ArrayList<>();
+            for (Clause clause : clauses) {
+                // a clause without postings means no document can match every clause
+                if (!clause.resolve(terms, documents)) {
+                    return hits;
+                }
+                if (clause.prefix) {
+                    requiredList.add(clause.union);
+                    optionalList.addAll(clause.cursors);
+                } else {
+                    requiredList.addAll(clause.cursors);
+                }
+                if (clause.phrase) {
+                    phraseList.add(clause);
+                }
+            }
+            // plain arrays in the loop below, it runs once per candidate document
+            Cursor[] required = requiredList.toArray(new Cursor[0]);
+            Cursor[] optional = optionalList.toArray(new Cursor[0]);
+            Clause[] phrases = phraseList.toArray(new Clause[0]);
+
+            // leapfrog over the required lists, driven by the shortest; the others gallop forward,
+            // so the work follows the rarest part of the query instead of the most common
+            Cursor driver = required[0];
+            for (Cursor cursor : required) {
+                if (cursor.count < driver.count) {
+                    driver = cursor;
+                }
+            }
+            double averageLength = (double) totalLength / Math.max(1, documents);
+            PriorityQueue<double[]> best = new PriorityQueue<>(limit + 1, (a, b) -> Double.compare(a[0], b[0]));
+            int i = 0;
+            candidates:
+            while (i < driver.count) {
+                int doc = driver.docs[i];
+                driver.entry = i;
+                for (Cursor cursor : required) {
+                    if (cursor != driver && !cursor.advanceTo(doc)) {
+                        if (cursor.exhausted()) {
+                            break candidates;
+                        }
+                        i = driver.gallop(i + 1, cursor.current());
+                        continue candidates;
+                    }
+                }
+                i++;
+                for (Clause clause : phrases) {
+                    if (!clause.containsPhrase()) {
+                        continue candidates;
+                    }
+                }
+
+                // every required cursor now points at the document
+                double norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                double score = 0;
+                for (Cursor cursor : required) {
+                    score += cursor.score(norm);
+                }
+                for (Cursor cursor : optional) {
+                    if (cursor.advanceTo(doc)) {
+                        score += cursor.score(norm);
+                    }
+                }
+                if (best.size() < limit) {
+                    best.add(new double[] { score, doc });
+                } else if (score > best.peek()[0]) {
+                    best.poll();
+                    best.add(new double[] { score, doc });
+                }
+            }
+
+            while (!best.isEmpty()) {
+                double[] top = best.poll();
+                int doc = (int) top[1];
+                String text = new String(texts.get(doc), StandardCharsets.UTF_8);
+                hits.add(new Hit(doc, sources.get(doc), top[0], snippet(text, clauses)));
+            }
+            Collections.reverse(hits);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+            metrics.recordLatency("javallama_search_query", System.nanoTime() - start);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : parse
+     * DESCRIPTION : Splits a query into term, phrase and prefix clauses
+     * PRE-CONDITION : query is not null
+     * POST-CONDITION : Returns the clauses, a word the tokenizer splits becomes a phrase
+     * ======================================================================
+     */
+    static List<Clause> parse(String query) {
+        List<Clause> clauses = new ArrayList<>();
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int end;
+            String part;
+            if (c == '"') {
+                end = query.indexOf('"', i + 1);
+                end = end < 0 ? query.length() : end;
+                part = query.substring(i + 1, end);
+                end++;
+            } else {
+                end = i;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end))) {
+                    end++;
+                }
+                part = query.substring(i, end);
+            }
+            i = end;
+
+            List<String> words = new ArrayList<>();
+            tokenize(part, (term, position, offset) -> words.add(term));
+            if (words.isEmpty()) {
+                continue;
+            }
+            boolean prefix = c != '"' && part.endsWith("*") && words.size() == 1;
+            clauses.add(new Clause(words, prefix));
+        }
+        return clauses;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : tokenize
+     * DESCRIPTION : Splits a text into lower case runs of letters and digits
+     * PRE-CONDITION : None
+     * POST-CONDITION : Sink gets each term with its position and character offset, returns the count
+     * ======================================================================
+     */
+    static int tokenize(String text, TokenSink sink) {
+        int position = 0;
+        int length = text.length();
+        StringBuilder term = new StringBuilder(16);
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            int start = i;
+            term.setLength(0);
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                term.append(Character.toLowerCase(text.charAt(i)));
+                i++;
+            }
+            sink.accept(term.toString(), position++, start);
+        }
+        return position;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : intersect
+     * DESCRIPTION : Intersects two sorted document lists
+     * PRE-CONDITION : Both arrays ascending
+     * POST-CONDITION : Returns the common documents, ascending
+     * ======================================================================
+     */
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : snippet
+     * DESCRIPTION : Cuts the text around the first occurrence of a query term
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a short single-line excerpt, marked with "..." where it was cut
+     * ======================================================================
+     */
+    private static String snippet(String text, List<Clause> clauses) {
+        int[] first = { -1 };
+        tokenize(text, (term, position, offset) -> {
+            if (first[0] >= 0) {
+                return;
+            }
+            for (Clause clause : clauses) {
+                String word = clause.words.get(0);
+                if (clause.prefix ? term.startsWith(word) : term.equals(word)) {
+                    first[0] = offset;
+                    return;
+                }
+            }
+        });
+        int at = Math.max(0, first[0]);
+        int start = Math.max(0, at - SNIPPET_BEFORE);
+        int end = Math.min(text.length(), at + SNIPPET_AFTER);
+        while (start > 0 && !Character.isWhitespace(text.charAt(start - 1)) && at - start < SNIPPET_BEFORE + 20) {
+            start--;
+        }
+        String excerpt = text.substring(start, end).replaceAll("\\s+", " ").trim();
+        return (start > 0 ? "..." : "") + excerpt + (end < text.length() ? "..." : "");
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : size
+     * DESCRIPTION : Returns the number of indexed documents
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the count of messages and passages
+     * ======================================================================
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return sources.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getTermCount
+     * DESCRIPTION : Returns the number of distinct terms
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the dictionary size
+     * ======================================================================
+     */
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : close
+     * DESCRIPTION : Stops the background indexing thread
+     * PRE-CONDITION : None
+     * POST-CONDITION : Queued texts are dropped, searches still work
+     * ======================================================================
+     */
+    @Override
+    public void close() {
+        indexer.shutdownNow();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : writeOutput
+     * DESCRIPTION : Writes the object state to the console
+     * PRE-CONDITION : None
+     * POST-CONDITION : Object state is printed to stdout
+     * ======================================================================
+     */
+    public void writeOutput() {
+        lock.readLock().lock();
+        try {
+            System.out.println("SearchIndex Status:");
+            System.out.println("Documents: " + sources.size());
+            System.out.println("Terms: " + terms.size());
+            System.out.println("Indexed Tokens: " + totalLength);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * ======================================================================
+     * CLASS NAME : TokenSink
+     * DESCRIPTION : Receives the terms of a tokenized text
+     * ======================================================================
+     */
+    interface TokenSink {
+        void accept(String term, int position, int offset);
+    }
+
+    /**
+     * ======================================================================
+     * CLASS NAME : Hit
+     * DESCRIPTION : One search result
+     * AUTHOR : Mickel Angelo Castoverde
+     * COPYRIGHT : macastroverde 2025
+     * REVISION HISTORY
+     * Date: By: Description:
+     * 2026-10-16 Mickel Angelo Castoverde Creation of the program
+     * ======================================================================
+     */
+    public static class Hit {
+        private final int document;
+        private final String source;
+        private final double score;
+        private final String snippet;
+
+        /*
+         * ======================================================================
+         * METHOD NAME : Hit
+         * DESCRIPTION : Parameterized constructor
+         * PRE-CONDITION : None
+         * POST-CONDITION : Hit created
+         * ======================================================================
+         */
+        Hit(int document, String source, double score, String snippet) {
+            this.document = document;
+            this.source = source;
+            this.score = score;
+            this.snippet = snippet;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : getDocument
+         * DESCRIPTION : Accessor for the document id
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns the id returned by add
+         * ======================================================================
+         */
+        public int getDocument() {
+            return document;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : getSource
+         * DESCRIPTION : Accessor for where the text came from
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns the source name
+         * ======================================================================
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : getScore
+         * DESCRIPTION : Accessor for the relevance score
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns the bm25 score
+         * ======================================================================
+         */
+        public double getScore() {
+            return score;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : getSnippet
+         * DESCRIPTION : Accessor for the excerpt around the match
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns the snippet
+         * ======================================================================
+         */
+        public String getSnippet() {
+            return snippet;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : toString
+         * DESCRIPTION : Returns string representation
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns formatted string
+         * ======================================================================
+         */
+        @Override
+        public String toString() {
+            return String.format("[%s] %s", source, snippet);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * CLASS NAME : Clause
+     * DESCRIPTION : A term, phrase or prefix of a query with the cursors over its postings
+     * ======================================================================
+     */
+    static class Clause {
+        private final List<String> words;
+        private final boolean prefix;
+        private final boolean phrase;
+        private final List<Cursor> cursors;
+        private Cursor union;
+        private int[][] positions;
+        private int[] frequencies;
+
+        /*
+         * ======================================================================
+         * METHOD NAME : Clause
+         * DESCRIPTION : Parameterized constructor
+         * PRE-CONDITION : words is not empty, a prefix has one word
+         * POST-CONDITION : Unresolved clause
+         * ======================================================================
+         */
+        Clause(List<String> words, boolean prefix) {
+            this.words = words;
+            this.prefix = prefix;
+            this.phrase = words.size() > 1;
+            this.cursors = new ArrayList<>();
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : resolve
+         * DESCRIPTION : Opens cursors over the postings of the clause
+         * PRE-CONDITION : Caller holds the read lock
+         * POST-CONDITION : One cursor per word, or per expanded prefix term plus one over their union;
+         *                  returns false if a word is unknown or no term has the prefix
+         * ======================================================================
+         */
+        boolean resolve(TreeMap<String, Postings> terms, int documents) {
+            cursors.clear();
+            if (prefix) {
+                String word = words.get(0);
+                List<Postings> expanded = new ArrayList<>(terms.subMap(word, word + Character.MAX_VALUE).values());
+                if (expanded.isEmpty()) {
+                    return false;
+                }
+                if (expanded.size() > MAX_PREFIX_TERMS) {
+                    expanded.sort((a, b) -> Integer.compare(b.count, a.count));
+                    expanded = expanded.subList(0, MAX_PREFIX_TERMS);
+                }
+                for (Postings list : expanded) {
+                    cursors.add(new Cursor(list, documents));
+                }
+                union = new Cursor(union(expanded, documents));
+                return true;
+            }
+            for (String word : words) {
+                Postings list = terms.get(word);
+                if (list == null) {
+                    return false;
+                }
+                cursors.add(new Cursor(list, documents));
+            }
+            positions = new int[words.size()][16];
+            frequencies = new int[words.size()];
+            return true;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : union
+         * DESCRIPTION : Merges the documents of the expanded prefix terms
+         * PRE-CONDITION : lists is not empty, every document id is below documents
+         * POST-CONDITION : Returns the ascending unique document ids
+         * ======================================================================
+         */
+        private static int[] union(List<Postings> lists, int documents) {
+            // a bitmap keeps the merge linear in the postings, no sort of the concatenated lists
+            long[] bits = new long[(documents + 63) >>> 6];
+            for (Postings list : lists) {
+                for (int i = 0; i < list.count; i++) {
+                    bits[list.docs[i] >>> 6] |= 1L << list.docs[i];
+                }
+            }
+            int unique = 0;
+            for (long word : bits) {
+                unique += Long.bitCount(word);
+            }
+            int[] docs = new int[unique];
+            int at = 0;
+            for (int w = 0; w < bits.length; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    docs[at++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return docs;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : containsPhrase
+         * DESCRIPTION : Checks that the words occur next to each other in the current document
+         * PRE-CONDITION : Every cursor of the phrase points at the document
+         * POST-CONDITION : Returns true if word i is at position p + i for some p
+         * ======================================================================
+         */
+        boolean containsPhrase() {
+            for (int w = 0; w < cursors.size(); w++) {
+                Cursor cursor = cursors.get(w);
+                positions[w] = cursor.postings.positions(cursor.entry, positions[w]);
+                frequencies[w] = cursor.postings.freqs[cursor.entry];
+            }
+            int[] starts = positions[0];
+            for (int i = 0; i < frequencies[0]; i++) {
+                boolean found = true;
+                for (int w = 1; w < cursors.size() && found; w++) {
+                    found = Arrays.binarySearch(positions[w], 0, frequencies[w], starts[i] + w) >= 0;
+                }
+                if (found) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /*
+     * ======================================================================
+     * CLASS NAME : Cursor
+     * DESCRIPTION : Forward-only position in an ascending document list
+     * ======================================================================
+     */
+    static class Cursor {
+        private final int[] docs;
+        private final int count;
+        private final Postings postings;
+        private final double idf;
+        private int entry;
+
+        /*
+         * ======================================================================
+         * METHOD NAME : Cursor
+         * DESCRIPTION : Parameterized constructor for a term
+         * PRE-CONDITION : postings is not empty
+         * POST-CONDITION : Cursor at the first document, idf of the term computed once
+         * ======================================================================
+         */
+        Cursor(Postings postings, int documents) {
+            this.docs = postings.docs;
+            this.count = postings.count;
+            this.postings = postings;
+            this.idf = Math.log(1 + (documents - count + 0.5) / (count + 0.5));
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : Cursor
+         * DESCRIPTION : Parameterized constructor for a plain document list
+         * PRE-CONDITION : docs is ascending
+         * POST-CONDITION : Cursor at the first document, contributes nothing to the score
+         * ======================================================================
+         */
+        Cursor(int[] docs) {
+            this.docs = docs;
+            this.count = docs.length;
+            this.postings = null;
+            this.idf = 0;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : advanceTo
+         * DESCRIPTION : Moves forward to the first document at or after doc
+         * PRE-CONDITION : doc is not before the previous target
+         * POST-CONDITION : Returns true if the cursor is on doc
+         * ======================================================================
+         */
+        boolean advanceTo(int doc) {
+            if (entry < count && docs[entry] < doc) {
+                entry = gallop(entry + 1, doc);
+            }
+            return entry < count && docs[entry] == doc;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : gallop
+         * DESCRIPTION : Finds the first entry at or after from whose document is at least doc
+         * PRE-CONDITION : from >= 0
+         * POST-CONDITION : Returns the entry, count if there is none; steps double before the
+         *                  binary search so a short jump stays cheap
+         * ======================================================================
+         */
+        int gallop(int from, int doc) {
+            int low = from;
+            int step = 1;
+            int high = from;
+            while (high < count && docs[high] < doc) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            high = Math.min(high, count);
+            int found = Arrays.binarySearch(docs, low, high, doc);
+            return found >= 0 ? found : -found - 1;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : current
+         * DESCRIPTION : Returns the document the cursor is on
+         * PRE-CONDITION : Not exhausted
+         * POST-CONDITION : Returns the document id
+         * ======================================================================
+         */
+        int current() {
+            return docs[entry];
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : exhausted
+         * DESCRIPTION : Checks whether the cursor moved past its last document
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns true if no document is left
+         * ======================================================================
+         */
+        boolean exhausted() {
+            return entry >= count;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : score
+         * DESCRIPTION : Scores the term in the current document with okapi bm25
+         * PRE-CONDITION : Cursor is on the document, norm is its length normalization
+         * POST-CONDITION : Returns the weight, 0 for a plain document list
+         * ======================================================================
+         */
+        double score(double norm) {
+            if (postings == null) {
+                return 0;
+            }
+            int frequency = postings.freqs[entry];
+            return idf * frequency * (K1 + 1) / (frequency + norm);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * CLASS NAME : Postings
+     * DESCRIPTION : Documents, frequencies and delta-encoded varint positions of one term
+     * ======================================================================
+     */
+    static class Postings {
+        private int[] docs = new int[2];
+        private int[] freqs = new int[2];
+        private int[] positionStarts = new int[2];
+        private byte[] positions = new byte[8];
+        private int positionBytes;
+        private int count;
+
+        /*
+         * ======================================================================
+         * METHOD NAME : add
+         * DESCRIPTION : Appends a document to the list
+         * PRE-CONDITION : doc is larger than every document already added, list[0] is the
+         *                 count of ascending positions that follow it
+         * POST-CONDITION : Document, frequency and positions stored
+         * ======================================================================
+         */
+        void add(int doc, int[] list) {
+            if (count == docs.length) {
+                docs = Arrays.copyOf(docs, count * 2);
+                freqs = Arrays.copyOf(freqs, count * 2);
+                positionStarts = Arrays.copyOf(positionStarts, count * 2);
+            }
+            docs[count] = doc;
+            freqs[count] = list[0];
+            positionStarts[count] = positionBytes;
+            count++;
+            int previous = 0;
+            for (int i = 1; i <= list[0]; i++) {
+                writeVarInt(list[i] - previous);
+                previous = list[i];
+            }
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : writeVarInt
+         * DESCRIPTION : Appends a non-negative int in 7-bit groups
+         * PRE-CONDITION : value >= 0
+         * POST-CONDITION : One to five bytes written
+         * ======================================================================
+         */
+        private void writeVarInt(int value) {
+            if (positionBytes + 5 > positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(positions.length * 2, positionBytes + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                positions[positionBytes++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            positions[positionBytes++] = (byte) value;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : positions
+         * DESCRIPTION : Decodes the positions of an entry
+         * PRE-CONDITION : 0 <= entry < count, reuse may be too small
+         * POST-CONDITION : Returns reuse, or a larger array, with the first freqs[entry] slots
+         *                  holding the positions ascending
+         * ======================================================================
+         */
+        int[] positions(int entry, int[] reuse) {
+            int frequency = freqs[entry];
+            int[] out = reuse.length >= frequency ? reuse : new int[Integer.highestOneBit(frequency) << 1];
+            int at = positionStarts[entry];
+            int position = 0;
+            for (int i = 0; i < frequency; i++) {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = positions[at++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                position += value;
+                out[i] = position;
+            }
+            return out;
+        }
+    }
+}
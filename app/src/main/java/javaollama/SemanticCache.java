@@ -0,0 +1,272 @@
+/**
+======================================================================
+CLASS NAME : SemanticCache
+DESCRIPTION : Cache of answers found by embedding similarity of the question, so paraphrases of
+              an earlier question on the same document get its answer
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+public class SemanticCache {
+
+    // cosine similarity above which two questions are taken to mean the same
+    private static final double DEFAULT_THRESHOLD = 0.92;
+    private static final int DEFAULT_MAX_ENTRIES = 2048;
+
+    private final Embedder embedder;
+    private final double threshold;
+    private final int maxEntries;
+    private final MetricsRegistry metrics;
+    // one index per document and conversation state, least recently used first
+    private final LinkedHashMap<String, Scope> scopes;
+    private int entries;
+    private long hits;
+    private long misses;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getDefaultThreshold
+     * DESCRIPTION : Returns the default similarity threshold
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the cosine threshold
+     * ======================================================================
+     */
+    public static double getDefaultThreshold() {
+        return DEFAULT_THRESHOLD;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : SemanticCache
+     * DESCRIPTION : Parameterized constructor with the default threshold and size
+     * PRE-CONDITION : embedder is not null
+     * POST-CONDITION : Empty cache
+     * ======================================================================
+     */
+    public SemanticCache(Embedder embedder, MetricsRegistry metrics) {
+        this(embedder, DEFAULT_THRESHOLD, DEFAULT_MAX_ENTRIES, metrics);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : SemanticCache
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : threshold between -1 and 1, maxEntries > 0
+     * POST-CONDITION : Empty cache
+     * ======================================================================
+     */
+    public SemanticCache(Embedder embedder, double threshold, int maxEntries, MetricsRegistry metrics) {
+        this.embedder = embedder;
+        this.threshold = threshold;
+        this.maxEntries = maxEntries;
+        this.metrics = metrics;
+        this.scopes = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : scope
+     * DESCRIPTION : Fingerprints what a question is asked against
+     * PRE-CONDITION : context is the document text or its content hash, earlier excludes the question
+     * POST-CONDITION : Returns the hex sha-256 of model, context, summary and earlier turns,
+     *                  only questions with the same fingerprint can answer each other
+     * ======================================================================
+     */
+    public static String scope(String model, String context, String summary,
+            List<ConversationHistory.Message> earlier) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        update(digest, model);
+        update(digest, context);
+        update(digest, summary);
+        for (ConversationHistory.Message message : earlier) {
+            update(digest, message.getRole());
+            update(digest, message.getContent());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : update
+     * DESCRIPTION : Adds a length-prefixed string to the digest
+     * PRE-CONDITION : None
+     * POST-CONDITION : Adjacent fields cannot run into each other, null hashes like ""
+     * ======================================================================
+     */
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : embed
+     * DESCRIPTION : Embeds a question for lookup and put
+     * PRE-CONDITION : question is not null
+     * POST-CONDITION : Returns the vector, throws if the embedding model is not available
+     * ======================================================================
+     */
+    public float[] embed(String question) throws OllamaServiceException {
+        return embedder.embed(List.of(question))[0];
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : lookup
+     * DESCRIPTION : Finds the answer to the most similar earlier question in the scope
+     * PRE-CONDITION : vector was returned by embed
+     * POST-CONDITION : Returns the answer tokens if the similarity reaches the threshold, null otherwise
+     * ======================================================================
+     */
+    public synchronized List<String> lookup(String scope, float[] vector) {
+        long start = System.nanoTime();
+        Scope entry = scopes.get(scope);
+        List<String> answer = null;
+        if (entry != null && entry.index.getDimension() == vector.length && entry.index.size() > 0) {
+            int[] nearest = entry.index.searchExact(vector, 1);
+            if (nearest.length > 0 && entry.index.similarity(vector, nearest[0]) >= threshold) {
+                answer = entry.answers.get(nearest[0]);
+            }
+        }
+        metrics.recordLatency("javallama_semantic_cache_lookup", System.nanoTime() - start);
+        if (answer == null) {
+            misses++;
+            metrics.increment("javallama_semantic_cache_misses_total", 1);
+            return null;
+        }
+        hits++;
+        metrics.increment("javallama_semantic_cache_hits_total", 1);
+        return answer;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : put
+     * DESCRIPTION : Remembers the answer to a question
+     * PRE-CONDITION : vector was returned by embed for the question, tokens is the complete answer
+     * POST-CONDITION : Answer found by similar questions in the scope, least recently used scopes
+     *                  dropped once there are more than maxEntries answers
+     * ======================================================================
+     */
+    public synchronized void put(String scope, float[] vector, List<String> tokens) {
+        Scope entry = scopes.get(scope);
+        if (entry == null || entry.index.getDimension() != vector.length) {
+            if (entry != null) {
+                entries -= entry.answers.size();
+            }
+            entry = new Scope(vector.length);
+            scopes.put(scope, entry);
+        }
+        entry.index.add(vector);
+        entry.answers.add(List.copyOf(tokens));
+        entries++;
+
+        Iterator<Scope> eldest = scopes.values().iterator();
+        while (entries > maxEntries && eldest.hasNext()) {
+            Scope dropped = eldest.next();
+            if (dropped == entry) {
+                break;
+            }
+            entries -= dropped.answers.size();
+            eldest.remove();
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getThreshold
+     * DESCRIPTION : Gets the similarity a question needs to reuse an answer
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the cosine threshold
+     * ======================================================================
+     */
+    public double getThreshold() {
+        return threshold;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getHitRatio
+     * DESCRIPTION : Returns the share of lookups answered from the cache
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a value between 0 and 1, 0 before the first lookup
+     * ======================================================================
+     */
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups > 0 ? (double) hits / lookups : 0.0;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : size
+     * DESCRIPTION : Returns the number of cached answers
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the answer count over all scopes
+     * ======================================================================
+     */
+    public synchronized int size() {
+        return entries;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : writeOutput
+     * DESCRIPTION : Writes the object state to the console
+     * PRE-CONDITION : None
+     * POST-CONDITION : Object state is printed to stdout
+     * ======================================================================
+     */
+    public synchronized void writeOutput() {
+        System.out.println("SemanticCache Status:");
+        System.out.println("Embedding Model: " + embedder.getModelName());
+        System.out.println("Threshold: " + threshold);
+        System.out.println("Answers: " + entries + " in " + scopes.size() + " scopes");
+        System.out.println(String.format("Hit Ratio: %.2f (%d hits, %d misses)", getHitRatio(), hits, misses));
+    }
+
+    /*
+     * ======================================================================
+     * CLASS NAME : Scope
+     * DESCRIPTION : Question vectors and their answers for one document and conversation state
+     * ======================================================================
+     */
+    private static class Scope {
+        private final VectorIndex index;
+        private final List<List<String>> answers;
+
+        /*
+         * ======================================================================
+         * METHOD NAME : Scope
+         * DESCRIPTION : Parameterized constructor
+         * PRE-CONDITION : dimension > 0
+         * POST-CONDITION : Empty scope
+         * ======================================================================
+         */
+        Scope(int dimension) {
+            this.index = new VectorIndex(dimension);
+            this.answers = new ArrayList<>();
+        }
+    }
+}
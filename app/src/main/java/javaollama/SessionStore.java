@@ -0,0 +1,223 @@
+/**
+======================================================================
+CLASS NAME : SessionStore
+DESCRIPTION : Concurrent map of chat sessions that evicts sessions left idle
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+public class SessionStore implements AutoCloseable {
+
+    private final Map<String, ChatSession> sessions;
+    private final Supplier<OllamaService> serviceFactory;
+    private final long idleTimeoutNanos;
+    private final int maxSessions;
+    private final LongSupplier clock;
+    private final MetricsRegistry metrics;
+    private ScheduledExecutorService sweeper;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : SessionStore
+     * DESCRIPTION : Parameterized constructor using the system clock
+     * PRE-CONDITION : idleTimeoutMillis > 0, maxSessions > 0
+     * POST-CONDITION : Empty store, eviction runs only when startEviction is called
+     * ======================================================================
+     */
+    public SessionStore(Supplier<OllamaService> serviceFactory, long idleTimeoutMillis, int maxSessions,
+            MetricsRegistry metrics) {
+        this(serviceFactory, idleTimeoutMillis, maxSessions, metrics, System::nanoTime);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : SessionStore
+     * DESCRIPTION : Parameterized constructor with an injected clock (testing)
+     * PRE-CONDITION : clock returns nanoseconds
+     * POST-CONDITION : Empty store, active session gauge registered
+     * ======================================================================
+     */
+    public SessionStore(Supplier<OllamaService> serviceFactory, long idleTimeoutMillis, int maxSessions,
+            MetricsRegistry metrics, LongSupplier clock) {
+        this.sessions = new ConcurrentHashMap<>();
+        this.serviceFactory = serviceFactory;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.maxSessions = maxSessions;
+        this.metrics = metrics;
+        this.clock = clock;
+        metrics.registerGauge("javallama_sessions_active", sessions::size);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : create
+     * DESCRIPTION : Opens a new session with an empty history
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the session, throws IllegalStateException when the store is full
+     * ======================================================================
+     */
+    public ChatSession create() {
+        if (sessions.size() >= maxSessions && evictIdle() == 0 && sessions.size() >= maxSessions) {
+            throw new IllegalStateException("Too many sessions: " + maxSessions);
+        }
+        ChatSession session = new ChatSession(UUID.randomUUID().toString(), serviceFactory.get(), clock.getAsLong());
+        sessions.put(session.getId(), session);
+        metrics.increment("javallama_sessions_created_total", 1);
+        return session;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : get
+     * DESCRIPTION : Looks up a session and marks it as used
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the session, null if unknown or evicted
+     * ======================================================================
+     */
+    public ChatSession get(String id) {
+        ChatSession session = id != null ? sessions.get(id) : null;
+        if (session != null) {
+            session.touch(clock.getAsLong());
+        }
+        return session;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : release
+     * DESCRIPTION : Gives a session back after a request
+     * PRE-CONDITION : Caller acquired the session
+     * POST-CONDITION : Session free, idle time counted from now
+     * ======================================================================
+     */
+    public void release(ChatSession session) {
+        session.release(clock.getAsLong());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : remove
+     * DESCRIPTION : Deletes a session
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns false if unknown or a request still holds it
+     * ======================================================================
+     */
+    public boolean remove(String id) {
+        ChatSession session = sessions.get(id);
+        if (session == null || !session.tryAcquire()) {
+            return false;
+        }
+        sessions.remove(id, session);
+        session.close();
+        return true;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : evictIdle
+     * DESCRIPTION : Closes every session that has been idle longer than the timeout
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the number evicted, sessions in use are never evicted
+     * ======================================================================
+     */
+    public int evictIdle() {
+        long now = clock.getAsLong();
+        int evicted = 0;
+        for (ChatSession session : sessions.values()) {
+            // acquiring first means a request that looked the session up cannot start on it anymore
+            if (session.getIdleNanos(now) > idleTimeoutNanos && session.tryAcquire()) {
+                sessions.remove(session.getId(), session);
+                session.close();
+                evicted++;
+            }
+        }
+        metrics.increment("javallama_sessions_evicted_total", evicted);
+        return evicted;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : startEviction
+     * DESCRIPTION : Starts a background sweep for idle sessions
+     * PRE-CONDITION : periodMillis > 0
+     * POST-CONDITION : evictIdle runs every period until close
+     * ======================================================================
+     */
+    public synchronized void startEviction(long periodMillis) {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "session-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(() -> {
+            int evicted = evictIdle();
+            if (evicted > 0) {
+                System.out.println("Evicted " + evicted + " idle sessions, " + sessions.size() + " active");
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : size
+     * DESCRIPTION : Returns the number of open sessions
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the session count
+     * ======================================================================
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : close
+     * DESCRIPTION : Stops the sweep and closes every session
+     * PRE-CONDITION : No requests are running
+     * POST-CONDITION : Store is empty
+     * ======================================================================
+     */
+    @Override
+    public synchronized void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+        for (ChatSession session : sessions.values()) {
+            session.close();
+        }
+        sessions.clear();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : writeOutput
+     * DESCRIPTION : Writes the object state to the console
+     * PRE-CONDITION : None
+     * POST-CONDITION : Object state is printed to stdout
+     * ======================================================================
+     */
+    public void writeOutput() {
+        System.out.println("SessionStore Status:");
+        System.out.println("Active Sessions: " + sessions.size());
+        System.out.println("Max Sessions: " + maxSessions);
+        System.out.println("Idle Timeout: " + TimeUnit.NANOSECONDS.toSeconds(idleTimeoutNanos) + " seconds");
+    }
+}
@@ -0,0 +1,28 @@
+/**
+======================================================================
+CLASS NAME : Summarizer
+DESCRIPTION : Folds conversation turns into a running summary
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import java.util.List;
+
+@FunctionalInterface
+public interface Summarizer {
+
+    /*
+     * ======================================================================
+     * METHOD NAME : summarize
+     * DESCRIPTION : Produces a new summary covering the previous one and the evicted messages
+     * PRE-CONDITION : previousSummary may be empty, evicted is not empty
+     * POST-CONDITION : Returns the updated summary
+     * ======================================================================
+     */
+    String summarize(String previousSummary, List<ConversationHistory.Message> evicted) throws Exception;
+}
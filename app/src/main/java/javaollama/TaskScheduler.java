@@ -0,0 +1,348 @@
+/**
+======================================================================
+CLASS NAME : TaskScheduler
+DESCRIPTION : Runs blocking background work on virtual threads with a cap on concurrent generations
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  cancel drops queued generations before freeing the running ones' slots
+======================================================================
+*/
+package javaollama;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TaskScheduler implements AutoCloseable {
+
+    private static final int DEFAULT_MAX_QUEUED = 16;
+
+    private final ExecutorService executor;
+    private final Semaphore generationPermits;
+    private final int maxGenerations;
+    private final int maxQueued;
+    private final AtomicInteger queued;
+    private final AtomicInteger running;
+    private final Set<ScheduledTask<?>> generations;
+    private final Set<ScheduledTask<?>> tasks;
+    private final MetricsRegistry metrics;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : TaskScheduler
+     * DESCRIPTION : Parameterized constructor with the default queue limit
+     * PRE-CONDITION : maxGenerations > 0
+     * POST-CONDITION : Scheduler ready, queue gauges registered
+     * ======================================================================
+     */
+    public TaskScheduler(int maxGenerations, MetricsRegistry metrics) {
+        this(maxGenerations, DEFAULT_MAX_QUEUED, metrics);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : TaskScheduler
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : maxGenerations > 0, maxQueued >= 0
+     * POST-CONDITION : Scheduler ready, queue gauges registered
+     * ======================================================================
+     */
+    public TaskScheduler(int maxGenerations, int maxQueued, MetricsRegistry metrics) {
+        if (maxGenerations <= 0) {
+            throw new IllegalArgumentException("At least one generation must be allowed: " + maxGenerations);
+        }
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("javallama-task-", 0).factory());
+        this.maxGenerations = maxGenerations;
+        this.maxQueued = maxQueued;
+        this.generationPermits = new Semaphore(maxGenerations, true);
+        this.queued = new AtomicInteger();
+        this.running = new AtomicInteger();
+        this.generations = ConcurrentHashMap.newKeySet();
+        this.tasks = ConcurrentHashMap.newKeySet();
+        this.metrics = metrics;
+        metrics.registerGauge("javallama_generation_queue_depth", queued::get);
+        metrics.registerGauge("javallama_generations_running", running::get);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : submit
+     * DESCRIPTION : Runs blocking work such as startup or file loading on its own virtual thread
+     * PRE-CONDITION : Scheduler is not closed
+     * POST-CONDITION : Returns a future that cancels the work by interrupting it
+     * ======================================================================
+     */
+    public Future<?> submit(String name, Runnable work) {
+        ScheduledTask<Object> task = new ScheduledTask<>(name, tasks, () -> {
+            long start = System.nanoTime();
+            try {
+                work.run();
+                return null;
+            } finally {
+                metrics.recordLatency("javallama_task_run", System.nanoTime() - start);
+            }
+        });
+        tasks.add(task);
+        executor.execute(task);
+        return task;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : submitGeneration
+     * DESCRIPTION : Runs a model generation once one of the generation slots is free
+     * PRE-CONDITION : Scheduler is not closed
+     * POST-CONDITION : Returns a cancellable future, throws RejectedExecutionException when the queue is full
+     * ======================================================================
+     */
+    public <T> Future<T> submitGeneration(String name, Callable<T> work) {
+        // backpressure: callers waiting for a slot are bounded, beyond that they are turned away
+        if (queued.incrementAndGet() > maxQueued + generationPermits.availablePermits()) {
+            queued.decrementAndGet();
+            metrics.increment("javallama_generations_rejected_total", 1);
+            throw new RejectedExecutionException("Too many generations waiting: " + maxQueued);
+        }
+        long enqueuedNanos = System.nanoTime();
+        AtomicBoolean inQueue = new AtomicBoolean(true);
+        ScheduledTask<T> task = new ScheduledTask<>(name, generations, () -> {
+            generationPermits.acquire(); // waiting here is cheap on a virtual thread
+            try {
+                if (inQueue.compareAndSet(true, false)) {
+                    queued.decrementAndGet();
+                }
+                running.incrementAndGet();
+                long start = System.nanoTime();
+                metrics.recordLatency("javallama_generation_queue_wait", start - enqueuedNanos);
+                try {
+                    return work.call();
+                } finally {
+                    running.decrementAndGet();
+                    metrics.recordLatency("javallama_generation_run", System.nanoTime() - start);
+                }
+            } finally {
+                generationPermits.release();
+            }
+        });
+        task.queuedWhile(inQueue);
+        // a generation cancelled while still waiting never reaches the code above
+        task.onDone(() -> {
+            if (inQueue.compareAndSet(true, false)) {
+                queued.decrementAndGet();
+            }
+        });
+        generations.add(task);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.cancel(false);
+            throw e;
+        }
+        return task;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : cancelGenerations
+     * DESCRIPTION : Cancels every queued and running generation
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the number of generations cancelled, their threads are interrupted
+     * ======================================================================
+     */
+    public int cancelGenerations() {
+        int cancelled = 0;
+        // queued ones first, a cancelled running generation frees its slot for whichever is waiting
+        for (ScheduledTask<?> task : generations) {
+            if (task.isQueued() && task.cancel(true)) {
+                cancelled++;
+            }
+        }
+        for (ScheduledTask<?> task : generations) {
+            if (task.cancel(true)) {
+                cancelled++;
+            }
+        }
+        metrics.increment("javallama_generations_cancelled_total", cancelled);
+        return cancelled;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getQueueDepth
+     * DESCRIPTION : Returns the number of generations waiting for a slot
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the queue depth
+     * ======================================================================
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getRunningGenerations
+     * DESCRIPTION : Returns the number of generations holding a slot
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a value between 0 and the maximum
+     * ======================================================================
+     */
+    public int getRunningGenerations() {
+        return running.get();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getMaxGenerations
+     * DESCRIPTION : Returns how many generations may run at once
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the slot count
+     * ======================================================================
+     */
+    public int getMaxGenerations() {
+        return maxGenerations;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : close
+     * DESCRIPTION : Cancels all outstanding work and stops the scheduler
+     * PRE-CONDITION : None
+     * POST-CONDITION : Every task is cancelled, no new work is accepted
+     * ======================================================================
+     */
+    @Override
+    public void close() {
+        cancelGenerations();
+        for (ScheduledTask<?> task : tasks) {
+            task.cancel(true);
+        }
+        executor.shutdownNow();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : writeOutput
+     * DESCRIPTION : Writes the object state to the console
+     * PRE-CONDITION : None
+     * POST-CONDITION : Object state is printed to stdout
+     * ======================================================================
+     */
+    public void writeOutput() {
+        System.out.println("TaskScheduler Status:");
+        System.out.println("Max Generations: " + maxGenerations);
+        System.out.println("Running Generations: " + running.get());
+        System.out.println("Queued Generations: " + queued.get());
+        System.out.println("Background Tasks: " + tasks.size());
+    }
+
+    /**
+     * ======================================================================
+     * CLASS NAME : ScheduledTask
+     * DESCRIPTION : Future that names its thread and leaves the in-flight set when done
+     * AUTHOR : Mickel Angelo Castoverde
+     * COPYRIGHT : macastroverde 2025
+     * REVISION HISTORY
+     * Date: By: Description:
+     * 2026-10-16 Mickel Angelo Castoverde Creation of the program
+     * 2026-10-16 Mickel Angelo Castoverde tells whether it is still waiting for a slot
+     * ======================================================================
+     */
+    private static class ScheduledTask<T> extends FutureTask<T> {
+        private final String name;
+        private final Set<ScheduledTask<?>> owner;
+        private volatile Runnable onDone;
+        private volatile AtomicBoolean queued;
+
+        /*
+         * ======================================================================
+         * METHOD NAME : ScheduledTask
+         * DESCRIPTION : Parameterized constructor
+         * PRE-CONDITION : owner is the set the task is tracked in
+         * POST-CONDITION : Task created, not yet running
+         * ======================================================================
+         */
+        ScheduledTask(String name, Set<ScheduledTask<?>> owner, Callable<T> work) {
+            super(work);
+            this.name = name;
+            this.owner = owner;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : onDone
+         * DESCRIPTION : Sets an action to run once the task completes or is cancelled
+         * PRE-CONDITION : Called before the task is started
+         * POST-CONDITION : Action runs exactly once
+         * ======================================================================
+         */
+        void onDone(Runnable action) {
+            this.onDone = action;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : queuedWhile
+         * DESCRIPTION : Sets the flag that is true while the task waits for a slot
+         * PRE-CONDITION : Called before the task is started
+         * POST-CONDITION : isQueued follows the flag
+         * ======================================================================
+         */
+        void queuedWhile(AtomicBoolean flag) {
+            this.queued = flag;
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : isQueued
+         * DESCRIPTION : Returns whether the task is still waiting for a slot
+         * PRE-CONDITION : None
+         * POST-CONDITION : Returns false for tasks that never wait
+         * ======================================================================
+         */
+        boolean isQueued() {
+            AtomicBoolean flag = queued;
+            return flag != null && flag.get();
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : run
+         * DESCRIPTION : Runs the work under the task's name
+         * PRE-CONDITION : Called by the executor
+         * POST-CONDITION : Thread name shows which task is running
+         * ======================================================================
+         */
+        @Override
+        public void run() {
+            Thread.currentThread().setName(name);
+            super.run();
+        }
+
+        /*
+         * ======================================================================
+         * METHOD NAME : done
+         * DESCRIPTION : Called once when the task completes, fails or is cancelled
+         * PRE-CONDITION : None
+         * POST-CONDITION : Task no longer tracked
+         * ======================================================================
+         */
+        @Override
+        protected void done() {
+            owner.remove(this);
+            Runnable action = onDone;
+            if (action != null) {
+                action.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+======================================================================
+CLASS NAME : TextChunker
+DESCRIPTION : Splits document text into overlapping chunks for retrieval
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import java.util.Arrays;
+
+public class TextChunker {
+
+    private static final int DEFAULT_CHUNK_SIZE = 1200;
+    private static final int DEFAULT_OVERLAP = 200;
+
+    private final int chunkSize;
+    private final int overlap;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : TextChunker
+     * DESCRIPTION : Default constructor
+     * PRE-CONDITION : None
+     * POST-CONDITION : Chunker uses the default chunk size and overlap
+     * ======================================================================
+     */
+    public TextChunker() {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_OVERLAP);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : TextChunker
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : chunkSize > 0 and 0 <= overlap < chunkSize
+     * POST-CONDITION : Chunker initialized with the given sizes in characters
+     * ======================================================================
+     */
+    public TextChunker(int chunkSize, int overlap) {
+        if (chunkSize <= 0 || overlap < 0 || overlap >= chunkSize) {
+            throw new IllegalArgumentException("Invalid chunk size " + chunkSize + " / overlap " + overlap);
+        }
+        this.chunkSize = chunkSize;
+        this.overlap = overlap;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : split
+     * DESCRIPTION : Computes the chunk boundaries of a text
+     * PRE-CONDITION : text is not null
+     * POST-CONDITION : Returns start/end pairs, chunk i spans [b[2i], b[2i+1])
+     * ======================================================================
+     */
+    public int[] split(String text) {
+        int length = text.length();
+        int[] bounds = new int[16];
+        int count = 0;
+        int start = 0;
+
+        while (start < length) {
+            int end = Math.min(start + chunkSize, length);
+            if (end < length) {
+                // prefer to cut at whitespace in the last fifth of the window
+                int minEnd = end - chunkSize / 5;
+                int cut = end;
+                while (cut > minEnd && !Character.isWhitespace(text.charAt(cut - 1))) {
+                    cut--;
+                }
+                if (cut > minEnd) {
+                    end = cut;
+                }
+            }
+
+            if (count + 2 > bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            bounds[count++] = start;
+            bounds[count++] = end;
+
+            if (end >= length) {
+                break;
+            }
+            start = Math.max(end - overlap, start + 1);
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : writeOutput
+     * DESCRIPTION : Writes the object state to the console
+     * PRE-CONDITION : None
+     * POST-CONDITION : Object state is printed to stdout
+     * ======================================================================
+     */
+    public void writeOutput() {
+        System.out.println("TextChunker Status:");
+        System.out.println("Chunk Size: " + chunkSize);
+        System.out.println("Overlap: " + overlap);
+    }
+}
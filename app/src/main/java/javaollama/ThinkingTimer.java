@@ -0,0 +1,65 @@
+/**
+======================================================================
+CLASS NAME : ThinkingTimer
+DESCRIPTION : Elapsed time text for the thinking indicator, formatted once per tenth of a second
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+public class ThinkingTimer {
+
+    private static final String PREFIX = "Thinking... ";
+
+    private final long startNanos;
+    private long shownTenths;
+    private String text;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : ThinkingTimer
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : startNanos comes from System.nanoTime or an AnimationTimer frame
+     * POST-CONDITION : Timer shows 0.0s
+     * ======================================================================
+     */
+    public ThinkingTimer(long startNanos) {
+        this.startNanos = startNanos;
+        this.shownTenths = 0;
+        this.text = PREFIX + "0.0s";
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : update
+     * DESCRIPTION : Advances the timer to the given frame time
+     * PRE-CONDITION : nowNanos uses the same clock as the start time
+     * POST-CONDITION : Returns true only when the visible text changed
+     * ======================================================================
+     */
+    public boolean update(long nowNanos) {
+        long tenths = Math.max(0, (nowNanos - startNanos) / 100_000_000L);
+        if (tenths == shownTenths) {
+            return false;
+        }
+        shownTenths = tenths;
+        text = PREFIX + (tenths / 10) + "." + (tenths % 10) + "s";
+        return true;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getText
+     * DESCRIPTION : Gets the text to show in the indicator
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns e.g. "Thinking... 1.3s"
+     * ======================================================================
+     */
+    public String getText() {
+        return text;
+    }
+}
@@ -0,0 +1,137 @@
+/**
+======================================================================
+CLASS NAME : TokenCoalescer
+DESCRIPTION : Buffers streamed tokens and hands them to the ui thread in batches
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  cancel drops pending text and stops the stream feeding the coalescer
+2026-10-16      Mickel Angelo Castoverde  stop delivers pending text before stopping the stream
+======================================================================
+*/
+package javaollama;
+
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+public class TokenCoalescer implements TokenListener {
+
+    private final Executor uiExecutor;
+    private final Consumer<String> sink;
+    private final StringBuilder pending;
+    private boolean flushScheduled;
+    private volatile boolean cancelled;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : TokenCoalescer
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : uiExecutor runs tasks on the ui thread (e.g. Platform::runLater)
+     * POST-CONDITION : Coalescer ready to receive tokens
+     * ======================================================================
+     */
+    public TokenCoalescer(Executor uiExecutor, Consumer<String> sink) {
+        this.uiExecutor = uiExecutor;
+        this.sink = sink;
+        this.pending = new StringBuilder();
+        this.flushScheduled = false;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : onToken
+     * DESCRIPTION : Buffers a token, scheduling a flush only if none is pending
+     * PRE-CONDITION : None
+     * POST-CONDITION : At most one flush task is queued on the ui executor
+     * ======================================================================
+     */
+    @Override
+    public void onToken(String token) {
+        boolean schedule;
+        synchronized (pending) {
+            // checked under the lock, so stop cannot miss a token that is being appended
+            if (cancelled) {
+                return;
+            }
+            pending.append(token);
+            schedule = !flushScheduled;
+            flushScheduled = true;
+        }
+        // tokens arriving while a flush is queued ride along with it
+        if (schedule) {
+            uiExecutor.execute(this::flush);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : flush
+     * DESCRIPTION : Delivers all buffered text to the sink
+     * PRE-CONDITION : Called on the ui thread
+     * POST-CONDITION : Buffer is empty, sink received the text if any
+     * ======================================================================
+     */
+    public void flush() {
+        String text;
+        synchronized (pending) {
+            flushScheduled = false;
+            if (cancelled || pending.length() == 0) {
+                return;
+            }
+            text = pending.toString();
+            pending.setLength(0);
+        }
+        sink.accept(text);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : cancel
+     * DESCRIPTION : Stops the stream feeding this coalescer
+     * PRE-CONDITION : None
+     * POST-CONDITION : Buffered text is dropped, the chat closes its stream at the next chunk
+     * ======================================================================
+     */
+    public void cancel() {
+        cancelled = true;
+        synchronized (pending) {
+            pending.setLength(0);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : stop
+     * DESCRIPTION : Stops the stream feeding this coalescer, keeping what already arrived
+     * PRE-CONDITION : Called on the ui thread
+     * POST-CONDITION : Buffered text delivered to the sink, later tokens are dropped and the chat
+     *                  closes its stream
+     * ======================================================================
+     */
+    public void stop() {
+        String text;
+        synchronized (pending) {
+            cancelled = true;
+            text = pending.toString();
+            pending.setLength(0);
+        }
+        if (!text.isEmpty()) {
+            sink.accept(text);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : isCancelled
+     * DESCRIPTION : Checks whether cancel was called
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns true once cancelled
+     * ======================================================================
+     */
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,51 @@
+/**
+======================================================================
+CLASS NAME : TokenListener
+DESCRIPTION : Callback interface for receiving streamed tokens from the ollama chat model
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  listeners can cancel the stream they receive
+2026-10-16      Mickel Angelo Castoverde  cancellation also checked while waiting for the first chunk
+======================================================================
+*/
+package javaollama;
+
+@FunctionalInterface
+public interface TokenListener {
+
+    /*
+     * ======================================================================
+     * METHOD NAME : onToken
+     * DESCRIPTION : Called for every chunk of text streamed by the model
+     * PRE-CONDITION : Called from the thread reading the response stream
+     * POST-CONDITION : Token has been handed to the listener
+     * ======================================================================
+     */
+    void onToken(String token);
+
+    /*
+     * ======================================================================
+     * METHOD NAME : onComplete
+     * DESCRIPTION : Called once the model has finished generating
+     * PRE-CONDITION : All tokens were delivered through onToken
+     * POST-CONDITION : Listener notified of the final response
+     * ======================================================================
+     */
+    default void onComplete(ChatResponse response) {
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : isCancelled
+     * DESCRIPTION : Checked before every streamed chunk and while waiting for the first one
+     * PRE-CONDITION : Called from the chat's threads, must not block
+     * POST-CONDITION : Returning true closes the stream and fails the chat as cancelled
+     * ======================================================================
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
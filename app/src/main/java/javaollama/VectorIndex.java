@@ -0,0 +1,372 @@
+/**
+======================================================================
+CLASS NAME : VectorIndex
+DESCRIPTION : In-memory cosine similarity index over contiguous float vectors
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import java.util.Arrays;
+
+public class VectorIndex {
+
+    private static final int KMEANS_ITERATIONS = 8;
+
+    private final int dimension;
+    private float[] vectors; // row-major, every row normalized to unit length
+    private int size;
+
+    // inverted file: vectors grouped by their nearest centroid
+    private float[] centroids;
+    private int listCount;
+    private int[] listOffsets;
+    private int[] listIds;
+    private int probeCount;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : VectorIndex
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : dimension > 0
+     * POST-CONDITION : Empty index for vectors of the given dimension
+     * ======================================================================
+     */
+    public VectorIndex(int dimension) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("Dimension must be positive: " + dimension);
+        }
+        this.dimension = dimension;
+        this.vectors = new float[dimension * 16];
+        this.size = 0;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : VectorIndex
+     * DESCRIPTION : Constructor over vectors already laid out row-major
+     * PRE-CONDITION : vectors.length is a multiple of dimension
+     * POST-CONDITION : Index takes ownership of the array and normalizes its rows
+     * ======================================================================
+     */
+    public VectorIndex(int dimension, float[] vectors) {
+        this(dimension);
+        if (vectors.length % dimension != 0) {
+            throw new IllegalArgumentException("Vector data is not a multiple of dimension " + dimension);
+        }
+        this.size = vectors.length / dimension;
+        this.vectors = vectors.length > 0 ? vectors : this.vectors;
+        for (int i = 0; i < size; i++) {
+            normalize(this.vectors, i * dimension, dimension);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getDimension
+     * DESCRIPTION : Accessor for the vector dimension
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the dimension
+     * ======================================================================
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : size
+     * DESCRIPTION : Returns the number of vectors in the index
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the vector count
+     * ======================================================================
+     */
+    public int size() {
+        return size;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : add
+     * DESCRIPTION : Normalizes and appends a vector
+     * PRE-CONDITION : vector length equals the dimension
+     * POST-CONDITION : Returns the id of the vector, clusters are invalidated
+     * ======================================================================
+     */
+    public int add(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + vector.length);
+        }
+        if ((size + 1) * dimension > vectors.length) {
+            vectors = Arrays.copyOf(vectors, vectors.length * 2);
+        }
+        int offset = size * dimension;
+        System.arraycopy(vector, 0, vectors, offset, dimension);
+        normalize(vectors, offset, dimension);
+        centroids = null;
+        return size++;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : buildClusters
+     * DESCRIPTION : Groups the vectors into lists with spherical k-means
+     * PRE-CONDITION : listCount > 0
+     * POST-CONDITION : search probes only the nearest lists
+     * ======================================================================
+     */
+    public void buildClusters(int requestedLists) {
+        int lists = Math.min(requestedLists, size);
+        if (lists <= 1) {
+            centroids = null;
+            return;
+        }
+
+        // seed with evenly spaced vectors so the result is deterministic
+        float[] means = new float[lists * dimension];
+        for (int c = 0; c < lists; c++) {
+            int source = (int) ((long) c * size / lists);
+            System.arraycopy(vectors, source * dimension, means, c * dimension, dimension);
+        }
+
+        int[] assignment = new int[size];
+        for (int iteration = 0; iteration < KMEANS_ITERATIONS; iteration++) {
+            for (int i = 0; i < size; i++) {
+                assignment[i] = nearest(means, lists, vectors, i * dimension);
+            }
+            float[] sums = new float[lists * dimension];
+            int[] counts = new int[lists];
+            for (int i = 0; i < size; i++) {
+                int c = assignment[i];
+                counts[c]++;
+                int from = i * dimension;
+                int to = c * dimension;
+                for (int d = 0; d < dimension; d++) {
+                    sums[to + d] += vectors[from + d];
+                }
+            }
+            for (int c = 0; c < lists; c++) {
+                // an empty list keeps its previous centroid
+                if (counts[c] > 0) {
+                    System.arraycopy(sums, c * dimension, means, c * dimension, dimension);
+                    normalize(means, c * dimension, dimension);
+                }
+            }
+        }
+
+        // lay out the ids list by list so each probe scans a contiguous range
+        int[] offsets = new int[lists + 1];
+        for (int i = 0; i < size; i++) {
+            assignment[i] = nearest(means, lists, vectors, i * dimension);
+            offsets[assignment[i] + 1]++;
+        }
+        for (int c = 0; c < lists; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        int[] ids = new int[size];
+        int[] cursor = Arrays.copyOf(offsets, lists);
+        for (int i = 0; i < size; i++) {
+            ids[cursor[assignment[i]]++] = i;
+        }
+
+        this.centroids = means;
+        this.listCount = lists;
+        this.listOffsets = offsets;
+        this.listIds = ids;
+        this.probeCount = Math.max(4, lists / 4);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setProbeCount
+     * DESCRIPTION : Sets how many lists a clustered search scans
+     * PRE-CONDITION : probeCount > 0
+     * POST-CONDITION : Higher values trade latency for recall
+     * ======================================================================
+     */
+    public void setProbeCount(int probeCount) {
+        this.probeCount = probeCount;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : search
+     * DESCRIPTION : Finds the k most similar vectors, using clusters when built
+     * PRE-CONDITION : query length equals the dimension
+     * POST-CONDITION : Returns ids ordered by decreasing similarity
+     * ======================================================================
+     */
+    public int[] search(float[] query, int k) {
+        if (centroids == null) {
+            return searchExact(query, k);
+        }
+        float[] q = normalizedCopy(query);
+
+        int probes = Math.min(probeCount, listCount);
+        int[] lists = new int[probes];
+        float[] listScores = new float[probes];
+        int found = 0;
+        for (int c = 0; c < listCount; c++) {
+            found = offer(lists, listScores, found, c, dot(q, 0, centroids, c * dimension));
+        }
+
+        int[] best = new int[Math.min(k, size)];
+        float[] bestScores = new float[best.length];
+        int hits = 0;
+        for (int p = 0; p < found; p++) {
+            int c = lists[p];
+            for (int j = listOffsets[c]; j < listOffsets[c + 1]; j++) {
+                int id = listIds[j];
+                hits = offer(best, bestScores, hits, id, dot(q, 0, vectors, id * dimension));
+            }
+        }
+        return Arrays.copyOf(best, hits);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : searchExact
+     * DESCRIPTION : Finds the k most similar vectors by scanning all of them
+     * PRE-CONDITION : query length equals the dimension
+     * POST-CONDITION : Returns ids ordered by decreasing similarity
+     * ======================================================================
+     */
+    public int[] searchExact(float[] query, int k) {
+        float[] q = normalizedCopy(query);
+        int[] best = new int[Math.min(k, size)];
+        float[] bestScores = new float[best.length];
+        int hits = 0;
+        for (int id = 0; id < size; id++) {
+            hits = offer(best, bestScores, hits, id, dot(q, 0, vectors, id * dimension));
+        }
+        return Arrays.copyOf(best, hits);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : similarity
+     * DESCRIPTION : Computes the cosine similarity between a query and a stored vector
+     * PRE-CONDITION : id is within the index
+     * POST-CONDITION : Returns a value between -1 and 1
+     * ======================================================================
+     */
+    public float similarity(float[] query, int id) {
+        return dot(normalizedCopy(query), 0, vectors, id * dimension);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : toArray
+     * DESCRIPTION : Copies the normalized vectors into one row-major array
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns size * dimension floats
+     * ======================================================================
+     */
+    public float[] toArray() {
+        return Arrays.copyOf(vectors, size * dimension);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : offer
+     * DESCRIPTION : Inserts a candidate into a small sorted top-k buffer
+     * PRE-CONDITION : ids and scores have the same capacity
+     * POST-CONDITION : Returns the new number of entries
+     * ======================================================================
+     */
+    private static int offer(int[] ids, float[] scores, int count, int id, float score) {
+        int capacity = ids.length;
+        if (capacity == 0 || (count == capacity && score <= scores[count - 1])) {
+            return count;
+        }
+        int pos = count < capacity ? count : capacity - 1;
+        while (pos > 0 && scores[pos - 1] < score) {
+            ids[pos] = ids[pos - 1];
+            scores[pos] = scores[pos - 1];
+            pos--;
+        }
+        ids[pos] = id;
+        scores[pos] = score;
+        return count < capacity ? count + 1 : count;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : nearest
+     * DESCRIPTION : Finds the centroid closest to a vector
+     * PRE-CONDITION : lists > 0
+     * POST-CONDITION : Returns the centroid number
+     * ======================================================================
+     */
+    private int nearest(float[] means, int lists, float[] data, int offset) {
+        int best = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int c = 0; c < lists; c++) {
+            float score = dot(data, offset, means, c * dimension);
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : dot
+     * DESCRIPTION : Dot product of two rows stored in flat arrays
+     * PRE-CONDITION : Both rows hold dimension floats
+     * POST-CONDITION : Returns the dot product
+     * ======================================================================
+     */
+    private float dot(float[] a, int aOffset, float[] b, int bOffset) {
+        float sum = 0f;
+        for (int d = 0; d < dimension; d++) {
+            sum += a[aOffset + d] * b[bOffset + d];
+        }
+        return sum;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : normalizedCopy
+     * DESCRIPTION : Returns a unit-length copy of a query vector
+     * PRE-CONDITION : query length equals the dimension
+     * POST-CONDITION : Original query is left untouched
+     * ======================================================================
+     */
+    private float[] normalizedCopy(float[] query) {
+        if (query.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + query.length);
+        }
+        float[] q = Arrays.copyOf(query, dimension);
+        normalize(q, 0, dimension);
+        return q;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : normalize
+     * DESCRIPTION : Scales a row to unit length in place
+     * PRE-CONDITION : Row lies within the array
+     * POST-CONDITION : Zero rows are left as they are
+     * ======================================================================
+     */
+    private static void normalize(float[] data, int offset, int length) {
+        double norm = 0.0;
+        for (int d = 0; d < length; d++) {
+            norm += data[offset + d] * data[offset + d];
+        }
+        if (norm == 0.0) {
+            return;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int d = 0; d < length; d++) {
+            data[offset + d] *= scale;
+        }
+    }
+}
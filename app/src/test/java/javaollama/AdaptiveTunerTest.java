@@ -0,0 +1,324 @@
+/**
+======================================================================
+CLASS NAME : AdaptiveTunerTest
+DESCRIPTION : Tests and mixed workload benchmark of the adaptive context window tuner
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  added window per server and summary window tests
+======================================================================
+*/
+package javaollama;
+
+import io.github.ollama4j.Ollama;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveTunerTest {
+
+    private static final Map<String, Object> BASE = RequestProfile.DEFAULT.getOptions();
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testWindowFollowsPrompt
+     * DESCRIPTION : Tests that a short prompt gets a small window and a long one grows it at once
+     * PRE-CONDITION : New tuner with unknown hardware
+     * POST-CONDITION : 2048 for the short prompt, 16384 right away for the long one, kept afterwards
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("The window should fit the prompt and grow at once")
+    void testWindowFollowsPrompt() {
+        AdaptiveTuner tuner = new AdaptiveTuner(0, new MetricsRegistry());
+
+        Map<String, Object> small = tuner.tune(BASE, 100);
+        assertEquals(2048, small.get("num_ctx"));
+        assertEquals(BASE.get("num_batch"), small.get("num_batch"));
+        assertFalse(small.containsKey("num_thread"));
+        assertThrows(UnsupportedOperationException.class, () -> small.put("num_ctx", 1));
+
+        assertEquals(16384, tuner.tune(BASE, 10_000).get("num_ctx"));
+        // nothing is known about the smaller window yet, so one short prompt does not shrink it
+        assertEquals(16384, tuner.tune(BASE, 100).get("num_ctx"));
+        assertEquals(2, tuner.getReloads());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testShrinksOnceSavingsOutweighReload
+     * DESCRIPTION : Tests that the window shrinks only after the measured savings exceed two reloads
+     * PRE-CONDITION : Reload costs 1 s, 2048 generates at 20 ms a token and 16384 at 30 ms, answers of 40 tokens
+     * POST-CONDITION : Three short prompts stay at 16384 (1.92 s saved), the fourth moves to 2048 (2.56 s)
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("The window should shrink once the learned savings outweigh the reload")
+    void testShrinksOnceSavingsOutweighReload() {
+        AdaptiveTuner tuner = new AdaptiveTuner(0, new MetricsRegistry());
+        tuner.tune(BASE, 100);
+        tuner.record(2048, timings(1_000_000_000L, 40, 20_000_000L));
+        tuner.tune(BASE, 10_000);
+        tuner.record(16384, timings(1_000_000_000L, 40, 30_000_000L));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(16384, tuner.tune(BASE, 100).get("num_ctx"));
+            tuner.record(16384, timings(0, 40, 30_000_000L));
+        }
+        assertEquals(2048, tuner.tune(BASE, 100).get("num_ctx"));
+        assertEquals(3, tuner.getReloads());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testUnexploredWindowTried
+     * DESCRIPTION : Tests that a smaller window nothing is known about is tried after a streak
+     * PRE-CONDITION : Tuner started with a long prompt
+     * POST-CONDITION : Seven short prompts stay at 16384, the eighth moves to 2048, a long one resets the streak
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("An unexplored smaller window should be tried after a streak of short prompts")
+    void testUnexploredWindowTried() {
+        AdaptiveTuner tuner = new AdaptiveTuner(0, new MetricsRegistry());
+        tuner.tune(BASE, 10_000);
+        tuner.record(16384, timings(1_000_000_000L, 40, 30_000_000L));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(16384, tuner.tune(BASE, 100).get("num_ctx"));
+        }
+        tuner.tune(BASE, 10_000);
+        for (int i = 0; i < 7; i++) {
+            assertEquals(16384, tuner.tune(BASE, 100).get("num_ctx"));
+        }
+        assertEquals(2048, tuner.tune(BASE, 100).get("num_ctx"));
+        assertEquals(2048, tuner.getContextTokens());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testHardwareOptions
+     * DESCRIPTION : Tests that threads and batch follow the cores and num_keep fits the window
+     * PRE-CONDITION : Tuners for 4 and 16 cores, a pinned prefix larger than half the window
+     * POST-CONDITION : Batch 512 and 2048, num_thread the cores, num_keep half the window
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Threads and batch should follow the cores")
+    void testHardwareOptions() {
+        Map<String, Object> laptop = new AdaptiveTuner(4, new MetricsRegistry()).tune(BASE, 100);
+        assertEquals(512, laptop.get("num_batch"));
+        assertEquals(4, laptop.get("num_thread"));
+
+        Map<String, Object> workstation = new AdaptiveTuner(16, new MetricsRegistry())
+                .tune(RequestProfile.DEFAULT.getOptions(3000), 3000);
+        assertEquals(4096, workstation.get("num_ctx"));
+        assertEquals(2048, workstation.get("num_batch"));
+        assertEquals(16, workstation.get("num_thread"));
+        assertEquals(2048, workstation.get("num_keep"));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testInvalidMaximumContext
+     * DESCRIPTION : Tests that the largest window must be a power of two of at least 2048
+     * PRE-CONDITION : None
+     * POST-CONDITION : IllegalArgumentException thrown
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("An invalid maximum window should be rejected")
+    void testInvalidMaximumContext() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveTuner(0, 1024, new MetricsRegistry()));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveTuner(0, 3000, new MetricsRegistry()));
+        assertEquals(8192, new AdaptiveTuner(0, 8192, new MetricsRegistry()).tune(BASE, 20_000).get("num_ctx"));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testServiceSendsTunedWindow
+     * DESCRIPTION : Tests that the service sends the tuned window and the tuner learns from the reply
+     * PRE-CONDITION : Stub server simulating the window, a question and then a question about a document
+     * POST-CONDITION : 2048 and then 8192 sent, two loads, no truncation
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("The service should send the tuned window")
+    void testServiceSendsTunedWindow() throws Exception {
+        try (StubOllamaServer stub = new StubOllamaServer()) {
+            stub.setContextSimulation(true);
+            OllamaService ollama = new OllamaService(new Ollama(stub.getUrl()));
+            AdaptiveTuner tuner = new AdaptiveTuner(0, ollama.getMetrics());
+            ollama.setTuner(tuner);
+
+            ollama.chatStream("What is a pump?", token -> { });
+            ollama.setContext("Section 1. The pump must be primed before use. ".repeat(400));
+            ollama.chatStream("How is the pump primed?", token -> { });
+
+            List<StubOllamaServer.RecordedRequest> requests = stub.getRequests();
+            assertTrue(requests.get(0).body.contains("\"num_ctx\":2048"));
+            assertTrue(requests.get(1).body.contains("\"num_ctx\":8192"));
+            assertEquals(2, stub.getLoads());
+            assertEquals(0, stub.getTruncations());
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testWindowPerServer
+     * DESCRIPTION : Tests that each server keeps the window it has loaded
+     * PRE-CONDITION : A long prompt to one server, short prompts to another
+     * POST-CONDITION : Each server gets its own window, the gauge shows the largest
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Each server should keep its own window")
+    void testWindowPerServer() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        AdaptiveTuner tuner = new AdaptiveTuner(0, metrics);
+
+        assertEquals(16384, tuner.tune("first", BASE, 10_000).get("num_ctx"));
+        assertEquals(2048, tuner.tune("second", BASE, 100).get("num_ctx"));
+        assertEquals(16384, tuner.tune("first", BASE, 100).get("num_ctx"));
+
+        assertEquals(16384, tuner.getContextTokens("first"));
+        assertEquals(2048, tuner.getContextTokens("second"));
+        assertEquals(16384, metrics.getGauge("javallama_tuner_context"));
+        assertEquals(2, tuner.getReloads());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testPoolTunedPerServer
+     * DESCRIPTION : Tests that a request is sized for the server it was given
+     * PRE-CONDITION : Two stub servers, the first holds a document conversation and is busy
+     * POST-CONDITION : A short question going to the second server gets that server's small window
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A request should be tuned for the server it was given")
+    void testPoolTunedPerServer() throws Exception {
+        try (StubOllamaServer first = new StubOllamaServer(); StubOllamaServer second = new StubOllamaServer()) {
+            MetricsRegistry metrics = new MetricsRegistry();
+            BackendPool pool = new BackendPool(metrics);
+            pool.addBackend("first", new Ollama(first.getUrl()));
+            pool.addBackend("second", new Ollama(second.getUrl()));
+            AdaptiveTuner tuner = new AdaptiveTuner(0, metrics);
+            OllamaService alice = new OllamaService(pool);
+            OllamaService bob = new OllamaService(pool);
+            alice.setTuner(tuner);
+            bob.setTuner(tuner);
+
+            alice.setContext("Section 1. The pump must be primed before use. ".repeat(400));
+            alice.chatStream("How is the pump primed?", token -> { });
+            BackendPool.Backend busy = pool.acquire(null, List.of());
+            bob.chatStream("What is a pump?", token -> { });
+            pool.release(busy, false);
+
+            assertTrue(first.getRequests().get(0).body.contains("\"num_ctx\":8192"));
+            assertTrue(second.getRequests().get(0).body.contains("\"num_ctx\":2048"));
+            assertEquals(8192, tuner.getContextTokens("first"));
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testSummaryKeepsLoadedWindow
+     * DESCRIPTION : Tests that a history summary is sent with the window the server has loaded
+     * PRE-CONDITION : Stub server simulating the window, a document question loaded 8192 tokens
+     * POST-CONDITION : The summary asks for 8192 too and the model is not loaded again
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A summary should not make the server reload the model")
+    void testSummaryKeepsLoadedWindow() throws Exception {
+        try (StubOllamaServer stub = new StubOllamaServer()) {
+            stub.setContextSimulation(true);
+            OllamaService ollama = new OllamaService(new Ollama(stub.getUrl()));
+            ollama.setTuner(new AdaptiveTuner(0, ollama.getMetrics()));
+            ollama.setContext("Section 1. The pump must be primed before use. ".repeat(400));
+            ollama.chatStream("How is the pump primed?", token -> { });
+
+            new OllamaSummarizer(ollama).summarize("", List.of(
+                    new ConversationHistory.Message(ConversationHistory.Role.USER, "How is the pump primed?")));
+
+            List<StubOllamaServer.RecordedRequest> requests = stub.getRequests();
+            assertTrue(requests.get(1).body.contains("\"num_ctx\":8192"), requests.get(1).body);
+            assertEquals(1, stub.getLoads());
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : benchmarkMixedWorkload
+     * DESCRIPTION : Compares the fixed default window with the tuner over short chats and document sessions
+     * PRE-CONDITION : Stub server simulating reloads and window-dependent latency, durations are not slept
+     * POST-CONDITION : Results printed, the tuner spends less simulated server time on the sessions that fit
+     *                  the default window and truncates nothing
+     * ======================================================================
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkMixedWorkload() throws Exception {
+        String manual = "Section 1. The pump must be primed before use. ".repeat(400);
+        String handbook = "Chapter 2. Every valve is inspected and logged each month. ".repeat(1500);
+        String answer = "The pump is primed by filling the housing with water before it is started. ".repeat(3);
+        System.out.println("mode      fitting s    all s   loads  truncated");
+        // sessions that fit the default window do the same work in both modes, the large document does not
+        long[] fittingNanos = new long[2];
+        long[] serverNanos = new long[2];
+        int[] truncations = new int[2];
+        for (int mode = 0; mode < 2; mode++) {
+            try (StubOllamaServer stub = new StubOllamaServer()) {
+                stub.setContextSimulation(true);
+                stub.setResponse(answer);
+                AdaptiveTuner tuner = mode == 1 ? new AdaptiveTuner(0, new MetricsRegistry()) : null;
+                for (int session = 0; session < 16; session++) {
+                    OllamaService ollama = new OllamaService(new Ollama(stub.getUrl()));
+                    ollama.setTuner(tuner);
+                    boolean large = session % 8 == 7;
+                    if (session % 4 == 3) {
+                        ollama.setContext(large ? handbook : manual);
+                    }
+                    for (int question = 0; question < 6; question++) {
+                        ChatResponse response = ollama.chatStream("Question " + question + " of session " + session
+                                + ": how is the pump primed?", token -> { });
+                        serverNanos[mode] += response.getTimings().getTotalDurationNs();
+                        if (!large) {
+                            fittingNanos[mode] += response.getTimings().getTotalDurationNs();
+                        }
+                    }
+                }
+                truncations[mode] = stub.getTruncations();
+                System.out.printf("%-10s %9.1f %8.1f %7d %10d%n", mode == 0 ? "fixed" : "adaptive",
+                        fittingNanos[mode] / 1e9, serverNanos[mode] / 1e9, stub.getLoads(), truncations[mode]);
+                if (tuner != null) {
+                    tuner.writeOutput();
+                }
+            }
+        }
+        assertTrue(fittingNanos[1] < fittingNanos[0], "the tuner should spend less server time");
+        assertTrue(truncations[0] > 0, "the fixed window should cut the large document");
+        assertEquals(0, truncations[1]);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : timings
+     * DESCRIPTION : Builds the timings of a reply
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns timings with the load, answer length and generation speed
+     * ======================================================================
+     */
+    private static InferenceTimings timings(long loadNanos, int evalCount, long nanosPerToken) {
+        long evalNanos = evalCount * nanosPerToken;
+        return new InferenceTimings(loadNanos + evalNanos, loadNanos, 10, 1_000_000L, evalCount, evalNanos);
+    }
+}
@@ -0,0 +1,234 @@
+/**
+======================================================================
+CLASS NAME : BackendPoolTest
+DESCRIPTION : Tests of load balancing, circuit breaking and session affinity over several stub servers
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  added summary failover test
+======================================================================
+*/
+package javaollama;
+
+import io.github.ollama4j.Ollama;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BackendPoolTest {
+
+    private StubOllamaServer first;
+    private StubOllamaServer second;
+    private MetricsRegistry metrics;
+    private AtomicLong clock;
+    private BackendPool pool;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setUp
+     * DESCRIPTION : Starts two stub servers and a pool over them
+     * PRE-CONDITION : Two local ports are free
+     * POST-CONDITION : Pool opens a circuit after 2 failures for 10 seconds of the manual clock
+     * ======================================================================
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        first = new StubOllamaServer();
+        second = new StubOllamaServer();
+        metrics = new MetricsRegistry();
+        clock = new AtomicLong();
+        pool = new BackendPool(2, 10_000, metrics, clock::get);
+        pool.addBackend(first.getUrl(), new Ollama(first.getUrl()));
+        pool.addBackend(second.getUrl(), new Ollama(second.getUrl()));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : tearDown
+     * DESCRIPTION : Stops the stub servers
+     * PRE-CONDITION : None
+     * POST-CONDITION : Ports released
+     * ======================================================================
+     */
+    @AfterEach
+    void tearDown() {
+        first.close();
+        second.close();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testLeastOutstandingFirst
+     * DESCRIPTION : Tests that new requests go to the server with the fewest requests
+     * PRE-CONDITION : No affinity
+     * POST-CONDITION : Requests spread over both servers, a freed server is picked next
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Requests should go to the server with the fewest outstanding requests")
+    void testLeastOutstandingFirst() {
+        BackendPool.Backend a = pool.acquire(null, List.of());
+        BackendPool.Backend b = pool.acquire(null, List.of());
+        assertNotSame(a, b);
+        assertEquals(1, pool.getOutstanding(a));
+        assertEquals(1, pool.getOutstanding(b));
+
+        pool.release(a, false);
+        BackendPool.Backend c = pool.acquire(null, List.of());
+
+        assertSame(a, c);
+        pool.release(b, false);
+        pool.release(c, false);
+        assertEquals(0, pool.getOutstanding(a));
+        assertEquals(0, pool.getOutstanding(b));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testCircuitOpensAndRecovers
+     * DESCRIPTION : Tests that a failing server is skipped and later tried again with one request
+     * PRE-CONDITION : First server fails twice in a row
+     * POST-CONDITION : Skipped while open, one trial after the open period, closed again on success
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A failing server should be taken out and tried again later")
+    void testCircuitOpensAndRecovers() {
+        BackendPool.Backend failing = pool.getBackends().get(0);
+        BackendPool.Backend healthy = pool.getBackends().get(1);
+        pool.release(pool.acquire(failing, List.of()), true);
+        assertFalse(pool.isOpen(failing));
+        pool.release(pool.acquire(failing, List.of()), true);
+
+        assertTrue(pool.isOpen(failing));
+        assertEquals(1, pool.getHealthyCount());
+        assertSame(healthy, pool.acquire(failing, List.of()));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        BackendPool.Backend trial = pool.acquire(failing, List.of());
+        assertSame(failing, trial);
+        // only one trial at a time
+        assertSame(healthy, pool.acquire(failing, List.of()));
+
+        pool.release(trial, false);
+        assertFalse(pool.isOpen(failing));
+        assertEquals(2, pool.getHealthyCount());
+        assertEquals(2, metrics.getCounter("javallama_backend_failures_total"));
+        assertEquals(1, metrics.getCounter("javallama_backend_circuit_opened_total"));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testFailedTrialReopens
+     * DESCRIPTION : Tests that a server still failing after its open period is taken out again
+     * PRE-CONDITION : Circuit open, trial request fails
+     * POST-CONDITION : Circuit open for another period
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A failed trial request should open the circuit again")
+    void testFailedTrialReopens() {
+        BackendPool.Backend failing = pool.getBackends().get(0);
+        pool.release(pool.acquire(failing, List.of()), true);
+        pool.release(pool.acquire(failing, List.of()), true);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(11));
+
+        pool.release(pool.acquire(failing, List.of()), true);
+
+        assertTrue(pool.isOpen(failing));
+        assertNotSame(failing, pool.acquire(failing, List.of()));
+        assertEquals(2, metrics.getCounter("javallama_backend_circuit_opened_total"));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testFailoverToHealthyServer
+     * DESCRIPTION : Tests that a chat moves on when a server cannot be reached
+     * PRE-CONDITION : First server is down
+     * POST-CONDITION : Answer comes from the second server, the failure is recorded
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A chat should fail over to another server when one is down")
+    void testFailoverToHealthyServer() throws Exception {
+        first.close();
+        second.setResponse("Still here");
+        OllamaService service = new OllamaService(pool);
+        service.setMetrics(metrics);
+        service.setDispatcher(new RequestDispatcher(4, metrics));
+
+        ChatResponse response = service.chat("Hello?");
+
+        assertEquals("Still here", response.getResponse());
+        assertEquals(1, second.getRequests().size());
+        assertEquals(1, metrics.getCounter("javallama_backend_retries_total"));
+        assertEquals(1, metrics.getCounter("javallama_backend_failures_total"));
+        // the conversation now sticks to the server that answered
+        assertSame(pool.getBackends().get(1).getApi(), service.getApi());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testSummaryUsesPool
+     * DESCRIPTION : Tests that a history summary is sent through the pool like a chat
+     * PRE-CONDITION : First server is down
+     * POST-CONDITION : Summary comes from the second server, the failure is recorded and the slot freed
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A summary should fail over to another server when one is down")
+    void testSummaryUsesPool() throws Exception {
+        first.close();
+        second.setResponse("They talked about pumps");
+        OllamaService service = new OllamaService(pool);
+        service.setDispatcher(new RequestDispatcher(4, metrics));
+
+        String summary = new OllamaSummarizer(service).summarize("", List.of(
+                new ConversationHistory.Message(ConversationHistory.Role.USER, "How hard does the pump push?"),
+                new ConversationHistory.Message(ConversationHistory.Role.ASSISTANT, "40 bar")));
+
+        assertEquals("They talked about pumps", summary);
+        assertTrue(second.getRequests().get(0).prompt.contains("40 bar"));
+        assertEquals(1, metrics.getCounter("javallama_backend_failures_total"));
+        assertEquals(0, pool.getOutstanding(pool.getBackends().get(1)));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testConversationStaysOnServer
+     * DESCRIPTION : Tests that follow-up turns go to the server holding the conversation's kv-cache
+     * PRE-CONDITION : The conversation's server is busier than the other one
+     * POST-CONDITION : Follow-ups still go there, a new conversation goes to the idle server
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A conversation should keep using the server it started on")
+    void testConversationStaysOnServer() throws Exception {
+        RequestDispatcher dispatcher = new RequestDispatcher(4, metrics);
+        OllamaService alice = new OllamaService(pool);
+        OllamaService bob = new OllamaService(pool);
+        alice.setDispatcher(dispatcher);
+        bob.setDispatcher(dispatcher);
+
+        alice.chat("Hi, I am Alice");
+        BackendPool.Backend busy = pool.acquire(null, List.of());
+        assertEquals(first.getUrl(), busy.getName());
+        alice.chat("What is my name?");
+        alice.chat("And again?");
+        bob.chat("Hi, I am Bob");
+        pool.release(busy, false);
+
+        assertEquals(3, first.getRequests().size());
+        assertEquals(1, second.getRequests().size());
+        assertTrue(second.getRequests().get(0).prompt.contains("Bob"));
+    }
+}
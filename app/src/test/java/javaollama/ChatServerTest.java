@@ -0,0 +1,496 @@
+/**
+======================================================================
+CLASS NAME : ChatServerTest
+DESCRIPTION : Tests and load test of the headless chat server against a stub ollama backend
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  sessions share a request dispatcher like in the server
+2026-10-16      Mickel Angelo Castoverde  added request profile parameter test
+2026-10-16      Mickel Angelo Castoverde  added background context and encoded profile tests
+2026-10-16      Mickel Angelo Castoverde  added test that client disconnects leave the backend in the pool
+======================================================================
+*/
+package javaollama;
+
+import io.github.ollama4j.Ollama;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChatServerTest {
+
+    private static final Pattern SESSION_ID = Pattern.compile("\"session\":\"([^\"]+)\"");
+
+    private StubOllamaServer stub;
+    private MetricsRegistry metrics;
+    private BackendPool backends;
+    private AtomicLong clock;
+    private SessionStore sessions;
+    private ChatServer server;
+    private HttpClient client;
+    private String baseUrl;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setUp
+     * DESCRIPTION : Starts a stub backend and a chat server in front of it
+     * PRE-CONDITION : Local ports are free
+     * POST-CONDITION : Server allows two generations at once and sessions idle after a minute
+     * ======================================================================
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new StubOllamaServer();
+        metrics = new MetricsRegistry();
+        clock = new AtomicLong();
+        backends = new BackendPool(metrics);
+        backends.addBackend("stub", new Ollama(stub.getUrl()));
+        RequestDispatcher dispatcher = new RequestDispatcher(2, metrics);
+        sessions = new SessionStore(() -> {
+            OllamaService service = new OllamaService(backends);
+            service.setMetrics(metrics);
+            service.setDispatcher(dispatcher);
+            return service;
+        }, 60_000, 1000, metrics, clock::get);
+        server = new ChatServer(new InetSocketAddress("127.0.0.1", 0), sessions,
+                new TaskScheduler(2, 512, metrics), metrics);
+        baseUrl = "http://127.0.0.1:" + server.start();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : tearDown
+     * DESCRIPTION : Stops the server and the stub
+     * PRE-CONDITION : None
+     * POST-CONDITION : Ports released
+     * ======================================================================
+     */
+    @AfterEach
+    void tearDown() {
+        server.close();
+        stub.close();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testChatStreamsServerSentEvents
+     * DESCRIPTION : Tests that an answer arrives as token events followed by a done event
+     * PRE-CONDITION : Stub answers with three words
+     * POST-CONDITION : Token events join to the answer, done event carries the stats
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Chat should stream the answer as server-sent events")
+    void testChatStreamsServerSentEvents() throws Exception {
+        stub.setResponse("Hello there world");
+        String session = createSession();
+
+        List<String[]> events = chat(session, "Say hello");
+
+        StringBuilder answer = new StringBuilder();
+        for (String[] event : events.subList(0, events.size() - 1)) {
+            assertEquals("token", event[0]);
+            answer.append(event[1]);
+        }
+        assertEquals("Hello there world", answer.toString());
+        String[] done = events.get(events.size() - 1);
+        assertEquals("done", done[0]);
+        assertTrue(done[1].contains("\"tokens\":3"), done[1]);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testSessionsKeepSeparateHistory
+     * DESCRIPTION : Tests that each session only sends its own conversation
+     * PRE-CONDITION : Two sessions ask different questions
+     * POST-CONDITION : The follow-up of one session does not contain the other's question
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Sessions should not see each other's history")
+    void testSessionsKeepSeparateHistory() throws Exception {
+        String alice = createSession();
+        String bob = createSession();
+
+        chat(alice, "Question about apples");
+        chat(bob, "Question about boats");
+        chat(alice, "And pears?");
+
+        List<StubOllamaServer.RecordedRequest> requests = stub.getRequests();
+        String followUp = requests.get(requests.size() - 1).prompt;
+        assertTrue(followUp.contains("Question about apples"));
+        assertTrue(followUp.contains("And pears?"));
+        assertFalse(followUp.contains("Question about boats"));
+        assertEquals(2, sessions.size());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testBusySessionRejectsSecondChat
+     * DESCRIPTION : Tests that a session runs one generation at a time
+     * PRE-CONDITION : First answer is streamed slowly
+     * POST-CONDITION : A second prompt to the same session is answered with 409
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A session should reject a prompt while it is still answering")
+    void testBusySessionRejectsSecondChat() throws Exception {
+        stub.setResponse("slow ".repeat(50));
+        stub.setTokenDelayMillis(20);
+        String session = createSession();
+
+        CompletableFuture<List<String[]>> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return chat(session, "Take your time");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        long deadline = System.currentTimeMillis() + 5000;
+        while (stub.getTokensSent() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        HttpResponse<String> second = post("/sessions/" + session + "/chat", "Are you done?");
+        assertEquals(409, second.statusCode());
+        assertEquals("done", last(first.get(10, TimeUnit.SECONDS))[0]);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testUnknownSessionNotFound
+     * DESCRIPTION : Tests requests for sessions that do not exist
+     * PRE-CONDITION : A session is created and deleted
+     * POST-CONDITION : Chatting with it or an invented id gives 404
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Unknown and deleted sessions should give 404")
+    void testUnknownSessionNotFound() throws Exception {
+        String session = createSession();
+        HttpResponse<String> deleted = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/sessions/" + session))
+                .DELETE().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(204, deleted.statusCode());
+
+        assertEquals(404, post("/sessions/" + session + "/chat", "Hello?").statusCode());
+        assertEquals(404, post("/sessions/no-such-session/chat", "Hello?").statusCode());
+        assertEquals(0, sessions.size());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testProfileParameter
+     * DESCRIPTION : Tests that the profile query parameter selects the request profile
+     * PRE-CONDITION : One session, asked once with a known and once with an unknown profile
+     * POST-CONDITION : The known profile reaches ollama, the unknown one gives 400
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("The profile parameter should select the request profile")
+    void testProfileParameter() throws Exception {
+        String session = createSession();
+
+        assertEquals(200, post("/sessions/" + session + "/chat?profile=fast", "Be quick").statusCode());
+        List<StubOllamaServer.RecordedRequest> requests = stub.getRequests();
+        assertTrue(requests.get(requests.size() - 1).body.contains("\"num_predict\":192"));
+
+        HttpResponse<String> unknown = post("/sessions/" + session + "/chat?profile=turbo", "Be quicker");
+        assertEquals(400, unknown.statusCode());
+        assertTrue(unknown.body().contains("fast"), unknown.body());
+
+        // the value is decoded after the raw query is split on &
+        assertEquals(200, post("/sessions/" + session + "/chat?profile=Long%2Dcontext", "Read it all").statusCode());
+        requests = stub.getRequests();
+        assertTrue(requests.get(requests.size() - 1).body.contains("\"num_ctx\":32768"));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testContextIndexedInBackground
+     * DESCRIPTION : Tests that a context upload is accepted at once and used once indexed
+     * PRE-CONDITION : One session, one document under the limit and one over it
+     * POST-CONDITION : 202 then the document reaches ollama, 413 for the large one and the session stays free
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Context should be indexed in the background and capped in size")
+    void testContextIndexedInBackground() throws Exception {
+        server.setMaxContextBytes(1000);
+        String session = createSession();
+
+        assertEquals(202, put("/sessions/" + session + "/context", "The pump runs at 40 bar.").statusCode());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sessions.get(session).isBusy()) {
+            assertTrue(System.nanoTime() < deadline, "Context not indexed in time");
+            Thread.sleep(5);
+        }
+        chat(session, "How hard does the pump push?");
+        List<StubOllamaServer.RecordedRequest> requests = stub.getRequests();
+        assertTrue(requests.get(requests.size() - 1).body.contains("40 bar"));
+
+        assertEquals(413, put("/sessions/" + session + "/context", "x".repeat(1001)).statusCode());
+        assertFalse(sessions.get(session).isBusy());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testDisconnectsKeepBackendAvailable
+     * DESCRIPTION : Tests that clients leaving mid-answer are not counted against the backend
+     * PRE-CONDITION : Slow answer, the client closes the stream after the first token three times
+     * POST-CONDITION : Circuit stays closed, disconnects counted and no chat errors
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Client disconnects should not take the backend out of the pool")
+    void testDisconnectsKeepBackendAvailable() throws Exception {
+        stub.setResponse("word ".repeat(200).trim());
+        stub.setTokenDelayMillis(10);
+        String session = createSession();
+        BackendPool.Backend backend = backends.getPrimary();
+
+        for (int i = 0; i < 3; i++) {
+            HttpResponse<InputStream> response = client.send(chatRequest(session, "Tell me a long story " + i),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                assertTrue(body.read() >= 0, "The stream should start before the client leaves");
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (sessions.get(session).isBusy()) {
+                assertTrue(System.nanoTime() < deadline, "The generation should stop once the client is gone");
+                Thread.sleep(5);
+            }
+        }
+
+        assertFalse(backends.isOpen(backend));
+        assertEquals(0, backends.getOutstanding(backend));
+        assertEquals(0, metrics.getCounter("javallama_backend_failures_total"));
+        assertEquals(0, metrics.getCounter("javallama_chat_errors_total"));
+        assertEquals(3, metrics.getCounter("javallama_chat_cancelled_total"));
+        assertEquals(3, metrics.getCounter("javallama_server_disconnects_total"));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testIdleSessionsEvicted
+     * DESCRIPTION : Tests that only sessions idle past the timeout are evicted
+     * PRE-CONDITION : One session used recently, one left alone for over a minute
+     * POST-CONDITION : The idle one is gone and its id answers 404
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Sessions idle longer than the timeout should be evicted")
+    void testIdleSessionsEvicted() throws Exception {
+        String idle = createSession();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(45));
+        String active = createSession();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        assertEquals(1, sessions.evictIdle());
+
+        assertNull(sessions.get(idle));
+        assertNotNull(sessions.get(active));
+        assertEquals(404, post("/sessions/" + idle + "/chat", "Still there?").statusCode());
+        assertEquals(1, metrics.getCounter("javallama_sessions_evicted_total"));
+        assertEquals(1, metrics.getGauge("javallama_sessions_active"));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : benchmarkConcurrentSessions
+     * DESCRIPTION : Load test with hundreds of sessions chatting at once against one backend
+     * PRE-CONDITION : Run with ./gradlew benchmark
+     * POST-CONDITION : Prints time to first event, request latency and throughput
+     * ======================================================================
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkConcurrentSessions() throws Exception {
+        int users = 300;
+        int turns = 3;
+        stub.setResponse("a short streamed answer of about ten words or so");
+        stub.setTokenDelayMillis(2);
+        server.close();
+        // one backend running eight generations in parallel, everyone else queues in the dispatcher
+        Ollama api = new Ollama(stub.getUrl());
+        RequestDispatcher dispatcher = new RequestDispatcher(8, metrics);
+        sessions = new SessionStore(() -> {
+            OllamaService service = new OllamaService(api);
+            service.setDispatcher(dispatcher);
+            return service;
+        }, 60_000, users, metrics);
+        server = new ChatServer(new InetSocketAddress("127.0.0.1", 0), sessions,
+                new TaskScheduler(users, 0, metrics), metrics);
+        baseUrl = "http://127.0.0.1:" + server.start();
+
+        LatencyHistogram firstEvent = new LatencyHistogram();
+        LatencyHistogram request = new LatencyHistogram();
+        AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+        for (int user = 0; user < users; user++) {
+            clients.execute(() -> {
+                try {
+                    String session = createSession();
+                    for (int turn = 0; turn < turns; turn++) {
+                        long sent = System.nanoTime();
+                        HttpResponse<Stream<String>> response = client.send(chatRequest(session, "Turn " + turn),
+                                HttpResponse.BodyHandlers.ofLines());
+                        long[] first = { 0 };
+                        boolean done = response.body().anyMatch(line -> {
+                            if (first[0] == 0 && line.startsWith("event:")) {
+                                first[0] = System.nanoTime();
+                            }
+                            return line.equals("event: done");
+                        });
+                        if (response.statusCode() != 200 || !done) {
+                            failures.incrementAndGet();
+                            continue;
+                        }
+                        firstEvent.record(first[0] - sent);
+                        request.record(System.nanoTime() - sent);
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                }
+            });
+        }
+        clients.shutdown();
+        assertTrue(clients.awaitTermination(5, TimeUnit.MINUTES));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        assertEquals(0, failures.get());
+        assertEquals(users * turns, request.getCount());
+        System.out.printf("%d sessions x %d turns in %.2fs, %.0f requests/s%n", users, turns, seconds,
+                request.getCount() / seconds);
+        System.out.printf("first event: p50 %.1f ms, p99 %.1f ms%n",
+                firstEvent.getValueAtPercentile(50) / 1e6, firstEvent.getValueAtPercentile(99) / 1e6);
+        System.out.printf("request: p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                request.getValueAtPercentile(50) / 1e6, request.getValueAtPercentile(99) / 1e6, request.getMax() / 1e6);
+        System.out.printf("queue wait: p99 %.1f ms, service: p99 %.1f ms%n",
+                metrics.latency("javallama_dispatch_queue_wait").getValueAtPercentile(99) / 1e3,
+                metrics.latency("javallama_dispatch_service").getValueAtPercentile(99) / 1e3);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : createSession
+     * DESCRIPTION : Opens a session on the server
+     * PRE-CONDITION : Server is running
+     * POST-CONDITION : Returns the new session id
+     * ======================================================================
+     */
+    private String createSession() throws Exception {
+        HttpResponse<String> response = post("/sessions", "");
+        assertEquals(201, response.statusCode());
+        Matcher matcher = SESSION_ID.matcher(response.body());
+        assertTrue(matcher.find(), response.body());
+        return matcher.group(1);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : chat
+     * DESCRIPTION : Sends a prompt and reads the whole event stream
+     * PRE-CONDITION : Session exists
+     * POST-CONDITION : Returns each event as {name, data}
+     * ======================================================================
+     */
+    private List<String[]> chat(String session, String prompt) throws Exception {
+        HttpResponse<Stream<String>> response = client.send(chatRequest(session, prompt),
+                HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, response.statusCode());
+        List<String[]> events = new ArrayList<>();
+        String[] event = { null, null };
+        for (String line : (Iterable<String>) response.body()::iterator) {
+            if (line.startsWith("event: ")) {
+                event = new String[] { line.substring(7), null };
+            } else if (line.startsWith("data: ")) {
+                String data = line.substring(6);
+                event[1] = event[1] == null ? data : event[1] + "\n" + data;
+            } else if (line.isEmpty() && event[0] != null) {
+                events.add(event);
+                event = new String[] { null, null };
+            }
+        }
+        return events;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : chatRequest
+     * DESCRIPTION : Builds the chat request for a session
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a POST with the prompt as body
+     * ======================================================================
+     */
+    private HttpRequest chatRequest(String session, String prompt) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/sessions/" + session + "/chat"))
+                .header("Accept", "text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofString(prompt))
+                .build();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : post
+     * DESCRIPTION : Sends a POST and reads the whole body
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the response
+     * ======================================================================
+     */
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : put
+     * DESCRIPTION : Sends a PUT and reads the whole body
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the response
+     * ======================================================================
+     */
+    private HttpResponse<String> put(String path, String body) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .PUT(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : last
+     * DESCRIPTION : Returns the last event of a stream
+     * PRE-CONDITION : events is not empty
+     * POST-CONDITION : Returns {name, data}
+     * ======================================================================
+     */
+    private static String[] last(List<String[]> events) {
+        return events.get(events.size() - 1);
+    }
+}
@@ -0,0 +1,248 @@
+/**
+======================================================================
+CLASS NAME : ChatViewTest
+DESCRIPTION : Unit tests and benchmark for the per-frame work of the chat view
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  added paging and 10k message tests for the message list
+2026-10-16      Mickel Angelo Castoverde  added stop test for the token coalescer
+======================================================================
+*/
+package javaollama;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChatViewTest {
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testThinkingTimerChangesOncePerTenth
+     * DESCRIPTION : Tests that frames within the same tenth of a second reuse the text
+     * PRE-CONDITION : Frames arrive every 16ms like a 60Hz pulse
+     * POST-CONDITION : Text changes only when the shown tenth changes
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Thinking timer should only change its text once per tenth of a second")
+    void testThinkingTimerChangesOncePerTenth() {
+        long start = 5_000_000_000L;
+        ThinkingTimer timer = new ThinkingTimer(start);
+        assertEquals("Thinking... 0.0s", timer.getText());
+
+        int changes = 0;
+        for (long frame = 0; frame <= 62; frame++) {
+            if (timer.update(start + frame * 16_000_000L)) {
+                changes++;
+            }
+        }
+
+        // 62 frames of 16ms end at 0.992s
+        assertEquals(9, changes);
+        assertEquals("Thinking... 0.9s", timer.getText());
+        assertTrue(timer.update(start + 12_345_000_000L));
+        assertEquals("Thinking... 12.3s", timer.getText());
+        assertFalse(timer.update(start + 12_399_000_000L));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : benchmarkThinkingTickOnLargeTranscript
+     * DESCRIPTION : Compares the fx thread work per timer tick with a 1MB transcript
+     * PRE-CONDITION : Run with ./gradlew benchmark
+     * POST-CONDITION : Prints p50/p99 tick time of the old rewrite and the label update
+     * ======================================================================
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkThinkingTickOnLargeTranscript() {
+        StringBuilder builder = new StringBuilder();
+        int exchange = 0;
+        while (builder.length() < 1_000_000) {
+            builder.append("You: question ").append(exchange).append('\n');
+            builder.append("\nAssistant: ").append("an answer with a few words in it. ".repeat(20)).append("\n\n");
+            exchange++;
+        }
+        builder.append("\n[Thinking... 0.0s]\n");
+        String transcript = builder.toString();
+        int ticks = 600; // one minute of thinking at 10 ticks per second
+
+        // the previous timer copied the transcript out of the TextArea, patched it and set it
+        // back, which on top of this also re-laid out the whole document in the control
+        LatencyHistogram rewrite = new LatencyHistogram();
+        String text = transcript;
+        for (int tick = 0; tick < ticks; tick++) {
+            long start = System.nanoTime();
+            int thinkingIndex = text.lastIndexOf("[Thinking...");
+            int endIndex = text.indexOf("]\n", thinkingIndex);
+            text = text.substring(0, thinkingIndex)
+                    + String.format(Locale.ROOT, "[Thinking... %.1fs]", tick / 10.0)
+                    + text.substring(endIndex);
+            rewrite.record(System.nanoTime() - start);
+        }
+
+        // now each frame only advances the timer, and the label text is set when it changes
+        LatencyHistogram label = new LatencyHistogram();
+        ThinkingTimer timer = new ThinkingTimer(0);
+        String shown = timer.getText();
+        for (int frame = 0; frame < ticks * 6; frame++) {
+            long start = System.nanoTime();
+            if (timer.update(frame * 16_666_667L)) {
+                shown = timer.getText();
+            }
+            label.record(System.nanoTime() - start);
+        }
+
+        assertTrue(text.contains("[Thinking... 59.9s]"));
+        assertEquals("Thinking... 59.9s", shown);
+        System.out.printf("transcript %d chars%n", transcript.length());
+        System.out.printf("full rewrite per tick: p50 %.1f us, p99 %.1f us%n",
+                rewrite.getValueAtPercentile(50) / 1e3, rewrite.getValueAtPercentile(99) / 1e3);
+        System.out.printf("label update per frame: p50 %.3f us, p99 %.3f us%n",
+                label.getValueAtPercentile(50) / 1e3, label.getValueAtPercentile(99) / 1e3);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testLongEntryPagesInLazily
+     * DESCRIPTION : Tests that a long message shows one page at a time
+     * PRE-CONDITION : Message of several pages made of lines
+     * POST-CONDITION : Pages end on line breaks and showMore reveals the rest
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Long messages should page in one page at a time")
+    void testLongEntryPagesInLazily() {
+        StringBuilder text = new StringBuilder();
+        for (int line = 0; line < 500; line++) {
+            text.append("Line ").append(line).append(" of a long pasted document\n");
+        }
+        ChatEntry entry = new ChatEntry("You", text.toString());
+
+        String first = entry.getVisibleText();
+        assertTrue(first.length() <= ChatEntry.PAGE_CHARS);
+        assertTrue(first.length() > ChatEntry.PAGE_CHARS * 3 / 4);
+        assertTrue(first.endsWith("\n"), "Page should end on a line break");
+        assertTrue(entry.hasMore());
+
+        int pages = 1;
+        while (entry.hasMore()) {
+            String before = entry.getVisibleText();
+            entry.showMore();
+            assertTrue(entry.getVisibleText().startsWith(before), "Earlier pages should not move");
+            pages++;
+        }
+        assertEquals(text.toString(), entry.getVisibleText());
+        assertTrue(pages >= text.length() / ChatEntry.PAGE_CHARS);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testStreamedEntryGrows
+     * DESCRIPTION : Tests that streamed text is appended to a message in place
+     * PRE-CONDITION : Entry starts empty like a response does
+     * POST-CONDITION : Text, visible text and stats reflect every append
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Streamed tokens should grow the message in place")
+    void testStreamedEntryGrows() {
+        ChatEntry entry = new ChatEntry("Assistant", "");
+        for (String token : new String[] { "The ", "pump ", "is ", "primed." }) {
+            entry.append(token);
+        }
+        entry.setStats("(1.0s)");
+
+        assertEquals("The pump is primed.", entry.getText());
+        assertEquals(entry.getText(), entry.getVisibleText());
+        assertFalse(entry.hasMore());
+        assertEquals("(1.0s)", entry.getStats());
+        assertEquals("Assistant: The pump is primed.", entry.toString());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testStopKeepsBufferedTokens
+     * DESCRIPTION : Tests that stopping a stream shows the tokens still waiting for the ui thread
+     * PRE-CONDITION : Ui executor queues its tasks without running them, like a busy fx thread
+     * POST-CONDITION : Stop delivers the buffered text, later tokens and the queued flush add nothing
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Stop should keep the tokens that arrived but were not shown yet")
+    void testStopKeepsBufferedTokens() {
+        List<Runnable> uiQueue = new ArrayList<>();
+        StringBuilder shown = new StringBuilder();
+        TokenCoalescer coalescer = new TokenCoalescer(uiQueue::add, shown::append);
+        coalescer.onToken("The ");
+        coalescer.onToken("pump");
+
+        coalescer.stop();
+        coalescer.onToken(" is");
+        uiQueue.forEach(Runnable::run);
+
+        assertEquals("The pump", shown.toString());
+        assertTrue(coalescer.isCancelled(), "The chat should close its stream");
+        uiQueue.clear();
+
+        TokenCoalescer cleared = new TokenCoalescer(uiQueue::add, shown::append);
+        cleared.onToken(" dropped");
+        cleared.cancel();
+        uiQueue.forEach(Runnable::run);
+        assertEquals("The pump", shown.toString(), "Cancel should drop buffered text");
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : benchmarkStreamingIntoLargeTranscript
+     * DESCRIPTION : Measures the per-batch update cost at the end of a 10k message transcript
+     * PRE-CONDITION : Run with ./gradlew benchmark
+     * POST-CONDITION : Prints p50/p99 of locating and re-rendering the streamed message
+     * ======================================================================
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkStreamingIntoLargeTranscript() {
+        List<ChatEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            entries.add(new ChatEntry(i % 2 == 0 ? "You" : "Assistant", "message " + i + " ".repeat(200)));
+        }
+        ChatEntry streaming = new ChatEntry("Assistant", "");
+        entries.add(streaming);
+
+        // per batch the view finds the entry and a cell lays out at most one page of it
+        LatencyHistogram batches = new LatencyHistogram();
+        int rendered = 0;
+        for (int batch = 0; batch < 5_000; batch++) {
+            long start = System.nanoTime();
+            streaming.append("token" + batch + " ");
+            int index = entries.lastIndexOf(streaming);
+            entries.set(index, streaming);
+            rendered += streaming.getVisibleText().length();
+            batches.record(System.nanoTime() - start);
+        }
+
+        // the old TextArea kept the whole conversation as one string
+        long chars = 0;
+        for (ChatEntry entry : entries) {
+            chars += entry.length() + entry.getSender().length() + 3;
+        }
+
+        assertTrue(streaming.hasMore());
+        assertTrue(rendered > 0);
+        System.out.printf("%d messages, %d chars, streamed message %d chars%n",
+                entries.size(), chars, streaming.length());
+        System.out.printf("per batch update: p50 %.2f us, p99 %.2f us%n",
+                batches.getValueAtPercentile(50) / 1e3, batches.getValueAtPercentile(99) / 1e3);
+    }
+}
@@ -0,0 +1,261 @@
+/**
+======================================================================
+CLASS NAME : ConversationStoreTest
+DESCRIPTION : Tests and reopen benchmark of the persistent conversation store
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConversationStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testHistoryRestoredAfterReopen
+     * DESCRIPTION : Tests that a persisted history comes back with its window and summary
+     * PRE-CONDITION : History attached to a new store, cleared once
+     * POST-CONDITION : Reopened history holds the messages after the clear and the summary
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A persisted history should be restored after reopening")
+    void testHistoryRestoredAfterReopen() throws Exception {
+        try (ConversationStore store = open("chat")) {
+            ConversationHistory history = new ConversationHistory();
+            history.attach(store);
+            history.addUserMessage("Forget this");
+            history.clear();
+            history.addUserMessage("What is a pump?");
+            history.addAssistantMessage("A device that moves fluid.");
+            store.setSummary("Talked about pumps.");
+        }
+
+        try (ConversationStore store = open("chat")) {
+            ConversationHistory history = new ConversationHistory();
+            history.attach(store);
+
+            assertEquals(List.of(new ConversationHistory.Message("user", "What is a pump?"),
+                    new ConversationHistory.Message("assistant", "A device that moves fluid.")),
+                    history.getMessages());
+            assertEquals("Talked about pumps.", history.getSummary());
+            assertEquals(3, store.size());
+            assertEquals("Forget this", store.read(0).getContent());
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testTornTailDiscarded
+     * DESCRIPTION : Tests that a record cut short by a crash is dropped and appends continue
+     * PRE-CONDITION : Log loses the last bytes of its last record without a snapshot
+     * POST-CONDITION : Earlier messages intact, the next append is readable after another reopen
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A torn record at the end of the log should be discarded")
+    void testTornTailDiscarded() throws Exception {
+        ConversationStore store = open("torn");
+        for (int i = 0; i < 10; i++) {
+            store.append(new ConversationHistory.Message("user", "message " + i));
+        }
+        store.sync();
+        long logBytes = store.getLogBytes();
+        // simulate a crash: no close, so no snapshot, and a half written last record
+        try (FileChannel log = FileChannel.open(tempDir.resolve("torn.jlc"), StandardOpenOption.WRITE)) {
+            log.truncate(logBytes - 3);
+        }
+
+        try (ConversationStore reopened = open("torn")) {
+            assertEquals(9, reopened.size());
+            assertEquals("message 8", reopened.read(8).getContent());
+            reopened.append(new ConversationHistory.Message("assistant", "after the crash"));
+        }
+        try (ConversationStore reopened = open("torn")) {
+            assertEquals(10, reopened.size());
+            assertEquals("after the crash", reopened.read(9).getContent());
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testCorruptRecordDiscarded
+     * DESCRIPTION : Tests that a record failing its checksum ends the log
+     * PRE-CONDITION : A byte of the third message is flipped, no snapshot
+     * POST-CONDITION : Only the two messages before it are kept
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A record that fails its checksum should end the log")
+    void testCorruptRecordDiscarded() throws Exception {
+        ConversationStore store = open("corrupt");
+        for (int i = 0; i < 5; i++) {
+            store.append(new ConversationHistory.Message("user", "message " + i));
+        }
+        store.sync();
+        long third = Files.size(tempDir.resolve("corrupt.jlc")) / 5 * 2;
+        byte[] bytes = Files.readAllBytes(tempDir.resolve("corrupt.jlc"));
+        bytes[(int) third + 12] ^= 0x55;
+        Files.write(tempDir.resolve("corrupt.jlc"), bytes);
+
+        try (ConversationStore reopened = open("corrupt")) {
+            assertEquals(2, reopened.size());
+            assertEquals(List.of("message 0", "message 1"),
+                    reopened.readRange(0, 2).stream().map(ConversationHistory.Message::getContent).toList());
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testLoadRecentFitsBudget
+     * DESCRIPTION : Tests that only the newest messages within the budget are loaded
+     * PRE-CONDITION : 100 question and answer pairs of about 29 tokens each
+     * POST-CONDITION : Loaded window fits the budget, starts with a question and ends with the last answer
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Reopening should load only the newest messages that fit the budget")
+    void testLoadRecentFitsBudget() throws Exception {
+        try (ConversationStore store = open("budget")) {
+            for (int i = 0; i < 100; i++) {
+                store.append(new ConversationHistory.Message("user", "question " + i + " ".repeat(90)));
+                store.append(new ConversationHistory.Message("assistant", "answer " + i + " ".repeat(92)));
+            }
+
+            List<ConversationHistory.Message> recent = store.loadRecent(300);
+
+            int tokens = recent.stream().mapToInt(ConversationHistory.Message::getTokenEstimate).sum();
+            assertTrue(tokens <= 300, "window holds " + tokens + " tokens");
+            assertTrue(recent.size() >= 8);
+            assertEquals("user", recent.get(0).getRole());
+            assertTrue(recent.get(recent.size() - 1).getContent().startsWith("answer 99"));
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testCompactKeepsWindow
+     * DESCRIPTION : Tests that compaction drops cleared messages and keeps the window
+     * PRE-CONDITION : 200 messages, cleared, then 2 more and a summary
+     * POST-CONDITION : Log shrinks, reopened store holds the 2 messages and the summary
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Compaction should drop cleared messages and keep the window")
+    void testCompactKeepsWindow() throws Exception {
+        long before;
+        try (ConversationStore store = open("compact")) {
+            for (int i = 0; i < 200; i++) {
+                store.append(new ConversationHistory.Message("user", "old message " + i));
+            }
+            store.clear();
+            store.append(new ConversationHistory.Message("user", "new question"));
+            store.append(new ConversationHistory.Message("assistant", "new answer"));
+            store.setSummary("Earlier turns.");
+            before = store.getLogBytes();
+
+            store.compact();
+
+            assertTrue(store.getLogBytes() < before / 10);
+            assertEquals(2, store.size());
+            store.append(new ConversationHistory.Message("user", "after compaction"));
+        }
+        try (ConversationStore store = open("compact")) {
+            assertEquals(3, store.size());
+            assertEquals(0, store.getWindowStart());
+            assertEquals("new answer", store.read(1).getContent());
+            assertEquals("after compaction", store.read(2).getContent());
+            assertEquals("Earlier turns.", store.getSummary());
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : benchmarkReopenLargeConversation
+     * DESCRIPTION : Measures append throughput per sync policy and the reopen time of 100k messages
+     * PRE-CONDITION : None
+     * POST-CONDITION : Results printed, reopen with the recent window under 100 ms
+     * ======================================================================
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkReopenLargeConversation() throws Exception {
+        String answer = "The pump must be primed before it is started. ".repeat(8);
+        for (int syncEvery : new int[] { 1, 64, 0 }) {
+            int count = syncEvery == 1 ? 2_000 : 20_000;
+            try (ConversationStore store = new ConversationStore(tempDir, "sync" + syncEvery, syncEvery, 1024,
+                    new MetricsRegistry())) {
+                long start = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    store.append(new ConversationHistory.Message("user", answer));
+                }
+                store.sync();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("sync every %-5s %,9.0f appends/s%n", syncEvery > 0 ? syncEvery : "os",
+                        count / seconds);
+            }
+        }
+
+        int messages = 100_000;
+        try (ConversationStore store = new ConversationStore(tempDir, "large", 0, 1024, new MetricsRegistry())) {
+            for (int i = 0; i < messages; i++) {
+                store.append(new ConversationHistory.Message(i % 2 == 0 ? "user" : "assistant", i + " " + answer));
+            }
+            System.out.printf("%,d messages, log %,d bytes%n", messages, store.getLogBytes());
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            try (ConversationStore store = new ConversationStore(tempDir, "large", 0, 1024, new MetricsRegistry())) {
+                ConversationHistory history = new ConversationHistory();
+                history.attach(store);
+                long elapsed = System.nanoTime() - start;
+                best = Math.min(best, elapsed);
+                assertEquals(messages, store.size());
+                assertTrue(history.size() < 100, "only the recent window is loaded");
+                System.out.printf("reopen and load %d recent messages: %.2f ms%n", history.size(), elapsed / 1e6);
+            }
+        }
+        assertTrue(best < 100_000_000L, "reopen took " + best / 1e6 + " ms");
+
+        // without a snapshot the whole log is replayed and the index rebuilt
+        Files.delete(tempDir.resolve("large.jls"));
+        long start = System.nanoTime();
+        try (ConversationStore store = new ConversationStore(tempDir, "large", 0, 1024, new MetricsRegistry())) {
+            System.out.printf("reopen without snapshot (full replay): %.2f ms%n", (System.nanoTime() - start) / 1e6);
+            assertEquals(messages, store.size());
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : open
+     * DESCRIPTION : Opens a store in the temporary directory
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a store syncing every record, snapshot every 64 records
+     * ======================================================================
+     */
+    private ConversationStore open(String id) throws Exception {
+        return new ConversationStore(tempDir, id, 1, 64, new MetricsRegistry());
+    }
+}
@@ -0,0 +1,56 @@
+/**
+======================================================================
+CLASS NAME : FakeOllamaServe
+DESCRIPTION : Stand-in for "ollama serve" started as a separate process by the server manager tests
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+public class FakeOllamaServe {
+
+    /*
+     * ======================================================================
+     * METHOD NAME : main
+     * DESCRIPTION : Waits, then serves GET / like ollama does
+     * PRE-CONDITION : args are port, delay in ms before binding and a mode:
+     *                 "log" prints the listening line, "quiet" does not, "exit" exits with code 3
+     * POST-CONDITION : Runs until killed
+     * ======================================================================
+     */
+    public static void main(String[] args) throws Exception {
+        int port = Integer.parseInt(args[0]);
+        long delayMillis = Long.parseLong(args[1]);
+        String mode = args[2];
+
+        System.out.println("time=fake level=INFO msg=\"starting\"");
+        Thread.sleep(delayMillis);
+        if (mode.equals("exit")) {
+            System.out.println("Error: listen tcp 127.0.0.1:" + port + ": bind: address already in use");
+            System.exit(3);
+        }
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = "Ollama is running".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        if (mode.equals("log")) {
+            System.out.println("time=fake level=INFO msg=\"Listening on 127.0.0.1:" + port + " (version fake)\"");
+        }
+        Thread.sleep(Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+======================================================================
+CLASS NAME : HashingEmbedder
+DESCRIPTION : Deterministic bag-of-words embedder used in place of an ollama model in tests
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import java.util.List;
+import java.util.Locale;
+
+public class HashingEmbedder implements Embedder {
+
+    private final int dimension;
+    private int calls;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : HashingEmbedder
+     * DESCRIPTION : Parameterized constructor
+     * PRE-CONDITION : dimension > 0
+     * POST-CONDITION : Embedder initialized
+     * ======================================================================
+     */
+    public HashingEmbedder(int dimension) {
+        this.dimension = dimension;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : embed
+     * DESCRIPTION : Hashes every lower-cased word into a bucket of the vector
+     * PRE-CONDITION : texts is not null
+     * POST-CONDITION : Texts sharing words get similar vectors
+     * ======================================================================
+     */
+    @Override
+    public synchronized float[][] embed(List<String> texts) {
+        calls++;
+        float[][] vectors = new float[texts.size()][];
+        for (int i = 0; i < texts.size(); i++) {
+            float[] vector = new float[dimension];
+            for (String word : texts.get(i).toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+                if (!word.isEmpty()) {
+                    vector[Math.floorMod(word.hashCode(), dimension)] += 1f;
+                }
+            }
+            vectors[i] = vector;
+        }
+        return vectors;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getModelName
+     * DESCRIPTION : Identifies the embedder by its dimension
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the model name
+     * ======================================================================
+     */
+    @Override
+    public String getModelName() {
+        return "hashing-" + dimension;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getCalls
+     * DESCRIPTION : Returns how many times embed was called
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the call count
+     * ======================================================================
+     */
+    public synchronized int getCalls() {
+        return calls;
+    }
+}
@@ -0,0 +1,116 @@
+/**
+======================================================================
+CLASS NAME : MetricsTest
+DESCRIPTION : Tests of the latency histogram and the prometheus export
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testPercentilesWithinPrecision
+     * DESCRIPTION : Tests histogram percentiles against exact values
+     * PRE-CONDITION : Values 1..100000 recorded once each
+     * POST-CONDITION : Percentiles are within 2% of the exact value
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Histogram percentiles should be within the bucket precision")
+    void testPercentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            histogram.record(v);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        for (double p : new double[] { 50, 90, 99, 99.9 }) {
+            long exact = (long) Math.ceil(p / 100 * 100_000);
+            long value = histogram.getValueAtPercentile(p);
+            assertTrue(value >= exact && value <= exact * 1.02, "p" + p + " was " + value + ", exact " + exact);
+        }
+        assertEquals(100_000, histogram.getValueAtPercentile(100));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testBucketBoundaries
+     * DESCRIPTION : Tests that every value maps into a bucket that contains it
+     * PRE-CONDITION : None
+     * POST-CONDITION : Bucket upper bounds never fall below the value
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Every value should fall inside its bucket")
+    void testBucketBoundaries() {
+        long[] values = { 0, 1, 127, 128, 129, 255, 256, 1_000_000, Long.MAX_VALUE };
+        for (long value : values) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.highestValueAt(index) >= value, "bucket of " + value);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.highestValueAt(index - 1) < value, "previous bucket of " + value);
+            }
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testPrometheusExport
+     * DESCRIPTION : Tests the text export to a file and over http
+     * PRE-CONDITION : A local port is free
+     * POST-CONDITION : Counters and summaries appear in both exports
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Metrics should be exported in prometheus text format")
+    void testPrometheusExport() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.increment("javallama_chat_requests_total", 3);
+        metrics.recordLatency("javallama_chat_time_to_first_token", 250_000_000L);
+
+        String text = metrics.toPrometheus();
+        assertTrue(text.contains("# TYPE javallama_chat_requests_total counter\njavallama_chat_requests_total 3\n"));
+        assertTrue(text.contains("# TYPE javallama_chat_time_to_first_token_seconds summary\n"));
+        assertTrue(text.contains("javallama_chat_time_to_first_token_seconds{quantile=\"0.99\"} 0.25"));
+        assertTrue(text.contains("javallama_chat_time_to_first_token_seconds_count 1\n"));
+
+        Path file = tempDir.resolve("metrics/javallama.prom");
+        metrics.writeTo(file);
+        assertEquals(text, Files.readString(file));
+
+        int port = metrics.startEndpoint(0);
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/metrics")
+                    .openConnection();
+            assertEquals(200, connection.getResponseCode());
+            try (InputStream in = connection.getInputStream()) {
+                assertEquals(text, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        } finally {
+            metrics.stopEndpoint();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+======================================================================
+CLASS NAME : OllamaServerManagerTest
+DESCRIPTION : Tests of server readiness detection against a fake "ollama serve" process
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OllamaServerManagerTest {
+
+    private OllamaServerManager manager;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : tearDown
+     * DESCRIPTION : Stops the fake server
+     * PRE-CONDITION : None
+     * POST-CONDITION : Fake process terminated
+     * ======================================================================
+     */
+    @AfterEach
+    void tearDown() {
+        if (manager != null) {
+            manager.stopServer();
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testReadyOnListeningLine
+     * DESCRIPTION : Tests that readiness follows the listening line instead of fixed sleeps
+     * PRE-CONDITION : Fake binds 300 ms after it starts and logs the listening line
+     * POST-CONDITION : Ready well under the old 3 second minimum, every phase timed
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Server should be ready as soon as it logs that it is listening")
+    void testReadyOnListeningLine() throws Exception {
+        int port = freePort();
+        manager = fake(port, 300, "log", 10_000);
+
+        assertTrue(manager.startServer());
+        manager.awaitReady();
+
+        assertTrue(manager.getReadyMillis() >= 300);
+        assertTrue(manager.getReadyMillis() < 2500, manager.getStartupReport());
+        assertFalse(manager.getStartupReport().contains("?"), manager.getStartupReport());
+        assertTrue(manager.probe());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testReadyByProbe
+     * DESCRIPTION : Tests that a server that never logs the line is found by probing
+     * PRE-CONDITION : Fake binds 300 ms after it starts without logging
+     * POST-CONDITION : Ready shortly after binding, listening phase not reached
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Server should be found by probing when it does not log the listening line")
+    void testReadyByProbe() throws Exception {
+        int port = freePort();
+        manager = fake(port, 300, "quiet", 10_000);
+
+        assertTrue(manager.startServer());
+        manager.awaitReady();
+
+        assertTrue(manager.getReadyMillis() < 2500, manager.getStartupReport());
+        assertTrue(manager.getStartupReport().contains("listening ? ms"), manager.getStartupReport());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testDeadlineExceeded
+     * DESCRIPTION : Tests that waiting stops at the deadline
+     * PRE-CONDITION : Fake takes a minute to bind, deadline 500 ms
+     * POST-CONDITION : Fails after about the deadline
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Waiting should stop at the deadline")
+    void testDeadlineExceeded() {
+        manager = fake(freePort(), 60_000, "log", 500);
+        long start = System.nanoTime();
+
+        assertTrue(manager.startServer());
+        Exception error = assertThrows(Exception.class, manager::awaitReady);
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(error.getMessage().contains("not ready after 500 ms"), error.getMessage());
+        assertTrue(elapsedMillis < 2000, "took " + elapsedMillis + " ms");
+        assertEquals(-1, manager.getReadyMillis());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testProcessExitReported
+     * DESCRIPTION : Tests that a server dying during startup fails at once
+     * PRE-CONDITION : Fake exits with code 3, deadline 10 seconds
+     * POST-CONDITION : Fails with the exit code long before the deadline
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A server exiting during startup should fail without waiting for the deadline")
+    void testProcessExitReported() {
+        manager = fake(freePort(), 0, "exit", 10_000);
+        long start = System.nanoTime();
+
+        assertTrue(manager.startServer());
+        Exception error = assertThrows(Exception.class, manager::awaitReady);
+
+        assertTrue(error.getMessage().contains("code 3"), error.getMessage());
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 5000);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : fake
+     * DESCRIPTION : Creates a manager that runs the fake server in a new jvm
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a manager probing the fake's port
+     * ======================================================================
+     */
+    private static OllamaServerManager fake(int port, long delayMillis, String mode, long deadlineMillis) {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new OllamaServerManager(List.of(java, "-cp", System.getProperty("java.class.path"),
+                FakeOllamaServe.class.getName(), String.valueOf(port), String.valueOf(delayMillis), mode),
+                "http://127.0.0.1:" + port, deadlineMillis);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : freePort
+     * DESCRIPTION : Finds a local port nothing listens on
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the port number
+     * ======================================================================
+     */
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
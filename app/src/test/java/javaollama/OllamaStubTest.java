@@ -0,0 +1,477 @@
+/**
+======================================================================
+CLASS NAME : OllamaStubTest
+DESCRIPTION : Tests of OllamaService against a local stub ollama server
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  added server timings and metrics test
+2026-10-16      Mickel Angelo Castoverde  added cancellation test
+2026-10-16      Mickel Angelo Castoverde  added warm-up test
+2026-10-16      Mickel Angelo Castoverde  added request profile test
+2026-10-16      Mickel Angelo Castoverde  added cancellation before the first token, cancelled turns leave no history
+2026-10-16      Mickel Angelo Castoverde  added summary options test, prefix options of two sizes stay cached
+2026-10-16      Mickel Angelo Castoverde  added retrieval prefix test, retrieved chunks stay out of the cached prefix
+2026-10-16      Mickel Angelo Castoverde  added tests for documents being indexed and documents that cannot be indexed
+======================================================================
+*/
+package javaollama;
+
+import io.github.ollama4j.Ollama;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OllamaStubTest {
+
+    private StubOllamaServer stub;
+    private OllamaService ollama;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setUp
+     * DESCRIPTION : Starts a stub server and points a service at it
+     * PRE-CONDITION : A local port is free
+     * POST-CONDITION : Service talks to the stub over http
+     * ======================================================================
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new StubOllamaServer();
+        ollama = new OllamaService(new Ollama(stub.getUrl()));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : tearDown
+     * DESCRIPTION : Stops the stub server
+     * PRE-CONDITION : None
+     * POST-CONDITION : Port released
+     * ======================================================================
+     */
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testFollowUpEvaluatesOnlyNewTokens
+     * DESCRIPTION : Tests that follow-up turns keep the prompt prefix byte-identical
+     * PRE-CONDITION : Stub counts only prompt text after the previous request's prefix
+     * POST-CONDITION : Follow-ups evaluate a small fraction of the first prompt
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Follow-up turns should reuse the cached prompt prefix")
+    void testFollowUpEvaluatesOnlyNewTokens() throws Exception {
+        ollama.setContext("Section 1. The pump must be primed before use. ".repeat(150));
+
+        ChatResponse first = ollama.chat("How do I start the pump?");
+        ChatResponse second = ollama.chat("And how often should I prime it?");
+        ChatResponse third = ollama.chat("Thanks, anything else?");
+
+        List<StubOllamaServer.RecordedRequest> requests = stub.getRequests();
+        assertEquals(3, requests.size());
+        assertTrue(requests.get(1).prompt.startsWith(requests.get(0).prompt.substring(0,
+                requests.get(0).prompt.length() - 1)), "Second prompt should extend the first");
+
+        assertEquals(requests.get(0).promptEvalCount, first.getPromptEvalCount());
+        assertTrue(first.getPromptEvalCount() > 1000, "First turn evaluates the whole context");
+        assertTrue(second.getPromptEvalCount() < first.getPromptEvalCount() / 20,
+                "Follow-up evaluated " + second.getPromptEvalCount() + " tokens");
+        assertTrue(third.getPromptEvalCount() < first.getPromptEvalCount() / 20,
+                "Follow-up evaluated " + third.getPromptEvalCount() + " tokens");
+
+        for (StubOllamaServer.RecordedRequest request : requests) {
+            assertEquals(ollama.getKeepAlive(), request.keepAlive, "keep_alive should be sent");
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testRetrievalKeepsPrefixAppendOnly
+     * DESCRIPTION : Tests that retrieved chunks do not break the prefix of the next turn
+     * PRE-CONDITION : Document above the retrieval threshold, each question retrieves other chunks
+     * POST-CONDITION : Every request starts with all messages of the one before but its last
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Retrieved chunks should go with the question, not into the cached prefix")
+    void testRetrievalKeepsPrefixAppendOnly() throws Exception {
+        ollama.setRetriever(new DocumentRetriever(new HashingEmbedder(256), new TextChunker()));
+        ollama.setContext(handbook());
+        assertTrue(ollama.getRetriever().isIndexed(), "Large context should be indexed");
+
+        ollama.chat("What is the warranty period for the pump?");
+        ollama.chat("When is the filter of the pump replaced?");
+        ollama.chat("Is the warranty period longer than a year?");
+
+        List<StubOllamaServer.RecordedRequest> requests = stub.getRequests();
+        assertEquals(3, requests.size());
+        assertTrue(requests.get(0).prompt.contains("thirty six months"), "First question retrieves its passage");
+        assertTrue(requests.get(1).prompt.contains("every spring"), "Second question retrieves its passage");
+        for (int turn = 0; turn + 1 < requests.size(); turn++) {
+            String previous = requests.get(turn).prompt;
+            // the last message of a turn holds its retrieved chunks, everything before it is kept
+            int lastMessage = previous.lastIndexOf('{', previous.lastIndexOf("Context:"));
+            assertEquals(-1, previous.indexOf('{', lastMessage + 1), "Chunks should come after every other message");
+            String prefix = previous.substring(0, lastMessage);
+            String next = requests.get(turn + 1).prompt;
+            assertTrue(next.startsWith(prefix), "Turn " + (turn + 2) + " should extend the messages of turn "
+                    + (turn + 1));
+            assertEquals(1, next.split("Context:", -1).length - 1, "Only the newest question carries chunks");
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testPreviousDocumentUsedWhileIndexing
+     * DESCRIPTION : Tests that a document being embedded does not replace the current one early
+     * PRE-CONDITION : Small document loaded, embedding of a large one held until a question is asked
+     * POST-CONDITION : The question gets the small document, the next one the large document's chunks
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A document should replace the current one only once it is indexed")
+    void testPreviousDocumentUsedWhileIndexing() throws Exception {
+        HashingEmbedder hashing = new HashingEmbedder(256);
+        CountDownLatch indexing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ollama.setRetriever(new DocumentRetriever(new Embedder() {
+            @Override
+            public float[][] embed(List<String> texts) throws OllamaServiceException {
+                if (texts.size() > 1) {
+                    indexing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new OllamaServiceException("Interrupted");
+                    }
+                }
+                return hashing.embed(texts);
+            }
+
+            @Override
+            public String getModelName() {
+                return hashing.getModelName();
+            }
+        }, new TextChunker()));
+        ollama.setContext("The pump must be primed before use.");
+
+        String handbook = handbook();
+        Thread loader = new Thread(() -> ollama.setContext(handbook));
+        loader.start();
+        assertTrue(indexing.await(5, TimeUnit.SECONDS), "Large document should be embedding");
+        ollama.chat("How do I start the pump?");
+        release.countDown();
+        loader.join(5000);
+        ollama.chat("What is the warranty period for the pump?");
+
+        List<StubOllamaServer.RecordedRequest> requests = stub.getRequests();
+        assertTrue(requests.get(0).prompt.contains("primed before use"), "Current document kept while indexing");
+        assertFalse(requests.get(0).prompt.contains("Filler paragraph"), "Unindexed document must not be sent");
+        assertTrue(requests.get(1).prompt.contains("thirty six months"), "Indexed document used once ready");
+        assertFalse(requests.get(1).prompt.contains("primed before use"), "Previous document replaced");
+        assertEquals(handbook, ollama.getPdfContext());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testUnindexedDocumentCutToBudget
+     * DESCRIPTION : Tests that a large document whose embedding fails is not sent whole
+     * PRE-CONDITION : Embedder always fails
+     * POST-CONDITION : Request holds the start of the document and stays far below its size
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A large document that cannot be indexed should be cut to the pinning budget")
+    void testUnindexedDocumentCutToBudget() throws Exception {
+        ollama.setRetriever(new DocumentRetriever(new Embedder() {
+            @Override
+            public float[][] embed(List<String> texts) throws OllamaServiceException {
+                throw new OllamaServiceException("Embedding model not installed");
+            }
+
+            @Override
+            public String getModelName() {
+                return "missing";
+            }
+        }, new TextChunker()));
+        String handbook = handbook();
+        ollama.setContext(handbook);
+
+        ollama.chat("What is the warranty period for the pump?");
+
+        String prompt = stub.getRequests().get(0).prompt;
+        assertTrue(prompt.contains("Filler paragraph number 0 "), "Start of the document should be sent");
+        assertFalse(prompt.contains("every spring"), "End of the document should be cut");
+        assertTrue(prompt.length() < handbook.length() / 2, "Request should be smaller than the document");
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testResponseCarriesServerTimings
+     * DESCRIPTION : Tests that the server's duration split reaches the response and metrics
+     * PRE-CONDITION : Stub reports fixed load, prompt and generation durations
+     * POST-CONDITION : Timings are copied and every latency histogram gets one sample
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Server timings should reach the response and the metrics registry")
+    void testResponseCarriesServerTimings() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        ollama.setMetrics(metrics);
+        stub.setResponse("one two three four");
+
+        ChatResponse response = ollama.chat("Count to four");
+
+        InferenceTimings timings = response.getTimings();
+        assertTrue(timings.isReported());
+        assertEquals(5_000_000L, timings.getTotalDurationNs());
+        assertEquals(1_000_000L, timings.getLoadDurationNs());
+        assertEquals(4, timings.getEvalCount());
+        assertEquals(800_000L, timings.getEvalDurationNs());
+        assertTrue(response.getTimeToFirstTokenMs() >= 0);
+        assertTrue(response.getTotalTimeMs() >= response.getTimeToFirstTokenMs());
+
+        assertEquals(1, metrics.getCounter("javallama_chat_requests_total"));
+        assertEquals(4, metrics.getCounter("javallama_generated_tokens_total"));
+        assertEquals(1, metrics.latency("javallama_chat_time_to_first_token").getCount());
+        assertEquals(1, metrics.latency("javallama_server_prompt_eval").getCount());
+        assertEquals(1000, metrics.latency("javallama_server_load").getMax());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testWarmUpPrimesSystemPrompt
+     * DESCRIPTION : Tests that the warm-up leaves the first question only its own tokens to evaluate
+     * PRE-CONDITION : Stub counts only prompt text after the previous request's prefix
+     * POST-CONDITION : Warm-up uses the chat options with one token to predict, first question
+     *                  extends its prompt, warm-up kept out of the chat metrics
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Warm-up should load the model with the chat options and prime the system prompt")
+    void testWarmUpPrimesSystemPrompt() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        ollama.setMetrics(metrics);
+
+        ChatResponse warmUp = ollama.warmUp(true);
+        ChatResponse first = ollama.chat("Hello");
+
+        List<StubOllamaServer.RecordedRequest> requests = stub.getRequests();
+        assertEquals(2, requests.size());
+        StubOllamaServer.RecordedRequest warmUpRequest = requests.get(0);
+        assertTrue(warmUpRequest.body.contains("\"num_ctx\":16384"), warmUpRequest.body);
+        assertTrue(warmUpRequest.body.contains("\"num_predict\":1,"), warmUpRequest.body);
+        assertTrue(requests.get(1).body.contains("\"num_ctx\":16384"));
+        assertEquals(ollama.getKeepAlive(), warmUpRequest.keepAlive);
+        assertTrue(requests.get(1).prompt.startsWith(warmUpRequest.prompt.substring(0,
+                warmUpRequest.prompt.length() - 1)), "First prompt should extend the warm-up prompt");
+        assertTrue(first.getPromptEvalCount() < warmUp.getPromptEvalCount(),
+                "First question evaluated " + first.getPromptEvalCount() + " tokens");
+
+        assertEquals(1_000_000L, warmUp.getTimings().getLoadDurationNs());
+        assertEquals(1, metrics.latency("javallama_warmup").getCount());
+        assertEquals(1, metrics.getCounter("javallama_chat_requests_total"));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testProfileSelectedPerRequest
+     * DESCRIPTION : Tests that a request uses the system prompt and options of its profile
+     * PRE-CONDITION : Service profile is PRECISE, second question asked with FAST
+     * POST-CONDITION : Each request carries its profile's values, the prebuilt options are shared
+     *                  and read-only
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A request should be sent with the system prompt and options of its profile")
+    void testProfileSelectedPerRequest() throws Exception {
+        ollama.setProfile(RequestProfile.PRECISE);
+        ollama.chat("What is two plus two?");
+        ollama.chatStream("And three plus three?", RequestProfile.FAST, token -> {
+        });
+
+        List<StubOllamaServer.RecordedRequest> requests = stub.getRequests();
+        assertTrue(requests.get(0).body.contains("\"temperature\":0.0"), requests.get(0).body);
+        assertTrue(requests.get(0).body.contains(RequestProfile.PRECISE.getSystemPrompt()));
+        assertTrue(requests.get(1).body.contains("\"num_predict\":192"), requests.get(1).body);
+        assertTrue(requests.get(1).body.contains(RequestProfile.FAST.getSystemPrompt()));
+
+        int prefix = RequestProfile.FAST.getSystemPromptTokens();
+        assertSame(RequestProfile.FAST.getOptions(), RequestProfile.FAST.getOptions(prefix));
+        assertSame(RequestProfile.FAST.getOptions(prefix + 100), RequestProfile.FAST.getOptions(prefix + 100));
+        assertEquals(prefix + 100, RequestProfile.FAST.getOptions(prefix + 100).get("num_keep"));
+        // two sessions pinning different documents take turns without rebuilding each other's options
+        Map<String, Object> first = RequestProfile.FAST.getOptions(prefix + 1200);
+        Map<String, Object> second = RequestProfile.FAST.getOptions(prefix + 1201);
+        assertSame(first, RequestProfile.FAST.getOptions(prefix + 1200));
+        assertSame(second, RequestProfile.FAST.getOptions(prefix + 1201));
+        assertThrows(UnsupportedOperationException.class, () -> RequestProfile.FAST.getOptions().put("top_k", 1));
+        assertEquals(RequestProfile.LONG_CONTEXT, RequestProfile.of("Long-Context"));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testSummaryUsesProfileOptions
+     * DESCRIPTION : Tests that a history summary is sent with the context size of the chats
+     * PRE-CONDITION : Service uses the long context profile
+     * POST-CONDITION : Summary request carries that profile's num_ctx and none of the chat's stop words
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A summary should use the num_ctx of the active profile")
+    void testSummaryUsesProfileOptions() throws Exception {
+        stub.setResponse("They talked about pumps");
+        ollama.setProfile(RequestProfile.LONG_CONTEXT);
+
+        new OllamaSummarizer(ollama).summarize("", List.of(
+                new ConversationHistory.Message(ConversationHistory.Role.USER, "How hard does the pump push?")));
+
+        String body = stub.getRequests().get(0).body;
+        assertTrue(body.contains("\"num_ctx\":32768"), body);
+        assertTrue(body.contains("\"num_predict\":256"), body);
+        assertFalse(body.contains("\"stop\""), body);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testCancelDropsConnection
+     * DESCRIPTION : Tests that cancelling a generation closes the http stream
+     * PRE-CONDITION : One answered turn, then the stub streams 200 tokens slowly
+     * POST-CONDITION : Stub sees the client disconnect long before the end, history is as it was
+     *                  before the cancelled question
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Cancelling a generation should drop the connection to the server")
+    void testCancelDropsConnection() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        ollama.setMetrics(metrics);
+        ollama.chat("Hello");
+        List<ConversationHistory.Message> before = ollama.getHistory().getMessages();
+        stub.setResponse("word ".repeat(200));
+        stub.setTokenDelayMillis(20);
+        AtomicInteger received = new AtomicInteger();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ChatResponse> generation = ollama.chatAsync("Talk for a while", token -> received.incrementAndGet(), executor);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (received.get() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(received.get() >= 3, "Tokens should arrive before cancelling");
+
+            assertTrue(generation.cancel(true));
+            assertThrows(CancellationException.class, generation::get);
+
+            assertTrue(stub.awaitDisconnect(5000), "Server should see the connection dropped");
+            assertTrue(stub.getTokensSent() < 200, "Server should stop before the whole answer is sent");
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(before, ollama.getHistory().getMessages(),
+                "A cancelled question and its partial answer should not be stored");
+        assertEquals(1, metrics.getCounter("javallama_chat_cancelled_total"));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testCancelBeforeFirstToken
+     * DESCRIPTION : Tests that a listener cancelling while the server evaluates the prompt aborts the request
+     * PRE-CONDITION : Stub takes 3 seconds before its first chunk, like a long pdf prompt; the chat thread
+     *                 is not interrupted, only the listener reports the cancel
+     * POST-CONDITION : Chat fails as cancelled and frees its server well before the first token, the stub
+     *                  finds the connection gone, history stays empty
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Cancelling before the first token should abort the request")
+    void testCancelBeforeFirstToken() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        ollama.setMetrics(metrics);
+        stub.setResponse("word ".repeat(50));
+        stub.setFirstTokenDelayMillis(3000);
+        stub.setTokenDelayMillis(20);
+        AtomicInteger received = new AtomicInteger();
+        AtomicBoolean stopped = new AtomicBoolean();
+        TokenListener listener = new TokenListener() {
+            @Override
+            public void onToken(String token) {
+                received.incrementAndGet();
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return stopped.get();
+            }
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ChatResponse> generation = executor.submit(() -> ollama.chatStream("Summarize the manual", listener));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (stub.getRequests().isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, stub.getRequests().size(), "The server should be evaluating the prompt");
+
+            stopped.set(true);
+            ExecutionException error = assertThrows(ExecutionException.class, () -> generation.get(1, TimeUnit.SECONDS),
+                    "Chat should end well before the first token");
+            assertTrue(error.getCause().getMessage().contains("cancelled"), error.getCause().getMessage());
+            assertEquals(1, metrics.getCounter("javallama_chat_cancelled_total"));
+            BackendPool.Backend backend = ollama.getBackends().getBackends().get(0);
+            assertEquals(0, ollama.getBackends().getOutstanding(backend), "The server slot should be released");
+
+            assertTrue(stub.awaitDisconnect(5000), "Server should see the connection dropped");
+            assertTrue(stub.getTokensSent() < 50, "Server should stop before the whole answer is sent");
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, received.get());
+        assertEquals(0, ollama.getHistory().size(), "A cancelled question should not be stored");
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : handbook
+     * DESCRIPTION : Builds a document above the retrieval threshold with two findable passages
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the document text
+     * ======================================================================
+     */
+    private static String handbook() {
+        StringBuilder document = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            document.append("Filler paragraph number ").append(i).append(" about nothing in particular. ");
+            if (i == 200) {
+                document.append("The warranty period for the pump is thirty six months. ");
+            }
+            if (i == 800) {
+                document.append("The filter of the pump is replaced every spring. ");
+            }
+        }
+        return document.toString();
+    }
+}
@@ -8,18 +8,38 @@ REVISION HISTORY
 Date:           By:                         Description:
 2025-12-03      Mickel Angelo Castoverde  Creation of the program
 2025-12-06      Mickel Angelo Castoverde  Added recent changes for testing
+2026-10-16      Mickel Angelo Castoverde  Added token streaming test
+2026-10-16      Mickel Angelo Castoverde  Added pinned pdf context payload test
+2026-10-16      Mickel Angelo Castoverde  Added token budget and summary test
+2026-10-16      Mickel Angelo Castoverde  Added history snapshot test and build request benchmark
+2026-10-16      Mickel Angelo Castoverde  Added allocation per chat benchmark for each request profile
+2026-10-16      Mickel Angelo Castoverde  Added summaries on a shared executor test
+2026-10-16      Mickel Angelo Castoverde  Allocation benchmark alternates two sessions with different documents
+2026-10-16      Mickel Angelo Castoverde  Pinned context test uses a document small enough to be sent whole
+2026-10-16      Mickel Angelo Castoverde  Allocation benchmarks count every thread, the request runs on one of its own
 
 ======================================================================
 */
 package javaollama;
 
 import io.github.ollama4j.Ollama;
+import io.github.ollama4j.models.chat.OllamaChatMessage;
+import io.github.ollama4j.models.chat.OllamaChatRequest;
 import io.github.ollama4j.models.chat.OllamaChatResult;
 import io.github.ollama4j.models.chat.OllamaChatResponseModel;
+import io.github.ollama4j.models.chat.OllamaChatTokenHandler;
 import org.junit.jupiter.api.*;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -187,6 +207,107 @@ class OllamaTest {
         assertEquals("Hi there", history.getMessages().get(1).getContent());
     }
 
+    /*
+     * ======================================================================
+     * METHOD NAME : testHistorySnapshot
+     * DESCRIPTION : Tests that getMessages is a read-only snapshot of the window
+     * PRE-CONDITION : Small budget so the window slides, snapshot taken before more turns
+     * POST-CONDITION : Snapshot keeps its messages, cannot be changed, roles parse ignoring case
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("getMessages should return a read-only snapshot")
+    void testHistorySnapshot() {
+        ConversationHistory history = new ConversationHistory(100);
+        history.addUserMessage("First question");
+        history.addAssistantMessage("First answer");
+        List<ConversationHistory.Message> snapshot = history.getMessages();
+
+        for (int i = 0; i < 50; i++) {
+            history.addUserMessage("Question " + i + " " + "x".repeat(100));
+            history.addAssistantMessage("Answer " + i);
+        }
+        history.clear();
+
+        assertEquals(List.of(new ConversationHistory.Message("USER", "First question"),
+                new ConversationHistory.Message(ConversationHistory.Role.ASSISTANT, "First answer")), snapshot);
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(snapshot.get(0)));
+        assertThrows(IllegalArgumentException.class, () -> new ConversationHistory.Message("tool", "x"));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testHistoryStaysWithinTokenBudget
+     * DESCRIPTION : Tests that old turns slide out of the window into the summary
+     * PRE-CONDITION : Small budget, summarizer run on the calling thread
+     * POST-CONDITION : Window stays under budget and summary covers evicted turns
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("History should stay within its token budget")
+    void testHistoryStaysWithinTokenBudget() {
+        ConversationHistory history = new ConversationHistory(200);
+        List<String> summarized = new ArrayList<>();
+        history.setSummarizer((previous, evicted) -> {
+            for (ConversationHistory.Message msg : evicted) {
+                summarized.add(msg.getContent());
+            }
+            return previous + evicted.size() + " ";
+        }, Runnable::run);
+
+        for (int i = 0; i < 50; i++) {
+            history.addUserMessage("Question " + i + " " + "x".repeat(100));
+            history.addAssistantMessage("Answer " + i + " " + "y".repeat(100));
+            assertTrue(history.getTotalTokens() <= 200, "Window exceeded budget at turn " + i);
+        }
+
+        assertEquals("user", history.getMessages().get(0).getRole());
+        assertTrue(summarized.get(0).startsWith("Question 0 "), "Oldest turn should be summarized first");
+        assertEquals(100, summarized.size() + history.size(), "Every message is either kept or summarized");
+        assertFalse(history.getSummary().isEmpty());
+
+        history.clear();
+        assertEquals(0, history.getTotalTokens());
+        assertEquals("", history.getSummary());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testSummariesRunOneAtATime
+     * DESCRIPTION : Tests that a history on a shared executor never summarizes twice at once
+     * PRE-CONDITION : Small budget, summarizer slower than the turns on a thread per task executor
+     * POST-CONDITION : No summaries overlap and every evicted message is summarized once
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Summaries of one history should run one at a time on a shared executor")
+    void testSummariesRunOneAtATime() throws Exception {
+        ConversationHistory history = new ConversationHistory(200);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        AtomicInteger summarized = new AtomicInteger();
+        ExecutorService shared = Executors.newVirtualThreadPerTaskExecutor();
+        history.setSummarizer((previous, evicted) -> {
+            if (running.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            Thread.sleep(5);
+            summarized.addAndGet(evicted.size());
+            running.decrementAndGet();
+            return previous + evicted.size() + " ";
+        }, shared);
+
+        for (int i = 0; i < 30; i++) {
+            history.addUserMessage("Question " + i + " " + "x".repeat(100));
+            history.addAssistantMessage("Answer " + i + " " + "y".repeat(100));
+        }
+        shared.shutdown();
+        assertTrue(shared.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(0, overlaps.get(), "Each summary builds on the one before");
+        assertEquals(60, summarized.get() + history.size(), "Every message is either kept or summarized once");
+    }
+
     /*
      * ======================================================================
      * METHOD NAME : testEmptyPrompt
@@ -205,4 +326,221 @@ class OllamaTest {
             // empty prompts might throw - that's ok
         }
     }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testChatStreamDeliversTokens
+     * DESCRIPTION : Tests that streamed chunks reach the listener in order
+     * PRE-CONDITION : Mock API streams three chunks through the handler
+     * POST-CONDITION : Listener and response both hold the full text
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Chat stream should deliver tokens as they arrive")
+    void testChatStreamDeliversTokens() throws Exception {
+        OllamaChatResult mockResult = mock(OllamaChatResult.class);
+        when(mockApi.chat(any(), any())).thenAnswer(invocation -> {
+            OllamaChatTokenHandler handler = invocation.getArgument(1);
+            for (String token : new String[] { "Hel", "lo", "!" }) {
+                handler.accept(mockChunk(token));
+            }
+            return mockResult;
+        });
+
+        List<String> received = new ArrayList<>();
+        ChatResponse[] completed = new ChatResponse[1];
+        ChatResponse response = ollama.chatStream("Say hello", new TokenListener() {
+            @Override
+            public void onToken(String token) {
+                received.add(token);
+            }
+
+            @Override
+            public void onComplete(ChatResponse done) {
+                completed[0] = done;
+            }
+        });
+
+        assertEquals(List.of("Hel", "lo", "!"), received);
+        assertEquals("Hello!", response.getResponse());
+        assertEquals(3, response.getTokenCount());
+        assertTrue(response.getTimeToFirstTokenMs() >= 0, "First token time should be recorded");
+        assertSame(response, completed[0]);
+        assertEquals("Hello!", ollama.getHistory().getMessages().get(1).getContent());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testPdfContextSentOncePerRequest
+     * DESCRIPTION : Tests that the pdf context is not repeated as turns accumulate
+     * PRE-CONDITION : Pdf context under the retrieval threshold loaded, 20 chat turns
+     * POST-CONDITION : Each request carries one copy and payload grows only by the turns
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("PDF context should be sent once per request")
+    void testPdfContextSentOncePerRequest() throws Exception {
+        // larger documents are retrieved by chunks, this one is still pinned whole
+        String context = "Lorem ipsum dolor sit amet. ".repeat(800);
+        ollama.setContext(context);
+
+        int turns = 20;
+        for (int i = 0; i < turns; i++) {
+            ollama.chat("Question " + i);
+        }
+
+        ArgumentCaptor<OllamaChatRequest> captor = ArgumentCaptor.forClass(OllamaChatRequest.class);
+        verify(mockApi, times(turns)).chat(captor.capture(), any());
+        List<OllamaChatRequest> requests = captor.getAllValues();
+
+        for (OllamaChatRequest request : requests) {
+            long copies = request.getMessages().stream()
+                    .filter(m -> m.getResponse().contains(context))
+                    .count();
+            assertEquals(1, copies, "Context should be pinned exactly once");
+        }
+
+        int firstSize = payloadSize(requests.get(0));
+        int lastSize = payloadSize(requests.get(turns - 1));
+        assertTrue(lastSize - firstSize < context.length() / 10,
+                "Payload should only grow by the questions and answers, grew " + (lastSize - firstSize));
+
+        for (ConversationHistory.Message msg : ollama.getHistory().getMessages()) {
+            assertFalse(msg.getContent().contains(context), "History should hold raw questions only");
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : payloadSize
+     * DESCRIPTION : Sums the characters of every message in a request
+     * PRE-CONDITION : request is not null
+     * POST-CONDITION : Returns the total message length
+     * ======================================================================
+     */
+    private int payloadSize(OllamaChatRequest request) {
+        int size = 0;
+        for (OllamaChatMessage message : request.getMessages()) {
+            size += message.getResponse().length();
+        }
+        return size;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : mockChunk
+     * DESCRIPTION : Builds a mocked streamed chunk holding one token
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a response model whose message is the token
+     * ======================================================================
+     */
+    private OllamaChatResponseModel mockChunk(String token) {
+        OllamaChatResponseModel chunk = mock(OllamaChatResponseModel.class);
+        OllamaChatMessage message = mock(OllamaChatMessage.class);
+        when(chunk.getMessage()).thenReturn(message);
+        when(message.getResponse()).thenReturn(token);
+        return chunk;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : benchmarkBuildRequest
+     * DESCRIPTION : Measures the client side cost of a turn with a long history
+     * PRE-CONDITION : Mocked api answers at once, budget holds the whole history
+     * POST-CONDITION : Time and allocation per turn printed for 1k and 10k messages
+     * ======================================================================
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkBuildRequest() throws Exception {
+        // the request and its chunks are handled on a thread of its own, so all threads are counted
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        for (int size : new int[] { 1_000, 10_000 }) {
+            OllamaService service = new OllamaService(mockApi);
+            ConversationHistory history = service.getHistory();
+            history.setTokenBudget(Integer.MAX_VALUE);
+            for (int i = 0; i < size / 2; i++) {
+                history.addUserMessage("Question " + i + " about the pump?");
+                history.addAssistantMessage("Answer " + i + ": prime it first. ".repeat(3));
+            }
+            for (int i = 0; i < 200; i++) {
+                service.chat("Warm-up " + i);
+            }
+            // the mock would otherwise keep every request it was called with
+            clearInvocations(mockApi);
+
+            int turns = 500;
+            long bytes = threads.getTotalThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < turns; i++) {
+                service.chat("Question " + i);
+            }
+            long elapsed = System.nanoTime() - start;
+            bytes = threads.getTotalThreadAllocatedBytes() - bytes;
+            System.out.printf("%,6d messages: %7.1f us/turn, %,9d bytes/turn%n", size, elapsed / 1e3 / turns,
+                    bytes / turns);
+            clearInvocations(mockApi);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : benchmarkChatAllocation
+     * DESCRIPTION : Measures the bytes a short chat allocates on all threads per profile
+     * PRE-CONDITION : Mocked api answers at once, history cleared before every question
+     * POST-CONDITION : Bytes per chat printed, profile options and system message are not rebuilt,
+     *                  also not when two sessions pinning different documents take turns
+     * ======================================================================
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkChatAllocation() throws Exception {
+        // the request and its chunks are handled on a thread of its own, so all threads are counted
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        for (RequestProfile profile : List.of(RequestProfile.DEFAULT, RequestProfile.FAST, RequestProfile.PRECISE,
+                RequestProfile.LONG_CONTEXT)) {
+            ollama.setProfile(profile);
+            for (int i = 0; i < 2_000; i++) {
+                ollama.getHistory().clear();
+                ollama.chat("Warm-up");
+            }
+            clearInvocations(mockApi);
+
+            int chats = 5_000;
+            long bytes = threads.getTotalThreadAllocatedBytes();
+            for (int i = 0; i < chats; i++) {
+                ollama.getHistory().clear();
+                ollama.chat("Question");
+            }
+            bytes = threads.getTotalThreadAllocatedBytes() - bytes;
+            System.out.printf("%-13s %,7d bytes/chat%n", profile.getName(), bytes / chats);
+            clearInvocations(mockApi);
+        }
+
+        // as on the chat server, sessions with differently sized prefixes share the profile's options
+        ollama.setProfile(RequestProfile.DEFAULT);
+        OllamaService other = new OllamaService(mockApi);
+        ollama.setContext("The pump runs at 40 bar. ".repeat(40));
+        other.setContext("The valve opens at 12 bar. ".repeat(50));
+        List<OllamaService> sessions = List.of(ollama, other);
+        for (int i = 0; i < 2_000; i++) {
+            OllamaService session = sessions.get(i % 2);
+            session.getHistory().clear();
+            session.chat("Warm-up");
+        }
+        clearInvocations(mockApi);
+
+        int chats = 5_000;
+        long bytes = threads.getTotalThreadAllocatedBytes();
+        for (int i = 0; i < chats; i++) {
+            OllamaService session = sessions.get(i % 2);
+            session.getHistory().clear();
+            session.chat("Question");
+        }
+        bytes = threads.getTotalThreadAllocatedBytes() - bytes;
+        System.out.printf("%-13s %,7d bytes/chat%n", "two sessions", bytes / chats);
+        other.shutdown();
+    }
 }
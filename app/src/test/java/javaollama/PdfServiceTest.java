@@ -7,11 +7,18 @@ COPYRIGHT  : macastroverde 2025
 REVISION HISTORY
 Date:           By:                       Description:
 2025-12-06      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  Added on-disk cache tests
+2026-10-16      Mickel Angelo Castoverde  Added parallel extraction test and benchmark
+2026-10-16      Mickel Angelo Castoverde  Added page streaming test
+2026-10-16      Mickel Angelo Castoverde  Added test that uploads load every worker's copy temp-file backed
+2026-10-16      Mickel Angelo Castoverde  Added test that a loaded cache entry can be replaced and evicted
 ======================================================================
 */
 package javaollama;
 
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
@@ -20,6 +27,11 @@ import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class PdfServiceTest {
@@ -72,4 +84,275 @@ public class PdfServiceTest {
         File nonExistent = new File("does_not_exist.pdf");
         assertThrows(PdfProcessingException.class, () -> service.extractText(nonExistent));
     }
-}
\ No newline at end of file
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testKnownPdfServedFromCache
+     * DESCRIPTION : Tests that a pdf with a cached hash is not parsed again
+     * PRE-CONDITION : Cache entry planted under the file's content hash
+     * POST-CONDITION : loadDocument returns the cached text
+     * ======================================================================
+     */
+    @Test
+    void testKnownPdfServedFromCache(@TempDir Path cacheDir) throws IOException, PdfProcessingException {
+        PdfCache cache = new PdfCache(cacheDir, 1024 * 1024);
+        PdfService service = new PdfService(cache);
+        File pdf = cacheDir.resolve("doc.pdf").toFile();
+        createPdf(pdf, "Hello Cache");
+
+        CachedDocument first = service.loadDocument(pdf);
+        assertTrue(first.getText().contains("Hello Cache"));
+        assertTrue(cache.contains(first.getHash()), "Extracted text should be cached");
+
+        cache.store(new CachedDocument(first.getHash(), "from cache"));
+        assertEquals("from cache", service.extractText(pdf));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testCachedVectorsReused
+     * DESCRIPTION : Tests that chunk vectors survive a round trip through the cache
+     * PRE-CONDITION : Document indexed once with a cache key
+     * POST-CONDITION : Second retriever builds its index without embedding chunks
+     * ======================================================================
+     */
+    @Test
+    void testCachedVectorsReused(@TempDir Path cacheDir) throws OllamaServiceException {
+        PdfCache cache = new PdfCache(cacheDir, 16 * 1024 * 1024);
+        String text = "The pump warranty lasts three years. ".repeat(200)
+                + "Filters must be replaced monthly. ".repeat(200);
+
+        HashingEmbedder firstEmbedder = new HashingEmbedder(64);
+        DocumentRetriever first = new DocumentRetriever(firstEmbedder, new TextChunker());
+        first.setCache(cache);
+        first.index(text, "abc123");
+        assertEquals(1, firstEmbedder.getCalls());
+
+        HashingEmbedder secondEmbedder = new HashingEmbedder(64);
+        DocumentRetriever second = new DocumentRetriever(secondEmbedder, new TextChunker());
+        second.setCache(cache);
+        second.index(text, "abc123");
+        assertEquals(0, secondEmbedder.getCalls(), "Chunks should not be embedded again");
+
+        assertEquals(first.retrieve("filters replaced", 1), second.retrieve("filters replaced", 1));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testLeastRecentlyUsedEvicted
+     * DESCRIPTION : Tests that the cache stays under its size limit
+     * PRE-CONDITION : Cache limit fits two of three entries
+     * POST-CONDITION : The entry used longest ago is deleted
+     * ======================================================================
+     */
+    @Test
+    void testLeastRecentlyUsedEvicted(@TempDir Path cacheDir) throws IOException {
+        PdfCache cache = new PdfCache(cacheDir, 2500);
+        String text = "x".repeat(1000);
+
+        cache.store(new CachedDocument("a", text));
+        cache.store(new CachedDocument("b", text));
+        Files.setLastModifiedTime(cacheDir.resolve("a.jlc"), java.nio.file.attribute.FileTime.fromMillis(1000));
+        Files.setLastModifiedTime(cacheDir.resolve("b.jlc"), java.nio.file.attribute.FileTime.fromMillis(2000));
+        cache.store(new CachedDocument("c", text));
+
+        assertFalse(cache.contains("a"), "Oldest entry should be evicted");
+        assertTrue(cache.contains("b"));
+        assertTrue(cache.contains("c"));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testLoadedEntryReplacedAndEvicted
+     * DESCRIPTION : Tests that loading an entry does not keep its file open
+     * PRE-CONDITION : Entry loaded, then replaced and aged past two newer entries
+     * POST-CONDITION : Replacement is read back and the entry is then evicted
+     * ======================================================================
+     */
+    @Test
+    void testLoadedEntryReplacedAndEvicted(@TempDir Path cacheDir) throws IOException {
+        PdfCache cache = new PdfCache(cacheDir, 2500);
+        String text = "x".repeat(1000);
+
+        cache.store(new CachedDocument("a", text));
+        assertEquals(text, cache.load("a").getText());
+        cache.store(new CachedDocument("a", "y".repeat(1000)));
+        assertEquals("y".repeat(1000), cache.load("a").getText());
+
+        Files.setLastModifiedTime(cacheDir.resolve("a.jlc"), java.nio.file.attribute.FileTime.fromMillis(1000));
+        cache.store(new CachedDocument("b", text));
+        cache.store(new CachedDocument("c", text));
+        assertFalse(Files.exists(cacheDir.resolve("a.jlc")), "Loaded entry should be evicted");
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testParallelExtractionKeepsPageOrder
+     * DESCRIPTION : Tests that parallel extraction matches sequential extraction
+     * PRE-CONDITION : 40 page pdf with a marker on every page
+     * POST-CONDITION : Both modes return the same text with markers in order
+     * ======================================================================
+     */
+    @Test
+    void testParallelExtractionKeepsPageOrder(@TempDir Path dir) throws IOException, PdfProcessingException {
+        PdfService service = new PdfService(null);
+        File pdf = dir.resolve("pages.pdf").toFile();
+        createPdf(pdf, 40);
+
+        String sequential = service.extractTextParallel(pdf, 1);
+        String parallel = service.extractTextParallel(pdf, 4);
+        assertEquals(sequential, parallel);
+
+        int previous = -1;
+        for (int page = 1; page <= 40; page++) {
+            int index = parallel.indexOf("Marker page " + page + " end");
+            assertTrue(index > previous, "Page " + page + " should follow page " + (page - 1));
+            previous = index;
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testExtractPagesStreamsInOrder
+     * DESCRIPTION : Tests that pages are delivered one at a time in order
+     * PRE-CONDITION : 20 page pdf with a marker on every page
+     * POST-CONDITION : Each callback holds exactly its own page's text
+     * ======================================================================
+     */
+    @Test
+    void testExtractPagesStreamsInOrder(@TempDir Path dir) throws IOException, PdfProcessingException {
+        PdfService service = new PdfService(null);
+        File pdf = dir.resolve("stream.pdf").toFile();
+        createPdf(pdf, 20);
+
+        List<Integer> numbers = new ArrayList<>();
+        StringBuilder joined = new StringBuilder();
+        int pageCount = service.extractPages(pdf, (pageNumber, total, text) -> {
+            assertEquals(20, total);
+            assertTrue(text.contains("Marker page " + pageNumber + " end"));
+            assertFalse(text.contains("Marker page " + (pageNumber + 1) + " end"));
+            numbers.add(pageNumber);
+            joined.append(text);
+        });
+
+        assertEquals(20, pageCount);
+        assertEquals(20, numbers.size());
+        for (int i = 0; i < numbers.size(); i++) {
+            assertEquals(i + 1, numbers.get(i));
+        }
+        assertEquals(service.extractTextParallel(pdf, 1), joined.toString());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testUploadLoadsThroughOpenDocument
+     * DESCRIPTION : Tests that the upload path loads every copy with temp-file backed streams
+     * PRE-CONDITION : 40 page pdf, four workers
+     * POST-CONDITION : Each worker's copy came from openDocument, text matches the page stream
+     * ======================================================================
+     */
+    @Test
+    void testUploadLoadsThroughOpenDocument(@TempDir Path dir) throws IOException, PdfProcessingException {
+        AtomicInteger opened = new AtomicInteger();
+        PdfService service = new PdfService(null) {
+            @Override
+            PDDocument openDocument(File pdfFile) throws IOException {
+                opened.incrementAndGet();
+                return super.openDocument(pdfFile);
+            }
+        };
+        service.setParallelism(4);
+        File pdf = dir.resolve("upload.pdf").toFile();
+        createPdf(pdf, 40);
+
+        CachedDocument document = service.loadDocument(pdf);
+        assertEquals(4, opened.get(), "Every worker should load its copy through openDocument");
+
+        StringBuilder joined = new StringBuilder();
+        service.extractPages(pdf, (pageNumber, total, text) -> joined.append(text));
+        assertEquals(joined.toString(), document.getText());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : benchmarkParallelExtraction
+     * DESCRIPTION : Compares extraction time on a 500 page pdf with 1/4/8/16 workers
+     * PRE-CONDITION : Run with ./gradlew benchmark
+     * POST-CONDITION : Prints the best of three runs for each worker count
+     * ======================================================================
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkParallelExtraction(@TempDir Path dir) throws IOException, PdfProcessingException {
+        PdfService service = new PdfService(null);
+        File pdf = dir.resolve("large.pdf").toFile();
+        createPdf(pdf, 500);
+
+        String expected = service.extractTextParallel(pdf, 1); // warm-up
+        for (int workers : new int[] { 1, 4, 8, 16 }) {
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < 3; run++) {
+                long start = System.nanoTime();
+                String text = service.extractTextParallel(pdf, workers);
+                best = Math.min(best, System.nanoTime() - start);
+                assertEquals(expected.length(), text.length());
+            }
+            System.out.printf("%2d workers: %.1f ms%n", workers, best / 1e6);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : createPdf
+     * DESCRIPTION : Writes a pdf with a marker and filler lines on every page
+     * PRE-CONDITION : file is writable, pages > 0
+     * POST-CONDITION : PDF saved to file
+     * ======================================================================
+     */
+    private static void createPdf(File file, int pages) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int p = 1; p <= pages; p++) {
+                PDPage page = new PDPage();
+                doc.addPage(page);
+                try (PDPageContentStream contents = new PDPageContentStream(doc, page)) {
+                    contents.beginText();
+                    contents.setFont(font, 10);
+                    contents.setLeading(12);
+                    contents.newLineAtOffset(50, 750);
+                    contents.showText("Marker page " + p + " end");
+                    for (int line = 0; line < 50; line++) {
+                        contents.newLine();
+                        contents.showText("Line " + line + " of page " + p
+                                + ": the quick brown fox jumps over the lazy dog.");
+                    }
+                    contents.endText();
+                }
+            }
+            doc.save(file);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : createPdf
+     * DESCRIPTION : Writes a one page pdf holding the given text
+     * PRE-CONDITION : file is writable
+     * POST-CONDITION : PDF saved to file
+     * ======================================================================
+     */
+    private static void createPdf(File file, String text) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            PDPage page = new PDPage();
+            doc.addPage(page);
+            try (PDPageContentStream contents = new PDPageContentStream(doc, page)) {
+                contents.beginText();
+                contents.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                contents.newLineAtOffset(100, 700);
+                contents.showText(text);
+                contents.endText();
+            }
+            doc.save(file);
+        }
+    }
+}
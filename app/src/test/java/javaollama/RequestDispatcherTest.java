@@ -0,0 +1,236 @@
+/**
+======================================================================
+CLASS NAME : RequestDispatcherTest
+DESCRIPTION : Tests of the per-model queues, shortest-prompt-first order and aging of the request dispatcher
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestDispatcherTest {
+
+    private static final String MODEL = "phi3.5:latest";
+
+    private MetricsRegistry metrics;
+    private AtomicLong clock;
+    private RequestDispatcher dispatcher;
+    private List<String> order;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setUp
+     * DESCRIPTION : Creates a dispatcher with one slot per model and a manual clock
+     * PRE-CONDITION : None
+     * POST-CONDITION : Waiting prompts age by 500 tokens per second of the manual clock
+     * ======================================================================
+     */
+    @BeforeEach
+    void setUp() {
+        metrics = new MetricsRegistry();
+        clock = new AtomicLong();
+        dispatcher = new RequestDispatcher(1, 500.0, metrics, clock::get);
+        order = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testShortPromptGoesFirst
+     * DESCRIPTION : Tests that a short question overtakes a long prompt that queued before it
+     * PRE-CONDITION : The only slot is busy, a pdf-sized prompt queues before a short one
+     * POST-CONDITION : The short prompt is admitted first
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A short prompt should be sent before a long one that queued earlier")
+    void testShortPromptGoesFirst() throws Exception {
+        RequestDispatcher.Slot busy = dispatcher.acquire(MODEL, 100);
+        Thread longPrompt = waiter(MODEL, 8000, "long");
+        waitFor(() -> dispatcher.getQueued(MODEL) == 1);
+        Thread shortPrompt = waiter(MODEL, 50, "short");
+        waitFor(() -> dispatcher.getQueued(MODEL) == 2);
+
+        busy.close();
+        longPrompt.join(5000);
+        shortPrompt.join(5000);
+
+        assertEquals(List.of("short", "long"), order);
+        assertEquals(0, dispatcher.getInFlight(MODEL));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testAgingLetsLongPromptThrough
+     * DESCRIPTION : Tests that a long prompt is not starved by a stream of short ones
+     * PRE-CONDITION : Long prompt has waited 20 seconds when a short one arrives
+     * POST-CONDITION : The long prompt is admitted first
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A long prompt that has waited long enough should go before new short ones")
+    void testAgingLetsLongPromptThrough() throws Exception {
+        RequestDispatcher.Slot busy = dispatcher.acquire(MODEL, 100);
+        Thread longPrompt = waiter(MODEL, 8000, "long");
+        waitFor(() -> dispatcher.getQueued(MODEL) == 1);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(20));
+        Thread shortPrompt = waiter(MODEL, 50, "short");
+        waitFor(() -> dispatcher.getQueued(MODEL) == 2);
+
+        busy.close();
+        longPrompt.join(5000);
+        shortPrompt.join(5000);
+
+        // 8000 - 500 * 20 is below 50
+        assertEquals(List.of("long", "short"), order);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testModelsQueuedSeparately
+     * DESCRIPTION : Tests that each model has its own in-flight cap
+     * PRE-CONDITION : The slot of one model is busy
+     * POST-CONDITION : A request for another model is admitted right away
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A busy model should not hold up requests for another model")
+    void testModelsQueuedSeparately() throws Exception {
+        try (RequestDispatcher.Slot chat = dispatcher.acquire(MODEL, 100);
+                RequestDispatcher.Slot embed = dispatcher.acquire("nomic-embed-text", 100)) {
+            assertEquals(1, dispatcher.getInFlight(MODEL));
+            assertEquals(1, dispatcher.getInFlight("nomic-embed-text"));
+            assertEquals(0, embed.getQueueWaitNanos());
+            assertEquals(2, metrics.getGauge("javallama_dispatch_in_flight"));
+        }
+        assertEquals(0, metrics.getGauge("javallama_dispatch_in_flight"));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testQueueWaitSeparateFromService
+     * DESCRIPTION : Tests that waiting and being served are measured apart
+     * PRE-CONDITION : Request waits 3 seconds and is then served for 2 seconds
+     * POST-CONDITION : Slot and histograms show 3s of queue wait and 2s of service
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Queue wait should be reported separately from service time")
+    void testQueueWaitSeparateFromService() throws Exception {
+        RequestDispatcher.Slot busy = dispatcher.acquire(MODEL, 100);
+        RequestDispatcher.Slot[] admitted = new RequestDispatcher.Slot[1];
+        Thread thread = new Thread(() -> {
+            try {
+                admitted[0] = dispatcher.acquire(MODEL, 100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        waitFor(() -> dispatcher.getQueued(MODEL) == 1);
+        assertEquals(1, metrics.getGauge("javallama_dispatch_queued"));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(3));
+        busy.close();
+        thread.join(5000);
+        assertEquals(TimeUnit.SECONDS.toNanos(3), admitted[0].getQueueWaitNanos());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        admitted[0].close();
+
+        LatencyHistogram wait = metrics.latency("javallama_dispatch_queue_wait");
+        LatencyHistogram service = metrics.latency("javallama_dispatch_service");
+        assertEquals(2, wait.getCount());
+        assertEquals(3_000_000, wait.getMax());
+        assertEquals(2, service.getCount());
+        assertEquals(3_000_000 + 2_000_000, service.getSum());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testInterruptedWaiterLeavesQueue
+     * DESCRIPTION : Tests that a caller giving up does not keep its place or a slot
+     * PRE-CONDITION : A request is waiting for the only slot
+     * POST-CONDITION : After its interrupt the queue is empty and the slot is free once released
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("An interrupted request should leave the queue")
+    void testInterruptedWaiterLeavesQueue() throws Exception {
+        RequestDispatcher.Slot busy = dispatcher.acquire(MODEL, 100);
+        boolean[] interrupted = new boolean[1];
+        Thread thread = new Thread(() -> {
+            try {
+                dispatcher.acquire(MODEL, 100);
+            } catch (InterruptedException e) {
+                interrupted[0] = true;
+            }
+        });
+        thread.start();
+        waitFor(() -> dispatcher.getQueued(MODEL) == 1);
+
+        thread.interrupt();
+        thread.join(5000);
+
+        assertTrue(interrupted[0]);
+        assertEquals(0, dispatcher.getQueued(MODEL));
+        busy.close();
+        assertEquals(0, dispatcher.getInFlight(MODEL));
+        try (RequestDispatcher.Slot next = dispatcher.acquire(MODEL, 100)) {
+            assertEquals(1, dispatcher.getInFlight(MODEL));
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : waiter
+     * DESCRIPTION : Starts a thread that queues a request and notes when it is admitted
+     * PRE-CONDITION : None
+     * POST-CONDITION : Thread records its name in the order list and frees its slot
+     * ======================================================================
+     */
+    private Thread waiter(String model, int promptTokens, String name) {
+        Thread thread = new Thread(() -> {
+            try (RequestDispatcher.Slot slot = dispatcher.acquire(model, promptTokens)) {
+                order.add(name);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, name);
+        thread.start();
+        return thread;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : waitFor
+     * DESCRIPTION : Polls a condition until it holds
+     * PRE-CONDITION : None
+     * POST-CONDITION : Fails the test after five seconds
+     * ======================================================================
+     */
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not reached in time");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/**
+======================================================================
+CLASS NAME : ResponseCacheTest
+DESCRIPTION : Tests of the response cache key, its memory and disk tiers and replaying cached answers
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import io.github.ollama4j.Ollama;
+import io.github.ollama4j.models.chat.OllamaChatMessage;
+import io.github.ollama4j.models.chat.OllamaChatMessageRole;
+import io.github.ollama4j.models.chat.OllamaChatRequest;
+import io.github.ollama4j.models.request.ThinkMode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCacheTest {
+
+    @TempDir
+    Path cacheDir;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testKeyCoversRequest
+     * DESCRIPTION : Tests that the key changes with model, options, system prompt and messages
+     * PRE-CONDITION : Requests that differ in one part each
+     * POST-CONDITION : Every change gives a new key, option order does not
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Cache key should depend on model, options and every message")
+    void testKeyCoversRequest() {
+        String base = ResponseCache.key(request("phi3.5", "Be brief.", "What is a pump?", 0.3, 4096));
+
+        assertEquals(base, ResponseCache.key(request("phi3.5", "Be brief.", "What is a pump?", 0.3, 4096)));
+        assertNotEquals(base, ResponseCache.key(request("llama3", "Be brief.", "What is a pump?", 0.3, 4096)));
+        assertNotEquals(base, ResponseCache.key(request("phi3.5", "Be long.", "What is a pump?", 0.3, 4096)));
+        assertNotEquals(base, ResponseCache.key(request("phi3.5", "Be brief.", "What is a valve?", 0.3, 4096)));
+        assertNotEquals(base, ResponseCache.key(request("phi3.5", "Be brief.", "What is a pump?", 0.8, 4096)));
+        assertNotEquals(base, ResponseCache.key(request("phi3.5", "Be brief.", "What is a pump?", 0.3, 8192)));
+
+        OllamaChatRequest reordered = request("phi3.5", "Be brief.", "What is a pump?", 0.3, 4096);
+        Map<String, Object> options = new LinkedHashMap<>();
+        options.put("num_ctx", 4096);
+        options.put("temperature", 0.3);
+        reordered.setOptions(options);
+        assertEquals(base, ResponseCache.key(reordered));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testLeastRecentlyUsedEvicted
+     * DESCRIPTION : Tests that the memory tier stays within its byte limit
+     * PRE-CONDITION : Room for about two entries, the first one is read before the third is added
+     * POST-CONDITION : The entry not read since is evicted
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Memory tier should evict the least recently used answer")
+    void testLeastRecentlyUsedEvicted() {
+        ResponseCache cache = new ResponseCache(800, new MetricsRegistry());
+        List<String> answer = List.of("The ", "pump ", "must ", "be ", "primed.");
+
+        cache.put("a", answer);
+        cache.put("b", answer);
+        assertNotNull(cache.get("a"));
+        cache.put("c", answer);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertTrue(cache.getMemoryBytes() <= 800);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testDiskTierSurvivesRestart
+     * DESCRIPTION : Tests that answers are found on disk by a new cache instance
+     * PRE-CONDITION : Answer stored by one instance
+     * POST-CONDITION : Second instance returns the same tokens and counts the hit
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Disk tier should keep answers across restarts")
+    void testDiskTierSurvivesRestart() {
+        List<String> answer = List.of("Prime ", "the ", "pump ", "first. ", "ü");
+        new ResponseCache(1024, cacheDir, 1024 * 1024, new MetricsRegistry()).put("key", answer);
+
+        MetricsRegistry metrics = new MetricsRegistry();
+        ResponseCache restarted = new ResponseCache(1024, cacheDir, 1024 * 1024, metrics);
+
+        assertNull(restarted.get("other"));
+        assertEquals(answer, restarted.get("key"));
+        assertEquals(1, restarted.size());
+        assertEquals(0.5, restarted.getHitRatio(), 1e-9);
+        assertEquals(1, metrics.getCounter("javallama_response_cache_hits_total"));
+        assertEquals(1, metrics.getCounter("javallama_response_cache_misses_total"));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testRepeatedQuestionReplayed
+     * DESCRIPTION : Tests that a repeated question is streamed from the cache without a request
+     * PRE-CONDITION : Two new conversations ask the same first question, sharing one cache
+     * POST-CONDITION : The server sees one request, the second answer streams the same tokens
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A repeated question should be replayed from the cache as a stream")
+    void testRepeatedQuestionReplayed() throws Exception {
+        try (StubOllamaServer stub = new StubOllamaServer()) {
+            stub.setResponse("Open the valve and prime the pump before starting.");
+            ResponseCache cache = new ResponseCache(1024 * 1024, cacheDir, 1024 * 1024, new MetricsRegistry());
+
+            List<String> generated = new ArrayList<>();
+            OllamaService first = new OllamaService(new Ollama(stub.getUrl()));
+            first.setResponseCache(cache);
+            ChatResponse original = first.chatStream("How do I start the pump?", generated::add);
+
+            List<String> replayed = new ArrayList<>();
+            OllamaService second = new OllamaService(new Ollama(stub.getUrl()));
+            second.setResponseCache(cache);
+            ChatResponse cached = second.chatStream("How do I start the pump?", replayed::add);
+
+            assertEquals(1, stub.getRequests().size());
+            assertFalse(original.isCached());
+            assertTrue(cached.isCached());
+            assertEquals(original.getResponse(), cached.getResponse());
+            assertEquals(generated, replayed);
+            assertTrue(replayed.size() > 1);
+            assertEquals(2, second.getHistory().getMessages().size());
+            assertEquals(0.5, cache.getHitRatio(), 1e-9);
+
+            // a follow-up has a different history, so it goes to the model
+            second.chat("And then?");
+            assertEquals(2, stub.getRequests().size());
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : request
+     * DESCRIPTION : Builds a chat request like the service does
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a request with a system and a user message
+     * ======================================================================
+     */
+    private static OllamaChatRequest request(String model, String system, String question, double temperature,
+            int numCtx) {
+        OllamaChatRequest request = new OllamaChatRequest(model, ThinkMode.DISABLED, List.of(
+                new OllamaChatMessage(OllamaChatMessageRole.SYSTEM, system),
+                new OllamaChatMessage(OllamaChatMessageRole.USER, question)));
+        Map<String, Object> options = new LinkedHashMap<>();
+        options.put("temperature", temperature);
+        options.put("num_ctx", numCtx);
+        request.setOptions(options);
+        return request;
+    }
+}
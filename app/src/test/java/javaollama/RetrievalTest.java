@@ -0,0 +1,224 @@
+/**
+======================================================================
+CLASS NAME : RetrievalTest
+DESCRIPTION : Unit tests and benchmark for chunking, the vector index and retrieval
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import io.github.ollama4j.Ollama;
+import io.github.ollama4j.models.chat.OllamaChatMessage;
+import io.github.ollama4j.models.chat.OllamaChatRequest;
+import io.github.ollama4j.models.chat.OllamaChatResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class RetrievalTest {
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testChunksCoverTextWithOverlap
+     * DESCRIPTION : Tests that chunks cover the whole text and overlap
+     * PRE-CONDITION : Text longer than several chunks
+     * POST-CONDITION : First chunk starts at 0, last ends at length, neighbours overlap
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Chunks should cover the text and overlap")
+    void testChunksCoverTextWithOverlap() {
+        String text = "word ".repeat(2000);
+        int[] bounds = new TextChunker(500, 100).split(text);
+
+        assertTrue(bounds.length >= 6, "Expected several chunks");
+        assertEquals(0, bounds[0]);
+        assertEquals(text.length(), bounds[bounds.length - 1]);
+        for (int i = 2; i < bounds.length; i += 2) {
+            assertTrue(bounds[i] < bounds[i - 1], "Chunk " + i / 2 + " should overlap the previous one");
+            assertTrue(bounds[i + 1] - bounds[i] <= 500, "Chunk should not exceed the chunk size");
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testClusteredSearchMatchesExact
+     * DESCRIPTION : Tests that the clustered search finds an exact duplicate
+     * PRE-CONDITION : Index holds random vectors and is clustered
+     * POST-CONDITION : Querying with a stored vector returns that vector first
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Clustered search should find stored vectors")
+    void testClusteredSearchMatchesExact() {
+        Random random = new Random(7);
+        VectorIndex index = new VectorIndex(32);
+        float[][] stored = new float[500][];
+        for (int i = 0; i < stored.length; i++) {
+            stored[i] = randomVector(random, 32);
+            index.add(stored[i]);
+        }
+        index.buildClusters(22);
+
+        for (int i = 0; i < stored.length; i += 50) {
+            assertEquals(i, index.searchExact(stored[i], 1)[0]);
+            assertEquals(i, index.search(stored[i], 1)[0]);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testLargeContextSendsRelevantChunks
+     * DESCRIPTION : Tests that a large pdf context is retrieved instead of stuffed
+     * PRE-CONDITION : Context far above the retrieval threshold with one relevant passage
+     * POST-CONDITION : Request holds the passage and is much smaller than the document
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Large context should send only relevant chunks")
+    @SuppressWarnings("null")
+    void testLargeContextSendsRelevantChunks() throws Exception {
+        Ollama mockApi = mock(Ollama.class);
+        OllamaChatResult mockResult = mock(OllamaChatResult.class, RETURNS_DEEP_STUBS);
+        when(mockResult.getResponseModel().getMessage().getResponse()).thenReturn("Mock response");
+        when(mockApi.chat(any(), any())).thenReturn(mockResult);
+
+        OllamaService ollama = new OllamaService(mockApi);
+        ollama.setRetriever(new DocumentRetriever(new HashingEmbedder(256), new TextChunker()));
+
+        StringBuilder document = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            document.append("Filler paragraph number ").append(i).append(" about nothing in particular. ");
+            if (i == 600) {
+                document.append("The warranty period for the pump is thirty six months. ");
+            }
+        }
+        String context = document.toString();
+        ollama.setContext(context);
+        assertTrue(ollama.getRetriever().isIndexed(), "Large context should be indexed");
+
+        ollama.chat("What is the warranty period for the pump?");
+
+        ArgumentCaptor<OllamaChatRequest> captor = ArgumentCaptor.forClass(OllamaChatRequest.class);
+        verify(mockApi).chat(captor.capture(), any());
+        int payload = 0;
+        boolean foundPassage = false;
+        for (OllamaChatMessage message : captor.getValue().getMessages()) {
+            payload += message.getResponse().length();
+            foundPassage |= message.getResponse().contains("thirty six months");
+        }
+        assertTrue(foundPassage, "Relevant passage should be retrieved");
+        assertTrue(payload < context.length() / 2, "Request should be smaller than the document");
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : benchmarkExactVersusClustered
+     * DESCRIPTION : Compares recall and latency of brute-force and clustered search
+     * PRE-CONDITION : Run with ./gradlew benchmark
+     * POST-CONDITION : Prints latency per query and recall@10
+     * ======================================================================
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkExactVersusClustered() {
+        int dimension = 384;
+        int count = 20000;
+        int queries = 200;
+        int k = 10;
+        Random random = new Random(42);
+
+        // vectors are grouped around topics, like chunks of a real document
+        float[][] topics = new float[64][];
+        for (int t = 0; t < topics.length; t++) {
+            topics[t] = randomVector(random, dimension);
+        }
+        VectorIndex index = new VectorIndex(dimension);
+        for (int i = 0; i < count; i++) {
+            index.add(noisy(random, topics[random.nextInt(topics.length)], 0.6f));
+        }
+        float[][] queryVectors = new float[queries][];
+        for (int q = 0; q < queries; q++) {
+            queryVectors[q] = noisy(random, topics[random.nextInt(topics.length)], 0.6f);
+        }
+
+        long buildStart = System.nanoTime();
+        index.buildClusters((int) Math.sqrt(count));
+        long buildNanos = System.nanoTime() - buildStart;
+
+        int[][] truth = new int[queries][];
+        long exactStart = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            truth[q] = index.searchExact(queryVectors[q], k);
+        }
+        long exactNanos = System.nanoTime() - exactStart;
+
+        for (int probes : new int[] { 4, 8, 16, 32 }) {
+            index.setProbeCount(probes);
+            int matched = 0;
+            long start = System.nanoTime();
+            int[][] approx = new int[queries][];
+            for (int q = 0; q < queries; q++) {
+                approx[q] = index.search(queryVectors[q], k);
+            }
+            long nanos = System.nanoTime() - start;
+            for (int q = 0; q < queries; q++) {
+                for (int id : approx[q]) {
+                    for (int expected : truth[q]) {
+                        if (id == expected) {
+                            matched++;
+                            break;
+                        }
+                    }
+                }
+            }
+            System.out.printf("clustered probes=%d: %.3f ms/query, recall@%d=%.3f%n",
+                    probes, nanos / 1e6 / queries, k, matched / (double) (queries * k));
+        }
+        System.out.printf("exact: %.3f ms/query (cluster build %.1f ms, %d vectors x %d dims)%n",
+                exactNanos / 1e6 / queries, buildNanos / 1e6, count, dimension);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : randomVector
+     * DESCRIPTION : Builds a gaussian random vector
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a vector of the given dimension
+     * ======================================================================
+     */
+    private static float[] randomVector(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int d = 0; d < dimension; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : noisy
+     * DESCRIPTION : Adds gaussian noise to a base vector
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a new vector near the base
+     * ======================================================================
+     */
+    private static float[] noisy(Random random, float[] base, float noise) {
+        float[] vector = new float[base.length];
+        for (int d = 0; d < base.length; d++) {
+            vector[d] = base[d] + noise * (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
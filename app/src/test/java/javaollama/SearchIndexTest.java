@@ -0,0 +1,216 @@
+/**
+======================================================================
+CLASS NAME : SearchIndexTest
+DESCRIPTION : Tests and query latency benchmark of the full-text search index
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final SearchIndex index = new SearchIndex(new MetricsRegistry());
+
+    /*
+     * ======================================================================
+     * METHOD NAME : tearDown
+     * DESCRIPTION : Stops the indexing thread
+     * PRE-CONDITION : None
+     * POST-CONDITION : Index closed
+     * ======================================================================
+     */
+    @AfterEach
+    void tearDown() {
+        index.close();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testRankedTermQuery
+     * DESCRIPTION : Tests that every word must match and the closer match ranks first
+     * PRE-CONDITION : Three messages, two mention the pump and the valve
+     * POST-CONDITION : The short message about both ranks first, the third is not returned
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Every query word should match and the best match should rank first")
+    void testRankedTermQuery() {
+        int longer = index.add("chat", "The pump is connected to the valve, the valve to the tank, and the tank "
+                + "to the outlet that feeds the garden hose and sprinkler system.");
+        int shorter = index.add("chat", "Close the valve before servicing the pump.");
+        index.add("chat", "The pump needs priming.");
+
+        List<SearchIndex.Hit> hits = index.search("Pump VALVE", 10);
+
+        assertEquals(2, hits.size());
+        assertEquals(shorter, hits.get(0).getDocument());
+        assertEquals(longer, hits.get(1).getDocument());
+        assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+        assertTrue(index.search("pump turbine", 10).isEmpty());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testPhraseAndPrefixQueries
+     * DESCRIPTION : Tests that phrases need adjacent words and prefixes expand
+     * PRE-CONDITION : Messages with the words in and out of order
+     * POST-CONDITION : Phrase matches only the adjacent words, prefix matches every form
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Phrases should need adjacent words and prefixes should match every form")
+    void testPhraseAndPrefixQueries() {
+        int adjacent = index.add("chat", "The pump must be primed before use.");
+        index.add("chat", "Before anything is primed, the pump must be checked.");
+        int priming = index.add("manual.pdf", "Priming takes two minutes.");
+
+        List<SearchIndex.Hit> phrase = index.search("\"primed before\"", 10);
+        assertEquals(1, phrase.size());
+        assertEquals(adjacent, phrase.get(0).getDocument());
+        assertTrue(phrase.get(0).getSnippet().contains("primed before"));
+
+        assertEquals(3, index.search("prim*", 10).size());
+        List<SearchIndex.Hit> both = index.search("prim* minutes", 10);
+        assertEquals(1, both.size());
+        assertEquals(priming, both.get(0).getDocument());
+        assertEquals("manual.pdf", both.get(0).getSource());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testHistoryAndDocumentsIndexed
+     * DESCRIPTION : Tests that history messages and documents are indexed in the background
+     * PRE-CONDITION : History and a document hooked to the index, the document added twice
+     * POST-CONDITION : Messages found with their role, document passages indexed once
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("New messages and loaded documents should become searchable")
+    void testHistoryAndDocumentsIndexed() throws Exception {
+        ConversationHistory history = new ConversationHistory();
+        history.setSearchIndex(index, "chat");
+        history.addUserMessage("How often should the filter be replaced?");
+        history.addAssistantMessage("Replace the filter every six months.");
+        String manual = "Section 1. The filter housing is behind the front panel. ".repeat(100);
+        index.indexDocumentAsync("manual.pdf", "hash-1", manual);
+        index.indexDocumentAsync("manual.pdf", "hash-1", manual);
+        index.flush();
+
+        List<SearchIndex.Hit> hits = index.search("filter six", 10);
+        assertEquals(1, hits.size());
+        assertEquals("chat (assistant)", hits.get(0).getSource());
+        int passages = index.search("housing", 100).size();
+        assertEquals(new TextChunker(2000, 0).split(manual).length / 2, passages);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testStoredConversationIndexed
+     * DESCRIPTION : Tests that a reopened conversation is searchable beyond its loaded window
+     * PRE-CONDITION : Store with 500 messages, history window holds only the last few
+     * POST-CONDITION : The first message is found
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Messages of a stored conversation should be searchable")
+    void testStoredConversationIndexed() throws Exception {
+        try (ConversationStore store = new ConversationStore(tempDir, "chat", 0, 0, new MetricsRegistry())) {
+            store.append(new ConversationHistory.Message("user", "What did you say about the warranty?"));
+            for (int i = 1; i < 500; i++) {
+                store.append(new ConversationHistory.Message(i % 2 == 0 ? "user" : "assistant", "message " + i));
+            }
+            index.indexConversationAsync("chat", store);
+            index.flush();
+        }
+
+        List<SearchIndex.Hit> hits = index.search("warranty", 10);
+        assertEquals(1, hits.size());
+        assertEquals(500, index.size());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : benchmarkQueryLatency
+     * DESCRIPTION : Measures indexing throughput and query latency over a large synthetic history
+     * PRE-CONDITION : Heap holds about 100 mb of text and its index
+     * POST-CONDITION : Results printed, p99 of every query kind in milliseconds
+     * ======================================================================
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkQueryLatency() {
+        // zipf distributed vocabulary, like natural language
+        int vocabulary = 50_000;
+        String[] words = new String[vocabulary];
+        double[] cumulative = new double[vocabulary];
+        double sum = 0;
+        for (int i = 0; i < vocabulary; i++) {
+            words[i] = "w" + Integer.toString(i, 36) + (i % 7 == 0 ? "ing" : "");
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        Random random = new Random(42);
+        int documents = 250_000;
+        long bytes = 0;
+        long start = System.nanoTime();
+        StringBuilder text = new StringBuilder();
+        for (int d = 0; d < documents; d++) {
+            text.setLength(0);
+            int length = 20 + random.nextInt(120);
+            for (int w = 0; w < length; w++) {
+                int at = java.util.Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                text.append(words[Math.min(vocabulary - 1, at < 0 ? -at - 1 : at)]).append(' ');
+            }
+            bytes += text.length();
+            index.add(d % 2 == 0 ? "chat (user)" : "chat (assistant)", text.toString());
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%,d documents, %,d MB, %,d terms, indexed in %.1f s (%.1f MB/s)%n", documents,
+                bytes >> 20, index.getTermCount(), seconds, bytes / 1e6 / seconds);
+
+        String[][] queries = {
+            { "rare term", words[20_000] },
+            { "common term", words[3] },
+            { "two terms", words[10] + " " + words[200] },
+            { "phrase", "\"" + words[0] + " " + words[1] + "\"" },
+            { "rare phrase", "\"" + words[50] + " " + words[60] + "\"" },
+            { "prefix", "w1a*" },
+        };
+        System.out.println("query          hits    p50 ms   p99 ms");
+        for (String[] query : queries) {
+            // untimed runs first, so the percentiles show steady state rather than jit compilation
+            for (int run = 0; run < 5; run++) {
+                index.search(query[1], 10);
+            }
+            LatencyHistogram latency = new LatencyHistogram();
+            int hits = 0;
+            for (int run = 0; run < 50; run++) {
+                long queryStart = System.nanoTime();
+                hits = index.search(query[1], 10).size();
+                latency.record(System.nanoTime() - queryStart);
+            }
+            System.out.printf("%-12s %6d %9.2f %8.2f%n", query[0], hits, latency.getValueAtPercentile(50) / 1e6,
+                    latency.getValueAtPercentile(99) / 1e6);
+            assertTrue(latency.getValueAtPercentile(99) < 250_000_000L, query[0] + " is too slow");
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/**
+======================================================================
+CLASS NAME : SemanticCacheTest
+DESCRIPTION : Tests and paraphrase benchmark of the semantic response cache
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import io.github.ollama4j.Ollama;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SemanticCacheTest {
+
+    private static final String SCOPE = SemanticCache.scope("phi3.5", "manual", "", List.of());
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testParaphraseHits
+     * DESCRIPTION : Tests that a reworded question reuses the answer and a different one does not
+     * PRE-CONDITION : One answer cached, threshold 0.9
+     * POST-CONDITION : Reordered question hits, question about another section misses
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A reworded question should hit and a different question should miss")
+    void testParaphraseHits() throws Exception {
+        SemanticCache cache = new SemanticCache(new HashingEmbedder(1024), 0.9, 100, new MetricsRegistry());
+        List<String> answer = List.of("Section 3 ", "covers ", "priming.");
+        cache.put(SCOPE, cache.embed("What does section 3 say about priming?"), answer);
+
+        assertEquals(answer, cache.lookup(SCOPE, cache.embed("Section 3, what does it say about priming?")));
+        assertNull(cache.lookup(SCOPE, cache.embed("What does section 4 say about priming?")));
+        assertEquals(0.5, cache.getHitRatio(), 1e-9);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testScopeSeparatesDocuments
+     * DESCRIPTION : Tests that the same question on another document or later in a conversation misses
+     * PRE-CONDITION : Answer cached for the first question on one document
+     * POST-CONDITION : Other document and a conversation with earlier turns get a different scope
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("The same question on another document should miss")
+    void testScopeSeparatesDocuments() throws Exception {
+        SemanticCache cache = new SemanticCache(new HashingEmbedder(1024), new MetricsRegistry());
+        float[] question = cache.embed("Summarize the warranty");
+        cache.put(SCOPE, question, List.of("Two years."));
+
+        String otherDocument = SemanticCache.scope("phi3.5", "other manual", "", List.of());
+        String laterTurn = SemanticCache.scope("phi3.5", "manual", "",
+                List.of(new ConversationHistory.Message("user", "Hi")));
+
+        assertNotNull(cache.lookup(SCOPE, question));
+        assertNull(cache.lookup(otherDocument, question));
+        assertNull(cache.lookup(laterTurn, question));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testServiceReplaysParaphrase
+     * DESCRIPTION : Tests that the service answers a paraphrase from the cache without a request
+     * PRE-CONDITION : Two conversations on the same document share one cache
+     * POST-CONDITION : Server sees one request, the second answer is marked cached
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("A paraphrased first question on the same document should be answered from the cache")
+    void testServiceReplaysParaphrase() throws Exception {
+        try (StubOllamaServer stub = new StubOllamaServer()) {
+            stub.setResponse("Prime the pump before starting it.");
+            SemanticCache cache = new SemanticCache(new HashingEmbedder(1024), 0.9, 100, new MetricsRegistry());
+
+            OllamaService first = new OllamaService(new Ollama(stub.getUrl()));
+            first.setContext("Section 1. The pump must be primed before use.");
+            first.setSemanticCache(cache);
+            ChatResponse original = first.chat("How do I start the pump?");
+
+            OllamaService second = new OllamaService(new Ollama(stub.getUrl()));
+            second.setContext("Section 1. The pump must be primed before use.");
+            second.setSemanticCache(cache);
+            List<String> tokens = new ArrayList<>();
+            ChatResponse cached = second.chatStream("how do I start the pump", tokens::add);
+
+            assertEquals(1, stub.getRequests().size());
+            assertTrue(cached.isCached());
+            assertEquals(original.getResponse(), cached.getResponse());
+            assertEquals(original.getResponse(), String.join("", tokens));
+
+            OllamaService otherDocument = new OllamaService(new Ollama(stub.getUrl()));
+            otherDocument.setContext("Section 1. The valve must be closed before use.");
+            otherDocument.setSemanticCache(cache);
+            assertFalse(otherDocument.chat("How do I start the pump?").isCached());
+            assertEquals(2, stub.getRequests().size());
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : benchmarkParaphraseFalseHits
+     * DESCRIPTION : Measures paraphrase hits, false hits and lookup latency per threshold
+     *               on a synthetic set of intents and topics
+     * PRE-CONDITION : None
+     * POST-CONDITION : Results printed, no false hits at the default threshold
+     * ======================================================================
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkParaphraseFalseHits() throws Exception {
+        String[][] intents = {
+            { "summarize %s", "Summarize %s.", "please summarize %s", "summarize %s for me",
+                "can you summarize %s", "give me a summary of %s", "what does %s say" },
+            { "explain %s", "Explain %s, please.", "can you explain %s", "explain %s to me",
+                "please explain %s in simple words", "what is meant by %s" },
+            { "list the requirements of %s", "List the requirements of %s.", "list all requirements of %s",
+                "what are the requirements of %s", "which requirements does %s have" },
+        };
+        List<String> topics = new ArrayList<>();
+        for (int n = 1; n <= 20; n++) {
+            topics.add("section " + n);
+        }
+        topics.addAll(List.of("the warranty", "the safety valve", "the maintenance schedule", "the error codes",
+                "pump priming", "the installation steps", "the spare parts list", "the cleaning procedure"));
+
+        HashingEmbedder embedder = new HashingEmbedder(384);
+        System.out.printf("%d intents x %d topics, bag-of-words hashing embedder%n", intents.length, topics.size());
+        System.out.println("threshold  paraphrase hits  false hits  lookup p50  lookup p99");
+        for (double threshold : new double[] { 0.7, 0.8, 0.85, 0.9, SemanticCache.getDefaultThreshold(), 0.95 }) {
+            SemanticCache cache = new SemanticCache(embedder, threshold, 10_000, new MetricsRegistry());
+            for (int i = 0; i < intents.length; i++) {
+                for (String topic : topics) {
+                    cache.put(SCOPE, cache.embed(String.format(intents[i][0], topic)), List.of(i + "|" + topic));
+                }
+            }
+
+            int queries = 0;
+            int hits = 0;
+            int falseHits = 0;
+            LatencyHistogram latency = new LatencyHistogram();
+            for (int i = 0; i < intents.length; i++) {
+                for (String topic : topics) {
+                    for (int p = 1; p < intents[i].length; p++) {
+                        float[] vector = cache.embed(String.format(intents[i][p], topic));
+                        long start = System.nanoTime();
+                        List<String> answer = cache.lookup(SCOPE, vector);
+                        latency.record(System.nanoTime() - start);
+                        queries++;
+                        if (answer == null) {
+                            continue;
+                        }
+                        if (answer.get(0).equals(i + "|" + topic)) {
+                            hits++;
+                        } else {
+                            falseHits++;
+                        }
+                    }
+                }
+            }
+            System.out.printf("%9.2f  %14.1f%%  %9.1f%%  %7.1f us  %7.1f us%n", threshold, 100.0 * hits / queries,
+                    100.0 * falseHits / queries, latency.getValueAtPercentile(50) / 1e3,
+                    latency.getValueAtPercentile(99) / 1e3);
+            if (threshold == SemanticCache.getDefaultThreshold()) {
+                assertEquals(0, falseHits, "false hits at the default threshold");
+                assertTrue(latency.getValueAtPercentile(50) < 1_000_000, "lookup should be sub-millisecond");
+            }
+        }
+    }
+}
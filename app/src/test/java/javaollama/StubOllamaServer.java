@@ -0,0 +1,414 @@
+/**
+======================================================================
+CLASS NAME : StubOllamaServer
+DESCRIPTION : Local http server imitating the ollama api for tests
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+2026-10-16      Mickel Angelo Castoverde  records clients that drop the connection mid-stream
+2026-10-16      Mickel Angelo Castoverde  optional simulation of model reloads and latency that grows with num_ctx
+2026-10-16      Mickel Angelo Castoverde  optional prompt evaluation delay before the first chunk
+======================================================================
+*/
+package javaollama;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class StubOllamaServer implements AutoCloseable {
+
+    private static final Pattern STREAM = Pattern.compile("\"stream\"\\s*:\\s*true");
+    private static final Pattern KEEP_ALIVE = Pattern.compile("\"keep_alive\"\\s*:\\s*\"([^\"]*)\"");
+    private static final Pattern NUM_CTX = Pattern.compile("\"num_ctx\"\\s*:\\s*(\\d+)");
+    private static final int OLLAMA_DEFAULT_CONTEXT = 2048;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final List<RecordedRequest> requests;
+    private volatile String response;
+    private volatile long tokenDelayMillis;
+    private volatile long firstTokenDelayMillis;
+    private final AtomicInteger tokensSent;
+    private final AtomicInteger disconnects;
+    private String lastPrompt;
+    private volatile boolean simulateContext;
+    private int loadedContext;
+    private int loads;
+    private int truncations;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : StubOllamaServer
+     * DESCRIPTION : Starts the stub on a free local port
+     * PRE-CONDITION : None
+     * POST-CONDITION : Server is accepting requests
+     * ======================================================================
+     */
+    public StubOllamaServer() throws IOException {
+        this.requests = new ArrayList<>();
+        this.response = "Stub response";
+        this.lastPrompt = "";
+        this.tokensSent = new AtomicInteger();
+        this.disconnects = new AtomicInteger();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "stub-ollama");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> reply(exchange, "text/plain", "Ollama is running"));
+        server.createContext("/api/tags", exchange -> reply(exchange, "application/json", "{\"models\":[]}"));
+        server.createContext("/api/chat", this::handleChat);
+        server.start();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getUrl
+     * DESCRIPTION : Gets the base url to hand to the ollama client
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns http://127.0.0.1:port
+     * ======================================================================
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setResponse
+     * DESCRIPTION : Sets the text every chat request answers with
+     * PRE-CONDITION : response is not null
+     * POST-CONDITION : Text is streamed word by word
+     * ======================================================================
+     */
+    public void setResponse(String response) {
+        this.response = response;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setTokenDelayMillis
+     * DESCRIPTION : Sets the pause between streamed tokens
+     * PRE-CONDITION : delay >= 0
+     * POST-CONDITION : Generation is slowed down accordingly
+     * ======================================================================
+     */
+    public void setTokenDelayMillis(long delay) {
+        this.tokenDelayMillis = delay;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setFirstTokenDelayMillis
+     * DESCRIPTION : Sets how long the prompt is evaluated before the first chunk
+     * PRE-CONDITION : delay >= 0
+     * POST-CONDITION : Streamed responses send nothing, not even headers, until the delay is over
+     * ======================================================================
+     */
+    public void setFirstTokenDelayMillis(long delay) {
+        this.firstTokenDelayMillis = delay;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setContextSimulation
+     * DESCRIPTION : Makes reported durations depend on num_ctx like a real server
+     * PRE-CONDITION : None
+     * POST-CONDITION : A new num_ctx reloads the model and drops the cached prefix, larger windows
+     *                  evaluate and generate more slowly, prompts longer than the window are counted
+     * ======================================================================
+     */
+    public void setContextSimulation(boolean simulate) {
+        this.simulateContext = simulate;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getLoads
+     * DESCRIPTION : Gets how often the simulated model was loaded
+     * PRE-CONDITION : Context simulation on
+     * POST-CONDITION : Returns the count, the first load included
+     * ======================================================================
+     */
+    public synchronized int getLoads() {
+        return loads;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getTruncations
+     * DESCRIPTION : Gets how many requests did not fit their window
+     * PRE-CONDITION : Context simulation on
+     * POST-CONDITION : Returns the count of prompts and answers longer than num_ctx
+     * ======================================================================
+     */
+    public synchronized int getTruncations() {
+        return truncations;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getRequests
+     * DESCRIPTION : Gets the chat requests received so far
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns a copy in arrival order
+     * ======================================================================
+     */
+    public synchronized List<RecordedRequest> getRequests() {
+        return new ArrayList<>(requests);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : getTokensSent
+     * DESCRIPTION : Gets the number of tokens written to clients
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the count over all requests
+     * ======================================================================
+     */
+    public int getTokensSent() {
+        return tokensSent.get();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : awaitDisconnect
+     * DESCRIPTION : Waits until a client drops its connection before the stream ends
+     * PRE-CONDITION : timeoutMillis >= 0
+     * POST-CONDITION : Returns true once a write failed because the client was gone
+     * ======================================================================
+     */
+    public boolean awaitDisconnect(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (disconnects.get() == 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : handleChat
+     * DESCRIPTION : Answers a chat request, simulating a prefix kv-cache
+     * PRE-CONDITION : Body is an ollama chat request
+     * POST-CONDITION : prompt_eval_count covers only the prompt after the cached prefix
+     * ======================================================================
+     */
+    private void handleChat(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        String prompt = extractArray(body, "messages");
+        Matcher keepAlive = KEEP_ALIVE.matcher(body);
+
+        String[] tokens = response.split("(?<= )");
+        RecordedRequest recorded;
+        long loadNanos = 1_000_000L;
+        double slowdown = 1.0;
+        int window = Integer.MAX_VALUE;
+        synchronized (this) {
+            if (simulateContext) {
+                Matcher numCtx = NUM_CTX.matcher(body);
+                int context = numCtx.find() ? Integer.parseInt(numCtx.group(1)) : OLLAMA_DEFAULT_CONTEXT;
+                if (context != loadedContext) {
+                    // the kv-cache is allocated for the whole window when the model is loaded
+                    loadedContext = context;
+                    loads++;
+                    loadNanos = 500_000_000L + context * 30_000L;
+                    lastPrompt = "";
+                }
+                if (prompt.length() / 4 + tokens.length > context) {
+                    // the server cuts the prompt to fit, only the window is evaluated
+                    truncations++;
+                    window = context;
+                }
+                // a larger kv-cache spills out of fast memory, every token gets slower
+                slowdown = 1.0 + context / 32768.0;
+            }
+            int common = 0;
+            int limit = Math.min(prompt.length(), lastPrompt.length());
+            while (common < limit && prompt.charAt(common) == lastPrompt.charAt(common)) {
+                common++;
+            }
+            lastPrompt = prompt;
+            int evaluated = Math.min(window, Math.max(1, (prompt.length() - common + 3) / 4));
+            recorded = new RecordedRequest(body, prompt, keepAlive.find() ? keepAlive.group(1) : null, evaluated);
+            requests.add(recorded);
+        }
+
+        long promptNanos = (long) (recorded.promptEvalCount * (simulateContext ? 1_000_000L : 100_000L) * slowdown);
+        long evalNanos = (long) (tokens.length * (simulateContext ? 20_000_000L : 200_000L) * slowdown);
+        long totalNanos = simulateContext ? loadNanos + promptNanos + evalNanos : 5_000_000L;
+        String done = "{\"model\":\"stub\",\"created_at\":\"2025-01-01T00:00:00Z\","
+                + "\"message\":{\"role\":\"assistant\",\"content\":\"%s\"},\"done\":true,\"done_reason\":\"stop\","
+                + "\"total_duration\":" + totalNanos + ",\"load_duration\":" + loadNanos + ","
+                + "\"prompt_eval_count\":" + recorded.promptEvalCount + ",\"prompt_eval_duration\":"
+                + promptNanos + ","
+                + "\"eval_count\":" + tokens.length + ",\"eval_duration\":" + evalNanos + "}";
+
+        exchange.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+        if (!STREAM.matcher(body).find()) {
+            byte[] bytes = String.format(done, escape(response)).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+            return;
+        }
+
+        try {
+            if (firstTokenDelayMillis > 0) {
+                Thread.sleep(firstTokenDelayMillis);
+            }
+            // like ollama, the headers go out with the first chunk
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (String token : tokens) {
+                    String line = "{\"model\":\"stub\",\"created_at\":\"2025-01-01T00:00:00Z\","
+                            + "\"message\":{\"role\":\"assistant\",\"content\":\"" + escape(token) + "\"},\"done\":false}\n";
+                    out.write(line.getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    tokensSent.incrementAndGet();
+                    if (tokenDelayMillis > 0) {
+                        Thread.sleep(tokenDelayMillis);
+                    }
+                }
+                out.write((String.format(done, "") + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            // the client closed the stream, a real server stops generating here
+            disconnects.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : reply
+     * DESCRIPTION : Sends a complete response body
+     * PRE-CONDITION : None
+     * POST-CONDITION : Exchange closed
+     * ======================================================================
+     */
+    private static void reply(HttpExchange exchange, String contentType, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : extractArray
+     * DESCRIPTION : Cuts the raw json array of a field out of a body
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the array text including brackets, empty if absent
+     * ======================================================================
+     */
+    static String extractArray(String json, String field) {
+        int key = json.indexOf("\"" + field + "\"");
+        int start = key < 0 ? -1 : json.indexOf('[', key);
+        if (start < 0) {
+            return "";
+        }
+        int depth = 0;
+        boolean inString = false;
+        for (int i = start; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']' && --depth == 0) {
+                return json.substring(start, i + 1);
+            }
+        }
+        return json.substring(start);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : escape
+     * DESCRIPTION : Escapes text for a json string literal
+     * PRE-CONDITION : None
+     * POST-CONDITION : Returns the escaped text
+     * ======================================================================
+     */
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : close
+     * DESCRIPTION : Stops the stub
+     * PRE-CONDITION : None
+     * POST-CONDITION : Port released
+     * ======================================================================
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * ======================================================================
+     * CLASS NAME : RecordedRequest
+     * DESCRIPTION : A chat request as seen by the stub
+     * AUTHOR : Mickel Angelo Castoverde
+     * COPYRIGHT : macastroverde 2025
+     * REVISION HISTORY
+     * Date: By: Description:
+     * 2026-10-16 Mickel Angelo Castoverde Creation of the program
+     * ======================================================================
+     */
+    public static class RecordedRequest {
+        final String body;
+        final String prompt;
+        final String keepAlive;
+        final int promptEvalCount;
+
+        /*
+         * ======================================================================
+         * METHOD NAME : RecordedRequest
+         * DESCRIPTION : Parameterized constructor
+         * PRE-CONDITION : None
+         * POST-CONDITION : Request recorded
+         * ======================================================================
+         */
+        RecordedRequest(String body, String prompt, String keepAlive, int promptEvalCount) {
+            this.body = body;
+            this.prompt = prompt;
+            this.keepAlive = keepAlive;
+            this.promptEvalCount = promptEvalCount;
+        }
+    }
+}
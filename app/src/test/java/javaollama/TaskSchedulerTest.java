@@ -0,0 +1,217 @@
+/**
+======================================================================
+CLASS NAME : TaskSchedulerTest
+DESCRIPTION : Tests of the generation cap, backpressure and cancellation of the task scheduler
+AUTHOR     : Mickel Angelo Castoverde
+COPYRIGHT  : macastroverde 2025
+REVISION HISTORY
+Date:           By:                       Description:
+2026-10-16      Mickel Angelo Castoverde  Creation of the program
+======================================================================
+*/
+package javaollama;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskSchedulerTest {
+
+    private MetricsRegistry metrics;
+    private TaskScheduler scheduler;
+
+    /*
+     * ======================================================================
+     * METHOD NAME : setUp
+     * DESCRIPTION : Creates a scheduler with two generation slots
+     * PRE-CONDITION : None
+     * POST-CONDITION : Scheduler records into a fresh registry
+     * ======================================================================
+     */
+    @BeforeEach
+    void setUp() {
+        metrics = new MetricsRegistry();
+        scheduler = new TaskScheduler(2, 4, metrics);
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : tearDown
+     * DESCRIPTION : Stops the scheduler
+     * PRE-CONDITION : None
+     * POST-CONDITION : Leftover tasks cancelled
+     * ======================================================================
+     */
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testGenerationsCappedAtMax
+     * DESCRIPTION : Tests that no more generations run at once than there are slots
+     * PRE-CONDITION : Six generations submitted to two slots
+     * POST-CONDITION : At most two ran together, four waited, all completed
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("At most the configured number of generations should run at once")
+    void testGenerationsCappedAtMax() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            int id = i;
+            futures.add(scheduler.submitGeneration("generation-" + i, () -> {
+                peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+                release.await();
+                active.decrementAndGet();
+                return id;
+            }));
+        }
+
+        waitFor(() -> scheduler.getRunningGenerations() == 2 && scheduler.getQueueDepth() == 4);
+        assertEquals(4, metrics.getGauge("javallama_generation_queue_depth"));
+        assertEquals(2, metrics.getGauge("javallama_generations_running"));
+
+        release.countDown();
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i, futures.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(2, peak.get());
+        assertEquals(0, scheduler.getQueueDepth());
+        waitFor(() -> scheduler.getRunningGenerations() == 0);
+        assertEquals(6, metrics.latency("javallama_generation_queue_wait").getCount());
+        assertEquals(6, metrics.latency("javallama_generation_run").getCount());
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testQueueFullRejects
+     * DESCRIPTION : Tests that generations beyond the queue limit are turned away
+     * PRE-CONDITION : Both slots busy and the queue of four is full
+     * POST-CONDITION : The next submission throws and is counted
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Generations beyond the queue limit should be rejected")
+    void testQueueFullRejects() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 6; i++) {
+            scheduler.submitGeneration("generation-" + i, () -> {
+                release.await();
+                return null;
+            });
+        }
+        waitFor(() -> scheduler.getRunningGenerations() == 2);
+
+        assertThrows(RejectedExecutionException.class,
+                () -> scheduler.submitGeneration("one-too-many", () -> null));
+        assertEquals(1, metrics.getCounter("javallama_generations_rejected_total"));
+        assertEquals(4, scheduler.getQueueDepth());
+        release.countDown();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testCancelStopsRunningAndQueued
+     * DESCRIPTION : Tests that cancelling interrupts running work and drops queued work
+     * PRE-CONDITION : Two generations running until interrupted, one waiting
+     * POST-CONDITION : All three are cancelled and their slots are freed
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Cancelling should interrupt running generations and drop queued ones")
+    void testCancelStopsRunningAndQueued() throws Exception {
+        AtomicInteger interrupted = new AtomicInteger();
+        AtomicInteger started = new AtomicInteger();
+        List<Future<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(scheduler.submitGeneration("generation-" + i, () -> {
+                started.incrementAndGet();
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                    throw e;
+                }
+                return null;
+            }));
+        }
+        waitFor(() -> scheduler.getRunningGenerations() == 2 && scheduler.getQueueDepth() == 1);
+
+        assertEquals(3, scheduler.cancelGenerations());
+
+        for (Future<Object> future : futures) {
+            assertTrue(future.isCancelled());
+            assertThrows(CancellationException.class, future::get);
+        }
+        waitFor(() -> scheduler.getRunningGenerations() == 0 && interrupted.get() == 2);
+        assertEquals(0, scheduler.getQueueDepth());
+        assertEquals(2, started.get(), "The queued generation should never start");
+
+        // the slots are free again
+        Future<String> next = scheduler.submitGeneration("after-cancel", () -> "done");
+        assertEquals("done", next.get(5, TimeUnit.SECONDS));
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : testBackgroundTaskRuns
+     * DESCRIPTION : Tests that plain background work runs outside the generation slots
+     * PRE-CONDITION : Both generation slots are busy
+     * POST-CONDITION : Background task still completes and is measured
+     * ======================================================================
+     */
+    @Test
+    @DisplayName("Background tasks should not wait for generation slots")
+    void testBackgroundTaskRuns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            scheduler.submitGeneration("generation-" + i, () -> {
+                release.await();
+                return null;
+            });
+        }
+        String[] threadName = new String[1];
+        Future<?> task = scheduler.submit("load-pdf", () -> threadName[0] = Thread.currentThread().getName());
+
+        task.get(5, TimeUnit.SECONDS);
+        assertEquals("load-pdf", threadName[0]);
+        assertEquals(1, metrics.latency("javallama_task_run").getCount());
+        release.countDown();
+    }
+
+    /*
+     * ======================================================================
+     * METHOD NAME : waitFor
+     * DESCRIPTION : Polls a condition until it holds
+     * PRE-CONDITION : None
+     * POST-CONDITION : Fails the test after five seconds
+     * ======================================================================
+     */
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not reached in time");
+            }
+            Thread.sleep(5);
+        }
+    }
+}